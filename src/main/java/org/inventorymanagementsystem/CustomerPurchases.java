@@ -0,0 +1,30 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Sale;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * One page of a customer's purchase history, newest first, with their lifetime totals.
+ * Purchases before {@code historyFrom} have been archived and count only in the totals.
+ */
+class CustomerPurchases {
+    private Customer customer;
+    private Timestamp historyFrom;
+    private List<Sale> purchases;
+
+    /**
+     * @param historyFrom Oldest time purchases are still listed from, or null if none were archived
+     */
+    CustomerPurchases(Customer customer, Timestamp historyFrom, List<Sale> purchases) {
+        this.customer = customer;
+        this.historyFrom = historyFrom;
+        this.purchases = purchases;
+    }
+
+    public Customer getCustomer() { return customer; }
+    public Timestamp getHistoryFrom() { return historyFrom; }
+    public List<Sale> getPurchases() { return purchases; }
+}
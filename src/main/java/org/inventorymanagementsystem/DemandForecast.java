@@ -0,0 +1,62 @@
+package org.inventorymanagementsystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class DemandForecast {
+    private String from;
+    private int horizonDays;
+    private int historyDays;
+    private int productCount;
+    private long fittedAt;
+    private long lastRunMillis;
+    private int lastRefitted;
+    private final List<ProductForecast> products = new ArrayList<>();
+
+    // Getters and setters
+    public String getFrom() { return from; }
+    public void setFrom(String from) { this.from = from; }
+    public int getHorizonDays() { return horizonDays; }
+    public void setHorizonDays(int horizonDays) { this.horizonDays = horizonDays; }
+    public int getHistoryDays() { return historyDays; }
+    public void setHistoryDays(int historyDays) { this.historyDays = historyDays; }
+    public int getProductCount() { return productCount; }
+    public void setProductCount(int productCount) { this.productCount = productCount; }
+    public long getFittedAt() { return fittedAt; }
+    public void setFittedAt(long fittedAt) { this.fittedAt = fittedAt; }
+    public long getLastRunMillis() { return lastRunMillis; }
+    public void setLastRunMillis(long lastRunMillis) { this.lastRunMillis = lastRunMillis; }
+    public int getLastRefitted() { return lastRefitted; }
+    public void setLastRefitted(int lastRefitted) { this.lastRefitted = lastRefitted; }
+    public List<ProductForecast> getProducts() { return products; }
+
+    static class ProductForecast {
+        private final int productId;
+        private final String name;
+        private final double totalUnits;
+        // Expected units per day, starting with the day after the last closed one
+        private final double[] daily;
+        private final double alpha;
+        private final double gamma;
+        private final double meanAbsError;
+
+        ProductForecast(int productId, String name, double totalUnits, double[] daily, double alpha, double gamma,
+                        double meanAbsError) {
+            this.productId = productId;
+            this.name = name;
+            this.totalUnits = Math.round(totalUnits * 100) / 100.0;
+            this.daily = daily;
+            this.alpha = alpha;
+            this.gamma = gamma;
+            this.meanAbsError = Math.round(meanAbsError * 100) / 100.0;
+        }
+
+        public int getProductId() { return productId; }
+        public String getName() { return name; }
+        public double getTotalUnits() { return totalUnits; }
+        public double[] getDaily() { return daily; }
+        public double getAlpha() { return alpha; }
+        public double getGamma() { return gamma; }
+        public double getMeanAbsError() { return meanAbsError; }
+    }
+}
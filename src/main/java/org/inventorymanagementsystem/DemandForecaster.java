@@ -0,0 +1,469 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Forecasts daily unit demand per product.
+ * <p>
+ * Each product's units sold per day over the last {@code forecastHistoryDays} closed days are
+ * kept in one flat {@code int[]}, a ring indexed by epoch day. Every product is fitted with
+ * additive exponential smoothing with a weekly season (level plus one term per weekday),
+ * choosing the smoothing factors from a small grid by one-step-ahead squared error. Fits run
+ * in parallel on the common fork/join pool.
+ * <p>
+ * The first use reads the history in one streaming scan of the sales date index. After that,
+ * when a day closes, only that day's sales are read: products that sold that day are refitted
+ * over their whole history, and the rest take the new zero day as one smoothing step with
+ * the factors they already have. Today's sales are left out until the day closes.
+ * <p>
+ * Sale paths do not notify the forecaster. Products with new sales are found only by the
+ * day-close scan, which reads the closed day's units from the sales date index anyway. That one
+ * scan also covers sales recorded by other instances on a shared database, which a mark made on
+ * this instance's sale paths would miss. {@link #productChanged} is only for product rows.
+ */
+public final class DemandForecaster {
+    public static final int DEFAULT_HORIZON_DAYS = 14;
+    public static final int DEFAULT_LIMIT = 100;
+    static final int MAX_HORIZON_DAYS = 90;
+
+    private static final int SEASON = 7;
+    private static final double[] ALPHAS = {0.05, 0.1, 0.2, 0.35, 0.5};
+    private static final double[] GAMMAS = {0.05, 0.15, 0.3};
+    // Products fitted by one fork/join leaf
+    private static final int FIT_BATCH = 1_024;
+
+    private static final String SCAN_SALES_SQL =
+            "SELECT product_id, sale_date, quantity_sold FROM sales WHERE sale_date >= ? AND sale_date < ?";
+    private static final String LOAD_PRODUCTS_SQL = "SELECT id, name FROM products";
+    private static final String LOAD_SOME_SQL = "SELECT id, name FROM products WHERE id = ANY(?)";
+
+    private static final DemandForecaster INSTANCE = new DemandForecaster();
+
+    private final Set<Integer> dirtyProducts = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this. Slot i holds product ids[i]; its history is units[i * historyDays ...]
+    // and its weekday terms season[i * SEASON ...], both indexed by epoch day.
+    private int historyDays;
+    private long lastClosedDay;
+    private IntHashMap<Integer> slots = new IntHashMap<>();
+    private int size;
+    private int[] ids = new int[0];
+    private String[] names = new String[0];
+    private boolean[] live = new boolean[0];
+    private int[] units = new int[0];
+    private double[] level = new double[0];
+    private double[] season = new double[0];
+    private double[] alpha = new double[0];
+    private double[] gamma = new double[0];
+    private double[] meanAbsError = new double[0];
+    private long fittedAtMillis;
+    private long lastRunMillis;
+    private int lastRefitted;
+
+    private DemandForecaster() {}
+
+    public static DemandForecaster getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Marks a product that was created, renamed or deleted. Call after the change is committed.
+     * Sales need no call; see the class comment.
+     */
+    public void productChanged(int productId) {
+        dirtyProducts.add(productId);
+    }
+
+    /**
+     * Forecast of every product, the highest total demand first
+     * @param conn Database connection
+     * @param horizonDays Days to forecast, starting today
+     * @param limit Most products to return
+     * @throws SQLException If database error occurs
+     */
+    public synchronized DemandForecast forecast(Connection conn, int horizonDays, int limit) throws SQLException {
+        checkHorizon(horizonDays);
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        refresh(conn);
+        List<DemandForecast.ProductForecast> products = new ArrayList<>();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (live[i]) {
+                count++;
+                products.add(productForecast(i, horizonDays));
+            }
+        }
+        products.sort(Comparator.comparingDouble(DemandForecast.ProductForecast::getTotalUnits).reversed()
+                .thenComparingInt(DemandForecast.ProductForecast::getProductId));
+        DemandForecast forecast = newForecast(horizonDays, count);
+        forecast.getProducts().addAll(products.subList(0, Math.min(limit, products.size())));
+        return forecast;
+    }
+
+    /**
+     * @param conn Database connection
+     * @param horizonDays Days to forecast, starting today
+     * @throws SQLException If database error occurs or the product does not exist
+     */
+    public synchronized DemandForecast.ProductForecast forecastProduct(Connection conn, int productId, int horizonDays)
+            throws SQLException {
+        checkHorizon(horizonDays);
+        refresh(conn);
+        Integer slot = slots.get(productId);
+        if (slot == null || !live[slot]) {
+            throw new SQLException("Product not found with ID: " + productId);
+        }
+        return productForecast(slot, horizonDays);
+    }
+
+    /**
+     * Loads and fits every product so the first forecast does not pay for it. Called at
+     * startup in the background; a forecast requested meanwhile waits for it to finish.
+     * @param conn Database connection
+     * @throws SQLException If database error occurs
+     */
+    public synchronized void preload(Connection conn) throws SQLException {
+        refresh(conn);
+    }
+
+    private void refresh(Connection conn) throws SQLException {
+        long closedDay = LocalDate.now().toEpochDay() - 1;
+        int configuredDays = historyDaysSetting();
+        try {
+            if (lastClosedDay == 0 || configuredDays != historyDays || closedDay - lastClosedDay >= historyDays) {
+                dirtyProducts.clear();
+                loadAll(conn, closedDay, configuredDays);
+                return;
+            }
+            if (!dirtyProducts.isEmpty()) {
+                refreshProducts(conn);
+            }
+            if (closedDay > lastClosedDay) {
+                closeDays(conn, closedDay);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // The history may be half updated; start over on the next call
+            lastClosedDay = 0;
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every product and the whole history in one pass over the sales date index, then
+     * fits every product that sold anything
+     */
+    private void loadAll(Connection conn, long closedDay, int days) throws SQLException {
+        long started = System.currentTimeMillis();
+        historyDays = days;
+        lastClosedDay = closedDay;
+        slots = new IntHashMap<>();
+        size = 0;
+        ids = new int[0];
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(LOAD_PRODUCTS_SQL)) {
+            while (rs.next()) {
+                addSlot(rs.getInt(1), rs.getString(2));
+            }
+        }
+        BitSet sold = scanSales(conn, closedDay - historyDays + 1, closedDay);
+        int[] toFit = sold.stream().toArray();
+        ForkJoinPool.commonPool().invoke(new FitTask(toFit, 0, toFit.length, 0));
+        fittedAtMillis = System.currentTimeMillis();
+        lastRunMillis = fittedAtMillis - started;
+        lastRefitted = toFit.length;
+    }
+
+    /**
+     * Moves the history forward to the newest closed day, reading only the days that closed
+     */
+    private void closeDays(Connection conn, long closedDay) throws SQLException {
+        long started = System.currentTimeMillis();
+        long firstNew = lastClosedDay + 1;
+        int newDays = (int) (closedDay - lastClosedDay);
+        for (int i = 0; i < size; i++) {
+            for (long day = firstNew; day <= closedDay; day++) {
+                units[i * historyDays + ringIndex(day)] = 0;
+            }
+        }
+        lastClosedDay = closedDay;
+        BitSet sold = scanSales(conn, firstNew, closedDay);
+        int[] toFit = sold.stream().toArray();
+        ForkJoinPool.commonPool().invoke(new FitTask(toFit, 0, toFit.length, 0));
+        // The rest sold nothing on the new days; a zero-demand series stays at zero
+        int[] toStep = new int[size];
+        int stepped = 0;
+        for (int i = 0; i < size; i++) {
+            if (live[i] && !sold.get(i) && alpha[i] > 0) {
+                toStep[stepped++] = i;
+            }
+        }
+        ForkJoinPool.commonPool().invoke(new FitTask(toStep, 0, stepped, newDays));
+        fittedAtMillis = System.currentTimeMillis();
+        lastRunMillis = fittedAtMillis - started;
+        lastRefitted = toFit.length;
+    }
+
+    /**
+     * Picks up created, renamed and deleted products. A new product has no closed-day sales yet.
+     */
+    private void refreshProducts(Connection conn) throws SQLException {
+        List<Integer> changed = new ArrayList<>(dirtyProducts);
+        dirtyProducts.removeAll(changed);
+        for (int id : changed) {
+            Integer slot = slots.get(id);
+            if (slot != null) {
+                live[slot] = false;
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(LOAD_SOME_SQL)) {
+            stmt.setObject(1, changed.toArray(new Integer[0]));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Integer slot = slots.get(rs.getInt(1));
+                    if (slot != null) {
+                        live[slot] = true;
+                        names[slot] = rs.getString(2);
+                    } else {
+                        addSlot(rs.getInt(1), rs.getString(2));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the units sold from {@code firstDay} to {@code lastDay} to the history, streaming the
+     * covering date index rather than grouping in the database
+     * @return Slots of the products that sold anything in those days
+     */
+    private BitSet scanSales(Connection conn, long firstDay, long lastDay) throws SQLException {
+        BitSet sold = new BitSet(size);
+        try (PreparedStatement stmt = conn.prepareStatement(SCAN_SALES_SQL)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDate.ofEpochDay(firstDay).atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDate.ofEpochDay(lastDay + 1).atStartOfDay()));
+            stmt.setFetchSize(10_000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                // Day boundaries come in runs; remember the current one instead of converting every row
+                long dayStart = Long.MAX_VALUE;
+                long dayEnd = Long.MIN_VALUE;
+                int ring = 0;
+                while (rs.next()) {
+                    Integer slot = slots.get(rs.getInt(1));
+                    if (slot == null) {
+                        continue;
+                    }
+                    long time = rs.getTimestamp(2).getTime();
+                    if (time < dayStart || time >= dayEnd) {
+                        LocalDate day = rs.getTimestamp(2).toLocalDateTime().toLocalDate();
+                        dayStart = Timestamp.valueOf(day.atStartOfDay()).getTime();
+                        dayEnd = Timestamp.valueOf(day.plusDays(1).atStartOfDay()).getTime();
+                        ring = ringIndex(day.toEpochDay());
+                    }
+                    units[slot * historyDays + ring] += rs.getInt(3);
+                    sold.set(slot);
+                }
+            }
+        }
+        return sold;
+    }
+
+    private void addSlot(int id, String name) {
+        if (size == ids.length) {
+            int capacity = Math.max(1_024, size * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            live = Arrays.copyOf(live, capacity);
+            units = Arrays.copyOf(units, capacity * historyDays);
+            level = Arrays.copyOf(level, capacity);
+            season = Arrays.copyOf(season, capacity * SEASON);
+            alpha = Arrays.copyOf(alpha, capacity);
+            gamma = Arrays.copyOf(gamma, capacity);
+            meanAbsError = Arrays.copyOf(meanAbsError, capacity);
+        }
+        int slot = size++;
+        ids[slot] = id;
+        names[slot] = name;
+        live[slot] = true;
+        Arrays.fill(units, slot * historyDays, (slot + 1) * historyDays, 0);
+        level[slot] = 0;
+        Arrays.fill(season, slot * SEASON, (slot + 1) * SEASON, 0);
+        alpha[slot] = 0;
+        gamma[slot] = 0;
+        meanAbsError[slot] = 0;
+        slots.put(id, slot);
+    }
+
+    /**
+     * Fits slot {@code i} over its whole history: the first week seeds the level and weekday
+     * terms, and each factor pair in the grid is scored on the remaining days
+     */
+    private void fit(int i) {
+        double bestError = Double.MAX_VALUE;
+        double bestAlpha = ALPHAS[0];
+        double bestGamma = GAMMAS[0];
+        double[] state = new double[SEASON + 1];
+        for (double a : ALPHAS) {
+            for (double g : GAMMAS) {
+                double error = smooth(i, a, g, state)[0];
+                if (error < bestError) {
+                    bestError = error;
+                    bestAlpha = a;
+                    bestGamma = g;
+                }
+            }
+        }
+        double[] errors = smooth(i, bestAlpha, bestGamma, state);
+        System.arraycopy(state, 0, season, i * SEASON, SEASON);
+        level[i] = state[SEASON];
+        alpha[i] = bestAlpha;
+        gamma[i] = bestGamma;
+        meanAbsError[i] = errors[1] / (historyDays - SEASON);
+    }
+
+    /**
+     * Runs the smoothing recursion over the history of slot {@code i}
+     * @param state Receives the weekday terms, indexed by epoch day modulo 7, then the level
+     * @return Sum of squared and sum of absolute one-step errors
+     */
+    private double[] smooth(int i, double a, double g, double[] state) {
+        int base = i * historyDays;
+        long firstDay = lastClosedDay - historyDays + 1;
+        double l = 0;
+        for (int d = 0; d < SEASON; d++) {
+            l += units[base + ringIndex(firstDay + d)];
+        }
+        l /= SEASON;
+        for (int d = 0; d < SEASON; d++) {
+            state[weekday(firstDay + d)] = units[base + ringIndex(firstDay + d)] - l;
+        }
+        double squared = 0;
+        double absolute = 0;
+        for (long day = firstDay + SEASON; day <= lastClosedDay; day++) {
+            int k = weekday(day);
+            double y = units[base + ringIndex(day)];
+            double error = y - (l + state[k]);
+            squared += error * error;
+            absolute += Math.abs(error);
+            double next = a * (y - state[k]) + (1 - a) * l;
+            state[k] = g * (y - next) + (1 - g) * state[k];
+            l = next;
+        }
+        state[SEASON] = l;
+        return new double[] {squared, absolute};
+    }
+
+    /**
+     * Applies the newest {@code days} closed days to slot {@code i} with its current factors
+     */
+    private void step(int i, int days) {
+        int base = i * historyDays;
+        int seasonBase = i * SEASON;
+        double l = level[i];
+        for (long day = lastClosedDay - days + 1; day <= lastClosedDay; day++) {
+            int k = seasonBase + weekday(day);
+            double y = units[base + ringIndex(day)];
+            double next = alpha[i] * (y - season[k]) + (1 - alpha[i]) * l;
+            season[k] = gamma[i] * (y - next) + (1 - gamma[i]) * season[k];
+            l = next;
+        }
+        level[i] = l;
+    }
+
+    private DemandForecast.ProductForecast productForecast(int i, int horizonDays) {
+        double[] daily = new double[horizonDays];
+        double total = 0;
+        for (int h = 0; h < horizonDays; h++) {
+            double value = Math.max(0, level[i] + season[i * SEASON + weekday(lastClosedDay + 1 + h)]);
+            daily[h] = Math.round(value * 100) / 100.0;
+            total += value;
+        }
+        return new DemandForecast.ProductForecast(ids[i], names[i], total, daily, alpha[i], gamma[i], meanAbsError[i]);
+    }
+
+    private DemandForecast newForecast(int horizonDays, int products) {
+        DemandForecast forecast = new DemandForecast();
+        forecast.setFrom(LocalDate.ofEpochDay(lastClosedDay + 1).toString());
+        forecast.setHorizonDays(horizonDays);
+        forecast.setHistoryDays(historyDays);
+        forecast.setProductCount(products);
+        forecast.setFittedAt(fittedAtMillis);
+        forecast.setLastRunMillis(lastRunMillis);
+        forecast.setLastRefitted(lastRefitted);
+        return forecast;
+    }
+
+    private int ringIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) historyDays);
+    }
+
+    private static int weekday(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) SEASON);
+    }
+
+    private static void checkHorizon(int horizonDays) {
+        if (horizonDays < 1 || horizonDays > MAX_HORIZON_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_HORIZON_DAYS);
+        }
+    }
+
+    // At least two weeks, so there is a week to seed from and a week to score on; whole weeks only
+    private static int historyDaysSetting() {
+        int days = Integer.parseInt(DatabaseConnection.getSetting("forecastHistoryDays"));
+        return Math.max(2, (days + SEASON - 1) / SEASON) * SEASON;
+    }
+
+    /**
+     * Fits, or with {@code stepDays > 0} steps forward, a range of slots, splitting until a
+     * range is small enough for one worker. Each slot writes only its own part of the arrays.
+     */
+    private final class FitTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] slotsToFit;
+        private final int from;
+        private final int to;
+        private final int stepDays;
+
+        private FitTask(int[] slotsToFit, int from, int to, int stepDays) {
+            this.slotsToFit = slotsToFit;
+            this.from = from;
+            this.to = to;
+            this.stepDays = stepDays;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FIT_BATCH) {
+                for (int n = from; n < to; n++) {
+                    if (stepDays > 0) {
+                        step(slotsToFit[n], stepDays);
+                    } else {
+                        fit(slotsToFit[n]);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FitTask(slotsToFit, from, middle, stepDays), new FitTask(slotsToFit, middle, to, stepDays));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.inventorymanagementsystem;
+
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing hash map from positive int keys to values, for the in-memory store.
+ * Keys live in a plain {@code int[]} probed linearly, so lookups neither box the key nor
+ * follow an entry pointer per bucket. Key 0 marks an empty slot; entity IDs start at 1.
+ * Not thread-safe.
+ */
+final class IntHashMap<V> {
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int resizeAt;
+
+    IntHashMap() {
+        this(16);
+    }
+
+    IntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        resizeAt = capacity / 2;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return (V) values[i];
+            if (k == EMPTY) return null;
+        }
+    }
+
+    /**
+     * @return The previous value, or null
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Key must be positive: " + key);
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return The removed value, or null
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; keys[i] != key; i = (i + 1) & mask) {
+            if (keys[i] == EMPTY) return null;
+        }
+        V removed = (V) values[i];
+        // Shift later entries of the probe run back so lookups never stop at a hole
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) action.accept((V) values[i]);
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        resizeAt = capacity / 2;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = slot(oldKeys[j], mask);
+            while (keys[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    // Fibonacci hashing spreads sequential IDs across the table
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -1,106 +1,120 @@
 package org.inventorymanagementsystem;
 
-import com.google.gson.Gson;
 import org.inventorymanagementsystem.controller.DatabaseConnection;
-
+import org.inventorymanagementsystem.controller.InventoryHistory;
+import org.inventorymanagementsystem.controller.ReportingReplica;
+import org.inventorymanagementsystem.controller.SalesArchive;
+import org.inventorymanagementsystem.controller.StartupSequence;
+import org.inventorymanagementsystem.controller.StockLedger;
+import org.inventorymanagementsystem.controller.SyncChangeTrigger;
+
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Location;
+import org.inventorymanagementsystem.model.LocationStock;
+import org.inventorymanagementsystem.model.Money;
 import org.inventorymanagementsystem.model.Supplier;
 import org.inventorymanagementsystem.model.Product;
 import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
+import org.inventorymanagementsystem.repository.CustomerRepository;
+import org.inventorymanagementsystem.repository.LocationRepository;
+import org.inventorymanagementsystem.repository.ProductRepository;
+import org.inventorymanagementsystem.repository.SaleRepository;
+import org.inventorymanagementsystem.repository.SupplierRepository;
+import org.inventorymanagementsystem.repository.SyncRepository;
 
-
-import static org.inventorymanagementsystem.controller.APIServer.start;
-import static spark.Spark.*;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class InventoryManagementSystem {
-    private static final Scanner scanner = new Scanner(System.in);
-    private static final Gson gson = new Gson();
+    private static final ProductRepository productRepository = new ProductRepository();
+    private static final SupplierRepository supplierRepository = new SupplierRepository();
+    private static final SaleRepository saleRepository = new SaleRepository();
+    private static final LocationRepository locationRepository = new LocationRepository();
+    private static final SyncRepository syncRepository = new SyncRepository();
+    private static final CustomerRepository customerRepository = new CustomerRepository();
+
+    // SQL state of a foreign key that points at no row
+    private static final String PARENT_MISSING = "23506";
+    // SQL state of a duplicate key
+    private static final String DUPLICATE_KEY = "23505";
+    // Most product IDs or stock adjustments taken by one batch call
+    static final int MAX_BATCH = 1000;
+    // Most changes sent in one sync page
+    static final int MAX_SYNC_PAGE = 5000;
+    // Width of products.sku
+    static final int MAX_SKU_LENGTH = 64;
+
+    // Same bound as the inventory report's stock_quantity < 10
+    private static final int LOW_STOCK = 10;
+
+    // Bounds used when a sales query has no date limit, so the SQL text stays the same
+    private static final Timestamp MIN_DATE = Timestamp.valueOf("1970-01-01 00:00:00");
+    private static final Timestamp MAX_DATE = Timestamp.valueOf("9999-12-31 00:00:00");
 
     public static void main(String[] args) {
-        // Start the API server
-        start();
-        // Start the console interface
-        startConsoleInterface();
-    }
-
-    private static void startConsoleInterface() {
-        try {
-            DatabaseConnection.startWebServer();
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                awaitInitialization();
-            }
-        } catch (SQLException e) {
-            System.err.println("Database error: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            scanner.close();
-        }
+        // Database, API server, indexes and the optional H2 console
+        StartupSequence.run();
     }
 
 
-
     // Shared business logic methods
     public static List<Product> getAllProducts(Connection conn) throws SQLException {
-        List<Product> products = new ArrayList<>();
-        // In getAllProducts(), modify the query:
-        String sql = "SELECT p.id, p.name, p.price, p.stock_quantity, " +
-                "p.supplier_id, s.name as supplier_name " +
-                "FROM products p LEFT JOIN suppliers s ON p.supplier_id = s.id " +
-                "ORDER BY p.name";
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                products.add(new Product(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getDouble("price"),
-                        rs.getInt("stock_quantity")
+        return getAllProducts(conn, false);
+    }
 
-                ));
-            }
-        }
-        return products;
+    /**
+     * @param expandSupplier If true, each product carries its supplier, read in the same query
+     */
+    public static List<Product> getAllProducts(Connection conn, boolean expandSupplier) throws SQLException {
+        return withCurrentStock(productRepository.findAll(conn, expandSupplier));
     }
 
     public static Product addProduct(Connection conn, Product product) throws SQLException {
-        String sql = "INSERT INTO products (name, price, stock_quantity, supplier_id) VALUES (?, ?, ?, ?)";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, product.getName());
-            stmt.setDouble(2, product.getPrice());
-            stmt.setInt(3, product.getStockQuantity());
-            stmt.setInt(4, product.getSupplierId());
-
-            stmt.executeUpdate();
-
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return new Product(
-                            rs.getInt(1),
-                            product.getName(),
-                            product.getPrice(),
-                            product.getStockQuantity()
-                    );
-                }
+        product.setSku(normalizeSku(product.getSku()));
+        Product created;
+        try {
+            created = productRepository.insert(conn, product);
+        } catch (SQLException e) {
+            // The SKU is the only unique column besides the ID
+            if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                throw new IllegalArgumentException("SKU already in use: " + product.getSku());
             }
+            throw e;
+        }
+        if (created == null) {
+            throw supplierMissing(product.getSupplierId());
+        }
+        if (StockLedger.isEnabled()) {
+            StockLedger.register(created.getId(), created.getStockQuantity());
         }
-        return product;
+        ProductSearchIndex.getInstance().put(created);
+        ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, created.getId());
+        RestockPlanner.getInstance().productChanged(created.getId());
+        DemandForecaster.getInstance().productChanged(created.getId());
+        return created;
     }
 
     public static Product updateProductStock(Connection conn, int productId, int newQuantity) throws SQLException {
-        String sql = "UPDATE products SET stock_quantity = ? WHERE id = ?";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, newQuantity);
-            stmt.setInt(2, productId);
-            stmt.executeUpdate();
+        Product updated = StockLedger.overlay(productRepository.updateStock(conn, productId, newQuantity));
+        if (updated == null) {
+            Integer located = productRepository.findLocatedQuantity(conn, productId);
+            if (located == null) {
+                throw new SQLException("Product not found with ID: " + productId);
+            }
+            throw belowLocated(productId, located);
         }
-
-        // Return updated product
-        return getProductById(conn, productId);
+        ProductSearchIndex.getInstance().put(updated);
+        ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, productId);
+        RestockPlanner.getInstance().productChanged(productId);
+        return updated;
     }
 
     // In InventoryManagementSystem.recordSale()
@@ -109,64 +123,138 @@ public class InventoryManagementSystem {
         if (sale.getQuantitySold() <= 0) {
             throw new IllegalArgumentException("Quantity must be positive");
         }
+        if (sale.getLocationId() > 0) {
+            return recordLocatedSale(conn, sale);
+        }
+        if (StockLedger.isEnabled()) {
+            return recordLoggedSale(conn, sale);
+        }
 
+        Product product;
         conn.setAutoCommit(false);
         try {
-            Product product = getProductById(conn, sale.getProductId());
-            sale.setUnitPrice(product.getPrice()); // Capture current price
-
-            if (product.getStockQuantity() < sale.getQuantitySold()) {
+            // Takes the stock and reads the price in one guarded statement, so nothing can change in between
+            product = productRepository.adjustStock(conn, sale.getProductId(), -sale.getQuantitySold());
+            if (product == null) {
+                getProductById(conn, sale.getProductId());
                 throw new SQLException("Insufficient stock");
             }
-
-            // Record sale (updated SQL to include price)
-            String saleSql = "INSERT INTO sales (product_id, quantity_sold, unit_price) VALUES (?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(saleSql, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setInt(1, sale.getProductId());
-                stmt.setInt(2, sale.getQuantitySold());
-                stmt.setDouble(3, sale.getUnitPrice());
-                stmt.executeUpdate();
-
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) sale.setId(rs.getInt(1));
-                }
-            }
-
-            // Update stock
-            updateProductStock(conn, sale.getProductId(),
-                    product.getStockQuantity() - sale.getQuantitySold());
-
+            sale.setUnitPriceCents(product.getPriceCents()); // Capture current price
+            insertSale(conn, sale);
             conn.commit();
-            return sale;
-        } catch (Exception e) {
+        } catch (SQLException | RuntimeException e) {
             conn.rollback();
             throw e;
         } finally {
             conn.setAutoCommit(true);
         }
+
+        ProductSearchIndex.getInstance().put(product);
+        ReportingReplica.publish(ReportingReplica.Table.SALES, sale.getId());
+        ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, sale.getProductId());
+        RestockPlanner.getInstance().productChanged(sale.getProductId());
+        return sale;
     }
+    /**
+     * Records a sale when stock lives in the stock log. The stock is taken first, so two sales
+     * cannot both take the last unit, and handed back if the sale cannot be stored.
+     */
+    private static Sale recordLoggedSale(Connection conn, Sale sale) throws SQLException {
+        Product product = getProductById(conn, sale.getProductId());
+        sale.setUnitPriceCents(product.getPriceCents()); // Capture current price
+
+        Integer remaining = StockLedger.tryAdjust(sale.getProductId(), -sale.getQuantitySold());
+        if (remaining == null) {
+            throw new SQLException("Insufficient stock");
+        }
+        try {
+            if (sale.getCustomerId() > 0) {
+                // The customer's totals must commit with the sale; an anonymous sale is one statement
+                conn.setAutoCommit(false);
+                try {
+                    insertSale(conn, sale);
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } else {
+                insertSale(conn, sale);
+            }
+        } catch (SQLException | RuntimeException e) {
+            StockLedger.tryAdjust(sale.getProductId(), sale.getQuantitySold());
+            throw e;
+        }
+        // The replica and restock planner hear about the stock once it reaches the products table
+        ProductSearchIndex.getInstance().updateStock(sale.getProductId(), remaining);
+        ReportingReplica.publish(ReportingReplica.Table.SALES, sale.getId());
+        return sale;
+    }
+
+    /**
+     * Stores a sale and adds it to its customer's totals, inside the caller's transaction
+     * @throws SQLException If database error occurs or the customer does not exist
+     */
+    private static void insertSale(Connection conn, Sale sale) throws SQLException {
+        sale.setId(saleRepository.insert(conn, sale));
+        if (sale.getCustomerId() > 0 && !customerRepository.addPurchase(conn, sale.getCustomerId(), sale.getId(),
+                sale.getQuantitySold(), sale.getTotalPriceCents())) {
+            throw new SQLException("Customer not found with ID: " + sale.getCustomerId());
+        }
+    }
+
     /**
      * Updates an existing product in the database
      * @param conn Database connection
      * @param product Product with updated values
-     * @return The updated product
+     * @param expectedVersion Version the client last saw (from If-Match), or null to overwrite
+     *                        whatever is stored
+     * @return The updated product, with its new version
+     * @throws VersionConflictException If the product has changed since the expected version
      * @throws SQLException If database error occurs
      */
-    public static Product updateProduct(Connection conn, Product product) throws SQLException {
-        String sql = "UPDATE products SET name = ?, price = ?, stock_quantity = ?, supplier_id = ? WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, product.getName());
-            stmt.setDouble(2, product.getPrice());
-            stmt.setInt(3, product.getStockQuantity());
-            stmt.setInt(4, product.getId());
-
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
+    public static Product updateProduct(Connection conn, Product product, Integer expectedVersion) throws SQLException {
+        product.setSku(normalizeSku(product.getSku()));
+        Product updated;
+        try {
+            updated = expectedVersion == null
+                    ? productRepository.update(conn, product)
+                    : productRepository.updateIfVersion(conn, product, expectedVersion);
+        } catch (SQLException e) {
+            if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                throw new IllegalArgumentException("SKU already in use: " + product.getSku());
+            }
+            throw e;
+        }
+        if (updated == null) {
+            Product current = productRepository.findById(conn, product.getId());
+            if (current == null) {
                 throw new SQLException("Product not found with ID: " + product.getId());
             }
-
-            return product;
+            if (expectedVersion == null || current.getVersion() == expectedVersion) {
+                // Stock at locations never exceeds the total, so only a cut can have been refused for it
+                if (product.getStockQuantity() < current.getStockQuantity()) {
+                    Integer located = productRepository.findLocatedQuantity(conn, product.getId());
+                    if (located != null && product.getStockQuantity() < located) {
+                        throw belowLocated(product.getId(), located);
+                    }
+                }
+                throw supplierMissing(product.getSupplierId());
+            }
+            throw new VersionConflictException("Product " + product.getId() + " is at version " +
+                    current.getVersion() + ", not " + expectedVersion);
+        }
+        if (StockLedger.isEnabled()) {
+            StockLedger.register(updated.getId(), updated.getStockQuantity());
         }
+
+        ProductSearchIndex.getInstance().put(updated);
+        ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, updated.getId());
+        RestockPlanner.getInstance().productChanged(updated.getId());
+        DemandForecaster.getInstance().productChanged(updated.getId());
+        return updated;
     }
 
     /**
@@ -177,13 +265,17 @@ public class InventoryManagementSystem {
      * @throws SQLException If database error occurs
      */
     public static boolean deleteProduct(Connection conn, int id) throws SQLException {
-        String sql = "DELETE FROM products WHERE id = ?";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, id);
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
+        int affectedRows = productRepository.delete(conn, id);
+        if (affectedRows > 0) {
+            if (StockLedger.isEnabled()) {
+                StockLedger.remove(id);
+            }
+            ProductSearchIndex.getInstance().remove(id);
+            ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, id);
+            RestockPlanner.getInstance().productChanged(id);
+            DemandForecaster.getInstance().productChanged(id);
         }
+        return affectedRows > 0;
     }
 
     /**
@@ -195,54 +287,175 @@ public class InventoryManagementSystem {
      * @throws SQLException If database error occurs or insufficient stock
      */
     public static Product adjustStock(Connection conn, int id, int delta) throws SQLException {
-        // First get current stock
-        Product product = getProductById(conn, id);
+        if (StockLedger.isEnabled()) {
+            if (StockLedger.tryAdjust(id, delta) == null) {
+                throw new SQLException("Insufficient stock for this adjustment");
+            }
+            Product updated = getProductById(conn, id);
+            ProductSearchIndex.getInstance().put(updated);
+            return updated;
+        }
 
-        // Check if adjustment would make stock negative
-        if (product.getStockQuantity() + delta < 0) {
+        Product updated = productRepository.adjustStock(conn, id, delta);
+        if (updated == null) {
+            // Only a refused adjustment pays for a second query, to report why
+            getProductById(conn, id);
             throw new SQLException("Insufficient stock for this adjustment");
         }
+        ProductSearchIndex.getInstance().put(updated);
+        ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, id);
+        RestockPlanner.getInstance().productChanged(id);
+        return updated;
+    }
+
+    /**
+     * Applies many stock changes in one transaction, in order. Each is guarded like a single
+     * adjustment and is rejected if it would make stock negative, counting the earlier lines.
+     * @param conn Database connection
+     * @param lines Changes to apply; their status and resulting stock are filled in
+     * @param atomic If true, nothing is applied unless every line can be
+     * @return Every line, with the stock after the batch for those applied
+     * @throws IllegalArgumentException If there are more than {@value #MAX_BATCH} lines
+     * @throws SQLException If database error occurs
+     */
+    public static StockAdjustmentResult adjustStock(Connection conn, List<StockAdjustmentLine> lines, boolean atomic)
+            throws SQLException {
+        checkBatchSize(lines.size());
+        if (StockLedger.isEnabled()) {
+            return adjustStockInLedger(lines, atomic);
+        }
+
+        Map<Integer, Product> after = new HashMap<>();
+        conn.setAutoCommit(false);
+        try {
+            int[] updated = productRepository.adjustStockGuarded(conn, lines);
+            // One read tells missing products from short stock and gives the final quantities
+            for (Product product : productRepository.findByIds(conn, productIds(lines))) {
+                after.put(product.getId(), product);
+            }
+            boolean failed = false;
+            for (int i = 0; i < lines.size(); i++) {
+                StockAdjustmentLine line = lines.get(i);
+                if (updated[i] > 0) {
+                    line.setStatus(StockAdjustmentLine.Status.APPLIED);
+                } else {
+                    line.setStatus(after.containsKey(line.getProductId())
+                            ? StockAdjustmentLine.Status.INSUFFICIENT_STOCK
+                            : StockAdjustmentLine.Status.NOT_FOUND);
+                    failed = true;
+                }
+            }
+            if (atomic && failed) {
+                conn.rollback();
+                for (StockAdjustmentLine line : lines) {
+                    if (line.getStatus() == StockAdjustmentLine.Status.APPLIED) {
+                        line.setStatus(StockAdjustmentLine.Status.NOT_APPLIED);
+                    }
+                }
+                return new StockAdjustmentResult(true, lines);
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        Map<Integer, Integer> changed = new HashMap<>();
+        for (StockAdjustmentLine line : lines) {
+            if (line.getStatus() == StockAdjustmentLine.Status.APPLIED) {
+                Product product = after.get(line.getProductId());
+                line.setStockQuantity(product.getStockQuantity());
+                changed.put(product.getId(), product.getStockQuantity());
+            }
+        }
+        for (Integer id : changed.keySet()) {
+            ProductSearchIndex.getInstance().put(after.get(id));
+            ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, id);
+            RestockPlanner.getInstance().productChanged(id);
+        }
+        return new StockAdjustmentResult(atomic, lines);
+    }
 
-        String sql = "UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, delta);
-            stmt.setInt(2, id);
-            stmt.executeUpdate();
+    private static StockAdjustmentResult adjustStockInLedger(List<StockAdjustmentLine> lines, boolean atomic)
+            throws SQLException {
+        int[] productIds = new int[lines.size()];
+        int[] deltas = new int[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            productIds[i] = lines.get(i).getProductId();
+            deltas[i] = lines.get(i).getDelta();
+        }
+        int[] results = StockLedger.tryAdjustAll(productIds, deltas, atomic);
+
+        // The last applied line of a product holds its final quantity
+        Map<Integer, Integer> finalStock = new HashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            StockAdjustmentLine line = lines.get(i);
+            switch (results[i]) {
+                case StockLedger.NO_SUCH_PRODUCT -> line.setStatus(StockAdjustmentLine.Status.NOT_FOUND);
+                case StockLedger.NOT_ENOUGH_STOCK -> line.setStatus(StockAdjustmentLine.Status.INSUFFICIENT_STOCK);
+                case StockLedger.NOT_APPLIED -> line.setStatus(StockAdjustmentLine.Status.NOT_APPLIED);
+                default -> {
+                    line.setStatus(StockAdjustmentLine.Status.APPLIED);
+                    finalStock.put(line.getProductId(), results[i]);
+                }
+            }
+        }
+        for (StockAdjustmentLine line : lines) {
+            if (line.getStatus() == StockAdjustmentLine.Status.APPLIED) {
+                line.setStockQuantity(finalStock.get(line.getProductId()));
+            }
+        }
+        finalStock.forEach(ProductSearchIndex.getInstance()::updateStock);
+        return new StockAdjustmentResult(atomic, lines);
+    }
 
-            // Return updated product
-            return getProductById(conn, id);
+    private static List<Integer> productIds(List<StockAdjustmentLine> lines) {
+        List<Integer> ids = new ArrayList<>(lines.size());
+        for (StockAdjustmentLine line : lines) {
+            ids.add(line.getProductId());
+        }
+        return ids;
+    }
+
+    static void checkBatchSize(int size) {
+        if (size > MAX_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH + " items per request, got " + size);
         }
     }
 
     /**
-     * Retrieves all sales records
+     * Retrieves the sales still in the sales table, i.e. the hot months not yet archived
      * @param conn Database connection
-     * @return List of all sales
+     * @return Sales, newest first
      * @throws SQLException If database error occurs
      */
     public static List<Sale> getAllSales(Connection conn) throws SQLException {
-        List<Sale> sales = new ArrayList<>();
-        String sql = "SELECT s.id, s.product_id, p.name as product_name, " +
-                "s.quantity_sold, s.unit_price, s.sale_date " +
-                "FROM sales s JOIN products p ON s.product_id = p.id " +
-                "ORDER BY COALESCE(s.sale_date, CURRENT_TIMESTAMP) DESC";
-
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Sale sale = new Sale();
-                sale.setId(rs.getInt("id"));
-                sale.setProductId(rs.getInt("product_id"));
-                sale.setProductName(rs.getString("product_name"));
-                sale.setQuantitySold(rs.getInt("quantity_sold"));
-                sale.setUnitPrice(rs.getDouble("unit_price"));
-
-                // Handle potential null sale_date
-                Timestamp saleDate = rs.getTimestamp("sale_date");
-                sale.setSaleDate(saleDate != null ? saleDate : new Timestamp(System.currentTimeMillis()));
+        return saleRepository.findAll(conn);
+    }
 
-                sales.add(sale);
+    /**
+     * Retrieves sales in a date range, reading archived months from their segment files
+     * @param conn Database connection
+     * @param fromDate Start date (yyyy-MM-dd) or null for the start of the hot months
+     * @param toDate End date (yyyy-MM-dd), inclusive, or null for no upper bound
+     * @return Sales, newest first
+     * @throws SQLException If database error occurs
+     */
+    public static List<Sale> getSales(Connection conn, String fromDate, String toDate) throws SQLException {
+        Timestamp from = startOfDay(fromDate);
+        Timestamp to = endOfDay(toDate);
+        Timestamp hotStart = SalesArchive.getHotStart();
+        List<Sale> sales = saleRepository.findRange(conn, later(from, hotStart), to == null ? MAX_DATE : to);
+        if (from != null && hotStart != null && from.before(hotStart)) {
+            List<Sale> archived = SalesArchive.findSales(from, earlier(to, hotStart));
+            Map<Integer, String> names = productRepository.findNames(conn,
+                    archived.stream().map(Sale::getProductId).collect(Collectors.toSet()));
+            for (Sale sale : archived) {
+                sale.setProductName(names.get(sale.getProductId()));
             }
+            sales.addAll(archived);
         }
         return sales;
     }
@@ -255,26 +468,18 @@ public class InventoryManagementSystem {
      * @throws SQLException If database error occurs or sale not found
      */
     public static Sale getSaleById(Connection conn, int id) throws SQLException {
-        String sql = "SELECT s.id, s.product_id, p.name as product_name, " +
-                "s.quantity_sold, s.sale_date as sale_date " +
-                "FROM sales s JOIN products p ON s.product_id = p.id " +
-                "WHERE s.id = ?";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, id);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Sale sale = new Sale();
-                    sale.setId(rs.getInt("id"));
-                    sale.setProductId(rs.getInt("product_id"));
-                    sale.setProductName(rs.getString("product_name"));
-                    sale.setQuantitySold(rs.getInt("quantity_sold"));
-                    sale.setSaleDate(rs.getTimestamp("sale_date"));
-                    return sale;
-                }
+        Sale sale = saleRepository.findById(conn, id);
+        if (sale == null) {
+            sale = SalesArchive.findSale(id);
+            if (sale != null) {
+                int productId = sale.getProductId();
+                sale.setProductName(productRepository.findNames(conn, List.of(productId)).get(productId));
             }
         }
-        throw new SQLException("Sale not found with ID: " + id);
+        if (sale == null) {
+            throw new SQLException("Sale not found with ID: " + id);
+        }
+        return sale;
     }
 
     /**
@@ -296,11 +501,11 @@ public class InventoryManagementSystem {
         }
 
         // Get total stock value
-        String valueSql = "SELECT SUM(price * stock_quantity) as total_value FROM products";
+        String valueSql = "SELECT COALESCE(SUM(price_cents * stock_quantity), 0) as total_value FROM products";
         try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(valueSql)) {
             if (rs.next()) {
-                report.setTotalValue(rs.getDouble("total_value"));
+                report.setTotalValueCents(rs.getLong("total_value"));
             }
         }
 
@@ -338,75 +543,186 @@ public class InventoryManagementSystem {
         report.setFromDate(fromDate);
         report.setToDate(toDate);
 
-        // Base SQL with optional date filtering
-        StringBuilder sql = new StringBuilder(
-                "SELECT COUNT(*) as total_sales, SUM(s.quantity_sold) as total_units, " +
-                        "SUM(s.quantity_sold * p.price) as total_revenue " +
-                        "FROM sales s JOIN products p ON s.product_id = p.id "
-        );
-
-        List<String> conditions = new ArrayList<>();
-        List<Object> parameters = new ArrayList<>();
-
-        if (fromDate != null) {
-            conditions.add("s.sale_date >= ?");
-            parameters.add(fromDate);
-        }
-        if (toDate != null) {
-            conditions.add("s.sale_date <= ?");
-            parameters.add(toDate + " 23:59:59"); // Include entire end day
-        }
-
-        if (!conditions.isEmpty()) {
-            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        Timestamp from = startOfDay(fromDate);
+        Timestamp to = endOfDay(toDate);
+        // Months before hotStart are only read from the archive, later ones only from the sales table
+        Timestamp hotStart = SalesArchive.getHotStart();
+        boolean readsArchive = hotStart != null && (from == null || from.before(hotStart));
+        boolean readsHot = hotStart == null || to == null || to.after(hotStart);
+        Timestamp hotFrom = later(from, hotStart);
+        Timestamp hotTo = to == null ? MAX_DATE : to;
+
+        if (readsHot) {
+            String totalsSql = "SELECT COUNT(*) as total_sales, COALESCE(SUM(s.quantity_sold), 0) as total_units, " +
+                    "COALESCE(SUM(s.quantity_sold * s.unit_price_cents), 0) as total_revenue " +
+                    "FROM sales s WHERE s.sale_date >= ? AND s.sale_date < ?";
+            try (PreparedStatement stmt = conn.prepareStatement(totalsSql)) {
+                stmt.setTimestamp(1, hotFrom);
+                stmt.setTimestamp(2, hotTo);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        report.setTotalSales(rs.getInt("total_sales"));
+                        report.setTotalUnitsSold(rs.getInt("total_units"));
+                        // Revenue uses the price captured on each sale, not today's product price
+                        report.setTotalRevenueCents(rs.getLong("total_revenue"));
+                    }
+                }
+            }
         }
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-            // Set parameters
-            for (int i = 0; i < parameters.size(); i++) {
-                stmt.setObject(i + 1, parameters.get(i));
+        if (!readsArchive) {
+            // Get top selling products
+            String topProductsSql = "SELECT p.id, p.name, SUM(s.quantity_sold) as units_sold " +
+                    "FROM sales s JOIN products p ON s.product_id = p.id " +
+                    "WHERE s.sale_date >= ? AND s.sale_date < ? " +
+                    "GROUP BY p.id, p.name ORDER BY units_sold DESC LIMIT 5";
+            try (PreparedStatement stmt = conn.prepareStatement(topProductsSql)) {
+                stmt.setTimestamp(1, hotFrom);
+                stmt.setTimestamp(2, hotTo);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    List<TopProduct> topProducts = new ArrayList<>();
+                    while (rs.next()) {
+                        TopProduct topProduct = new TopProduct();
+                        topProduct.setProductId(rs.getInt("id"));
+                        topProduct.setProductName(rs.getString("name"));
+                        topProduct.setUnitsSold(rs.getInt("units_sold"));
+                        topProducts.add(topProduct);
+                    }
+                    report.setTopProducts(topProducts);
+                }
             }
+            return report;
+        }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    report.setTotalSales(rs.getInt("total_sales"));
-                    report.setTotalUnitsSold(rs.getInt("total_units"));
-                    report.setTotalRevenue(rs.getDouble("total_revenue"));
+        // Spans archived months: add the archive totals and rank products over both parts
+        SalesArchive.ArchiveTotals archived = SalesArchive.summarize(from, earlier(to, hotStart));
+        report.setTotalSales(report.getTotalSales() + (int) archived.getSaleCount());
+        report.setTotalUnitsSold(report.getTotalUnitsSold() + (int) archived.getUnits());
+        report.setTotalRevenueCents(Money.add(report.getTotalRevenueCents(), archived.getRevenueCents()));
+
+        Map<Integer, Long> unitsByProduct = new HashMap<>(archived.getUnitsByProduct());
+        if (readsHot) {
+            String unitsSql = "SELECT s.product_id, SUM(s.quantity_sold) FROM sales s " +
+                    "WHERE s.sale_date >= ? AND s.sale_date < ? GROUP BY s.product_id";
+            try (PreparedStatement stmt = conn.prepareStatement(unitsSql)) {
+                stmt.setTimestamp(1, hotFrom);
+                stmt.setTimestamp(2, hotTo);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        unitsByProduct.merge(rs.getInt(1), rs.getLong(2), Long::sum);
+                    }
                 }
             }
         }
+        List<Map.Entry<Integer, Long>> top = unitsByProduct.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .limit(5)
+                .collect(Collectors.toList());
+        Map<Integer, String> names = productRepository.findNames(conn,
+                top.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+        List<TopProduct> topProducts = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : top) {
+            TopProduct topProduct = new TopProduct();
+            topProduct.setProductId(entry.getKey());
+            topProduct.setProductName(names.get(entry.getKey()));
+            topProduct.setUnitsSold(entry.getValue().intValue());
+            topProducts.add(topProduct);
+        }
+        report.setTopProducts(topProducts);
+        return report;
+    }
 
-        // Get top selling products
-        String topProductsSql = "SELECT p.id, p.name, SUM(s.quantity_sold) as units_sold " +
-                "FROM sales s JOIN products p ON s.product_id = p.id ";
+    /**
+     * Generates the inventory report as it would have read at a past moment, at the prices of
+     * that moment. Answered from the nearest checkpoint and the movements after it; see
+     * {@link InventoryHistory}.
+     * @param conn Connection to the primary database
+     * @param asOf yyyy-MM-dd for the end of that day, or an ISO date-time
+     * @return Inventory report with its asOf set
+     * @throws IllegalArgumentException If asOf is malformed or before the history starts
+     * @throws SQLException If database error occurs
+     */
+    public static InventoryReport generateInventoryReport(Connection conn, String asOf) throws SQLException {
+        Timestamp at = parseAsOf(asOf);
+        InventoryHistory.Totals totals = InventoryHistory.totalsAt(conn, at, LOW_STOCK);
+        InventoryReport report = new InventoryReport();
+        report.setAsOf(at.toLocalDateTime().toString());
+        report.setTotalProducts(totals.getProducts());
+        report.setTotalValueCents(totals.getValueCents());
+        report.setLowStockItems(totals.getLowStock());
+        report.setOutOfStockItems(totals.getOutOfStock());
+        return report;
+    }
 
-        if (!conditions.isEmpty()) {
-            topProductsSql += " WHERE " + String.join(" AND ", conditions);
+    /**
+     * @param conn Connection to the primary database
+     * @param asOf yyyy-MM-dd for the end of that day, or an ISO date-time
+     * @return The product's stock and price at that moment
+     * @throws IllegalArgumentException If asOf is malformed or before the history starts
+     * @throws SQLException If the product did not exist then, or database error occurs
+     */
+    public static StockAsOf getProductStockAsOf(Connection conn, int productId, String asOf) throws SQLException {
+        Timestamp at = parseAsOf(asOf);
+        InventoryHistory.ProductStock stock = InventoryHistory.productAt(conn, productId, at);
+        if (stock == null) {
+            throw new SQLException("Product " + productId + " did not exist at " + at.toLocalDateTime());
         }
+        return new StockAsOf(productId, at.toLocalDateTime().toString(), stock.getQuantity(), stock.getPriceCents());
+    }
 
-        topProductsSql += " GROUP BY p.id, p.name ORDER BY units_sold DESC LIMIT 5";
+    /**
+     * @param asOf yyyy-MM-dd or an ISO date-time
+     * @return Start of the following day for a date, so the whole day is included, else the moment itself
+     */
+    static Timestamp parseAsOf(String asOf) {
+        if (asOf == null || asOf.isBlank()) {
+            throw new IllegalArgumentException("asOf is required");
+        }
+        if (asOf.trim().length() == 10) {
+            return endOfDay(asOf);
+        }
+        try {
+            return Timestamp.valueOf(LocalDateTime.parse(asOf.trim()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid asOf, expected yyyy-MM-dd or yyyy-MM-ddTHH:mm[:ss]: " + asOf);
+        }
+    }
 
-        try (PreparedStatement stmt = conn.prepareStatement(topProductsSql)) {
-            // Set parameters
-            for (int i = 0; i < parameters.size(); i++) {
-                stmt.setObject(i + 1, parameters.get(i));
-            }
+    /**
+     * @param date yyyy-MM-dd or null
+     * @return Start of that day, or null
+     */
+    static Timestamp startOfDay(String date) {
+        return date == null ? null : Timestamp.valueOf(parseDate(date).atStartOfDay());
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                List<TopProduct> topProducts = new ArrayList<>();
-                while (rs.next()) {
-                    TopProduct topProduct = new TopProduct();
-                    topProduct.setProductId(rs.getInt("id"));
-                    topProduct.setProductName(rs.getString("name"));
-                    topProduct.setUnitsSold(rs.getInt("units_sold"));
-                    topProducts.add(topProduct);
-                }
-                report.setTopProducts(topProducts);
-            }
+    /**
+     * @param date yyyy-MM-dd or null
+     * @return Start of the following day, so the whole day is included, or null
+     */
+    static Timestamp endOfDay(String date) {
+        return date == null ? null : Timestamp.valueOf(parseDate(date).plusDays(1).atStartOfDay());
+    }
+
+    private static LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date, expected yyyy-MM-dd: " + date);
         }
+    }
 
-        return report;
+    // Null-tolerant bounds: a null lower bound means unbounded below, a null upper bound unbounded above
+    private static Timestamp later(Timestamp a, Timestamp b) {
+        if (a == null) return b == null ? MIN_DATE : b;
+        return b == null || a.after(b) ? a : b;
     }
+
+    private static Timestamp earlier(Timestamp a, Timestamp b) {
+        if (a == null) return b;
+        return b == null || a.before(b) ? a : b;
+    }
+
     /**
      * Retrieves paginated list of products
      * @param conn Valid database connection
@@ -421,149 +737,566 @@ public class InventoryManagementSystem {
         if (limit < 0 || offset < 0) {
             throw new IllegalArgumentException("Limit and offset must be non-negative");
         }
+        return withCurrentStock(productRepository.findPage(conn, limit, offset));
+    }
+    // Supplier CRUD operations
+    public static List<Supplier> getAllSuppliers(Connection conn) throws SQLException {
+        return supplierRepository.findAll(conn);
+    }
 
-        final String sql = "SELECT id, name, price, stock_quantity FROM products ORDER BY name LIMIT ? OFFSET ?";
-        List<Product> products = new ArrayList<>();
+    public static Supplier addSupplier(Connection conn, Supplier supplier) throws SQLException {
+        Supplier created = supplierRepository.insert(conn, supplier);
+        ReportingReplica.publish(ReportingReplica.Table.SUPPLIERS, created.getId());
+        RestockPlanner.getInstance().suppliersChanged();
+        return created;
+    }
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
-            stmt.setInt(2, offset);
+    public static Supplier getSupplierById(Connection conn, int id) throws SQLException {
+        Supplier supplier = supplierRepository.findById(conn, id);
+        if (supplier == null) {
+            throw new SQLException("Supplier not found with ID: " + id);
+        }
+        return supplier;
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    products.add(new Product(
-                            rs.getInt("id"),
-                            rs.getString("name"),
-                            rs.getDouble("price"),
-                            rs.getInt("stock_quantity")
-                    ));
-                }
+    /**
+     * Lists a page of a supplier's products, served by idx_products_supplier
+     * @param limit Most products to return, by name
+     * @param expandSupplier If true, each product also carries the supplier
+     * @throws SQLException If database error occurs or the supplier does not exist
+     */
+    public static List<Product> getSupplierProducts(Connection conn, int supplierId, int limit, int offset,
+                                                    boolean expandSupplier) throws SQLException {
+        if (limit < 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit and offset must be non-negative");
+        }
+        getSupplierById(conn, supplierId);
+        return withCurrentStock(productRepository.findBySupplier(conn, supplierId, limit, offset, expandSupplier));
+    }
+
+    public static boolean deleteSupplier(Connection conn, int id) throws SQLException {
+        int affectedRows = supplierRepository.delete(conn, id);
+        if (affectedRows > 0) {
+            ReportingReplica.publish(ReportingReplica.Table.SUPPLIERS, id);
+            RestockPlanner.getInstance().suppliersChanged();
+        }
+        return affectedRows > 0;
+    }
+
+    /**
+     * @param expectedVersion Version the client last saw (from If-Match), or null to overwrite
+     *                        whatever is stored
+     * @throws VersionConflictException If the supplier has changed since the expected version
+     */
+    public static Supplier updateSupplier(Connection conn, Supplier supplier, Integer expectedVersion) throws SQLException {
+        Supplier updated = expectedVersion == null
+                ? supplierRepository.update(conn, supplier)
+                : supplierRepository.updateIfVersion(conn, supplier, expectedVersion);
+        if (updated == null) {
+            Supplier current = supplierRepository.findById(conn, supplier.getId());
+            if (current == null) {
+                throw new SQLException("Supplier not found with ID: " + supplier.getId());
             }
+            throw new VersionConflictException("Supplier " + supplier.getId() + " is at version " +
+                    current.getVersion() + ", not " + expectedVersion);
+        }
+
+        ReportingReplica.publish(ReportingReplica.Table.SUPPLIERS, updated.getId());
+        RestockPlanner.getInstance().suppliersChanged();
+
+        return updated;
+    }
+
+    /**
+     * Lists, per supplier, the products to reorder: those below the stock threshold or
+     * expected to sell out within the horizon, with suggested order quantities
+     * @param conn Database connection
+     * @param horizonDays Days of expected sales the current stock must cover
+     * @param threshold Stock level below which a product is always reordered
+     * @return Restock plan for every supplier with something to reorder
+     * @throws SQLException If database error occurs
+     */
+    public static RestockReport generateRestockReport(Connection conn, int horizonDays, int threshold) throws SQLException {
+        return RestockPlanner.getInstance().plan(conn, horizonDays, threshold);
+    }
+
+    /**
+     * Restock plan for a single supplier
+     * @param conn Database connection
+     * @param supplierId Supplier ID
+     * @param horizonDays Days of expected sales the current stock must cover
+     * @param threshold Stock level below which a product is always reordered
+     * @throws SQLException If database error occurs or the supplier does not exist
+     */
+    public static RestockReport.SupplierRestock generateSupplierRestock(Connection conn, int supplierId,
+                                                                        int horizonDays, int threshold) throws SQLException {
+        return RestockPlanner.getInstance().planForSupplier(conn, supplierId, horizonDays, threshold);
+    }
+    /**
+     * Forecasts daily demand for every product from its sales history
+     * @param conn Database connection
+     * @param horizonDays Days to forecast, starting today
+     * @param limit Most products to return, highest forecast demand first
+     * @throws SQLException If database error occurs
+     */
+    public static DemandForecast generateForecast(Connection conn, int horizonDays, int limit) throws SQLException {
+        return DemandForecaster.getInstance().forecast(conn, horizonDays, limit);
+    }
+
+    /**
+     * Forecast of a single product
+     * @param conn Database connection
+     * @param horizonDays Days to forecast, starting today
+     * @throws SQLException If database error occurs or the product does not exist
+     */
+    public static DemandForecast.ProductForecast getProductForecast(Connection conn, int productId, int horizonDays)
+            throws SQLException {
+        return DemandForecaster.getInstance().forecastProduct(conn, productId, horizonDays);
+    }
+
+    private static SQLException belowLocated(int productId, int located) {
+        return new SQLException("Product " + productId + " has " + located +
+                " units at locations; its stock cannot be set below that");
+    }
+
+    /**
+     * @return The SKU trimmed, or null if it is missing or blank
+     * @throws IllegalArgumentException If it is longer than {@value #MAX_SKU_LENGTH} characters
+     */
+    static String normalizeSku(String sku) {
+        if (sku == null || sku.isBlank()) {
+            return null;
+        }
+        String trimmed = sku.trim();
+        if (trimmed.length() > MAX_SKU_LENGTH) {
+            throw new IllegalArgumentException("SKU must be at most " + MAX_SKU_LENGTH + " characters");
         }
+        return trimmed;
+    }
+
+    private static SQLException supplierMissing(int supplierId) {
+        return new SQLIntegrityConstraintViolationException("Referential integrity constraint violation: supplier " +
+                supplierId + " does not exist", PARENT_MISSING);
+    }
 
+    // With the stock log on, the products table can trail the current stock by a moment
+    private static List<Product> withCurrentStock(List<Product> products) {
+        if (StockLedger.isEnabled()) {
+            products.forEach(StockLedger::overlay);
+        }
         return products;
     }
-    // Supplier CRUD operations
-    public static List<Supplier> getAllSuppliers(Connection conn) throws SQLException {
-        List<Supplier> suppliers = new ArrayList<>();
-        String sql = "SELECT id, name, contact_person, email, phone FROM suppliers ORDER BY name";
 
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                suppliers.add(new Supplier(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("contact_person"),
-                        rs.getString("email"),
-                        rs.getString("phone")
-                ));
+    /**
+     * Typeahead search over product names. Served from {@link ProductSearchIndex}, except with a
+     * shared database: other instances' products never reach this instance's index, so the names
+     * are matched by a scan of the products table instead, ranked the same way.
+     * @param conn Database connection
+     * @param query Text typed by the user
+     * @param limit Maximum number of results (capped at {@link ProductSearchIndex#MAX_LIMIT})
+     * @return Matching products, best matches first
+     * @throws IllegalArgumentException If the limit is not positive
+     */
+    public static List<Product> searchProducts(Connection conn, String query, int limit) throws SQLException {
+        if (!DatabaseConnection.isSharedDatabase()) {
+            return ProductSearchIndex.getInstance().search(query, limit);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String normalized = ProductSearchIndex.normalize(query);
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withCurrentStock(productRepository.search(conn, normalized, ProductSearchIndex.tokenize(normalized),
+                Math.min(limit, ProductSearchIndex.MAX_LIMIT)));
+    }
+
+    /**
+     * Looks up a product by SKU, as a till does when a barcode is scanned. Served from
+     * {@link ProductSearchIndex} when it holds the SKU, otherwise by the unique index on
+     * products.sku. Other instances sharing the database do not update this instance's index,
+     * so it is not trusted then. A lookup that expands the supplier always reads the database.
+     * @param conn Database connection
+     * @param sku SKU to look up; surrounding whitespace is ignored
+     * @return The product
+     * @throws IllegalArgumentException If the SKU is blank
+     * @throws SQLException If database error occurs or no product has this SKU
+     */
+    public static Product getProductBySku(Connection conn, String sku) throws SQLException {
+        return getProductBySku(conn, sku, false);
+    }
+
+    public static Product getProductBySku(Connection conn, String sku, boolean expandSupplier) throws SQLException {
+        String key = normalizeSku(sku);
+        if (key == null) {
+            throw new IllegalArgumentException("SKU is required");
+        }
+        Product product = DatabaseConnection.isSharedDatabase() || expandSupplier
+                ? null : ProductSearchIndex.getInstance().findBySku(key);
+        if (product == null) {
+            product = productRepository.findBySku(conn, key, expandSupplier);
+            if (product == null) {
+                throw new SQLException("Product not found with SKU: " + key);
             }
         }
-        return suppliers;
+        return StockLedger.overlay(product);
     }
 
-    public static Supplier addSupplier(Connection conn, Supplier supplier) throws SQLException {
-        String sql = "INSERT INTO suppliers (name, contact_person, email, phone) VALUES (?, ?, ?, ?)";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, supplier.getName());
-            stmt.setString(2, supplier.getContactPerson());
-            stmt.setString(3, supplier.getEmail());
-            stmt.setString(4, supplier.getPhone());
-            stmt.executeUpdate();
-
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return new Supplier(
-                            rs.getInt(1),
-                            supplier.getName(),
-                            supplier.getContactPerson(),
-                            supplier.getEmail(),
-                            supplier.getPhone()
-                    );
-                }
+    // Helper method to get product by ID
+    public static Product getProductById(Connection conn, int id) throws SQLException {
+        return getProductById(conn, id, false);
+    }
+
+    public static Product getProductById(Connection conn, int id, boolean expandSupplier) throws SQLException {
+        Product product = productRepository.findById(conn, id, expandSupplier);
+        if (product == null) {
+            throw new SQLException("Product not found with ID: " + id);
+        }
+        return StockLedger.overlay(product);
+    }
+
+    /**
+     * Retrieves several products in one query
+     * @param conn Database connection
+     * @param ids Product IDs; unknown IDs are left out and repeated ones returned once
+     * @return The products, in the order their IDs were given
+     * @throws IllegalArgumentException If there are more than {@value #MAX_BATCH} IDs
+     * @throws SQLException If database error occurs
+     */
+    public static List<Product> getProductsByIds(Connection conn, List<Integer> ids) throws SQLException {
+        return getProductsByIds(conn, ids, false);
+    }
+
+    public static List<Product> getProductsByIds(Connection conn, List<Integer> ids, boolean expandSupplier)
+            throws SQLException {
+        checkBatchSize(ids.size());
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findByIds(conn, ids, expandSupplier)) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> products = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            Product product = byId.remove(id);
+            if (product != null) {
+                products.add(product);
             }
         }
-        return supplier;
+        return withCurrentStock(products);
     }
 
-    public static Supplier getSupplierById(Connection conn, int id) throws SQLException {
-        String sql = "SELECT id, name, contact_person, email, phone FROM suppliers WHERE id = ?";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, id);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Supplier(
-                            rs.getInt("id"),
-                            rs.getString("name"),
-                            rs.getString("contact_person"),
-                            rs.getString("email"),
-                            rs.getString("phone")
-                    );
-                }
+    // Method to update stock quantity
+    public static boolean updateStockQuantity(Connection conn, int id, int quantity) throws SQLException {
+        if (StockLedger.isEnabled()) {
+            boolean updated = StockLedger.set(id, quantity);
+            if (updated) {
+                ProductSearchIndex.getInstance().updateStock(id, quantity);
             }
+            return updated;
         }
-        throw new SQLException("Supplier not found with ID: " + id);
+        Product updated = productRepository.updateStock(conn, id, quantity);
+        if (updated == null) {
+            Integer located = productRepository.findLocatedQuantity(conn, id);
+            if (located == null) {
+                return false;
+            }
+            throw belowLocated(id, located);
+        }
+        ProductSearchIndex.getInstance().put(updated);
+        ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, id);
+        RestockPlanner.getInstance().productChanged(id);
+        return true;
     }
 
-    public static boolean deleteSupplier(Connection conn, int id) throws SQLException {
-        String sql = "DELETE FROM suppliers WHERE id = ?";
+    /**
+     * Reads the products and suppliers changed or deleted after a client's cursor. The page
+     * ends before the lowest sequence number a still-open transaction has taken, so the cursor
+     * never passes a change that may yet commit, and before the first change younger than
+     * {@code syncSettleMillis}.
+     * @param conn Database connection
+     * @param since Cursor from the client's last page, or 0 for everything
+     * @param limit Most changes to return (capped at {@value #MAX_SYNC_PAGE})
+     * @return The page, with the cursor to pass next time
+     * @throws IllegalArgumentException If the cursor is negative or the limit is not positive
+     * @throws SQLException If database error occurs
+     */
+    public static SyncPage getChanges(Connection conn, long since, int limit) throws SQLException {
+        if (since < 0) {
+            throw new IllegalArgumentException("Cursor cannot be negative");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        limit = Math.min(limit, MAX_SYNC_PAGE);
+        long settleMillis = Long.parseLong(DatabaseConnection.getSetting("syncSettleMillis"));
+        // One more than asked for tells whether another page is ready
+        List<SyncRepository.Change> changes = syncRepository.findSince(conn, since, limit + 1, settleMillis);
+        // Read after the feed; nothing to guard when the page would be empty anyway
+        Long inFlight = changes.isEmpty() || !changes.get(0).isSettled()
+                ? null : syncRepository.findInFlightFloor(conn);
+
+        long cursor = since;
+        boolean hasMore = false;
+        List<Integer> productIds = new ArrayList<>();
+        List<Integer> supplierIds = new ArrayList<>();
+        List<Integer> deletedProducts = new ArrayList<>();
+        List<Integer> deletedSuppliers = new ArrayList<>();
+        for (SyncRepository.Change change : changes) {
+            if (!change.isSettled() || (inFlight != null && change.getChangeSeq() >= inFlight)) {
+                break;
+            }
+            if (productIds.size() + supplierIds.size() + deletedProducts.size() + deletedSuppliers.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            boolean product = SyncChangeTrigger.PRODUCT.equals(change.getEntity());
+            if (change.isDeleted()) {
+                (product ? deletedProducts : deletedSuppliers).add(change.getEntityId());
+            } else {
+                (product ? productIds : supplierIds).add(change.getEntityId());
+            }
+            cursor = change.getChangeSeq();
+        }
+
+        // Rows deleted since the feed was read are left out; their tombstones come on a later page
+        List<Product> products = productIds.isEmpty()
+                ? new ArrayList<>() : withCurrentStock(productRepository.findByIds(conn, productIds));
+        List<Supplier> suppliers = supplierIds.isEmpty()
+                ? new ArrayList<>() : supplierRepository.findByIds(conn, supplierIds);
+        return new SyncPage(since, cursor, hasMore, products, suppliers, deletedProducts, deletedSuppliers);
+    }
+
+    // Customers. Each sale to a customer adds to their lifetime totals in the transaction that
+    // records it, so a loyalty lookup reads one row however long the history.
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, id);
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
+    /**
+     * @throws IllegalArgumentException If the name is blank
+     */
+    public static Customer addCustomer(Connection conn, Customer customer) throws SQLException {
+        if (customer == null || customer.getName() == null || customer.getName().isBlank()) {
+            throw new IllegalArgumentException("Customer name is required");
         }
+        customer.setName(customer.getName().trim());
+        return customerRepository.insert(conn, customer);
     }
 
-    public static Supplier updateSupplier(Connection conn, Supplier supplier) throws SQLException {
-        String sql = "UPDATE suppliers SET name = ?, contact_person = ?, email = ?, phone = ? WHERE id = ?";
+    /**
+     * @return The customer, with lifetime purchase totals
+     * @throws SQLException If database error occurs or the customer does not exist
+     */
+    public static Customer getCustomerById(Connection conn, int id) throws SQLException {
+        Customer customer = customerRepository.findById(conn, id);
+        if (customer == null) {
+            throw new SQLException("Customer not found with ID: " + id);
+        }
+        return customer;
+    }
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, supplier.getName());
-            stmt.setString(2, supplier.getContactPerson());
-            stmt.setString(3, supplier.getEmail());
-            stmt.setString(4, supplier.getPhone());
-            stmt.setInt(5, supplier.getId());
+    /**
+     * Lists a page of a customer's purchases, served by idx_sales_customer alone. Months moved
+     * to the sales archive are counted in the totals but no longer listed.
+     * @param limit Most purchases to return, newest first
+     * @throws SQLException If database error occurs or the customer does not exist
+     */
+    public static CustomerPurchases getCustomerPurchases(Connection conn, int customerId, int limit, int offset)
+            throws SQLException {
+        if (limit < 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit and offset must be non-negative");
+        }
+        Customer customer = getCustomerById(conn, customerId);
+        List<Sale> purchases = saleRepository.findForCustomer(conn, customerId, limit, offset);
+        return new CustomerPurchases(customer, SalesArchive.getHotStart(), purchases);
+    }
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Supplier not found with ID: " + supplier.getId());
+    // Stock locations. products.stock_quantity stays the total, so every existing read keeps
+    // costing one row; products.located_quantity is the part of it held at named locations and
+    // location_stock says which. Both change in the transaction that changes location_stock.
+
+    public static List<Location> getLocations(Connection conn) throws SQLException {
+        return locationRepository.findAll(conn);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the name is blank or taken
+     */
+    public static Location addLocation(Connection conn, Location location) throws SQLException {
+        if (location == null || location.getName() == null || location.getName().isBlank()) {
+            throw new IllegalArgumentException("Location name is required");
+        }
+        location.setName(location.getName().trim());
+        try {
+            location.setId(locationRepository.insert(conn, location));
+        } catch (SQLException e) {
+            if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                throw new IllegalArgumentException("Location already exists: " + location.getName());
             }
+            throw e;
+        }
+        return location;
+    }
 
-            return supplier;
+    /**
+     * Lists the products held at a location
+     * @param limit Most products to return, by product ID
+     * @throws SQLException If database error occurs or the location does not exist
+     */
+    public static List<LocationStock> getLocationStock(Connection conn, int locationId, int limit, int offset)
+            throws SQLException {
+        if (limit < 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit and offset must be non-negative");
         }
+        getLocationById(conn, locationId);
+        return locationRepository.findAtLocation(conn, locationId, limit, offset);
     }
-    // Helper method to get product by ID
-    public static Product getProductById(Connection conn, int id) throws SQLException {
-        String sql = "SELECT id, name, price, stock_quantity, supplier_id FROM products WHERE id = ?";        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, id);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Product product = new Product();
-                    product.setId(rs.getInt("id"));
-                    product.setName(rs.getString("name"));
-                    product.setPrice(rs.getDouble("price"));
-                    product.setStockQuantity(rs.getInt("stock_quantity"));
-                    return product;
-                }
+
+    /**
+     * Shows where the stock of a product is held
+     * @throws SQLException If database error occurs or the product does not exist
+     */
+    public static ProductLocations getProductLocations(Connection conn, int productId) throws SQLException {
+        List<LocationStock> locations = locationRepository.findForProduct(conn, productId);
+        return new ProductLocations(productId, getProductById(conn, productId).getStockQuantity(), locations);
+    }
+
+    /**
+     * Adjusts the stock held at one location, and the product's total with it
+     * @param locationId Location to adjust, or 0 for stock held at no particular location
+     * @return The updated product
+     * @throws SQLException If database error occurs, the product or location does not exist or
+     *                      the location holds too little
+     */
+    public static Product adjustStock(Connection conn, int id, int delta, int locationId) throws SQLException {
+        if (locationId == 0) {
+            return adjustStock(conn, id, delta);
+        }
+        requireLocations();
+        Product updated;
+        conn.setAutoCommit(false);
+        try {
+            // The product row is locked first by every location write, so they cannot deadlock
+            updated = productRepository.moveStock(conn, id, delta, delta);
+            if (updated == null) {
+                getProductById(conn, id);
+                throw new SQLException("Insufficient stock for this adjustment");
+            }
+            moveAtLocation(conn, id, locationId, delta);
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        stockMoved(updated);
+        return updated;
+    }
+
+    /**
+     * Moves units of a product between locations; its total stock is unchanged
+     * @param fromLocationId Location to take from, or 0 for stock held at no particular location
+     * @param toLocationId Location to put them, or 0 for no particular location
+     * @return Where the product's stock is held afterwards
+     * @throws IllegalArgumentException If the quantity is not positive or both locations are the same
+     * @throws SQLException If database error occurs, the product or a location does not exist or
+     *                      the source holds too little
+     */
+    public static ProductLocations transferStock(Connection conn, int productId, int fromLocationId,
+                                                 int toLocationId, int quantity) throws SQLException {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (fromLocationId == toLocationId) {
+            throw new IllegalArgumentException("Source and destination are the same location");
+        }
+        requireLocations();
+        int locatedDelta = (toLocationId > 0 ? quantity : 0) - (fromLocationId > 0 ? quantity : 0);
+        Product updated;
+        conn.setAutoCommit(false);
+        try {
+            updated = productRepository.moveStock(conn, productId, 0, locatedDelta);
+            if (updated == null) {
+                getProductById(conn, productId);
+                throw new SQLException("Insufficient stock outside locations for this transfer");
+            }
+            if (fromLocationId > 0) {
+                moveAtLocation(conn, productId, fromLocationId, -quantity);
+            }
+            if (toLocationId > 0) {
+                moveAtLocation(conn, productId, toLocationId, quantity);
             }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
         }
-        throw new SQLException("Product not found with ID: " + id);
+        stockMoved(updated);
+        return getProductLocations(conn, productId);
     }
 
-    // Method to update stock quantity
-    public static boolean updateStockQuantity(Connection conn, int id, int quantity) throws SQLException {
-        String sql = "UPDATE products SET stock_quantity = ? WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, quantity);
-            stmt.setInt(2, id);
+    /**
+     * Records a sale taking its stock from one location
+     */
+    private static Sale recordLocatedSale(Connection conn, Sale sale) throws SQLException {
+        requireLocations();
+        Product product;
+        conn.setAutoCommit(false);
+        try {
+            product = productRepository.moveStock(conn, sale.getProductId(), -sale.getQuantitySold(),
+                    -sale.getQuantitySold());
+            if (product == null) {
+                getProductById(conn, sale.getProductId());
+                throw new SQLException("Insufficient stock");
+            }
+            moveAtLocation(conn, sale.getProductId(), sale.getLocationId(), -sale.getQuantitySold());
+            sale.setUnitPriceCents(product.getPriceCents()); // Capture current price
+            insertSale(conn, sale);
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        stockMoved(product);
+        ReportingReplica.publish(ReportingReplica.Table.SALES, sale.getId());
+        return sale;
+    }
 
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+    // Changes location_stock; the caller has already changed the product's totals to match
+    private static void moveAtLocation(Connection conn, int productId, int locationId, int delta) throws SQLException {
+        if (delta < 0) {
+            if (!locationRepository.take(conn, productId, locationId, -delta)) {
+                getLocationById(conn, locationId);
+                throw new SQLException("Insufficient stock at location " + locationId);
+            }
+        } else if (delta > 0 && !locationRepository.put(conn, productId, locationId, delta)) {
+            throw new SQLException("Location not found with ID: " + locationId);
         }
     }
-}
 
+    private static void stockMoved(Product product) {
+        ProductSearchIndex.getInstance().put(product);
+        ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, product.getId());
+        RestockPlanner.getInstance().productChanged(product.getId());
+    }
+
+    private static Location getLocationById(Connection conn, int id) throws SQLException {
+        Location location = locationRepository.findById(conn, id);
+        if (location == null) {
+            throw new SQLException("Location not found with ID: " + id);
+        }
+        return location;
+    }
+
+    // The stock log keeps totals only, so it cannot guard the stock held outside locations
+    private static void requireLocations() {
+        if (StockLedger.isEnabled()) {
+            throw new UnsupportedOperationException("Stock locations need inventory.stockLog=false");
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package org.inventorymanagementsystem;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import org.inventorymanagementsystem.model.Money;
 
 class InventoryReport {
+    // Set on historical reports only
+    private String asOf;
     private int totalProducts;
-    private double totalValue;
+    @SerializedName("totalValue")
+    @JsonAdapter(Money.JsonAdapter.class)
+    private long totalValueCents;
     private int lowStockItems;
     private int outOfStockItems;
 
     // Getters and setters
+    public String getAsOf() { return asOf; }
+    public void setAsOf(String asOf) { this.asOf = asOf; }
     public int getTotalProducts() { return totalProducts; }
     public void setTotalProducts(int totalProducts) { this.totalProducts = totalProducts; }
-    public double getTotalValue() { return totalValue; }
-    public void setTotalValue(double totalValue) { this.totalValue = totalValue; }
+    public long getTotalValueCents() { return totalValueCents; }
+    public void setTotalValueCents(long totalValueCents) { this.totalValueCents = totalValueCents; }
     public int getLowStockItems() { return lowStockItems; }
     public void setLowStockItems(int lowStockItems) { this.lowStockItems = lowStockItems; }
     public int getOutOfStockItems() { return outOfStockItems; }
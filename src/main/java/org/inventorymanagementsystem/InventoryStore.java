@@ -0,0 +1,208 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Location;
+import org.inventorymanagementsystem.model.LocationStock;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Product, supplier, sale and report operations behind the REST API, independent of where
+ * the data lives. The engine is picked at startup with {@code inventory.store}:
+ * <ul>
+ *   <li>{@code jdbc} (default): the H2 database, through {@link InventoryManagementSystem}</li>
+ *   <li>{@code memory}: {@link MemoryInventoryStore}, which never touches disk</li>
+ * </ul>
+ * Every engine reports errors the same way, so API responses do not depend on the engine:
+ * {@link SQLException} for missing rows, insufficient stock and rows still referenced
+ * elsewhere, {@link IllegalArgumentException} for invalid input.
+ * <p>
+ * Listing and report methods take {@code readYourWrites}; engines with a reporting replica
+ * use the primary when it is true, others ignore it.
+ */
+public interface InventoryStore {
+
+    /**
+     * @param engine {@code jdbc} or {@code memory}
+     * @return A new store of that engine
+     */
+    static InventoryStore create(String engine) {
+        switch (engine) {
+            case "jdbc":
+                return new JdbcInventoryStore();
+            case "memory":
+                return new MemoryInventoryStore();
+            default:
+                throw new IllegalArgumentException("Unknown store engine: " + engine);
+        }
+    }
+
+    /**
+     * @return The engine named by {@code inventory.store}
+     */
+    static InventoryStore fromSettings() {
+        return create(DatabaseConnection.getSetting("store"));
+    }
+
+    // Products
+    // expandSupplier fills in each product's supplier, in the same read
+    default List<Product> getAllProducts(boolean readYourWrites) throws SQLException {
+        return getAllProducts(readYourWrites, false);
+    }
+    List<Product> getAllProducts(boolean readYourWrites, boolean expandSupplier) throws SQLException;
+    default Product getProductById(int id) throws SQLException {
+        return getProductById(id, false);
+    }
+    Product getProductById(int id, boolean expandSupplier) throws SQLException;
+    default List<Product> getProductsByIds(List<Integer> ids) throws SQLException {
+        return getProductsByIds(ids, false);
+    }
+    /**
+     * @return The products with these IDs that exist, in the order given, each once
+     * @throws IllegalArgumentException If more than 1000 IDs are given
+     */
+    List<Product> getProductsByIds(List<Integer> ids, boolean expandSupplier) throws SQLException;
+    /**
+     * Finds products whose name, or a word in whose name, starts with the query
+     * @return Matching products, best matches first
+     * @throws IllegalArgumentException If the limit is not positive
+     */
+    List<Product> searchProducts(String query, int limit) throws SQLException;
+    default Product getProductBySku(String sku) throws SQLException {
+        return getProductBySku(sku, false);
+    }
+    /**
+     * @throws IllegalArgumentException If the SKU is blank
+     * @throws SQLException If no product has this SKU
+     */
+    Product getProductBySku(String sku, boolean expandSupplier) throws SQLException;
+    Product addProduct(Product product) throws SQLException;
+    /**
+     * @param expectedVersion Version the caller last saw, or null to overwrite whatever is stored
+     * @throws VersionConflictException If the stored version differs from the expected one
+     */
+    Product updateProduct(Product product, Integer expectedVersion) throws SQLException;
+    boolean deleteProduct(int id) throws SQLException;
+    boolean updateStockQuantity(int id, int quantity) throws SQLException;
+    Product adjustStock(int id, int delta) throws SQLException;
+    /**
+     * Applies the stock changes in order, each only if it keeps stock non-negative. Fills in
+     * each line's status and, for applied lines, the stock after the whole batch.
+     * @param atomic If true, nothing is applied unless every line can be
+     * @throws IllegalArgumentException If more than 1000 lines are given
+     */
+    StockAdjustmentResult adjustStock(List<StockAdjustmentLine> lines, boolean atomic) throws SQLException;
+
+    // Delta sync
+    /**
+     * @param since Cursor from the previous page, or 0 for everything
+     * @throws IllegalArgumentException If the cursor is negative or the limit is not positive
+     * @throws UnsupportedOperationException If the engine keeps no change feed
+     */
+    SyncPage getChanges(long since, int limit) throws SQLException;
+
+    // Stock locations
+    /**
+     * Recording a sale whose location ID is set also takes its stock from that location.
+     * The methods below, and such sales, throw UnsupportedOperationException if the engine
+     * does not track stock by location.
+     */
+    List<Location> getLocations() throws SQLException;
+    Location addLocation(Location location) throws SQLException;
+    List<LocationStock> getLocationStock(int locationId, int limit, int offset) throws SQLException;
+    ProductLocations getProductLocations(int productId) throws SQLException;
+    /**
+     * @param locationId Location to adjust, or 0 for stock held at no particular location
+     */
+    Product adjustStock(int id, int delta, int locationId) throws SQLException;
+    /**
+     * @param fromLocationId Location to take from, or 0 for no particular location
+     * @param toLocationId Location to put the units, or 0 for no particular location
+     */
+    ProductLocations transferStock(int productId, int fromLocationId, int toLocationId, int quantity)
+            throws SQLException;
+
+    // Suppliers
+    List<Supplier> getAllSuppliers(boolean readYourWrites) throws SQLException;
+    Supplier getSupplierById(int id) throws SQLException;
+    /**
+     * @return A page of the supplier's products, by name
+     * @throws SQLException If the supplier does not exist
+     */
+    List<Product> getSupplierProducts(int supplierId, int limit, int offset, boolean expandSupplier)
+            throws SQLException;
+    Supplier addSupplier(Supplier supplier) throws SQLException;
+    /**
+     * @param expectedVersion Version the caller last saw, or null to overwrite whatever is stored
+     * @throws VersionConflictException If the stored version differs from the expected one
+     */
+    Supplier updateSupplier(Supplier supplier, Integer expectedVersion) throws SQLException;
+    boolean deleteSupplier(int id) throws SQLException;
+
+    // Sales
+    List<Sale> getAllSales(boolean readYourWrites) throws SQLException;
+    /**
+     * @param fromDate Start date (yyyy-MM-dd) or null for no lower bound
+     * @param toDate End date (yyyy-MM-dd), inclusive, or null for no upper bound
+     */
+    List<Sale> getSales(boolean readYourWrites, String fromDate, String toDate) throws SQLException;
+    Sale getSaleById(int id) throws SQLException;
+    /**
+     * A sale with a customer ID is also added to that customer's lifetime totals, and is not
+     * recorded if the customer does not exist.
+     */
+    Sale recordSale(Sale sale) throws SQLException;
+
+    // Customers
+    /**
+     * @throws IllegalArgumentException If the name is blank
+     */
+    Customer addCustomer(Customer customer) throws SQLException;
+    /**
+     * @return The customer, with lifetime purchase totals
+     * @throws SQLException If the customer does not exist
+     */
+    Customer getCustomerById(int id) throws SQLException;
+    /**
+     * @return A page of the customer's purchases, newest first, with the customer
+     * @throws SQLException If the customer does not exist
+     */
+    CustomerPurchases getCustomerPurchases(int customerId, int limit, int offset) throws SQLException;
+
+    // Reports
+    InventoryReport generateInventoryReport(boolean readYourWrites) throws SQLException;
+    /**
+     * @param asOf yyyy-MM-dd for the end of that day, or an ISO date-time
+     * @throws UnsupportedOperationException If the engine keeps no stock history
+     */
+    InventoryReport generateInventoryReport(String asOf) throws SQLException;
+    /**
+     * @param asOf yyyy-MM-dd for the end of that day, or an ISO date-time
+     * @throws UnsupportedOperationException If the engine keeps no stock history
+     */
+    StockAsOf getProductStockAsOf(int productId, String asOf) throws SQLException;
+    SalesReport generateSalesReport(boolean readYourWrites, String fromDate, String toDate) throws SQLException;
+    /**
+     * @throws UnsupportedOperationException If the engine cannot plan restocks
+     */
+    RestockReport generateRestockReport(int horizonDays, int threshold) throws SQLException;
+    /**
+     * @throws UnsupportedOperationException If the engine cannot plan restocks
+     */
+    RestockReport.SupplierRestock generateSupplierRestock(int supplierId, int horizonDays, int threshold)
+            throws SQLException;
+    /**
+     * @throws UnsupportedOperationException If the engine cannot forecast demand
+     */
+    DemandForecast generateForecast(int horizonDays, int limit) throws SQLException;
+    /**
+     * @throws UnsupportedOperationException If the engine cannot forecast demand
+     */
+    DemandForecast.ProductForecast getProductForecast(int productId, int horizonDays) throws SQLException;
+}
@@ -0,0 +1,299 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Location;
+import org.inventorymanagementsystem.model.LocationStock;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link InventoryStore} on the H2 database. Each call borrows a pooled connection and runs the
+ * matching {@link InventoryManagementSystem} method, so the search index, reporting replica,
+ * stock log, sales archive and restock planner keep seeing every change.
+ */
+final class JdbcInventoryStore implements InventoryStore {
+
+    @Override
+    public List<Product> getAllProducts(boolean readYourWrites, boolean expandSupplier) throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection(readYourWrites)) {
+            return InventoryManagementSystem.getAllProducts(conn, expandSupplier);
+        }
+    }
+
+    @Override
+    public Product getProductById(int id, boolean expandSupplier) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getProductById(conn, id, expandSupplier);
+        }
+    }
+
+    @Override
+    public List<Product> getProductsByIds(List<Integer> ids, boolean expandSupplier) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getProductsByIds(conn, ids, expandSupplier);
+        }
+    }
+
+    @Override
+    public List<Product> searchProducts(String query, int limit) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.searchProducts(conn, query, limit);
+        }
+    }
+
+    @Override
+    public Product getProductBySku(String sku, boolean expandSupplier) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getProductBySku(conn, sku, expandSupplier);
+        }
+    }
+
+    @Override
+    public Product addProduct(Product product) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.addProduct(conn, product);
+        }
+    }
+
+    @Override
+    public Product updateProduct(Product product, Integer expectedVersion) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.updateProduct(conn, product, expectedVersion);
+        }
+    }
+
+    @Override
+    public boolean deleteProduct(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.deleteProduct(conn, id);
+        }
+    }
+
+    @Override
+    public boolean updateStockQuantity(int id, int quantity) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.updateStockQuantity(conn, id, quantity);
+        }
+    }
+
+    @Override
+    public Product adjustStock(int id, int delta) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.adjustStock(conn, id, delta);
+        }
+    }
+
+    @Override
+    public StockAdjustmentResult adjustStock(List<StockAdjustmentLine> lines, boolean atomic) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.adjustStock(conn, lines, atomic);
+        }
+    }
+
+    @Override
+    public List<Supplier> getAllSuppliers(boolean readYourWrites) throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection(readYourWrites)) {
+            return InventoryManagementSystem.getAllSuppliers(conn);
+        }
+    }
+
+    @Override
+    public Supplier getSupplierById(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getSupplierById(conn, id);
+        }
+    }
+
+    @Override
+    public List<Product> getSupplierProducts(int supplierId, int limit, int offset, boolean expandSupplier)
+            throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getSupplierProducts(conn, supplierId, limit, offset, expandSupplier);
+        }
+    }
+
+    @Override
+    public Supplier addSupplier(Supplier supplier) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.addSupplier(conn, supplier);
+        }
+    }
+
+    @Override
+    public Supplier updateSupplier(Supplier supplier, Integer expectedVersion) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.updateSupplier(conn, supplier, expectedVersion);
+        }
+    }
+
+    @Override
+    public boolean deleteSupplier(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.deleteSupplier(conn, id);
+        }
+    }
+
+    @Override
+    public List<Sale> getAllSales(boolean readYourWrites) throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection(readYourWrites)) {
+            return InventoryManagementSystem.getAllSales(conn);
+        }
+    }
+
+    @Override
+    public List<Sale> getSales(boolean readYourWrites, String fromDate, String toDate) throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection(readYourWrites)) {
+            return InventoryManagementSystem.getSales(conn, fromDate, toDate);
+        }
+    }
+
+    @Override
+    public Sale getSaleById(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getSaleById(conn, id);
+        }
+    }
+
+    @Override
+    public Sale recordSale(Sale sale) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.recordSale(conn, sale);
+        }
+    }
+
+    @Override
+    public InventoryReport generateInventoryReport(boolean readYourWrites) throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection(readYourWrites)) {
+            return InventoryManagementSystem.generateInventoryReport(conn);
+        }
+    }
+
+    @Override
+    public InventoryReport generateInventoryReport(String asOf) throws SQLException {
+        // The movement log and checkpoints live on the primary only
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.generateInventoryReport(conn, asOf);
+        }
+    }
+
+    @Override
+    public StockAsOf getProductStockAsOf(int productId, String asOf) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getProductStockAsOf(conn, productId, asOf);
+        }
+    }
+
+    @Override
+    public SalesReport generateSalesReport(boolean readYourWrites, String fromDate, String toDate) throws SQLException {
+        try (Connection conn = DatabaseConnection.getReadConnection(readYourWrites)) {
+            return InventoryManagementSystem.generateSalesReport(conn, fromDate, toDate);
+        }
+    }
+
+    @Override
+    public RestockReport generateRestockReport(int horizonDays, int threshold) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.generateRestockReport(conn, horizonDays, threshold);
+        }
+    }
+
+    @Override
+    public RestockReport.SupplierRestock generateSupplierRestock(int supplierId, int horizonDays, int threshold)
+            throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.generateSupplierRestock(conn, supplierId, horizonDays, threshold);
+        }
+    }
+
+    @Override
+    public DemandForecast generateForecast(int horizonDays, int limit) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.generateForecast(conn, horizonDays, limit);
+        }
+    }
+
+    @Override
+    public DemandForecast.ProductForecast getProductForecast(int productId, int horizonDays) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getProductForecast(conn, productId, horizonDays);
+        }
+    }
+
+    @Override
+    public Customer addCustomer(Customer customer) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.addCustomer(conn, customer);
+        }
+    }
+
+    @Override
+    public Customer getCustomerById(int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getCustomerById(conn, id);
+        }
+    }
+
+    @Override
+    public CustomerPurchases getCustomerPurchases(int customerId, int limit, int offset) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getCustomerPurchases(conn, customerId, limit, offset);
+        }
+    }
+
+    @Override
+    public List<Location> getLocations() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getLocations(conn);
+        }
+    }
+
+    @Override
+    public Location addLocation(Location location) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.addLocation(conn, location);
+        }
+    }
+
+    @Override
+    public SyncPage getChanges(long since, int limit) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getChanges(conn, since, limit);
+        }
+    }
+
+    @Override
+    public List<LocationStock> getLocationStock(int locationId, int limit, int offset) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getLocationStock(conn, locationId, limit, offset);
+        }
+    }
+
+    @Override
+    public ProductLocations getProductLocations(int productId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.getProductLocations(conn, productId);
+        }
+    }
+
+    @Override
+    public Product adjustStock(int id, int delta, int locationId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.adjustStock(conn, id, delta, locationId);
+        }
+    }
+
+    @Override
+    public ProductLocations transferStock(int productId, int fromLocationId, int toLocationId, int quantity)
+            throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return InventoryManagementSystem.transferStock(conn, productId, fromLocationId, toLocationId, quantity);
+        }
+    }
+}
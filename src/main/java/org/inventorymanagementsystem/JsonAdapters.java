@@ -0,0 +1,369 @@
+package org.inventorymanagementsystem;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.inventorymanagementsystem.model.Money;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hand-written Gson adapters for the entities and reports the API sends most. They read and
+ * write each field through its getter and setter in a fixed order, instead of Gson looking
+ * the fields up and setting them reflectively, and produce exactly the JSON the reflective
+ * adapters did: same names, same order, null fields left out, unknown fields ignored on read.
+ */
+public final class JsonAdapters {
+    // Larger response buffers are dropped after use rather than kept per thread
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+    // Gson's default date pattern, which sale dates have always been written in. A
+    // DateTimeFormatter gives the same text without Gson's shared, locked DateFormat.
+    private static final DateTimeFormatter SALE_DATE = DateTimeFormatter.ofPattern(
+            ((SimpleDateFormat) DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, Locale.US)).toPattern(),
+            Locale.US).withZone(ZoneId.systemDefault());
+
+    private JsonAdapters() {}
+
+    /**
+     * @return A Gson with the adapters registered, otherwise configured like {@code new Gson()}
+     */
+    public static Gson createGson() {
+        // Reading accepts every date format Gson does, so that is left to its adapter
+        TypeAdapter<Timestamp> timestamps = new Gson().getAdapter(Timestamp.class);
+        return new GsonBuilder()
+                .registerTypeAdapter(Product.class, new ProductAdapter().nullSafe())
+                .registerTypeAdapter(Supplier.class, new SupplierAdapter().nullSafe())
+                .registerTypeAdapter(Sale.class, new SaleAdapter(timestamps).nullSafe())
+                .registerTypeAdapter(InventoryReport.class, new InventoryReportAdapter().nullSafe())
+                .registerTypeAdapter(SalesReport.class, new SalesReportAdapter().nullSafe())
+                .registerTypeAdapter(TopProduct.class, new TopProductAdapter().nullSafe())
+                .create();
+    }
+
+    /**
+     * Serializes into a per-thread buffer, so a response does not grow a fresh
+     * {@link java.io.StringWriter} from 16 characters every time.
+     */
+    public static String toJson(Gson gson, Object src) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        gson.toJson(src, buffer);
+        String json = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return json;
+    }
+
+    static final class ProductAdapter extends TypeAdapter<Product> {
+        private final SupplierAdapter supplierAdapter = new SupplierAdapter();
+
+        @Override
+        public void write(JsonWriter out, Product product) throws IOException {
+            out.beginObject();
+            out.name("id").value(product.getId());
+            out.name("name").value(product.getName());
+            out.name("price").jsonValue(Money.format(product.getPriceCents()));
+            out.name("stockQuantity").value(product.getStockQuantity());
+            out.name("supplierId").value(product.getSupplierId());
+            out.name("sku").value(product.getSku());
+            out.name("version").value(product.getVersion());
+            // Only present with ?expand=supplier; read back, it is ignored
+            if (product.getSupplier() != null) {
+                out.name("supplier");
+                supplierAdapter.write(out, product.getSupplier());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Product read(JsonReader in) throws IOException {
+            Product product = new Product();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in, name.equals("name") || name.equals("sku"))) continue;
+                switch (name) {
+                    case "id" -> product.setId(readInt(in));
+                    case "name" -> product.setName(readString(in));
+                    case "price" -> product.setPriceCents(readMoney(in));
+                    case "stockQuantity" -> product.setStockQuantity(readInt(in));
+                    case "supplierId" -> product.setSupplierId(readInt(in));
+                    case "sku" -> product.setSku(readString(in));
+                    case "version" -> product.setVersion(readInt(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return product;
+        }
+    }
+
+    static final class SupplierAdapter extends TypeAdapter<Supplier> {
+        @Override
+        public void write(JsonWriter out, Supplier supplier) throws IOException {
+            out.beginObject();
+            out.name("id").value(supplier.getId());
+            out.name("name").value(supplier.getName());
+            out.name("contactPerson").value(supplier.getContactPerson());
+            out.name("email").value(supplier.getEmail());
+            out.name("phone").value(supplier.getPhone());
+            out.name("version").value(supplier.getVersion());
+            out.endObject();
+        }
+
+        @Override
+        public Supplier read(JsonReader in) throws IOException {
+            Supplier supplier = new Supplier();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in, !name.equals("id") && !name.equals("version"))) continue;
+                switch (name) {
+                    case "id" -> supplier.setId(readInt(in));
+                    case "name" -> supplier.setName(readString(in));
+                    case "contactPerson" -> supplier.setContactPerson(readString(in));
+                    case "email" -> supplier.setEmail(readString(in));
+                    case "phone" -> supplier.setPhone(readString(in));
+                    case "version" -> supplier.setVersion(readInt(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return supplier;
+        }
+    }
+
+    static final class SaleAdapter extends TypeAdapter<Sale> {
+        private final TypeAdapter<Timestamp> timestamps;
+
+        SaleAdapter(TypeAdapter<Timestamp> timestamps) {
+            this.timestamps = timestamps;
+        }
+
+        @Override
+        public void write(JsonWriter out, Sale sale) throws IOException {
+            out.beginObject();
+            out.name("id").value(sale.getId());
+            out.name("productId").value(sale.getProductId());
+            out.name("productName").value(sale.getProductName());
+            out.name("quantitySold").value(sale.getQuantitySold());
+            out.name("unitPrice").jsonValue(Money.format(sale.getUnitPriceCents()));
+            out.name("totalPrice").jsonValue(Money.format(sale.getTotalPriceCents()));
+            if (sale.getSaleDate() != null) {
+                out.name("saleDate").value(SALE_DATE.format(sale.getSaleDate().toInstant()));
+            }
+            // 0 for a sale taken from no particular location, written as reflective Gson writes it
+            out.name("locationId").value(sale.getLocationId());
+            // 0 for an anonymous sale, likewise
+            out.name("customerId").value(sale.getCustomerId());
+            out.endObject();
+        }
+
+        @Override
+        public Sale read(JsonReader in) throws IOException {
+            Sale sale = new Sale();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                boolean nullable = name.equals("productName") || name.equals("saleDate") || name.equals("locationId")
+                        || name.equals("customerId");
+                if (skipNull(in, nullable)) continue;
+                switch (name) {
+                    case "id" -> sale.setId(readInt(in));
+                    case "productId" -> sale.setProductId(readInt(in));
+                    case "productName" -> sale.setProductName(readString(in));
+                    case "quantitySold" -> sale.setQuantitySold(readInt(in));
+                    case "unitPrice" -> sale.setUnitPriceCents(readMoney(in));
+                    case "saleDate" -> sale.setSaleDate(timestamps.read(in));
+                    case "locationId" -> sale.setLocationId(readInt(in));
+                    case "customerId" -> sale.setCustomerId(readInt(in));
+                    // totalPrice is always unit price times quantity, so it is derived, not read
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return sale;
+        }
+    }
+
+    static final class InventoryReportAdapter extends TypeAdapter<InventoryReport> {
+        @Override
+        public void write(JsonWriter out, InventoryReport report) throws IOException {
+            out.beginObject();
+            if (report.getAsOf() != null) {
+                out.name("asOf").value(report.getAsOf());
+            }
+            out.name("totalProducts").value(report.getTotalProducts());
+            out.name("totalValue").jsonValue(Money.format(report.getTotalValueCents()));
+            out.name("lowStockItems").value(report.getLowStockItems());
+            out.name("outOfStockItems").value(report.getOutOfStockItems());
+            out.endObject();
+        }
+
+        @Override
+        public InventoryReport read(JsonReader in) throws IOException {
+            InventoryReport report = new InventoryReport();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in, false)) continue;
+                switch (name) {
+                    case "asOf" -> report.setAsOf(readString(in));
+                    case "totalProducts" -> report.setTotalProducts(readInt(in));
+                    case "totalValue" -> report.setTotalValueCents(readMoney(in));
+                    case "lowStockItems" -> report.setLowStockItems(readInt(in));
+                    case "outOfStockItems" -> report.setOutOfStockItems(readInt(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return report;
+        }
+    }
+
+    static final class SalesReportAdapter extends TypeAdapter<SalesReport> {
+        private final TopProductAdapter topProducts = new TopProductAdapter();
+        private final TypeAdapter<TopProduct> nullableTopProducts = topProducts.nullSafe();
+
+        @Override
+        public void write(JsonWriter out, SalesReport report) throws IOException {
+            out.beginObject();
+            out.name("fromDate").value(report.getFromDate());
+            out.name("toDate").value(report.getToDate());
+            out.name("totalSales").value(report.getTotalSales());
+            out.name("totalUnitsSold").value(report.getTotalUnitsSold());
+            out.name("totalRevenue").jsonValue(Money.format(report.getTotalRevenueCents()));
+            List<TopProduct> top = report.getTopProducts();
+            if (top != null) {
+                out.name("topProducts").beginArray();
+                for (TopProduct product : top) {
+                    if (product == null) {
+                        out.nullValue();
+                    } else {
+                        topProducts.write(out, product);
+                    }
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public SalesReport read(JsonReader in) throws IOException {
+            SalesReport report = new SalesReport();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in, name.endsWith("Date") || name.equals("topProducts"))) continue;
+                switch (name) {
+                    case "fromDate" -> report.setFromDate(readString(in));
+                    case "toDate" -> report.setToDate(readString(in));
+                    case "totalSales" -> report.setTotalSales(readInt(in));
+                    case "totalUnitsSold" -> report.setTotalUnitsSold(readInt(in));
+                    case "totalRevenue" -> report.setTotalRevenueCents(readMoney(in));
+                    case "topProducts" -> report.setTopProducts(readTopProducts(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return report;
+        }
+
+        private List<TopProduct> readTopProducts(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<TopProduct> top = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                top.add(nullableTopProducts.read(in));
+            }
+            in.endArray();
+            return top;
+        }
+    }
+
+    static final class TopProductAdapter extends TypeAdapter<TopProduct> {
+        @Override
+        public void write(JsonWriter out, TopProduct product) throws IOException {
+            out.beginObject();
+            out.name("productId").value(product.getProductId());
+            out.name("productName").value(product.getProductName());
+            out.name("unitsSold").value(product.getUnitsSold());
+            out.endObject();
+        }
+
+        @Override
+        public TopProduct read(JsonReader in) throws IOException {
+            TopProduct product = new TopProduct();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in, name.equals("productName"))) continue;
+                switch (name) {
+                    case "productId" -> product.setProductId(readInt(in));
+                    case "productName" -> product.setProductName(readString(in));
+                    case "unitsSold" -> product.setUnitsSold(readInt(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return product;
+        }
+    }
+
+    /**
+     * Consumes a JSON null unless the field can hold one. As with reflective Gson, a null for
+     * a primitive field leaves the field as it was.
+     * @return true if a null was consumed and the field should be skipped
+     */
+    private static boolean skipNull(JsonReader in, boolean nullable) throws IOException {
+        if (!nullable && in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static int readInt(JsonReader in) throws IOException {
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static long readMoney(JsonReader in) throws IOException {
+        try {
+            return Money.parse(in.nextString());
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid money amount at " + in.getPath(), e);
+        }
+    }
+}
@@ -0,0 +1,1050 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Money;
+import org.inventorymanagementsystem.model.Location;
+import org.inventorymanagementsystem.model.LocationStock;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link InventoryStore} held entirely in the heap, for tests, demos and benchmarks that
+ * should not touch disk. Nothing survives a restart.
+ * <ul>
+ *   <li>Products and suppliers sit in {@link IntHashMap}s keyed by ID. A name-sorted array
+ *       serves listings and is rebuilt only after a change that can affect the order.</li>
+ *   <li>Sales are stored column-wise in primitive arrays indexed by sale ID. Sale times never
+ *       decrease, so a date range is found by binary search.</li>
+ *   <li>The inventory report, the all-time sales totals and the all-time best sellers are
+ *       updated on every write, so those reports cost nothing to produce.</li>
+ *   <li>Each customer keeps its lifetime totals and the indexes of its sales, oldest first,
+ *       so its history pages newest first without a scan.</li>
+ * </ul>
+ * Foreign keys are enforced as in the database: a product's supplier must exist, and
+ * suppliers with products or products with sales cannot be deleted. One read-write lock
+ * guards everything; entities are copied in and out, so callers never share state with
+ * the store.
+ */
+final class MemoryInventoryStore implements InventoryStore {
+    // Same bound as the inventory report's stock_quantity < 10
+    private static final int LOW_STOCK = 10;
+    private static final int TOP_PRODUCTS = 5;
+    private static final String LOCATIONS_UNSUPPORTED = "Stock locations need the jdbc store";
+
+    // SQL states H2 uses for the same failures
+    private static final String NOT_NULL_VIOLATION = "23502";
+    private static final String CHILD_EXISTS = "23503";
+    private static final String PARENT_MISSING = "23506";
+
+    private static final Comparator<ProductRow> PRODUCT_ORDER =
+            Comparator.comparing((ProductRow row) -> row.name).thenComparingInt(row -> row.id);
+    private static final Comparator<SupplierRow> SUPPLIER_ORDER =
+            Comparator.comparing((SupplierRow row) -> row.name).thenComparingInt(row -> row.id);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final IntHashMap<ProductRow> products = new IntHashMap<>();
+    private final IntHashMap<SupplierRow> suppliers = new IntHashMap<>();
+    // Products that have a SKU, as the unique index on products.sku holds them
+    private final Map<String, ProductRow> productsBySku = new HashMap<>();
+    private int nextProductId = 1;
+    private int nextSupplierId = 1;
+    private final IntHashMap<CustomerRow> customers = new IntHashMap<>();
+    private int nextCustomerId = 1;
+    // Name order for listings, null once a change may have reordered it
+    private volatile ProductRow[] productsByName;
+    private volatile SupplierRow[] suppliersByName;
+
+    // Sale N is at index N - 1
+    private int saleCount;
+    private int[] saleProductIds = new int[1024];
+    private int[] saleQuantities = new int[1024];
+    private long[] saleUnitPrices = new long[1024];
+    private long[] saleTimes = new long[1024];
+    // 0 for an anonymous sale
+    private int[] saleCustomerIds = new int[1024];
+
+    private long stockValueCents;
+    private int lowStockItems;
+    private int outOfStockItems;
+    private long unitsSold;
+    private long revenueCents;
+    // All-time best sellers, best first. Units sold only grow and products with sales are
+    // never deleted, so a product can only enter this list by passing its last entry.
+    private final int[] topSellers = new int[TOP_PRODUCTS];
+    private int topSellerCount;
+
+    // Products
+
+    @Override
+    public List<Product> getAllProducts(boolean readYourWrites, boolean expandSupplier) {
+        lock.readLock().lock();
+        try {
+            ProductRow[] sorted = productsByName;
+            if (sorted == null) {
+                sorted = sortedProducts();
+            }
+            List<Product> result = new ArrayList<>(sorted.length);
+            for (ProductRow row : sorted) {
+                result.add(toProduct(row, expandSupplier));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Product getProductById(int id, boolean expandSupplier) throws SQLException {
+        lock.readLock().lock();
+        try {
+            return toProduct(product(id), expandSupplier);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> getProductsByIds(List<Integer> ids, boolean expandSupplier) {
+        InventoryManagementSystem.checkBatchSize(ids.size());
+        lock.readLock().lock();
+        try {
+            List<Product> result = new ArrayList<>(ids.size());
+            Set<Integer> seen = new HashSet<>();
+            for (Integer id : ids) {
+                ProductRow row = products.get(id);
+                if (row != null && seen.add(id)) {
+                    result.add(toProduct(row, expandSupplier));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Products live in this process, so the index sees every write even with a shared database
+    @Override
+    public List<Product> searchProducts(String query, int limit) {
+        return ProductSearchIndex.getInstance().search(query, limit);
+    }
+
+    @Override
+    public Product getProductBySku(String sku, boolean expandSupplier) throws SQLException {
+        String key = InventoryManagementSystem.normalizeSku(sku);
+        if (key == null) {
+            throw new IllegalArgumentException("SKU is required");
+        }
+        lock.readLock().lock();
+        try {
+            ProductRow row = productsBySku.get(key);
+            if (row == null) {
+                throw new SQLException("Product not found with SKU: " + key);
+            }
+            return toProduct(row, expandSupplier);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Product addProduct(Product product) throws SQLException {
+        product.setSku(InventoryManagementSystem.normalizeSku(product.getSku()));
+        lock.writeLock().lock();
+        try {
+            requireName(product.getName());
+            requireSupplier(product.getSupplierId());
+            requireSkuFree(product.getSku(), 0);
+            valueWith(stockValueCents, null, product.getPriceCents(), product.getStockQuantity());
+            int id = nextProductId;
+            Product created = new Product(id, product.getName(), product.getPriceCents(), product.getStockQuantity());
+            created.setSupplierId(product.getSupplierId());
+            created.setSku(product.getSku());
+            nextProductId++;
+
+            ProductRow row = new ProductRow(id);
+            row.assign(product);
+            products.put(id, row);
+            if (row.sku != null) {
+                productsBySku.put(row.sku, row);
+            }
+            supplierLinked(row.supplierId, 1);
+            account(row, 1);
+            productsByName = null;
+            ProductSearchIndex.getInstance().put(created);
+            return created;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Product updateProduct(Product product, Integer expectedVersion) throws SQLException {
+        product.setSku(InventoryManagementSystem.normalizeSku(product.getSku()));
+        lock.writeLock().lock();
+        try {
+            ProductRow row = products.get(product.getId());
+            if (row == null) {
+                throw new SQLException("Product not found with ID: " + product.getId());
+            }
+            if (expectedVersion != null && row.version != expectedVersion) {
+                throw new VersionConflictException("Product " + row.id + " is at version " + row.version +
+                        ", not " + expectedVersion);
+            }
+            requireName(product.getName());
+            requireSupplier(product.getSupplierId());
+            requireSkuFree(product.getSku(), row.id);
+            valueWith(stockValueCents, row, product.getPriceCents(), product.getStockQuantity());
+            account(row, -1);
+            supplierLinked(row.supplierId, -1);
+            if (!row.name.equals(product.getName())) {
+                productsByName = null;
+            }
+            if (row.sku != null) {
+                productsBySku.remove(row.sku);
+            }
+            row.assign(product);
+            if (row.sku != null) {
+                productsBySku.put(row.sku, row);
+            }
+            row.version++;
+            supplierLinked(row.supplierId, 1);
+            account(row, 1);
+            product.setVersion(row.version);
+            ProductSearchIndex.getInstance().put(product);
+            return product;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteProduct(int id) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            ProductRow row = products.get(id);
+            if (row == null) {
+                return false;
+            }
+            if (row.saleCount > 0) {
+                throw new SQLIntegrityConstraintViolationException("Referential integrity constraint violation: product " + id +
+                        " is referenced by " + row.saleCount + " sales", CHILD_EXISTS);
+            }
+            products.remove(id);
+            if (row.sku != null) {
+                productsBySku.remove(row.sku);
+            }
+            supplierLinked(row.supplierId, -1);
+            account(row, -1);
+            productsByName = null;
+            ProductSearchIndex.getInstance().remove(id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateStockQuantity(int id, int quantity) {
+        lock.writeLock().lock();
+        try {
+            ProductRow row = products.get(id);
+            if (row == null) {
+                return false;
+            }
+            setStock(row, quantity);
+            ProductSearchIndex.getInstance().put(row.toProduct());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Product adjustStock(int id, int delta) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            ProductRow row = product(id);
+            if (row.stockQuantity + delta < 0) {
+                throw new SQLException("Insufficient stock for this adjustment");
+            }
+            setStock(row, row.stockQuantity + delta);
+            Product updated = row.toProduct();
+            ProductSearchIndex.getInstance().put(updated);
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public StockAdjustmentResult adjustStock(List<StockAdjustmentLine> lines, boolean atomic) {
+        InventoryManagementSystem.checkBatchSize(lines.size());
+        lock.writeLock().lock();
+        try {
+            // Quantities after the earlier lines, checked before anything is changed
+            Map<Integer, Integer> pending = new HashMap<>();
+            boolean failed = false;
+            for (StockAdjustmentLine line : lines) {
+                ProductRow row = products.get(line.getProductId());
+                if (row == null) {
+                    line.setStatus(StockAdjustmentLine.Status.NOT_FOUND);
+                    failed = true;
+                    continue;
+                }
+                long next = (long) pending.getOrDefault(row.id, row.stockQuantity) + line.getDelta();
+                if (next < 0) {
+                    line.setStatus(StockAdjustmentLine.Status.INSUFFICIENT_STOCK);
+                    failed = true;
+                } else if (next > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Stock quantity would overflow");
+                } else {
+                    line.setStatus(StockAdjustmentLine.Status.APPLIED);
+                    pending.put(row.id, (int) next);
+                }
+            }
+            if (atomic && failed) {
+                for (StockAdjustmentLine line : lines) {
+                    if (line.getStatus() == StockAdjustmentLine.Status.APPLIED) {
+                        line.setStatus(StockAdjustmentLine.Status.NOT_APPLIED);
+                    }
+                }
+            } else {
+                // Steps through the stock value line by line first, so no line overflows it halfway
+                long value = stockValueCents;
+                Map<Integer, Integer> stepped = new HashMap<>();
+                for (StockAdjustmentLine line : lines) {
+                    if (line.getStatus() != StockAdjustmentLine.Status.APPLIED) continue;
+                    ProductRow row = products.get(line.getProductId());
+                    int before = stepped.getOrDefault(row.id, row.stockQuantity);
+                    value = Money.add(value - Money.times(row.priceCents, before),
+                            Money.times(row.priceCents, before + line.getDelta()));
+                    stepped.put(row.id, before + line.getDelta());
+                }
+                for (StockAdjustmentLine line : lines) {
+                    if (line.getStatus() != StockAdjustmentLine.Status.APPLIED) continue;
+                    ProductRow row = products.get(line.getProductId());
+                    setStock(row, row.stockQuantity + line.getDelta());
+                }
+            }
+            for (StockAdjustmentLine line : lines) {
+                if (line.getStatus() == StockAdjustmentLine.Status.APPLIED) {
+                    line.setStockQuantity(products.get(line.getProductId()).stockQuantity);
+                }
+            }
+            if (!atomic || !failed) {
+                for (Integer id : pending.keySet()) {
+                    ProductSearchIndex.getInstance().put(products.get(id).toProduct());
+                }
+            }
+            return new StockAdjustmentResult(atomic, lines);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Suppliers
+
+    @Override
+    public List<Supplier> getAllSuppliers(boolean readYourWrites) {
+        lock.readLock().lock();
+        try {
+            SupplierRow[] sorted = suppliersByName;
+            if (sorted == null) {
+                sorted = sortedSuppliers();
+            }
+            List<Supplier> result = new ArrayList<>(sorted.length);
+            for (SupplierRow row : sorted) {
+                result.add(row.toSupplier());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Supplier getSupplierById(int id) throws SQLException {
+        lock.readLock().lock();
+        try {
+            SupplierRow row = suppliers.get(id);
+            if (row == null) {
+                throw new SQLException("Supplier not found with ID: " + id);
+            }
+            return row.toSupplier();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> getSupplierProducts(int supplierId, int limit, int offset, boolean expandSupplier)
+            throws SQLException {
+        if (limit < 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit and offset must be non-negative");
+        }
+        lock.readLock().lock();
+        try {
+            if (suppliers.get(supplierId) == null) {
+                throw new SQLException("Supplier not found with ID: " + supplierId);
+            }
+            ProductRow[] sorted = productsByName;
+            if (sorted == null) {
+                sorted = sortedProducts();
+            }
+            // A scan of the name order, where the database reads its supplier index
+            List<Product> result = new ArrayList<>();
+            int skipped = 0;
+            for (ProductRow row : sorted) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (row.supplierId == supplierId && skipped++ >= offset) {
+                    result.add(toProduct(row, expandSupplier));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Supplier addSupplier(Supplier supplier) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            requireName(supplier.getName());
+            SupplierRow row = new SupplierRow(nextSupplierId++);
+            row.assign(supplier);
+            suppliers.put(row.id, row);
+            suppliersByName = null;
+            return row.toSupplier();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Supplier updateSupplier(Supplier supplier, Integer expectedVersion) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            SupplierRow row = suppliers.get(supplier.getId());
+            if (row == null) {
+                throw new SQLException("Supplier not found with ID: " + supplier.getId());
+            }
+            if (expectedVersion != null && row.version != expectedVersion) {
+                throw new VersionConflictException("Supplier " + row.id + " is at version " + row.version +
+                        ", not " + expectedVersion);
+            }
+            requireName(supplier.getName());
+            row.assign(supplier);
+            row.version++;
+            suppliersByName = null;
+            supplier.setVersion(row.version);
+            return supplier;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteSupplier(int id) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            SupplierRow row = suppliers.get(id);
+            if (row == null) {
+                return false;
+            }
+            if (row.productCount > 0) {
+                throw new SQLIntegrityConstraintViolationException("Referential integrity constraint violation: supplier " + id +
+                        " is referenced by " + row.productCount + " products", CHILD_EXISTS);
+            }
+            suppliers.remove(id);
+            suppliersByName = null;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Sales
+
+    @Override
+    public List<Sale> getAllSales(boolean readYourWrites) {
+        lock.readLock().lock();
+        try {
+            return salesNewestFirst(0, saleCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Sale> getSales(boolean readYourWrites, String fromDate, String toDate) {
+        Timestamp from = InventoryManagementSystem.startOfDay(fromDate);
+        Timestamp to = InventoryManagementSystem.endOfDay(toDate);
+        lock.readLock().lock();
+        try {
+            return salesNewestFirst(from == null ? 0 : firstSaleAtOrAfter(from),
+                    to == null ? saleCount : firstSaleAtOrAfter(to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Sale getSaleById(int id) throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (id <= 0 || id > saleCount) {
+                throw new SQLException("Sale not found with ID: " + id);
+            }
+            return sale(id - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Sale recordSale(Sale sale) throws SQLException {
+        if (sale.getQuantitySold() <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (sale.getLocationId() > 0) {
+            throw new UnsupportedOperationException(LOCATIONS_UNSUPPORTED);
+        }
+        lock.writeLock().lock();
+        try {
+            ProductRow row = product(sale.getProductId());
+            if (row.stockQuantity < sale.getQuantitySold()) {
+                throw new SQLException("Insufficient stock");
+            }
+            CustomerRow customer = sale.getCustomerId() > 0 ? customer(sale.getCustomerId()) : null;
+            long total = Money.times(row.priceCents, sale.getQuantitySold());
+            long revenue = Money.add(revenueCents, total);
+            // Worked out before anything changes, so an overflow leaves the store as it was
+            long spent = customer == null ? 0 : Money.add(customer.spentCents, total);
+
+            int index = saleCount;
+            if (index == saleProductIds.length) {
+                growSales();
+            }
+            // Times never go backwards, even if the clock does, so ranges stay binary-searchable
+            long now = Math.max(System.currentTimeMillis(), index == 0 ? 0 : saleTimes[index - 1]);
+            saleProductIds[index] = row.id;
+            saleQuantities[index] = sale.getQuantitySold();
+            saleUnitPrices[index] = row.priceCents;
+            saleTimes[index] = now;
+            saleCustomerIds[index] = customer == null ? 0 : customer.id;
+            saleCount++;
+
+            revenueCents = revenue;
+            unitsSold += sale.getQuantitySold();
+            row.saleCount++;
+            row.unitsSold += sale.getQuantitySold();
+            promoteTopSeller(row);
+            setStock(row, row.stockQuantity - sale.getQuantitySold());
+            ProductSearchIndex.getInstance().put(row.toProduct());
+            if (customer != null) {
+                customer.addPurchase(index, sale.getQuantitySold(), spent, now);
+            }
+
+            sale.setId(index + 1);
+            sale.setUnitPriceCents(row.priceCents); // Capture current price
+            sale.setSaleDate(new Timestamp(now));
+            return sale;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Customers
+
+    @Override
+    public Customer addCustomer(Customer customer) throws SQLException {
+        if (customer == null || customer.getName() == null || customer.getName().isBlank()) {
+            throw new IllegalArgumentException("Customer name is required");
+        }
+        lock.writeLock().lock();
+        try {
+            CustomerRow row = new CustomerRow(nextCustomerId++);
+            row.name = customer.getName().trim();
+            row.email = customer.getEmail();
+            row.phone = customer.getPhone();
+            customers.put(row.id, row);
+            return row.toCustomer();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Customer getCustomerById(int id) throws SQLException {
+        lock.readLock().lock();
+        try {
+            return customer(id).toCustomer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CustomerPurchases getCustomerPurchases(int customerId, int limit, int offset) throws SQLException {
+        if (limit < 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit and offset must be non-negative");
+        }
+        lock.readLock().lock();
+        try {
+            CustomerRow row = customer(customerId);
+            int newest = row.saleCount - 1 - offset;
+            List<Sale> purchases = new ArrayList<>(Math.max(0, Math.min(limit, newest + 1)));
+            for (int i = newest; i >= 0 && purchases.size() < limit; i--) {
+                purchases.add(sale(row.sales[i]));
+            }
+            return new CustomerPurchases(row.toCustomer(), null, purchases);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Reports
+
+    @Override
+    public InventoryReport generateInventoryReport(boolean readYourWrites) {
+        lock.readLock().lock();
+        try {
+            InventoryReport report = new InventoryReport();
+            report.setTotalProducts(products.size());
+            report.setTotalValueCents(stockValueCents);
+            report.setLowStockItems(lowStockItems);
+            report.setOutOfStockItems(outOfStockItems);
+            return report;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SalesReport generateSalesReport(boolean readYourWrites, String fromDate, String toDate) {
+        Timestamp from = InventoryManagementSystem.startOfDay(fromDate);
+        Timestamp to = InventoryManagementSystem.endOfDay(toDate);
+        SalesReport report = new SalesReport();
+        report.setFromDate(fromDate);
+        report.setToDate(toDate);
+
+        lock.readLock().lock();
+        try {
+            if (from == null && to == null) {
+                report.setTotalSales(saleCount);
+                report.setTotalUnitsSold((int) unitsSold);
+                report.setTotalRevenueCents(revenueCents);
+                List<TopProduct> top = new ArrayList<>(topSellerCount);
+                for (int i = 0; i < topSellerCount; i++) {
+                    ProductRow row = products.get(topSellers[i]);
+                    top.add(topProduct(row.id, row.name, row.unitsSold));
+                }
+                report.setTopProducts(top);
+                return report;
+            }
+
+            int start = from == null ? 0 : firstSaleAtOrAfter(from);
+            int end = to == null ? saleCount : firstSaleAtOrAfter(to);
+            // Per product units, indexed by product ID
+            long[] units = new long[nextProductId];
+            long totalUnits = 0;
+            long revenue = 0;
+            for (int i = start; i < end; i++) {
+                int quantity = saleQuantities[i];
+                units[saleProductIds[i]] += quantity;
+                totalUnits += quantity;
+                revenue = Money.add(revenue, Money.times(saleUnitPrices[i], quantity));
+            }
+            report.setTotalSales(Math.max(0, end - start));
+            report.setTotalUnitsSold((int) totalUnits);
+            report.setTotalRevenueCents(revenue);
+            report.setTopProducts(topProducts(units));
+            return report;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public InventoryReport generateInventoryReport(String asOf) {
+        throw new UnsupportedOperationException("Inventory history needs the jdbc store");
+    }
+
+    @Override
+    public StockAsOf getProductStockAsOf(int productId, String asOf) {
+        throw new UnsupportedOperationException("Inventory history needs the jdbc store");
+    }
+
+    @Override
+    public RestockReport generateRestockReport(int horizonDays, int threshold) {
+        throw new UnsupportedOperationException("Restock planning needs the jdbc store");
+    }
+
+    @Override
+    public RestockReport.SupplierRestock generateSupplierRestock(int supplierId, int horizonDays, int threshold) {
+        throw new UnsupportedOperationException("Restock planning needs the jdbc store");
+    }
+
+    @Override
+    public DemandForecast generateForecast(int horizonDays, int limit) {
+        throw new UnsupportedOperationException("Demand forecasting needs the jdbc store");
+    }
+
+    @Override
+    public DemandForecast.ProductForecast getProductForecast(int productId, int horizonDays) {
+        throw new UnsupportedOperationException("Demand forecasting needs the jdbc store");
+    }
+
+    @Override
+    public SyncPage getChanges(long since, int limit) {
+        throw new UnsupportedOperationException("Delta sync needs the jdbc store");
+    }
+
+    @Override
+    public List<Location> getLocations() {
+        throw new UnsupportedOperationException(LOCATIONS_UNSUPPORTED);
+    }
+
+    @Override
+    public Location addLocation(Location location) {
+        throw new UnsupportedOperationException(LOCATIONS_UNSUPPORTED);
+    }
+
+    @Override
+    public List<LocationStock> getLocationStock(int locationId, int limit, int offset) {
+        throw new UnsupportedOperationException(LOCATIONS_UNSUPPORTED);
+    }
+
+    @Override
+    public ProductLocations getProductLocations(int productId) {
+        throw new UnsupportedOperationException(LOCATIONS_UNSUPPORTED);
+    }
+
+    @Override
+    public Product adjustStock(int id, int delta, int locationId) throws SQLException {
+        if (locationId != 0) {
+            throw new UnsupportedOperationException(LOCATIONS_UNSUPPORTED);
+        }
+        return adjustStock(id, delta);
+    }
+
+    @Override
+    public ProductLocations transferStock(int productId, int fromLocationId, int toLocationId, int quantity) {
+        throw new UnsupportedOperationException(LOCATIONS_UNSUPPORTED);
+    }
+
+    // Helpers, called with the lock held
+
+    // Called with the lock held
+    private Product toProduct(ProductRow row, boolean expandSupplier) {
+        Product product = row.toProduct();
+        if (expandSupplier && row.supplierId != 0) {
+            product.setSupplier(suppliers.get(row.supplierId).toSupplier());
+        }
+        return product;
+    }
+
+    private ProductRow product(int id) throws SQLException {
+        ProductRow row = products.get(id);
+        if (row == null) {
+            throw new SQLException("Product not found with ID: " + id);
+        }
+        return row;
+    }
+
+    private CustomerRow customer(int id) throws SQLException {
+        CustomerRow row = customers.get(id);
+        if (row == null) {
+            throw new SQLException("Customer not found with ID: " + id);
+        }
+        return row;
+    }
+
+    private void requireSupplier(int supplierId) throws SQLException {
+        if (supplierId != 0 && suppliers.get(supplierId) == null) {
+            throw new SQLIntegrityConstraintViolationException("Referential integrity constraint violation: supplier " + supplierId +
+                    " does not exist", PARENT_MISSING);
+        }
+    }
+
+    // The product being updated may keep its own SKU
+    private void requireSkuFree(String sku, int productId) {
+        ProductRow holder = sku == null ? null : productsBySku.get(sku);
+        if (holder != null && holder.id != productId) {
+            throw new IllegalArgumentException("SKU already in use: " + sku);
+        }
+    }
+
+    private static void requireName(String name) throws SQLException {
+        if (name == null) {
+            throw new SQLIntegrityConstraintViolationException("NULL not allowed for column \"NAME\"", NOT_NULL_VIOLATION);
+        }
+    }
+
+    private void supplierLinked(int supplierId, int sign) {
+        if (supplierId != 0) {
+            suppliers.get(supplierId).productCount += sign;
+        }
+    }
+
+    private void setStock(ProductRow row, int quantity) {
+        valueWith(stockValueCents, row, row.priceCents, quantity);
+        account(row, -1);
+        row.stockQuantity = quantity;
+        row.version++;
+        account(row, 1);
+    }
+
+    /**
+     * Works out the stock value once the product has this price and stock, before anything
+     * changes, so an overflow leaves the store as it was
+     * @param row The product as it is now, or null for a new one
+     * @throws ArithmeticException If the value does not fit in a long
+     */
+    private static long valueWith(long value, ProductRow row, long priceCents, int stockQuantity) {
+        long current = row == null ? 0 : Money.times(row.priceCents, row.stockQuantity);
+        return Money.add(value - current, Money.times(priceCents, stockQuantity));
+    }
+
+    // Adds (sign 1) or removes (sign -1) the product's share of the inventory report
+    private void account(ProductRow row, int sign) {
+        stockValueCents = Money.add(stockValueCents, sign * Money.times(row.priceCents, row.stockQuantity));
+        if (row.stockQuantity < LOW_STOCK) lowStockItems += sign;
+        if (row.stockQuantity == 0) outOfStockItems += sign;
+    }
+
+    /**
+     * @return Index of the first sale at or after the time, or the sale count if there is none
+     */
+    private int firstSaleAtOrAfter(Timestamp time) {
+        long millis = time.getTime();
+        int low = 0;
+        int high = saleCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (saleTimes[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<Sale> salesNewestFirst(int start, int end) {
+        List<Sale> result = new ArrayList<>(Math.max(0, end - start));
+        for (int i = end - 1; i >= start; i--) {
+            result.add(sale(i));
+        }
+        return result;
+    }
+
+    private Sale sale(int index) {
+        int productId = saleProductIds[index];
+        // Products with sales cannot be deleted, so the product is always there
+        Sale sale = new Sale(index + 1, productId, products.get(productId).name, saleQuantities[index],
+                saleUnitPrices[index], new Timestamp(saleTimes[index]));
+        sale.setCustomerId(saleCustomerIds[index]);
+        return sale;
+    }
+
+    // Highest units first, lower product ID first on ties
+    private List<TopProduct> topProducts(long[] units) {
+        int[] best = new int[TOP_PRODUCTS];
+        int found = 0;
+        for (int id = 1; id < units.length; id++) {
+            if (units[id] == 0) continue;
+            int at = found;
+            while (at > 0 && units[best[at - 1]] < units[id]) at--;
+            if (at == TOP_PRODUCTS) continue;
+            int last = Math.min(found, TOP_PRODUCTS - 1);
+            System.arraycopy(best, at, best, at + 1, last - at);
+            best[at] = id;
+            if (found < TOP_PRODUCTS) found++;
+        }
+        List<TopProduct> top = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            top.add(topProduct(best[i], products.get(best[i]).name, units[best[i]]));
+        }
+        return top;
+    }
+
+    private void promoteTopSeller(ProductRow row) {
+        int at = 0;
+        while (at < topSellerCount && topSellers[at] != row.id) at++;
+        if (at == topSellerCount) {
+            if (topSellerCount < TOP_PRODUCTS) {
+                topSellerCount++;
+            } else if (sellsBetter(row, products.get(topSellers[at - 1]))) {
+                at--;
+            } else {
+                return;
+            }
+        }
+        while (at > 0 && sellsBetter(row, products.get(topSellers[at - 1]))) {
+            topSellers[at] = topSellers[at - 1];
+            at--;
+        }
+        topSellers[at] = row.id;
+    }
+
+    // Same order as the ranged report: more units first, lower product ID first on ties
+    private static boolean sellsBetter(ProductRow a, ProductRow b) {
+        return a.unitsSold > b.unitsSold || a.unitsSold == b.unitsSold && a.id < b.id;
+    }
+
+    private static TopProduct topProduct(int productId, String name, long units) {
+        TopProduct topProduct = new TopProduct();
+        topProduct.setProductId(productId);
+        topProduct.setProductName(name);
+        topProduct.setUnitsSold((int) units);
+        return topProduct;
+    }
+
+    private void growSales() {
+        int capacity = saleProductIds.length * 2;
+        saleProductIds = Arrays.copyOf(saleProductIds, capacity);
+        saleQuantities = Arrays.copyOf(saleQuantities, capacity);
+        saleUnitPrices = Arrays.copyOf(saleUnitPrices, capacity);
+        saleTimes = Arrays.copyOf(saleTimes, capacity);
+        saleCustomerIds = Arrays.copyOf(saleCustomerIds, capacity);
+    }
+
+    // Runs under the read lock, so concurrent readers may each sort; the result is the same
+    private ProductRow[] sortedProducts() {
+        ProductRow[] sorted = new ProductRow[products.size()];
+        int[] next = {0};
+        products.forEachValue(row -> sorted[next[0]++] = row);
+        Arrays.sort(sorted, PRODUCT_ORDER);
+        productsByName = sorted;
+        return sorted;
+    }
+
+    private SupplierRow[] sortedSuppliers() {
+        SupplierRow[] sorted = new SupplierRow[suppliers.size()];
+        int[] next = {0};
+        suppliers.forEachValue(row -> sorted[next[0]++] = row);
+        Arrays.sort(sorted, SUPPLIER_ORDER);
+        suppliersByName = sorted;
+        return sorted;
+    }
+
+    private static final class ProductRow {
+        final int id;
+        String name;
+        long priceCents;
+        int stockQuantity;
+        int supplierId;
+        String sku;
+        // Bumped on every change, as the version column is
+        int version;
+        int saleCount;
+        long unitsSold;
+
+        ProductRow(int id) {
+            this.id = id;
+        }
+
+        void assign(Product product) {
+            name = product.getName();
+            priceCents = product.getPriceCents();
+            stockQuantity = product.getStockQuantity();
+            supplierId = product.getSupplierId();
+            sku = product.getSku();
+        }
+
+        Product toProduct() {
+            Product product = new Product();
+            product.setId(id);
+            product.setName(name);
+            product.setPriceCents(priceCents);
+            product.setStockQuantity(stockQuantity);
+            product.setSupplierId(supplierId);
+            product.setSku(sku);
+            product.setVersion(version);
+            return product;
+        }
+    }
+
+    private static final class SupplierRow {
+        final int id;
+        String name;
+        String contactPerson;
+        String email;
+        String phone;
+        int version;
+        int productCount;
+
+        SupplierRow(int id) {
+            this.id = id;
+        }
+
+        void assign(Supplier supplier) {
+            name = supplier.getName();
+            contactPerson = supplier.getContactPerson();
+            email = supplier.getEmail();
+            phone = supplier.getPhone();
+        }
+
+        Supplier toSupplier() {
+            Supplier supplier = new Supplier(id, name, contactPerson, email, phone);
+            supplier.setVersion(version);
+            return supplier;
+        }
+    }
+
+    private static final class CustomerRow {
+        final int id;
+        String name;
+        String email;
+        String phone;
+        long unitsBought;
+        long spentCents;
+        long lastPurchaseAt;
+        // Indexes of the customer's sales, oldest first
+        int[] sales = new int[8];
+        int saleCount;
+
+        CustomerRow(int id) {
+            this.id = id;
+        }
+
+        void addPurchase(int saleIndex, int units, long spentAfter, long time) {
+            if (saleCount == sales.length) {
+                sales = Arrays.copyOf(sales, saleCount * 2);
+            }
+            sales[saleCount++] = saleIndex;
+            unitsBought += units;
+            spentCents = spentAfter;
+            lastPurchaseAt = time;
+        }
+
+        Customer toCustomer() {
+            Customer customer = new Customer(id, name, email, phone);
+            customer.setPurchaseCount(saleCount);
+            customer.setUnitsBought(unitsBought);
+            customer.setSpentCents(spentCents);
+            customer.setLastPurchaseAt(saleCount == 0 ? null : new Timestamp(lastPurchaseAt));
+            return customer;
+        }
+    }
+}
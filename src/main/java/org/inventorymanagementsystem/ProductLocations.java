@@ -0,0 +1,32 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.model.LocationStock;
+
+import java.util.List;
+
+/**
+ * Where the stock of one product is held: the total, the part held at no particular
+ * location, and each location holding some
+ */
+class ProductLocations {
+    private int productId;
+    private int stockQuantity;
+    private int unassignedQuantity;
+    private List<LocationStock> locations;
+
+    ProductLocations(int productId, int stockQuantity, List<LocationStock> locations) {
+        this.productId = productId;
+        this.stockQuantity = stockQuantity;
+        this.locations = locations;
+        int located = 0;
+        for (LocationStock location : locations) {
+            located += location.getQuantity();
+        }
+        this.unassignedQuantity = stockQuantity - located;
+    }
+
+    public int getProductId() { return productId; }
+    public int getStockQuantity() { return stockQuantity; }
+    public int getUnassignedQuantity() { return unassignedQuantity; }
+    public List<LocationStock> getLocations() { return locations; }
+}
@@ -0,0 +1,262 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.model.Product;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory typeahead index over product names.
+ * <p>
+ * Names are normalized to lower case and stored twice in sorted maps: once as the full
+ * name and once per word. A lookup is a prefix range scan over those maps, so its cost
+ * depends on the number of hits returned rather than on the size of the catalog.
+ * Full-name prefix matches rank ahead of word prefix matches.
+ * <p>
+ * Products with a SKU are also held in a hash map by SKU, for exact lookups at the till.
+ */
+public final class ProductSearchIndex {
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    // Upper bound on word-index entries inspected for multi-word queries
+    private static final int MAX_SCAN = 10_000;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final ProductSearchIndex INSTANCE = new ProductSearchIndex();
+
+    private final ConcurrentSkipListMap<String, Integer> nameIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Integer> wordIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> skuIndex = new ConcurrentHashMap<>();
+
+    private ProductSearchIndex() {}
+
+    public static ProductSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Replaces the index contents with every product currently in the database
+     * @param conn Database connection
+     * @throws SQLException If database error occurs
+     */
+    public synchronized void rebuild(Connection conn) throws SQLException {
+        List<Product> products = InventoryManagementSystem.getAllProducts(conn);
+        nameIndex.clear();
+        wordIndex.clear();
+        entries.clear();
+        skuIndex.clear();
+        for (Product product : products) {
+            put(product);
+        }
+    }
+
+    /**
+     * Adds a product to the index or replaces the indexed copy of it
+     * @param product Product as it was written to the database
+     */
+    public synchronized void put(Product product) {
+        if (product == null || product.getId() <= 0) {
+            return;
+        }
+        String normalized = normalize(product.getName());
+        Entry previous = entries.get(product.getId());
+        if (previous != null && previous.name.equals(normalized)) {
+            // Same name, so only the copy and the SKU can have changed; stock writes land here
+            unmapSku(previous);
+            Entry entry = new Entry(copyOf(product), normalized, previous.words);
+            entries.put(product.getId(), entry);
+            mapSku(entry);
+            return;
+        }
+        remove(product.getId());
+
+        String[] words = tokenize(normalized);
+        Entry entry = new Entry(copyOf(product), normalized, words);
+        entries.put(product.getId(), entry);
+        nameIndex.put(key(normalized, product.getId()), product.getId());
+        for (String word : words) {
+            wordIndex.put(key(word, product.getId()), product.getId());
+        }
+        mapSku(entry);
+    }
+
+    /**
+     * Updates the indexed stock level of a product without re-indexing its name
+     * @param id Product ID
+     * @param stockQuantity New stock quantity
+     */
+    public synchronized void updateStock(int id, int stockQuantity) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            Product product = copyOf(entry.product);
+            product.setStockQuantity(stockQuantity);
+            entries.put(id, new Entry(product, entry.name, entry.words));
+        }
+    }
+
+    /**
+     * Removes a product from the index
+     * @param id Product ID
+     */
+    public synchronized void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        nameIndex.remove(key(entry.name, id));
+        for (String word : entry.words) {
+            wordIndex.remove(key(word, id));
+        }
+        unmapSku(entry);
+    }
+
+    private void mapSku(Entry entry) {
+        if (entry.product.getSku() != null) {
+            skuIndex.put(entry.product.getSku(), entry.product.getId());
+        }
+    }
+
+    private void unmapSku(Entry entry) {
+        if (entry.product.getSku() != null) {
+            skuIndex.remove(entry.product.getSku(), entry.product.getId());
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Looks up a product by its exact SKU
+     * @param sku SKU as stored
+     * @return A copy of the indexed product, or null if no indexed product has this SKU
+     */
+    public Product findBySku(String sku) {
+        Integer id = skuIndex.get(sku);
+        Entry entry = id == null ? null : entries.get(id);
+        // The SKU may have moved on between the two reads
+        if (entry == null || !sku.equals(entry.product.getSku())) {
+            return null;
+        }
+        return copyOf(entry.product);
+    }
+
+    /**
+     * Finds products whose name, or a word in whose name, starts with the query
+     * @param query Text typed by the user
+     * @param limit Maximum number of results (capped at {@link #MAX_LIMIT})
+     * @return Matching products, best matches first
+     */
+    public List<Product> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Product> results = new LinkedHashMap<>();
+
+        // Rank 1: the whole name starts with the query
+        collect(nameIndex, normalized, null, results, limit);
+
+        // Rank 2: every query word is a prefix of some word in the name
+        String[] queryWords = tokenize(normalized);
+        if (results.size() < limit && queryWords.length > 0) {
+            String probe = queryWords[0];
+            for (String word : queryWords) {
+                if (word.length() > probe.length()) {
+                    probe = word;
+                }
+            }
+            collect(wordIndex, probe, queryWords, results, limit);
+        }
+
+        return new ArrayList<>(results.values());
+    }
+
+    private void collect(NavigableMap<String, Integer> index, String prefix, String[] requiredWords,
+                         Map<Integer, Product> results, int limit) {
+        int scanned = 0;
+        for (Map.Entry<String, Integer> e : index.tailMap(prefix, true).entrySet()) {
+            if (!e.getKey().startsWith(prefix) || results.size() >= limit || ++scanned > MAX_SCAN) {
+                return;
+            }
+            Entry entry = entries.get(e.getValue());
+            if (entry == null || results.containsKey(e.getValue())) {
+                continue;
+            }
+            if (requiredWords == null || entry.matchesAll(requiredWords)) {
+                results.put(e.getValue(), entry.product);
+            }
+        }
+    }
+
+    private static String key(String text, int id) {
+        return text + KEY_SEPARATOR + id;
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String[] tokenize(String normalized) {
+        return Arrays.stream(normalized.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    private static Product copyOf(Product product) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setPriceCents(product.getPriceCents());
+        copy.setStockQuantity(product.getStockQuantity());
+        copy.setSupplierId(product.getSupplierId());
+        copy.setSku(product.getSku());
+        copy.setVersion(product.getVersion());
+        return copy;
+    }
+
+    private static final class Entry {
+        private final Product product;
+        private final String name;
+        private final String[] words;
+
+        private Entry(Product product, String name, String[] words) {
+            this.product = product;
+            this.name = name;
+            this.words = words;
+        }
+
+        private boolean matchesAll(String[] queryWords) {
+            for (String queryWord : queryWords) {
+                boolean found = false;
+                for (String word : words) {
+                    if (word.startsWith(queryWord)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Works out which products each supplier should be asked to restock.
+ * <p>
+ * Stock and recent unit sales for every product are loaded in one pass (a product scan plus one
+ * aggregated query over recent sales) and kept in memory. Write methods mark the products they
+ * change as dirty; the next plan re-reads only those rows before deriving the plan, so a sale
+ * costs one indexed lookup rather than a full reload. The whole snapshot is reloaded in the
+ * background every few minutes so the sales window keeps sliding.
+ * <p>
+ * Only writes made through this instance mark products dirty. With a shared database, sales and
+ * stock changes made by other instances appear only after the next full reload, so plans can be
+ * up to {@link #FULL_RELOAD_MILLIS} behind them; each plan reports its snapshot's age.
+ */
+public final class RestockPlanner {
+    public static final int DEFAULT_HORIZON_DAYS = 14;
+    public static final int DEFAULT_THRESHOLD = 10;
+
+    // Past this many dirty rows a full reload is cheaper than a lookup per row
+    private static final int MAX_INCREMENTAL_REFRESH = 1_000;
+    // Also how far behind other instances' writes a plan can be on a shared database
+    private static final long FULL_RELOAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String LOAD_SALES_SQL =
+            "SELECT product_id, SUM(quantity_sold) FROM sales WHERE sale_date >= ? GROUP BY product_id";
+    private static final String LOAD_PRODUCTS_SQL =
+            "SELECT id, name, stock_quantity, supplier_id FROM products";
+    private static final String LOAD_SOME_SQL =
+            "SELECT p.id, p.name, p.stock_quantity, p.supplier_id, " +
+            "(SELECT COALESCE(SUM(s.quantity_sold), 0) FROM sales s " +
+            " WHERE s.product_id = p.id AND s.sale_date >= ?) " +
+            "FROM products p WHERE p.id = ANY(?)";
+
+    private static final Logger LOGGER = Logger.getLogger(RestockPlanner.class.getName());
+
+    private static final RestockPlanner INSTANCE = new RestockPlanner();
+
+    private final Set<Integer> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private volatile boolean suppliersDirty = true;
+
+    // Guarded by this
+    private Map<Integer, ProductDemand> demand = new HashMap<>();
+    private final Map<Integer, Supplier> suppliers = new HashMap<>();
+    private final Set<Integer> refreshedDuringReload = new HashSet<>();
+    private long loadedAtMillis;
+    private boolean reloading;
+
+    private RestockPlanner() {}
+
+    public static RestockPlanner getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Marks a product whose stock, supplier or sales changed. Call after the change is committed.
+     */
+    public void productChanged(int productId) {
+        dirtyProducts.add(productId);
+    }
+
+    /**
+     * Marks supplier contact details as changed. Call after the change is committed.
+     */
+    public void suppliersChanged() {
+        suppliersDirty = true;
+    }
+
+    /**
+     * Loads the snapshot so the first plan does not pay for it. Called at startup in the
+     * background; a plan requested meanwhile waits for it to finish.
+     * @param conn Database connection
+     * @throws SQLException If database error occurs
+     */
+    public synchronized void preload(Connection conn) throws SQLException {
+        refresh(conn);
+    }
+
+    /**
+     * Builds the restock plan for every supplier with at least one product to reorder
+     * @param conn Database connection
+     * @param horizonDays Products expected to sell out within this many days are included
+     * @param threshold Products with less stock than this are always included
+     * @throws SQLException If database error occurs
+     */
+    public synchronized RestockReport plan(Connection conn, int horizonDays, int threshold) throws SQLException {
+        refresh(conn);
+        RestockReport report = newReport(horizonDays, threshold);
+        Map<Integer, List<RestockReport.Item>> itemsBySupplier = itemsBySupplier(null, horizonDays, threshold);
+        suppliers.values().stream()
+                .filter(supplier -> itemsBySupplier.containsKey(supplier.getId()))
+                .sorted(Comparator.comparing(Supplier::getName, String.CASE_INSENSITIVE_ORDER))
+                .forEach(supplier -> report.getSuppliers().add(
+                        new RestockReport.SupplierRestock(supplier, itemsBySupplier.get(supplier.getId()))));
+        return report;
+    }
+
+    /**
+     * Builds the restock plan for one supplier, which is returned even if nothing needs reordering
+     * @param conn Database connection
+     * @throws SQLException If database error occurs or the supplier does not exist
+     */
+    public synchronized RestockReport.SupplierRestock planForSupplier(Connection conn, int supplierId,
+                                                                     int horizonDays, int threshold) throws SQLException {
+        refresh(conn);
+        Supplier supplier = suppliers.get(supplierId);
+        if (supplier == null) {
+            throw new SQLException("Supplier not found with ID: " + supplierId);
+        }
+        List<RestockReport.Item> items = itemsBySupplier(supplierId, horizonDays, threshold).get(supplierId);
+        RestockReport.SupplierRestock restock =
+                new RestockReport.SupplierRestock(supplier, items == null ? new ArrayList<>() : items);
+        restock.setSnapshotAgeMillis(System.currentTimeMillis() - loadedAtMillis);
+        return restock;
+    }
+
+    private Map<Integer, List<RestockReport.Item>> itemsBySupplier(Integer onlySupplier, int horizonDays, int threshold) {
+        if (horizonDays < 1 || threshold < 0) {
+            throw new IllegalArgumentException("days must be positive and threshold not negative");
+        }
+        int windowDays = windowDays();
+        Map<Integer, List<RestockReport.Item>> items = new HashMap<>();
+        for (ProductDemand product : demand.values()) {
+            if (product.supplierId == 0 || (onlySupplier != null && product.supplierId != onlySupplier)) {
+                continue;
+            }
+            double dailySales = (double) product.soldInWindow / windowDays;
+            Double daysOfStock = dailySales > 0 ? product.stock / dailySales : null;
+            boolean lowStock = product.stock < threshold;
+            boolean runningOut = daysOfStock != null && daysOfStock < horizonDays;
+            if (!lowStock && !runningOut) {
+                continue;
+            }
+            // Reorder enough to cover two horizons of demand and clear the threshold
+            int target = Math.max(threshold, (int) Math.ceil(dailySales * horizonDays * 2));
+            int suggested = Math.max(1, target - product.stock);
+            items.computeIfAbsent(product.supplierId, id -> new ArrayList<>()).add(new RestockReport.Item(
+                    product.id, product.name, product.stock, dailySales, daysOfStock, suggested));
+        }
+        // Most urgent first; products that are not selling sort after those that are
+        Comparator<RestockReport.Item> urgency = Comparator.comparing(RestockReport.Item::getDaysOfStock,
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        items.values().forEach(list -> list.sort(urgency.thenComparing(RestockReport.Item::getStockQuantity)));
+        return items;
+    }
+
+    private RestockReport newReport(int horizonDays, int threshold) {
+        RestockReport report = new RestockReport();
+        report.setHorizonDays(horizonDays);
+        report.setThreshold(threshold);
+        report.setSalesWindowDays(windowDays());
+        report.setDataLoadedAt(loadedAtMillis);
+        report.setSnapshotAgeMillis(System.currentTimeMillis() - loadedAtMillis);
+        return report;
+    }
+
+    private void refresh(Connection conn) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (suppliersDirty) {
+            suppliersDirty = false;
+            suppliers.clear();
+            for (Supplier supplier : InventoryManagementSystem.getAllSuppliers(conn)) {
+                suppliers.put(supplier.getId(), supplier);
+            }
+        }
+        if (loadedAtMillis == 0 || dirtyProducts.size() > MAX_INCREMENTAL_REFRESH) {
+            dirtyProducts.clear();
+            demand = loadAll(conn, now);
+            loadedAtMillis = now;
+            return;
+        }
+        if (!dirtyProducts.isEmpty()) {
+            List<Integer> ids = new ArrayList<>(dirtyProducts);
+            dirtyProducts.removeAll(ids);
+            if (reloading) {
+                refreshedDuringReload.addAll(ids);
+            }
+            // Deleted products are not returned, so drop them all first
+            ids.forEach(demand::remove);
+            try (PreparedStatement stmt = conn.prepareStatement(LOAD_SOME_SQL)) {
+                stmt.setTimestamp(1, windowStart(now));
+                stmt.setObject(2, ids.toArray(new Integer[0]));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ProductDemand product = new ProductDemand(rs.getInt(1), rs.getString(2), rs.getInt(3),
+                                rs.getInt(4), rs.getLong(5));
+                        demand.put(product.id, product);
+                    }
+                }
+            }
+        }
+        if (now - loadedAtMillis >= FULL_RELOAD_MILLIS && !reloading) {
+            reloading = true;
+            Thread reload = new Thread(this::reloadInBackground, "restock-planner-reload");
+            reload.setDaemon(true);
+            reload.start();
+        }
+    }
+
+    /**
+     * Reloads the snapshot off the request path. Rows refreshed incrementally while the reload
+     * ran may be newer than what it read, so they are marked dirty again after the swap.
+     */
+    private void reloadInBackground() {
+        long now = System.currentTimeMillis();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Map<Integer, ProductDemand> reloaded = loadAll(conn, now);
+            synchronized (this) {
+                demand = reloaded;
+                loadedAtMillis = now;
+                dirtyProducts.addAll(refreshedDuringReload);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Restock planner reload failed, keeping the previous snapshot", e);
+        } finally {
+            synchronized (this) {
+                refreshedDuringReload.clear();
+                reloading = false;
+            }
+        }
+    }
+
+    /**
+     * One scan of products and one aggregated range scan of recent sales over the covering
+     * date index, merged in memory. Letting the database join them makes H2 run a correlated
+     * lookup per product, which is several times slower.
+     */
+    private static Map<Integer, ProductDemand> loadAll(Connection conn, long now) throws SQLException {
+        Map<Integer, Long> sold = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(LOAD_SALES_SQL)) {
+            stmt.setTimestamp(1, windowStart(now));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sold.put(rs.getInt(1), rs.getLong(2));
+                }
+            }
+        }
+        Map<Integer, ProductDemand> loaded = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(LOAD_PRODUCTS_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                loaded.put(id, new ProductDemand(id, rs.getString(2), rs.getInt(3), rs.getInt(4),
+                        sold.getOrDefault(id, 0L)));
+            }
+        }
+        return loaded;
+    }
+
+    private static Timestamp windowStart(long now) {
+        return new Timestamp(now - TimeUnit.DAYS.toMillis(windowDays()));
+    }
+
+    private static int windowDays() {
+        return Integer.parseInt(DatabaseConnection.getSetting("restockWindowDays"));
+    }
+
+    private static final class ProductDemand {
+        private final int id;
+        private final String name;
+        private final int stock;
+        private final int supplierId;
+        private final long soldInWindow;
+
+        private ProductDemand(int id, String name, int stock, int supplierId, long soldInWindow) {
+            this.id = id;
+            this.name = name;
+            this.stock = stock;
+            this.supplierId = supplierId;
+            this.soldInWindow = soldInWindow;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class RestockReport {
+    private int horizonDays;
+    private int threshold;
+    private int salesWindowDays;
+    private long dataLoadedAt;
+    // Other instances' writes only show up after the full reload, so clients can judge the staleness
+    private long snapshotAgeMillis;
+    private final List<SupplierRestock> suppliers = new ArrayList<>();
+
+    // Getters and setters
+    public int getHorizonDays() { return horizonDays; }
+    public void setHorizonDays(int horizonDays) { this.horizonDays = horizonDays; }
+    public int getThreshold() { return threshold; }
+    public void setThreshold(int threshold) { this.threshold = threshold; }
+    public int getSalesWindowDays() { return salesWindowDays; }
+    public void setSalesWindowDays(int salesWindowDays) { this.salesWindowDays = salesWindowDays; }
+    public long getDataLoadedAt() { return dataLoadedAt; }
+    public void setDataLoadedAt(long dataLoadedAt) { this.dataLoadedAt = dataLoadedAt; }
+    public long getSnapshotAgeMillis() { return snapshotAgeMillis; }
+    public void setSnapshotAgeMillis(long snapshotAgeMillis) { this.snapshotAgeMillis = snapshotAgeMillis; }
+    public List<SupplierRestock> getSuppliers() { return suppliers; }
+
+    static class SupplierRestock {
+        private final int supplierId;
+        private final String name;
+        private final String contactPerson;
+        private final String email;
+        private final String phone;
+        private final List<Item> items;
+        // Only set when one supplier is planned on its own; the full report carries it once
+        private Long snapshotAgeMillis;
+
+        SupplierRestock(Supplier supplier, List<Item> items) {
+            this.supplierId = supplier.getId();
+            this.name = supplier.getName();
+            this.contactPerson = supplier.getContactPerson();
+            this.email = supplier.getEmail();
+            this.phone = supplier.getPhone();
+            this.items = items;
+        }
+
+        public int getSupplierId() { return supplierId; }
+        public String getName() { return name; }
+        public String getContactPerson() { return contactPerson; }
+        public String getEmail() { return email; }
+        public String getPhone() { return phone; }
+        public List<Item> getItems() { return items; }
+        public Long getSnapshotAgeMillis() { return snapshotAgeMillis; }
+        void setSnapshotAgeMillis(Long snapshotAgeMillis) { this.snapshotAgeMillis = snapshotAgeMillis; }
+    }
+
+    static class Item {
+        private final int productId;
+        private final String name;
+        private final int stockQuantity;
+        private final double dailySales;
+        // Null when the product has not sold in the sales window
+        private final Double daysOfStock;
+        private final int suggestedOrderQuantity;
+
+        Item(int productId, String name, int stockQuantity, double dailySales, Double daysOfStock,
+             int suggestedOrderQuantity) {
+            this.productId = productId;
+            this.name = name;
+            this.stockQuantity = stockQuantity;
+            this.dailySales = Math.round(dailySales * 100) / 100.0;
+            this.daysOfStock = daysOfStock == null ? null : Math.round(daysOfStock * 10) / 10.0;
+            this.suggestedOrderQuantity = suggestedOrderQuantity;
+        }
+
+        public int getProductId() { return productId; }
+        public String getName() { return name; }
+        public int getStockQuantity() { return stockQuantity; }
+        public double getDailySales() { return dailySales; }
+        public Double getDaysOfStock() { return daysOfStock; }
+        public int getSuggestedOrderQuantity() { return suggestedOrderQuantity; }
+    }
+}
@@ -1,5 +1,9 @@
 package org.inventorymanagementsystem;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import org.inventorymanagementsystem.model.Money;
+
 import java.util.List;
 
 class SalesReport {
@@ -7,7 +11,9 @@ class SalesReport {
     private String toDate;
     private int totalSales;
     private int totalUnitsSold;
-    private double totalRevenue;
+    @SerializedName("totalRevenue")
+    @JsonAdapter(Money.JsonAdapter.class)
+    private long totalRevenueCents;
     private List<TopProduct> topProducts;
 
     // Getters and setters
@@ -19,8 +25,8 @@ class SalesReport {
     public void setTotalSales(int totalSales) { this.totalSales = totalSales; }
     public int getTotalUnitsSold() { return totalUnitsSold; }
     public void setTotalUnitsSold(int totalUnitsSold) { this.totalUnitsSold = totalUnitsSold; }
-    public double getTotalRevenue() { return totalRevenue; }
-    public void setTotalRevenue(double totalRevenue) { this.totalRevenue = totalRevenue; }
+    public long getTotalRevenueCents() { return totalRevenueCents; }
+    public void setTotalRevenueCents(long totalRevenueCents) { this.totalRevenueCents = totalRevenueCents; }
     public List<TopProduct> getTopProducts() { return topProducts; }
     public void setTopProducts(List<TopProduct> topProducts) { this.topProducts = topProducts; }
 }
@@ -0,0 +1,31 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk stock adjustment, with the request's lines in order
+ */
+class StockAdjustmentResult {
+    private final boolean atomic;
+    private final int applied;
+    private final int rejected;
+    private final List<StockAdjustmentLine> lines;
+
+    StockAdjustmentResult(boolean atomic, List<StockAdjustmentLine> lines) {
+        this.atomic = atomic;
+        this.lines = lines;
+        int applied = 0;
+        for (StockAdjustmentLine line : lines) {
+            if (line.getStatus() == StockAdjustmentLine.Status.APPLIED) applied++;
+        }
+        this.applied = applied;
+        this.rejected = lines.size() - applied;
+    }
+
+    public boolean isAtomic() { return atomic; }
+    public int getApplied() { return applied; }
+    public int getRejected() { return rejected; }
+    public List<StockAdjustmentLine> getLines() { return lines; }
+}
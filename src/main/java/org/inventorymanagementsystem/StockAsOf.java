@@ -0,0 +1,29 @@
+package org.inventorymanagementsystem;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import org.inventorymanagementsystem.model.Money;
+
+/**
+ * Stock and price of one product at a past moment
+ */
+class StockAsOf {
+    private int productId;
+    private String asOf;
+    private int stockQuantity;
+    @SerializedName("price")
+    @JsonAdapter(Money.JsonAdapter.class)
+    private long priceCents;
+
+    StockAsOf(int productId, String asOf, int stockQuantity, long priceCents) {
+        this.productId = productId;
+        this.asOf = asOf;
+        this.stockQuantity = stockQuantity;
+        this.priceCents = priceCents;
+    }
+
+    public int getProductId() { return productId; }
+    public String getAsOf() { return asOf; }
+    public int getStockQuantity() { return stockQuantity; }
+    public long getPriceCents() { return priceCents; }
+}
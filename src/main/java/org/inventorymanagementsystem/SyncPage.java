@@ -0,0 +1,40 @@
+package org.inventorymanagementsystem;
+
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.util.List;
+
+/**
+ * One page of the changes an offline client has not seen: the current state of products and
+ * suppliers changed after its cursor, and the IDs of those deleted since. Pass {@code cursor}
+ * as the next {@code since}; {@code hasMore} means another page is ready now.
+ */
+class SyncPage {
+    private long since;
+    private long cursor;
+    private boolean hasMore;
+    private List<Product> products;
+    private List<Supplier> suppliers;
+    private List<Integer> deletedProducts;
+    private List<Integer> deletedSuppliers;
+
+    SyncPage(long since, long cursor, boolean hasMore, List<Product> products, List<Supplier> suppliers,
+             List<Integer> deletedProducts, List<Integer> deletedSuppliers) {
+        this.since = since;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.products = products;
+        this.suppliers = suppliers;
+        this.deletedProducts = deletedProducts;
+        this.deletedSuppliers = deletedSuppliers;
+    }
+
+    public long getSince() { return since; }
+    public long getCursor() { return cursor; }
+    public boolean isHasMore() { return hasMore; }
+    public List<Product> getProducts() { return products; }
+    public List<Supplier> getSuppliers() { return suppliers; }
+    public List<Integer> getDeletedProducts() { return deletedProducts; }
+    public List<Integer> getDeletedSuppliers() { return deletedSuppliers; }
+}
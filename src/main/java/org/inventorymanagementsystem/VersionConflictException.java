@@ -0,0 +1,17 @@
+package org.inventorymanagementsystem;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a row changed between reading and writing it, i.e. an If-Match that no longer
+ * matches. Mapped to {@code 409}.
+ */
+public class VersionConflictException extends SQLException {
+    private static final long serialVersionUID = 1L;
+    // SQL state for a serialization failure, which clients may retry
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    public VersionConflictException(String message) {
+        super(message, SERIALIZATION_FAILURE);
+    }
+}
@@ -2,25 +2,125 @@ package org.inventorymanagementsystem.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
-import org.inventorymanagementsystem.InventoryManagementSystem;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.inventorymanagementsystem.DemandForecaster;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.JsonAdapters;
+import org.inventorymanagementsystem.ProductSearchIndex;
+import org.inventorymanagementsystem.RestockPlanner;
+import org.inventorymanagementsystem.VersionConflictException;
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Location;
 import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Role;
 import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
 import org.inventorymanagementsystem.model.Supplier;
+import org.inventorymanagementsystem.model.User;
 
+import spark.Request;
+import spark.Response;
+
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import static spark.Spark.*;
 
 public class APIServer {
-    private static final Gson gson = new Gson();
+    private static final Logger LOGGER = Logger.getLogger(APIServer.class.getName());
+    private static final Gson gson = JsonAdapters.createGson();
+    private static final InventoryStore store = InventoryStore.fromSettings();
+    private static final String AUTH_USER = "auth.user";
+    private static final String ADMISSION_CLASS = "admission.class";
+    private static final String ADMISSION_START = "admission.start";
 
     public static void start() {
-        port(4567);
+        port(Integer.parseInt(DatabaseConnection.getSetting("apiPort")));
+        threadPool(Integer.parseInt(DatabaseConnection.getSetting("apiMaxThreads")));
         configureCORS();
+        configureReadiness();
+        configureAuthentication();
+        configureAdmission();
         setupExceptionHandling();
         setupEndpoints();
     }
 
+    /**
+     * Runs the startup warm-up against the store and serializer the routes use
+     */
+    static WarmUp.Result warmUp(long budgetMillis) throws SQLException {
+        return new WarmUp(store, APIServer::toJson).run(budgetMillis);
+    }
+
+    private static void configureReadiness() {
+        // Routes start before the database is ready; only system endpoints answer until then, and
+        // with authentication on only the public ones, since tokens are checked in the database
+        before("/api/*", (req, res) -> {
+            boolean answers = req.pathInfo().startsWith("/api/system/")
+                    && (!AuthService.isEnabled() || AuthService.isPublic(req.requestMethod(), req.pathInfo()));
+            if (!StartupSequence.isReady() && !answers) {
+                res.header("Retry-After", "1");
+                halt(503, toJson(new ErrorResponse("Service is starting")));
+            }
+        });
+        afterAfter((req, res) -> StartupSequence.recordResponse(req.pathInfo()));
+    }
+
+    private static void configureAuthentication() {
+        if (!AuthService.isEnabled()) {
+            return;
+        }
+        before("/api/*", (req, res) -> {
+            if (AuthService.isPublic(req.requestMethod(), req.pathInfo())) {
+                return;
+            }
+            User user = AuthService.authenticate(bearerToken(req));
+            if (user == null) {
+                res.header("WWW-Authenticate", "Bearer");
+                halt(401, toJson(new ErrorResponse("Authentication required")));
+            }
+            if (!AuthService.isAllowed(user.getRole(), req.requestMethod(), req.pathInfo())) {
+                halt(403, toJson(new ErrorResponse("Role " + user.getRole() + " may not " +
+                        req.requestMethod() + " " + req.pathInfo())));
+            }
+            req.attribute(AUTH_USER, user);
+        });
+    }
+
+    private static void configureAdmission() {
+        before("/api/*", (req, res) -> {
+            AdmissionController.RequestClass requestClass =
+                    AdmissionController.classify(req.requestMethod(), req.pathInfo());
+            if (requestClass == null) {
+                return;
+            }
+            AdmissionController.Decision decision = AdmissionController.acquire(requestClass);
+            if (decision != AdmissionController.Decision.ADMITTED) {
+                res.header("Retry-After", "1");
+                halt(decision == AdmissionController.Decision.QUEUE_FULL ? 429 : 503,
+                        toJson(new ErrorResponse("Server is busy, retry later")));
+            }
+            req.attribute(ADMISSION_CLASS, requestClass);
+            req.attribute(ADMISSION_START, System.nanoTime());
+        });
+        // afterAfter also runs when a route throws, so every admitted request is released
+        afterAfter((req, res) -> {
+            AdmissionController.RequestClass requestClass = req.attribute(ADMISSION_CLASS);
+            if (requestClass != null) {
+                long started = req.attribute(ADMISSION_START);
+                AdmissionController.release(requestClass, System.nanoTime() - started);
+            }
+        });
+    }
+
     private static void configureCORS() {
         options("/*", (request, response) -> {
             String accessControlRequestHeaders = request.headers("Access-Control-Request-Headers");
@@ -38,10 +138,21 @@ public class APIServer {
             response.header("Access-Control-Allow-Origin", "*");
             response.header("Content-Type", "application/json");
         });
+        after((req, res) -> {
+            if (!"GET".equals(req.requestMethod())) {
+                res.header("X-Change-Seq", String.valueOf(ReportingReplica.getPublishedSeq()));
+            }
+        });
+        // Request tracing, at FINE so nothing is written per request unless asked for
         before((req, res) -> {
-            System.out.println("Received " + req.requestMethod() + " at " + req.pathInfo());
-            if (req.body() != null && !req.body().isEmpty()) {
-                System.out.println("Request body: " + req.body());
+            if (!LOGGER.isLoggable(Level.FINE)) {
+                return;
+            }
+            LOGGER.fine("Received " + req.requestMethod() + " at " + req.pathInfo());
+            // Login and user bodies carry passwords
+            if (req.body() != null && !req.body().isEmpty()
+                    && !req.pathInfo().startsWith("/api/auth/") && !req.pathInfo().startsWith("/api/users")) {
+                LOGGER.fine("Request body: " + req.body());
             }
         });
     }
@@ -49,184 +160,432 @@ public class APIServer {
     private static void setupExceptionHandling() {
         exception(JsonSyntaxException.class, (e, req, res) -> {
             res.status(400);
-            res.body(gson.toJson(new ErrorResponse("Invalid JSON format: " + e.getMessage())));
+            res.body(toJson(new ErrorResponse("Invalid JSON format: " + e.getMessage())));
+        });
+
+        exception(VersionConflictException.class, (e, req, res) -> {
+            res.status(409);
+            res.body(toJson(new ErrorResponse(e.getMessage())));
         });
 
         exception(SQLException.class, (e, req, res) -> {
             res.status(500);
-            res.body(gson.toJson(new ErrorResponse("Database error: " + e.getMessage())));
+            res.body(toJson(new ErrorResponse("Database error: " + e.getMessage())));
+        });
+
+        exception(AuthenticationException.class, (e, req, res) -> {
+            res.status(401);
+            res.header("WWW-Authenticate", "Bearer");
+            res.body(toJson(new ErrorResponse(e.getMessage())));
         });
 
         exception(IllegalArgumentException.class, (e, req, res) -> {
             res.status(400);
-            res.body(gson.toJson(new ErrorResponse("Bad Request: " + e.getMessage())));
+            res.body(toJson(new ErrorResponse("Bad Request: " + e.getMessage())));
+        });
+
+        exception(UnsupportedOperationException.class, (e, req, res) -> {
+            res.status(501);
+            res.body(toJson(new ErrorResponse(e.getMessage())));
         });
 
         exception(Exception.class, (e, req, res) -> {
             res.status(500);
-            res.body(gson.toJson(new ErrorResponse("Internal Server Error: " + e.getMessage())));
+            res.body(toJson(new ErrorResponse("Internal Server Error: " + e.getMessage())));
         });
     }
 
     private static void setupEndpoints() {
-        // Product Endpoints
+        // Product Endpoints; the reads take ?expand=supplier to embed each product's supplier
         get("/api/products", (req, res) -> {
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.getAllProducts(conn);
+            // ?ids=1,2,3 reads just those products in one query, in the order given
+            String ids = req.queryParams("ids");
+            if (ids != null) {
+                return store.getProductsByIds(idList(ids), expandSupplier(req));
             }
-        }, gson::toJson);
+            return store.getAllProducts(readYourWrites(req), expandSupplier(req));
+        }, APIServer::toJson);
+
+        // Must be registered before /api/products/:id so "search" is not read as an ID
+        get("/api/products/search", (req, res) -> {
+            String query = req.queryParams("q");
+            String limitParam = req.queryParams("limit");
+            int limit = limitParam != null ? Integer.parseInt(limitParam) : ProductSearchIndex.DEFAULT_LIMIT;
+            return store.searchProducts(query, limit);
+        }, APIServer::toJson);
+
+        // Barcode scans at the till
+        get("/api/products/by-sku/:sku", (req, res) -> {
+            return withETag(res, store.getProductBySku(req.params(":sku"), expandSupplier(req)));
+        }, APIServer::toJson);
 
         get("/api/products/:id", (req, res) -> {
             int id = Integer.parseInt(req.params(":id"));
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.getProductById(conn, id);
-            }
-        }, gson::toJson);
+            return withETag(res, store.getProductById(id, expandSupplier(req)));
+        }, APIServer::toJson);
 
         post("/api/products", (req, res) -> {
             Product product = gson.fromJson(req.body(), Product.class);
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.addProduct(conn, product);
-            }
-        }, gson::toJson);
+            return withETag(res, store.addProduct(product));
+        }, APIServer::toJson);
 
         // Update Product
         put("/api/products/:id", (req, res) -> {
             int id = Integer.parseInt(req.params(":id"));
             Product product = gson.fromJson(req.body(), Product.class);
             product.setId(id);  // Ensure ID matches path
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.updateProduct(conn, product);
-            }
-        }, gson::toJson);
+            return withETag(res, store.updateProduct(product, expectedVersion(req)));
+        }, APIServer::toJson);
 
         delete("/api/products/:id", (req, res) -> {
             int id = Integer.parseInt(req.params(":id"));
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.deleteProduct(conn, id);
-            }
-        }, gson::toJson);
+            return store.deleteProduct(id);
+        }, APIServer::toJson);
 
         // Stock Management Endpoints
         patch("/api/products/:id/stock", (req, res) -> {
             int id = Integer.parseInt(req.params(":id"));
             int quantity = Integer.parseInt(req.queryParams("quantity"));
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.updateStockQuantity(conn, id, quantity);
-            }
-        }, gson::toJson);
+            return store.updateStockQuantity(id, quantity);
+        }, APIServer::toJson);
+
+        get("/api/products/:id/forecast", (req, res) -> {
+            int id = Integer.parseInt(req.params(":id"));
+            return store.getProductForecast(id, intParam(req, "days", DemandForecaster.DEFAULT_HORIZON_DAYS));
+        }, APIServer::toJson);
+
+        get("/api/products/:id/stock", (req, res) -> {
+            int id = Integer.parseInt(req.params(":id"));
+            return store.getProductStockAsOf(id, req.queryParams("asOf"));
+        }, APIServer::toJson);
 
         post("/api/products/:id/stock/adjust", (req, res) -> {
             int id = Integer.parseInt(req.params(":id"));
             StockAdjustment adjustment = gson.fromJson(req.body(), StockAdjustment.class);
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.adjustStock(conn, id, adjustment.getDelta());
+            return withETag(res, store.adjustStock(id, adjustment.getDelta(), adjustment.getLocationId()));
+        }, APIServer::toJson);
+
+        get("/api/products/:id/locations", (req, res) -> {
+            int id = Integer.parseInt(req.params(":id"));
+            return store.getProductLocations(id);
+        }, APIServer::toJson);
+
+        // Moves units of one product between locations; a missing or zero location ID means
+        // stock held at no particular location
+        post("/api/stock/transfers", (req, res) -> {
+            StockTransfer transfer = gson.fromJson(req.body(), StockTransfer.class);
+            if (transfer == null) {
+                throw new IllegalArgumentException(
+                        "Expected {\"productId\": ..., \"fromLocationId\": ..., \"toLocationId\": ..., \"quantity\": ...}");
             }
-        }, gson::toJson);
+            return store.transferStock(transfer.getProductId(), transfer.getFromLocationId(),
+                    transfer.getToLocationId(), transfer.getQuantity());
+        }, APIServer::toJson);
+
+        // Products and suppliers changed or deleted since the cursor from the client's last page
+        get("/api/sync", (req, res) -> {
+            String since = req.queryParams("since");
+            return store.getChanges(since == null || since.isEmpty() ? 0 : Long.parseLong(since),
+                    intParam(req, "limit", 1000));
+        }, APIServer::toJson);
+
+        get("/api/locations", (req, res) -> store.getLocations(), APIServer::toJson);
+
+        post("/api/locations", (req, res) -> {
+            Location location = gson.fromJson(req.body(), Location.class);
+            res.status(201);
+            return store.addLocation(location);
+        }, APIServer::toJson);
+
+        get("/api/locations/:id/stock", (req, res) -> {
+            int id = Integer.parseInt(req.params(":id"));
+            return store.getLocationStock(id, intParam(req, "limit", 100), intParam(req, "offset", 0));
+        }, APIServer::toJson);
+
+        // Applies many {productId, delta} lines in one transaction; 409 if an atomic batch was refused
+        post("/api/stock/adjustments", (req, res) -> {
+            BulkAdjustment bulk = gson.fromJson(req.body(), BulkAdjustment.class);
+            if (bulk == null || bulk.getLines() == null) {
+                throw new IllegalArgumentException("Expected {\"lines\": [{\"productId\": ..., \"delta\": ...}]}");
+            }
+            List<StockAdjustmentLine> lines = bulk.getLines();
+            Object result = store.adjustStock(lines, bulk.isAtomic());
+            if (bulk.isAtomic() && lines.stream().anyMatch(line -> line.getStatus() != StockAdjustmentLine.Status.APPLIED)) {
+                res.status(409);
+            }
+            return result;
+        }, APIServer::toJson);
 //        ...
 
             // Supplier Endpoints
-            get("/api/suppliers", (req, res) -> {
-                try (Connection conn = DatabaseConnection.getConnection()) {
-                    return InventoryManagementSystem.getAllSuppliers(conn);
-                }
-            }, gson::toJson);
+        // Must be registered before /api/suppliers/:id so "restock" is not read as an ID
+        get("/api/suppliers/restock", (req, res) -> {
+            int days = intParam(req, "days", RestockPlanner.DEFAULT_HORIZON_DAYS);
+            int threshold = intParam(req, "threshold", RestockPlanner.DEFAULT_THRESHOLD);
+            return store.generateRestockReport(days, threshold);
+        }, APIServer::toJson);
+
+        get("/api/suppliers/:id/restock", (req, res) -> {
+            int id = Integer.parseInt(req.params(":id"));
+            int days = intParam(req, "days", RestockPlanner.DEFAULT_HORIZON_DAYS);
+            int threshold = intParam(req, "threshold", RestockPlanner.DEFAULT_THRESHOLD);
+            return store.generateSupplierRestock(id, days, threshold);
+        }, APIServer::toJson);
+
+            get("/api/suppliers", (req, res) -> store.getAllSuppliers(readYourWrites(req)), APIServer::toJson);
         get("/api/reports/sales", (req, res) -> {
             String fromDate = req.queryParams("from");
             String toDate = req.queryParams("to");
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.generateSalesReport(conn, fromDate, toDate);
-            }
-        }, gson::toJson);
+            return store.generateSalesReport(readYourWrites(req), fromDate, toDate);
+        }, APIServer::toJson);
 
             get("/api/suppliers/:id", (req, res) -> {
                 int id = Integer.parseInt(req.params(":id"));
-                try (Connection conn = DatabaseConnection.getConnection()) {
-                    return InventoryManagementSystem.getSupplierById(conn, id);
-                }
-            }, gson::toJson);
+                return withETag(res, store.getSupplierById(id));
+            }, APIServer::toJson);
+
+            get("/api/suppliers/:id/products", (req, res) -> {
+                int id = Integer.parseInt(req.params(":id"));
+                return store.getSupplierProducts(id, intParam(req, "limit", 100), intParam(req, "offset", 0),
+                        expandSupplier(req));
+            }, APIServer::toJson);
 
             post("/api/suppliers", (req, res) -> {
                 Supplier supplier = gson.fromJson(req.body(), Supplier.class);
-                try (Connection conn = DatabaseConnection.getConnection()) {
-                    return InventoryManagementSystem.addSupplier(conn, supplier);
-                }
-            }, gson::toJson);
+                return withETag(res, store.addSupplier(supplier));
+            }, APIServer::toJson);
 
             put("/api/suppliers/:id", (req, res) -> {
                 int id = Integer.parseInt(req.params(":id"));
                 Supplier supplier = gson.fromJson(req.body(), Supplier.class);
                 supplier.setId(id);
-                try (Connection conn = DatabaseConnection.getConnection()) {
-                    return InventoryManagementSystem.updateSupplier(conn, supplier);
-                }
-            }, gson::toJson);
+                return withETag(res, store.updateSupplier(supplier, expectedVersion(req)));
+            }, APIServer::toJson);
 
             delete("/api/suppliers/:id", (req, res) -> {
                 int id = Integer.parseInt(req.params(":id"));
-                try (Connection conn = DatabaseConnection.getConnection()) {
-                    return InventoryManagementSystem.deleteSupplier(conn, id);
-                }
-            }, gson::toJson);
+                return store.deleteSupplier(id);
+            }, APIServer::toJson);
 
             // Update product endpoints to include supplier
             post("/api/products", (req, res) -> {
                 Product product = gson.fromJson(req.body(), Product.class);
-                try (Connection conn = DatabaseConnection.getConnection()) {
-                    return InventoryManagementSystem.addProduct(conn, product);
-                }
-            }, gson::toJson);
+                return withETag(res, store.addProduct(product));
+            }, APIServer::toJson);
 
             put("/api/products/:id", (req, res) -> {
                 int id = Integer.parseInt(req.params(":id"));
                 Product product = gson.fromJson(req.body(), Product.class);
                 product.setId(id);
-                try (Connection conn = DatabaseConnection.getConnection()) {
-                    return InventoryManagementSystem.updateProduct(conn, product);
-                }
-            }, gson::toJson);
+                return withETag(res, store.updateProduct(product, expectedVersion(req)));
+            }, APIServer::toJson);
 
 
         // Sales Endpoints
         get("/api/sales", (req, res) -> {
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.getAllSales(conn);
+            String fromDate = req.queryParams("from");
+            String toDate = req.queryParams("to");
+            if (fromDate == null && toDate == null) {
+                return store.getAllSales(readYourWrites(req));
             }
-        }, gson::toJson);
+            return store.getSales(readYourWrites(req), fromDate, toDate);
+        }, APIServer::toJson);
 
         get("/api/sales/:id", (req, res) -> {
             int id = Integer.parseInt(req.params(":id"));
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.getSaleById(conn, id);
-            }
-        }, gson::toJson);
+            return store.getSaleById(id);
+        }, APIServer::toJson);
 
+        // A customerId also adds the sale to that customer's lifetime totals
         post("/api/sales", (req, res) -> {
             Sale sale = gson.fromJson(req.body(), Sale.class);
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.recordSale(conn, sale);
-            }
-        }, gson::toJson);
+            return store.recordSale(sale);
+        }, APIServer::toJson);
+
+        // Customer Endpoints
+        post("/api/customers", (req, res) -> {
+            Customer customer = gson.fromJson(req.body(), Customer.class);
+            res.status(201);
+            return store.addCustomer(customer);
+        }, APIServer::toJson);
+
+        // Lifetime totals, kept by every sale, for loyalty lookups at the till
+        get("/api/customers/:id", (req, res) -> {
+            int id = Integer.parseInt(req.params(":id"));
+            return store.getCustomerById(id);
+        }, APIServer::toJson);
+
+        get("/api/customers/:id/purchases", (req, res) -> {
+            int id = Integer.parseInt(req.params(":id"));
+            return store.getCustomerPurchases(id, intParam(req, "limit", 100), intParam(req, "offset", 0));
+        }, APIServer::toJson);
+
+        // Daily demand per product for the next days, highest total first
+        get("/api/forecast", (req, res) -> store.generateForecast(
+                intParam(req, "days", DemandForecaster.DEFAULT_HORIZON_DAYS),
+                intParam(req, "limit", DemandForecaster.DEFAULT_LIMIT)), APIServer::toJson);
 
         // Reports Endpoints
+        // With ?asOf= (a date or date-time) the report is rebuilt from the stock history
         get("/api/reports/inventory", (req, res) -> {
-            try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.generateInventoryReport(conn);
-            }
-        }, gson::toJson);
+            String asOf = req.queryParams("asOf");
+            return asOf != null ? store.generateInventoryReport(asOf) : store.generateInventoryReport(readYourWrites(req));
+        }, APIServer::toJson);
 
         get("/api/reports/sales", (req, res) -> {
             String fromDate = req.queryParams("from");
             String toDate = req.queryParams("to");
+            return store.generateSalesReport(readYourWrites(req), fromDate, toDate);
+        }, APIServer::toJson);
+
+        // Authentication Endpoints
+        post("/api/auth/login", (req, res) -> {
+            Credentials credentials = gson.fromJson(req.body(), Credentials.class);
+            if (credentials == null) {
+                throw new IllegalArgumentException("Username and password are required");
+            }
             try (Connection conn = DatabaseConnection.getConnection()) {
-                return InventoryManagementSystem.generateSalesReport(conn, fromDate, toDate);
+                return AuthService.login(conn, credentials.getUsername(), credentials.getPassword());
             }
-        }, gson::toJson);
+        }, APIServer::toJson);
+
+        post("/api/auth/logout", (req, res) -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                AuthService.logout(conn, bearerToken(req));
+            }
+            res.status(204);
+            return "";
+        });
+
+        get("/api/auth/me", (req, res) -> req.attribute(AUTH_USER), APIServer::toJson);
+
+        // User Endpoints (admin only)
+        get("/api/users", (req, res) -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                return AuthService.getAllUsers(conn);
+            }
+        }, APIServer::toJson);
+
+        post("/api/users", (req, res) -> {
+            Credentials credentials = gson.fromJson(req.body(), Credentials.class);
+            if (credentials == null) {
+                throw new IllegalArgumentException("Username, password and role are required");
+            }
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                res.status(201);
+                return AuthService.createUser(conn, credentials.getUsername(), credentials.getPassword(),
+                        credentials.getRole());
+            }
+        }, APIServer::toJson);
 
         // System Endpoints
-        get("/api/system/status", (req, res) -> {
-            return new SystemStatus("Operational", Runtime.getRuntime().availableProcessors());
-        }, gson::toJson);
+        get("/api/system/status", (req, res) -> new SystemStatus("Operational", Runtime.getRuntime().availableProcessors()), APIServer::toJson);
+
+        get("/api/system/ready", (req, res) -> {
+            if (!StartupSequence.isReady()) {
+                res.status(503);
+            }
+            return StartupSequence.getStatus();
+        }, APIServer::toJson);
+
+        get("/api/system/replica", (req, res) -> ReportingReplica.getStatus(), APIServer::toJson);
+
+        get("/api/system/admission", (req, res) -> AdmissionController.getStatus(), APIServer::toJson);
+
+        get("/api/system/archive", (req, res) -> SalesArchive.getStatus(), APIServer::toJson);
+
+        get("/api/system/stocklog", (req, res) -> StockLedger.getStatus(), APIServer::toJson);
+
+        get("/api/system/history", (req, res) -> InventoryHistory.getStatus(), APIServer::toJson);
+
+        get("/api/system/queries", (req, res) -> QueryProfiler.getStatus(req.queryParamOrDefault("sort", "total"),
+                Integer.parseInt(req.queryParamOrDefault("limit", "20"))), APIServer::toJson);
+    }
+
+    /**
+     * Whether a listing or report request must bypass the reporting replica. Clients that need
+     * to see their own writes either send {@code X-Read-Your-Writes: true} or echo the
+     * {@code X-Change-Seq} header from their last write back as {@code X-Min-Seq}.
+     */
+    private static boolean readYourWrites(Request req) {
+        boolean readYourWrites = "true".equalsIgnoreCase(req.headers("X-Read-Your-Writes"));
+        String minSeq = req.headers("X-Min-Seq");
+        if (minSeq != null && ReportingReplica.getStatus().getAppliedSeq() < Long.parseLong(minSeq)) {
+            readYourWrites = true;
+        }
+        return readYourWrites;
+    }
+
+    private static String toJson(Object src) {
+        return JsonAdapters.toJson(gson, src);
+    }
+
+    private static Product withETag(Response res, Product product) {
+        res.header("ETag", "\"" + product.getVersion() + "\"");
+        return product;
+    }
+
+    private static Supplier withETag(Response res, Supplier supplier) {
+        res.header("ETag", "\"" + supplier.getVersion() + "\"");
+        return supplier;
+    }
+
+    /**
+     * The version an update is conditional on, from an {@code If-Match} header holding an ETag
+     * this server sent ({@code "3"}, or weak {@code W/"3"}). Null when the header is missing or
+     * {@code *}, in which case the update overwrites whatever is stored.
+     */
+    private static Integer expectedVersion(Request req) {
+        String ifMatch = req.headers("If-Match");
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("If-Match must be an ETag such as \"3\"");
+        }
+        try {
+            return Integer.parseInt(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be an ETag such as \"3\"");
+        }
+    }
+
+    private static List<Integer> idList(String ids) {
+        List<Integer> result = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (!id.isBlank()) {
+                result.add(Integer.parseInt(id.trim()));
+            }
+        }
+        return result;
+    }
+
+    private static int intParam(Request req, String name, int defaultValue) {
+        String value = req.queryParams(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static boolean expandSupplier(Request req) {
+        String expand = req.queryParams("expand");
+        if (expand == null || expand.isEmpty()) {
+            return false;
+        }
+        if (!expand.equals("supplier")) {
+            throw new IllegalArgumentException("Only expand=supplier is supported");
+        }
+        return true;
+    }
+
+    private static String bearerToken(Request req) {
+        String header = req.headers("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
     }
 
     // DTO Classes for API
@@ -236,10 +595,76 @@ public class APIServer {
         public String getMessage() { return message; }
     }
 
+    @JsonAdapter(StockAdjustment.Adapter.class)
     private static class StockAdjustment {
         private int delta;
+        private int locationId;
         public int getDelta() { return delta; }
         public void setDelta(int delta) { this.delta = delta; }
+        public int getLocationId() { return locationId; }
+        public void setLocationId(int locationId) { this.locationId = locationId; }
+
+        private static final class Adapter extends TypeAdapter<StockAdjustment> {
+            @Override
+            public void write(JsonWriter out, StockAdjustment adjustment) throws IOException {
+                out.beginObject().name("delta").value(adjustment.getDelta());
+                if (adjustment.getLocationId() > 0) {
+                    out.name("locationId").value(adjustment.getLocationId());
+                }
+                out.endObject();
+            }
+
+            @Override
+            public StockAdjustment read(JsonReader in) throws IOException {
+                StockAdjustment adjustment = new StockAdjustment();
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if ((name.equals("delta") || name.equals("locationId")) && in.peek() != JsonToken.NULL) {
+                        try {
+                            if (name.equals("delta")) {
+                                adjustment.setDelta(in.nextInt());
+                            } else {
+                                adjustment.setLocationId(in.nextInt());
+                            }
+                        } catch (NumberFormatException e) {
+                            throw new JsonSyntaxException(e);
+                        }
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+                return adjustment;
+            }
+        }
+    }
+
+    private static class BulkAdjustment {
+        private boolean atomic;
+        private List<StockAdjustmentLine> lines;
+        public boolean isAtomic() { return atomic; }
+        public List<StockAdjustmentLine> getLines() { return lines; }
+    }
+
+    private static class StockTransfer {
+        private int productId;
+        private int fromLocationId;
+        private int toLocationId;
+        private int quantity;
+        public int getProductId() { return productId; }
+        public int getFromLocationId() { return fromLocationId; }
+        public int getToLocationId() { return toLocationId; }
+        public int getQuantity() { return quantity; }
+    }
+
+    private static class Credentials {
+        private String username;
+        private String password;
+        private Role role;
+        public String getUsername() { return username; }
+        public String getPassword() { return password; }
+        public Role getRole() { return role; }
     }
 
     private static class SystemStatus {
@@ -0,0 +1,259 @@
+package org.inventorymanagementsystem.controller;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Per-class concurrency limits for API requests, so a burst of heavy reports cannot take
+ * the threads and connections that sales need.
+ * <p>
+ * Every {@code /api/*} request is put in a {@link RequestClass}. Each class has its own
+ * limit on requests in flight and its own bounded wait queue. A request that finds the queue
+ * full is rejected at once with {@code 429}; one that waits longer than the class's queue
+ * timeout is rejected with {@code 503}. Both carry {@code Retry-After}. Logins and user
+ * administration have a class of their own, so a burst of them cannot use up the slots that
+ * sales and stock changes need.
+ * <p>
+ * Limits adapt to latency: every sampling window the limit is scaled by the ratio of the
+ * best latency seen recently to the window's average latency, plus a little headroom. When
+ * latency rises above the baseline the limit shrinks; when it is at the baseline the limit
+ * grows by the headroom.
+ */
+public final class AdmissionController {
+    private static final int ACCOUNT_LIMIT = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+
+    public enum RequestClass {
+        // initialLimit, minLimit, maxLimit, maxQueue, queueTimeoutMs
+        CRITICAL_WRITE(16, 4, 48, 64, 2000),
+        // A login hashes the password on one core for its whole run, so this limit is fixed and
+        // leaves most cores to the other classes
+        ACCOUNT(ACCOUNT_LIMIT, ACCOUNT_LIMIT, ACCOUNT_LIMIT, 16, 2000),
+        POINT_READ(16, 4, 32, 16, 500),
+        BULK_LISTING(4, 1, 8, 4, 1000),
+        REPORT(2, 1, 4, 4, 1000);
+
+        private final int initialLimit;
+        private final int minLimit;
+        private final int maxLimit;
+        private final int maxQueue;
+        private final long queueTimeoutMs;
+
+        RequestClass(int initialLimit, int minLimit, int maxLimit, int maxQueue, long queueTimeoutMs) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.maxQueue = maxQueue;
+            this.queueTimeoutMs = queueTimeoutMs;
+        }
+    }
+
+    /** Outcome of {@link #acquire(RequestClass)} */
+    public enum Decision { ADMITTED, QUEUE_FULL, TIMED_OUT }
+
+    private static final Pattern POINT_READ_PATH = Pattern.compile("^/api/[a-z]+/\\d+(/.*)?$|^/api/products/search$");
+
+    private static final Map<RequestClass, Limiter> limiters = new EnumMap<>(RequestClass.class);
+    static {
+        for (RequestClass requestClass : RequestClass.values()) {
+            limiters.put(requestClass, new Limiter(requestClass));
+        }
+    }
+
+    private AdmissionController() {}
+
+    /**
+     * @return The class of an API request, or null for requests that are never limited
+     */
+    public static RequestClass classify(String method, String path) {
+        if (path.startsWith("/api/system/") || "OPTIONS".equals(method)) {
+            return null;
+        }
+        if (!"GET".equals(method)) {
+            return path.startsWith("/api/auth/") || path.startsWith("/api/users")
+                    ? RequestClass.ACCOUNT
+                    : RequestClass.CRITICAL_WRITE;
+        }
+        if (path.startsWith("/api/reports/") || path.equals("/api/forecast")) {
+            return RequestClass.REPORT;
+        }
+        if (POINT_READ_PATH.matcher(path).matches()) {
+            return RequestClass.POINT_READ;
+        }
+        return RequestClass.BULK_LISTING;
+    }
+
+    /**
+     * Waits for a slot in the request's class. Every {@link Decision#ADMITTED} must be
+     * followed by exactly one {@link #release}.
+     */
+    public static Decision acquire(RequestClass requestClass) throws InterruptedException {
+        return limiters.get(requestClass).acquire();
+    }
+
+    /**
+     * Frees the slot taken by an admitted request and feeds its latency to the limit
+     * @param latencyNanos Time from admission to completion
+     */
+    public static void release(RequestClass requestClass, long latencyNanos) {
+        limiters.get(requestClass).release(latencyNanos);
+    }
+
+    public static Map<RequestClass, ClassStatus> getStatus() {
+        Map<RequestClass, ClassStatus> status = new LinkedHashMap<>();
+        limiters.forEach((requestClass, limiter) -> status.put(requestClass, limiter.status()));
+        return status;
+    }
+
+    private static final class Limiter {
+        private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+        private static final int MIN_WINDOW_SAMPLES = 10;
+        // The latency baseline is forgotten periodically so it can follow real changes in cost
+        private static final long BASELINE_RESET_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+        private final RequestClass requestClass;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition slotFreed = lock.newCondition();
+
+        private double limit;
+        private int inFlight;
+        private int queued;
+        private long admitted;
+        private long rejectedQueueFull;
+        private long rejectedTimeout;
+
+        private long windowStart = System.nanoTime();
+        private long windowLatencySum;
+        private int windowSamples;
+        private long baselineNanos = Long.MAX_VALUE;
+        private long baselineSetAt = System.nanoTime();
+        private long lastWindowAverageNanos;
+
+        private Limiter(RequestClass requestClass) {
+            this.requestClass = requestClass;
+            this.limit = requestClass.initialLimit;
+        }
+
+        private Decision acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    admitted++;
+                    return Decision.ADMITTED;
+                }
+                if (queued >= requestClass.maxQueue) {
+                    rejectedQueueFull++;
+                    return Decision.QUEUE_FULL;
+                }
+                queued++;
+                try {
+                    long remaining = TimeUnit.MILLISECONDS.toNanos(requestClass.queueTimeoutMs);
+                    while (inFlight >= (int) limit) {
+                        if (remaining <= 0) {
+                            rejectedTimeout++;
+                            return Decision.TIMED_OUT;
+                        }
+                        remaining = slotFreed.awaitNanos(remaining);
+                    }
+                } finally {
+                    queued--;
+                }
+                inFlight++;
+                admitted++;
+                return Decision.ADMITTED;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(long latencyNanos) {
+            lock.lock();
+            try {
+                inFlight--;
+                windowLatencySum += latencyNanos;
+                windowSamples++;
+                long now = System.nanoTime();
+                if (now - windowStart >= WINDOW_NANOS && windowSamples >= MIN_WINDOW_SAMPLES) {
+                    adjustLimit(now);
+                }
+                slotFreed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void adjustLimit(long now) {
+            long average = windowLatencySum / windowSamples;
+            if (now - baselineSetAt >= BASELINE_RESET_NANOS) {
+                baselineNanos = average;
+                baselineSetAt = now;
+            } else {
+                baselineNanos = Math.min(baselineNanos, average);
+            }
+            // Shrinks the limit by at most half per window when latency climbs above the baseline
+            double gradient = Math.max(0.5, Math.min(1.0, (double) baselineNanos / average));
+            double target = limit * gradient + Math.sqrt(limit);
+            // Smooth the change so one noisy window does not swing the limit
+            limit = Math.max(requestClass.minLimit, Math.min(requestClass.maxLimit, 0.8 * limit + 0.2 * target));
+
+            lastWindowAverageNanos = average;
+            windowStart = now;
+            windowLatencySum = 0;
+            windowSamples = 0;
+            slotFreed.signalAll();
+        }
+
+        private ClassStatus status() {
+            lock.lock();
+            try {
+                return new ClassStatus((int) limit, inFlight, queued, requestClass.maxQueue, admitted,
+                        rejectedQueueFull, rejectedTimeout,
+                        baselineNanos == Long.MAX_VALUE ? 0 : baselineNanos / 1e6,
+                        lastWindowAverageNanos / 1e6);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static final class ClassStatus {
+        private final int limit;
+        private final int inFlight;
+        private final int queueDepth;
+        private final int maxQueue;
+        private final long admitted;
+        private final long rejectedQueueFull;
+        private final long rejectedTimeout;
+        private final double baselineLatencyMs;
+        private final double recentLatencyMs;
+
+        private ClassStatus(int limit, int inFlight, int queueDepth, int maxQueue, long admitted,
+                            long rejectedQueueFull, long rejectedTimeout,
+                            double baselineLatencyMs, double recentLatencyMs) {
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.queueDepth = queueDepth;
+            this.maxQueue = maxQueue;
+            this.admitted = admitted;
+            this.rejectedQueueFull = rejectedQueueFull;
+            this.rejectedTimeout = rejectedTimeout;
+            this.baselineLatencyMs = baselineLatencyMs;
+            this.recentLatencyMs = recentLatencyMs;
+        }
+
+        public int getLimit() { return limit; }
+        public int getInFlight() { return inFlight; }
+        public int getQueueDepth() { return queueDepth; }
+        public int getMaxQueue() { return maxQueue; }
+        public long getAdmitted() { return admitted; }
+        public long getRejectedQueueFull() { return rejectedQueueFull; }
+        public long getRejectedTimeout() { return rejectedTimeout; }
+        public double getBaselineLatencyMs() { return baselineLatencyMs; }
+        public double getRecentLatencyMs() { return recentLatencyMs; }
+    }
+}
@@ -0,0 +1,279 @@
+package org.inventorymanagementsystem.controller;
+
+import org.inventorymanagementsystem.model.Role;
+import org.inventorymanagementsystem.model.User;
+import org.inventorymanagementsystem.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Logins, bearer tokens and per-route role checks.
+ * <p>
+ * The slow password hash runs only at login, which issues a random token. Sessions are stored
+ * in the sessions table by SHA-256 of the token, and kept in a bounded in-memory cache keyed by
+ * the token itself, so checking a request is a map lookup. A token missing from the cache (after
+ * eviction or a restart) is looked up in the database once and cached again. With a shared
+ * database another instance may end a session or change a role, so there a cached token is
+ * looked up again once it is {@code tokenRecheckMillis} old.
+ */
+public final class AuthService {
+    private static final Logger LOGGER = Logger.getLogger(AuthService.class.getName());
+
+    private static final int TOKEN_BYTES = 32;
+    private static final int GENERATED_PASSWORD_BYTES = 12;
+    private static final int MIN_PASSWORD_LENGTH = 8;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final UserRepository userRepository = new UserRepository();
+
+    private static final ConcurrentHashMap<String, CachedSession> tokenCache = new ConcurrentHashMap<>();
+
+    private AuthService() {}
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(DatabaseConnection.getSetting("authEnabled"));
+    }
+
+    /**
+     * Creates the initial admin account if there are no users yet and drops expired sessions.
+     * The admin gets {@code adminPassword} if it is set, otherwise a random password that is
+     * logged this once, so no installation starts with a known password.
+     * @param conn Database connection
+     * @throws SQLException If database error occurs
+     */
+    public static void initialize(Connection conn) throws SQLException {
+        if (userRepository.count(conn) == 0) {
+            String password = DatabaseConnection.getSetting("adminPassword");
+            if (password == null || password.isEmpty()) {
+                byte[] bytes = new byte[GENERATED_PASSWORD_BYTES];
+                RANDOM.nextBytes(bytes);
+                password = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+                insertUser(conn, "admin", password, Role.ADMIN);
+                LOGGER.warning("Created user 'admin' with password " + password +
+                        " (shown only this once; set adminPassword to choose it)");
+            } else {
+                requirePasswordLength(password, "adminPassword");
+                insertUser(conn, "admin", password, Role.ADMIN);
+                LOGGER.info("Created user 'admin' with the configured adminPassword");
+            }
+        }
+        userRepository.deleteExpiredSessions(conn);
+    }
+
+    /**
+     * Checks a username and password and starts a session
+     * @param conn Database connection
+     * @return The new session token and who it belongs to
+     * @throws AuthenticationException If the username or password is wrong
+     * @throws SQLException If database error occurs
+     */
+    public static LoginResult login(Connection conn, String username, String password) throws SQLException {
+        if (username == null || password == null) {
+            throw new IllegalArgumentException("Username and password are required");
+        }
+        User user = userRepository.findByUsername(conn, username);
+        if (!PasswordHasher.verify(password, user == null ? null : user.getPasswordHash())) {
+            throw new AuthenticationException("Invalid username or password");
+        }
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long expiresAt = System.currentTimeMillis()
+                + TimeUnit.MINUTES.toMillis(Long.parseLong(DatabaseConnection.getSetting("sessionTtlMinutes")));
+        userRepository.insertSession(conn, hashToken(token), user.getId(), expiresAt);
+        cache(token, user, expiresAt);
+        return new LoginResult(token, user.getUsername(), user.getRole(), expiresAt);
+    }
+
+    /**
+     * @param conn Database connection
+     * @throws SQLException If database error occurs
+     */
+    public static void logout(Connection conn, String token) throws SQLException {
+        if (token != null) {
+            tokenCache.remove(token);
+            userRepository.deleteSession(conn, hashToken(token));
+        }
+    }
+
+    /**
+     * Resolves a bearer token to its user, from the cache when possible
+     * @return The signed-in user, or null if the token is missing, unknown or expired
+     * @throws SQLException If database error occurs
+     */
+    public static User authenticate(String token) throws SQLException {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        CachedSession cached = tokenCache.get(token);
+        long now = System.currentTimeMillis();
+        if (cached != null) {
+            if (cached.expiresAtMillis <= now) {
+                tokenCache.remove(token, cached);
+                return null;
+            }
+            if (!DatabaseConnection.isSharedDatabase()
+                    || now - cached.checkedAtMillis < Long.parseLong(DatabaseConnection.getSetting("tokenRecheckMillis"))) {
+                return cached.user;
+            }
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            UserRepository.Session session = userRepository.findSession(conn, hashToken(token));
+            if (session == null) {
+                if (cached != null) {
+                    tokenCache.remove(token, cached);
+                }
+                return null;
+            }
+            cache(token, session.getUser(), session.getExpiresAtMillis());
+            return session.getUser();
+        }
+    }
+
+    /**
+     * Probes need the readiness and status endpoints without a token; the other system endpoints
+     * show queries, stock and replica state, so they are not public.
+     * @return true if the path can be called without a token
+     */
+    public static boolean isPublic(String method, String path) {
+        return "OPTIONS".equals(method)
+                || ("GET".equals(method) && ("/api/system/ready".equals(path) || "/api/system/status".equals(path)))
+                || ("POST".equals(method) && "/api/auth/login".equals(path));
+    }
+
+    /**
+     * Sales staff may read everything, record sales and register customers. Changing products,
+     * suppliers or stock, managing users and the system endpoints need an admin.
+     */
+    public static boolean isAllowed(Role role, String method, String path) {
+        if (role == Role.ADMIN) {
+            return true;
+        }
+        if (path.startsWith("/api/users") || path.startsWith("/api/system/")) {
+            return false;
+        }
+        boolean write = !"GET".equals(method);
+        return !(write && (path.startsWith("/api/products")
+                || path.startsWith("/api/suppliers")
+                || path.startsWith("/api/stock")
+                || path.startsWith("/api/locations")));
+    }
+
+    /**
+     * Adds a user with a freshly hashed password
+     * @param conn Database connection
+     * @return The created user
+     * @throws SQLException If database error occurs
+     */
+    public static User createUser(Connection conn, String username, String password, Role role) throws SQLException {
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username is required");
+        }
+        requirePasswordLength(password, "Password");
+        if (role == null) {
+            throw new IllegalArgumentException("Role is required");
+        }
+        if (userRepository.findByUsername(conn, username) != null) {
+            throw new IllegalArgumentException("Username already exists: " + username);
+        }
+        return insertUser(conn, username.trim(), password, role);
+    }
+
+    private static void requirePasswordLength(String password, String name) {
+        if (password == null || password.length() < MIN_PASSWORD_LENGTH) {
+            throw new IllegalArgumentException(name + " must be at least " + MIN_PASSWORD_LENGTH + " characters");
+        }
+    }
+
+    private static User insertUser(Connection conn, String username, String password, Role role) throws SQLException {
+        User user = new User(0, username, role, PasswordHasher.hash(password));
+        user.setId(userRepository.insert(conn, user));
+        return user;
+    }
+
+    /**
+     * @param conn Database connection
+     * @throws SQLException If database error occurs
+     */
+    public static List<User> getAllUsers(Connection conn) throws SQLException {
+        return userRepository.findAll(conn);
+    }
+
+    private static void cache(String token, User user, long expiresAtMillis) {
+        int maxSize = Integer.parseInt(DatabaseConnection.getSetting("tokenCacheSize"));
+        if (tokenCache.size() >= maxSize) {
+            evict(maxSize);
+        }
+        tokenCache.put(token, new CachedSession(user, expiresAtMillis, System.currentTimeMillis()));
+    }
+
+    /**
+     * Drops expired entries, then arbitrary ones until there is room. An evicted token is
+     * still valid; its next request just reads the session from the database.
+     */
+    private static void evict(int maxSize) {
+        long now = System.currentTimeMillis();
+        tokenCache.values().removeIf(session -> session.expiresAtMillis <= now);
+        Iterator<String> tokens = tokenCache.keySet().iterator();
+        while (tokenCache.size() >= maxSize && tokens.hasNext()) {
+            tokens.next();
+            tokens.remove();
+        }
+    }
+
+    private static String hashToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class CachedSession {
+        private final User user;
+        private final long expiresAtMillis;
+        // When the session was last read from the database
+        private final long checkedAtMillis;
+
+        private CachedSession(User user, long expiresAtMillis, long checkedAtMillis) {
+            this.user = user;
+            this.expiresAtMillis = expiresAtMillis;
+            this.checkedAtMillis = checkedAtMillis;
+        }
+    }
+
+    public static final class LoginResult {
+        private final String token;
+        private final String username;
+        private final Role role;
+        private final long expiresAt;
+
+        private LoginResult(String token, String username, Role role, long expiresAt) {
+            this.token = token;
+            this.username = username;
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getToken() { return token; }
+        public String getUsername() { return username; }
+        public Role getRole() { return role; }
+        public long getExpiresAt() { return expiresAt; }
+    }
+}
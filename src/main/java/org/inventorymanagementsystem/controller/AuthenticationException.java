@@ -0,0 +1,12 @@
+package org.inventorymanagementsystem.controller;
+
+/**
+ * Thrown when a login fails or a request carries no valid token. Mapped to {@code 401}.
+ */
+public class AuthenticationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public AuthenticationException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,10 @@
 package org.inventorymanagementsystem.controller;
 
 import java.sql.*;
+import org.apache.commons.dbcp2.BasicDataSource;
 import org.h2.tools.Server;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.Properties;
@@ -13,107 +16,536 @@ public final class DatabaseConnection {
     private static final Properties DB_CONFIG = new Properties();
     static {
         DB_CONFIG.setProperty("url", "jdbc:h2:file:./target/db/inventoryDB;DB_CLOSE_DELAY=-1;AUTO_SERVER=TRUE");
+        // jdbc or memory; see InventoryStore
+        DB_CONFIG.setProperty("store", "jdbc");
+        // Holds the users and sessions tables when store=memory, unless url is set explicitly
+        DB_CONFIG.setProperty("memoryUrl", "jdbc:h2:mem:inventoryDB;DB_CLOSE_DELAY=-1");
         DB_CONFIG.setProperty("username", "sa");
         DB_CONFIG.setProperty("password", "");
         DB_CONFIG.setProperty("webPort", "8082");
+        // Shared database server for several API instances; see DatabaseServer
+        DB_CONFIG.setProperty("dbServerPort", "9092");
+        DB_CONFIG.setProperty("dbServerDir", "./target/db");
         DB_CONFIG.setProperty("apiPort", "4567");
+        DB_CONFIG.setProperty("reportingReplica", "false");
+        DB_CONFIG.setProperty("replicaUrl", "jdbc:h2:mem:inventoryReplica;DB_CLOSE_DELAY=-1");
+        DB_CONFIG.setProperty("replicaMaxLagMs", "5000");
+        DB_CONFIG.setProperty("h2Console", "false");
+        DB_CONFIG.setProperty("poolMaxTotal", "20");
+        DB_CONFIG.setProperty("poolMaxIdle", "10");
+        DB_CONFIG.setProperty("statementCacheSize", "100");
+        // Times every statement; see QueryProfiler and /api/system/queries
+        DB_CONFIG.setProperty("queryProfiler", "false");
+        DB_CONFIG.setProperty("slowQueryMs", "100");
+        // Must exceed the admission limits plus queues of all request classes combined
+        DB_CONFIG.setProperty("apiMaxThreads", "200");
+        // Read workload run before reporting ready, within warmUpMillis; see WarmUp
+        DB_CONFIG.setProperty("warmUp", "false");
+        DB_CONFIG.setProperty("warmUpMillis", "30000");
+        DB_CONFIG.setProperty("restockWindowDays", "30");
+        // Rounded up to whole weeks; see DemandForecaster
+        DB_CONFIG.setProperty("forecastHistoryDays", "56");
+        DB_CONFIG.setProperty("salesArchive", "false");
+        DB_CONFIG.setProperty("salesHotMonths", "3");
+        DB_CONFIG.setProperty("archiveIntervalMinutes", "60");
+        DB_CONFIG.setProperty("archiveDir", "./target/archive");
+        // See InventoryHistory
+        DB_CONFIG.setProperty("checkpointMovements", "10000");
+        DB_CONFIG.setProperty("checkpointIntervalMinutes", "10");
+        // Extra age before a change is sent to syncing clients; open transactions are waited
+        // for regardless, see SyncChangeTrigger
+        DB_CONFIG.setProperty("syncSettleMillis", "0");
+        DB_CONFIG.setProperty("stockLog", "false");
+        DB_CONFIG.setProperty("stockLogDir", "./target/stocklog");
+        // always, interval or none; see StockLog.SyncPolicy
+        DB_CONFIG.setProperty("stockLogSync", "always");
+        DB_CONFIG.setProperty("stockLogSyncMillis", "10");
+        DB_CONFIG.setProperty("stockLogSegmentMb", "64");
+        DB_CONFIG.setProperty("stockApplyMillis", "1000");
+        DB_CONFIG.setProperty("stockSnapshotMinutes", "5");
+        DB_CONFIG.setProperty("authEnabled", "true");
+        DB_CONFIG.setProperty("sessionTtlMinutes", "480");
+        DB_CONFIG.setProperty("tokenCacheSize", "10000");
+        // Only with a shared database, where other instances may end sessions
+        DB_CONFIG.setProperty("tokenRecheckMillis", "5000");
+        // adminPassword has no default: the admin account created when the users table is empty
+        // gets a generated password unless one is configured; see AuthService.initialize
     }
 
     private static volatile Server webServer;
-    private static volatile ConnectionPool connectionPool;
+    private static volatile Server tcpServer;
+    private static volatile BasicDataSource connectionPool;
 
-    static {
-        initializeDatabase();
-    }
-
-    private static void initializeDatabase() {
+    /**
+     * Loads the driver, creates the schema and opens the connection pool. Called explicitly
+     * by {@link StartupSequence}; {@link #getConnection()} falls back to calling it lazily.
+     * Does nothing if the database is already initialized.
+     * @throws SQLException If database error occurs
+     */
+    public static synchronized void initialize() throws SQLException {
+        if (connectionPool != null) {
+            return;
+        }
         try {
             Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("H2 driver not found", e);
+        }
+        if (databaseUrl().startsWith("jdbc:h2:file:./target/db/")) {
             new java.io.File("./target/db").mkdirs();
+        }
 
-            try (Connection conn = createConnection()) {
-                Statement stmt = conn.createStatement();
-
-                // Create all tables with proper relationships in one go
-                stmt.execute("CREATE TABLE IF NOT EXISTS suppliers (" +
-                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                        "name VARCHAR(255) NOT NULL, " +
-                        "contact_person VARCHAR(255), " +
-                        "email VARCHAR(255), " +
-                        "phone VARCHAR(50))");
-
-                stmt.execute("CREATE TABLE IF NOT EXISTS products (" +
-                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                        "name VARCHAR(255) NOT NULL, " +
-                        "price DECIMAL(10,2) NOT NULL, " +
-                        "stock_quantity INT NOT NULL DEFAULT 0, " +
-                        "supplier_id INT, " +
-                        "FOREIGN KEY (supplier_id) REFERENCES suppliers(id))");
-
-                stmt.execute("CREATE TABLE IF NOT EXISTS sales (" +
-                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                        "product_id INT NOT NULL, " +
-                        "quantity_sold INT NOT NULL, " +
-                        "sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                        "FOREIGN KEY (product_id) REFERENCES products(id))");
-
-                stmt.execute("CREATE TABLE IF NOT EXISTS inventory_log (" +
-                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                        "product_id INT NOT NULL, " +
-                        "operation VARCHAR(50) NOT NULL, " +
-                        "quantity INT NOT NULL, " +
-                        "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                        "FOREIGN KEY (product_id) REFERENCES products(id))");
-
-                conn.commit();
-                LOGGER.info("Database tables initialized successfully");
-
-                // Initialize connection pool
-                connectionPool = new ConnectionPool(10, () -> {
-                    try {
-                        return createConnection();
-                    } catch (SQLException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-            }
-        } catch (Exception e) {
+        try (Connection conn = createConnection()) {
+            createSchema(conn);
+            InventoryHistory.install(conn);
+            SyncChangeTrigger.install(conn);
+        } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Database initialization failed", e);
+            throw e;
+        }
+        LOGGER.info("Database tables initialized successfully");
+
+        connectionPool = createPool(Integer.parseInt(getSetting("statementCacheSize")));
+    }
+
+    /**
+     * Creates a connection pool to the database with the configured pool sizes. Pooled
+     * connections keep their prepared statements open between borrows, so a repository
+     * preparing the same SQL again gets the cached statement back.
+     * @param statementCacheSize Prepared statements kept open across all pooled connections,
+     *                           or 0 to prepare every statement afresh
+     * @return A new pool; the caller closes it
+     */
+    public static BasicDataSource createPool(int statementCacheSize) {
+        BasicDataSource pool = new BasicDataSource();
+        pool.setDriverClassName("org.h2.Driver");
+        pool.setUrl(databaseUrl());
+        pool.setUsername(DB_CONFIG.getProperty("username"));
+        pool.setPassword(DB_CONFIG.getProperty("password"));
+        pool.setMaxTotal(Integer.parseInt(getSetting("poolMaxTotal")));
+        pool.setMaxIdle(Integer.parseInt(getSetting("poolMaxIdle")));
+        // A statement pool with room for none would fail every prepare instead of caching nothing
+        pool.setPoolPreparedStatements(statementCacheSize > 0);
+        if (statementCacheSize > 0) {
+            pool.setMaxOpenPreparedStatements(statementCacheSize);
+        }
+        return pool;
+    }
+
+    /**
+     * Creates every table the application uses, if missing. Shared by the primary
+     * database and the reporting replica so both always have the same columns.
+     * @param conn Connection to the database to initialize
+     * @throws SQLException If database error occurs
+     */
+    static void createSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Create all tables with proper relationships in one go
+            stmt.execute("CREATE TABLE IF NOT EXISTS suppliers (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "contact_person VARCHAR(255), " +
+                    "email VARCHAR(255), " +
+                    "phone VARCHAR(50), " +
+                    "version INT NOT NULL DEFAULT 0)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS products (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "price_cents BIGINT NOT NULL, " +
+                    "stock_quantity INT NOT NULL DEFAULT 0, " +
+                    "supplier_id INT, " +
+                    "version INT NOT NULL DEFAULT 0, " +
+                    "located_quantity INT NOT NULL DEFAULT 0, " +
+                    "sku VARCHAR(64), " +
+                    "FOREIGN KEY (supplier_id) REFERENCES suppliers(id))");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS locations (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "name VARCHAR(255) NOT NULL UNIQUE)");
+
+            // Stock held at each location; products.located_quantity is kept equal to its sum.
+            // No foreign key to locations: H2 would give it a location_id index of its own and
+            // prefer that to the primary key for writes naming both columns, scanning every row
+            // at the location. Writes check the location themselves, and locations are never deleted.
+            stmt.execute("CREATE TABLE IF NOT EXISTS location_stock (" +
+                    "product_id INT NOT NULL, " +
+                    "location_id INT NOT NULL, " +
+                    "quantity INT NOT NULL, " +
+                    "PRIMARY KEY (product_id, location_id), " +
+                    "FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS sales (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "product_id INT NOT NULL, " +
+                    "quantity_sold INT NOT NULL, " +
+                    "unit_price_cents BIGINT NOT NULL, " +
+                    "sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL, " +
+                    "location_id INT, " +
+                    "customer_id INT, " +
+                    "FOREIGN KEY (product_id) REFERENCES products(id))");
+
+            // Lifetime purchase totals, added to by each sale in the transaction that records it.
+            // sales.customer_id has no foreign key to it: H2 would give it a customer_id index of
+            // its own and might prefer that to idx_sales_customer, which also keeps the history in
+            // order. Sales check the customer when they update its totals, and customers are never deleted.
+            stmt.execute("CREATE TABLE IF NOT EXISTS customers (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "email VARCHAR(255), " +
+                    "phone VARCHAR(50), " +
+                    "purchase_count BIGINT NOT NULL DEFAULT 0, " +
+                    "units_bought BIGINT NOT NULL DEFAULT 0, " +
+                    "spent_cents BIGINT NOT NULL DEFAULT 0, " +
+                    "last_purchase_at TIMESTAMP)");
+
+            // Totals of sales months moved to segment files by SalesArchive
+            stmt.execute("CREATE TABLE IF NOT EXISTS sales_archive (" +
+                    "segment VARCHAR(100) PRIMARY KEY, " +
+                    "sale_month CHAR(7) NOT NULL, " +
+                    "sale_count BIGINT NOT NULL, " +
+                    "units BIGINT NOT NULL, " +
+                    "revenue_cents BIGINT NOT NULL, " +
+                    "min_id INT NOT NULL, " +
+                    "max_id INT NOT NULL, " +
+                    "archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS sales_archive_products (" +
+                    "segment VARCHAR(100) NOT NULL, " +
+                    "product_id INT NOT NULL, " +
+                    "sale_count BIGINT NOT NULL, " +
+                    "units BIGINT NOT NULL, " +
+                    "revenue_cents BIGINT NOT NULL, " +
+                    "PRIMARY KEY (segment, product_id), " +
+                    "FOREIGN KEY (segment) REFERENCES sales_archive(segment))");
+
+            // Stock movements written by StockMovementTrigger; no foreign key, since the
+            // movement that deletes a product must outlive it
+            stmt.execute("CREATE TABLE IF NOT EXISTS inventory_log (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "product_id INT NOT NULL, " +
+                    "operation VARCHAR(50) NOT NULL, " +
+                    "quantity INT NOT NULL, " +
+                    "stock_after INT, " +
+                    "price_cents BIGINT, " +
+                    "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+
+            // Full stock snapshots taken by InventoryHistory
+            stmt.execute("CREATE TABLE IF NOT EXISTS inventory_checkpoints (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "taken_at TIMESTAMP NOT NULL, " +
+                    "movements BIGINT NOT NULL)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS inventory_checkpoint_rows (" +
+                    "checkpoint_id INT NOT NULL, " +
+                    "product_id INT NOT NULL, " +
+                    "quantity INT NOT NULL, " +
+                    "price_cents BIGINT NOT NULL, " +
+                    "PRIMARY KEY (checkpoint_id, product_id), " +
+                    "FOREIGN KEY (checkpoint_id) REFERENCES inventory_checkpoints(id) ON DELETE CASCADE)");
+
+            // Latest change to each product and supplier, written by SyncChangeTrigger; deleted
+            // rows stay as tombstones. No foreign keys, since a tombstone outlives its row.
+            stmt.execute("CREATE SEQUENCE IF NOT EXISTS sync_seq");
+            stmt.execute("CREATE TABLE IF NOT EXISTS sync_changes (" +
+                    "entity VARCHAR(20) NOT NULL, " +
+                    "entity_id INT NOT NULL, " +
+                    "change_seq BIGINT NOT NULL, " +
+                    "deleted BOOLEAN NOT NULL, " +
+                    "changed_at TIMESTAMP NOT NULL, " +
+                    "PRIMARY KEY (entity, entity_id))");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "username VARCHAR(100) NOT NULL UNIQUE, " +
+                    "role VARCHAR(20) NOT NULL, " +
+                    "password_hash VARCHAR(255) NOT NULL)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS sessions (" +
+                    "token_hash CHAR(64) PRIMARY KEY, " +
+                    "user_id INT NOT NULL, " +
+                    "expires_at TIMESTAMP NOT NULL, " +
+                    "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE)");
+
+            migrateToCents(conn, stmt);
+            migrateSaleDates(conn, stmt);
+            migrateVersions(conn, stmt);
+            migrateInventoryLog(conn, stmt);
+            migrateLocations(conn, stmt);
+            migrateSku(conn, stmt);
+            migrateCustomers(conn, stmt);
+
+            // Serves newest-first listings in index order, date-range pruning and the restock
+            // planner's recent-sales scan without touching the table rows
+            stmt.execute("DROP INDEX IF EXISTS idx_sales_date_product");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_recent ON sales(sale_date DESC, id DESC, product_id, quantity_sold)");
+            // Refreshing one product in the restock planner looks up its recent sales by product
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_product_date ON sales(product_id, sale_date, quantity_sold)");
+            // Point-in-time queries replay the movements after a checkpoint, for all products or one
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_inventory_log_time ON inventory_log(timestamp)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_inventory_log_product ON inventory_log(product_id, timestamp)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_inventory_checkpoints_time ON inventory_checkpoints(taken_at)");
+            // Barcode lookups that miss ProductSearchIndex; products without a SKU hold null,
+            // which the unique index does not compare
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_products_sku ON products(sku)");
+            // Pages through a supplier's products by name, stopping at the limit
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_products_supplier ON products(supplier_id, name, id)");
+            // Reads the sync feed from a client's cursor on, without touching the table rows
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_sync_changes_seq ON sync_changes(change_seq, entity, entity_id, deleted, changed_at)");
+            // Lists what a location holds; the primary key serves the per-product side
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_location_stock_location ON location_stock(location_id, product_id, quantity)");
+            // Pages through a customer's purchases newest first, stopping at the limit; the trailing
+            // columns are the rest of a sale, so the page never touches the table rows
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_customer ON sales(customer_id, sale_date DESC, id DESC, " +
+                    "product_id, quantity_sold, unit_price_cents, location_id)");
+        }
+    }
+
+    /**
+     * Converts databases created with DECIMAL prices to BIGINT cents. Sales recorded
+     * before the unit price was captured take the product's current price.
+     */
+    private static void migrateToCents(Connection conn, Statement stmt) throws SQLException {
+        if (columnExists(conn, "PRODUCTS", "PRICE")) {
+            stmt.execute("ALTER TABLE products ADD COLUMN IF NOT EXISTS price_cents BIGINT");
+            stmt.execute("UPDATE products SET price_cents = CAST(ROUND(price * 100) AS BIGINT)");
+            stmt.execute("ALTER TABLE products ALTER COLUMN price_cents SET NOT NULL");
+            stmt.execute("ALTER TABLE products DROP COLUMN price");
+            LOGGER.info("Migrated products.price to price_cents");
+        }
+        if (!columnExists(conn, "SALES", "UNIT_PRICE_CENTS")) {
+            stmt.execute("ALTER TABLE sales ADD COLUMN unit_price_cents BIGINT");
+            if (columnExists(conn, "SALES", "UNIT_PRICE")) {
+                stmt.execute("UPDATE sales SET unit_price_cents = CAST(ROUND(unit_price * 100) AS BIGINT)");
+                stmt.execute("ALTER TABLE sales DROP COLUMN unit_price");
+            }
+            stmt.execute("UPDATE sales s SET unit_price_cents = " +
+                    "(SELECT p.price_cents FROM products p WHERE p.id = s.product_id) " +
+                    "WHERE unit_price_cents IS NULL");
+            stmt.execute("ALTER TABLE sales ALTER COLUMN unit_price_cents SET NOT NULL");
+            LOGGER.info("Migrated sales.unit_price to unit_price_cents");
+        }
+    }
+
+    /**
+     * Sales are partitioned by month of sale_date, so older databases that allowed a null
+     * date get the time of the migration.
+     */
+    private static void migrateSaleDates(Connection conn, Statement stmt) throws SQLException {
+        if (columnNullable(conn, "SALES", "SALE_DATE")) {
+            stmt.execute("UPDATE sales SET sale_date = CURRENT_TIMESTAMP WHERE sale_date IS NULL");
+            stmt.execute("ALTER TABLE sales ALTER COLUMN sale_date SET NOT NULL");
+            LOGGER.info("Made sales.sale_date NOT NULL");
+        }
+    }
+
+    /**
+     * Adds the row versions used for optimistic concurrency to databases created without them
+     */
+    private static void migrateVersions(Connection conn, Statement stmt) throws SQLException {
+        for (String table : new String[] {"PRODUCTS", "SUPPLIERS"}) {
+            if (!columnExists(conn, table, "VERSION")) {
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN version INT NOT NULL DEFAULT 0");
+                LOGGER.info("Added " + table.toLowerCase() + ".version");
+            }
+        }
+    }
+
+    /**
+     * Gives the inventory_log created before stock movements were recorded the columns
+     * point-in-time queries read, and drops its foreign key to products
+     */
+    private static void migrateInventoryLog(Connection conn, Statement stmt) throws SQLException {
+        if (!columnExists(conn, "INVENTORY_LOG", "STOCK_AFTER")) {
+            stmt.execute("ALTER TABLE inventory_log ADD COLUMN stock_after INT");
+            stmt.execute("ALTER TABLE inventory_log ADD COLUMN price_cents BIGINT");
+            LOGGER.info("Added inventory_log.stock_after and price_cents");
+        }
+        try (ResultSet rs = stmt.executeQuery("SELECT CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS " +
+                "WHERE TABLE_NAME = 'INVENTORY_LOG' AND CONSTRAINT_TYPE = 'FOREIGN KEY'")) {
+            List<String> names = new ArrayList<>();
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+            for (String name : names) {
+                stmt.execute("ALTER TABLE inventory_log DROP CONSTRAINT \"" + name + "\"");
+                LOGGER.info("Dropped foreign key " + name + " from inventory_log");
+            }
+        }
+    }
+
+    /**
+     * Adds the columns that track stock by location to databases created without them. All
+     * existing stock starts out held at no particular location.
+     */
+    private static void migrateLocations(Connection conn, Statement stmt) throws SQLException {
+        if (!columnExists(conn, "PRODUCTS", "LOCATED_QUANTITY")) {
+            stmt.execute("ALTER TABLE products ADD COLUMN located_quantity INT NOT NULL DEFAULT 0");
+            LOGGER.info("Added products.located_quantity");
+        }
+        if (!columnExists(conn, "SALES", "LOCATION_ID")) {
+            stmt.execute("ALTER TABLE sales ADD COLUMN location_id INT");
+            LOGGER.info("Added sales.location_id");
+        }
+    }
+
+    /**
+     * Adds the SKU column to databases created without it; existing products have none
+     */
+    private static void migrateSku(Connection conn, Statement stmt) throws SQLException {
+        if (!columnExists(conn, "PRODUCTS", "SKU")) {
+            stmt.execute("ALTER TABLE products ADD COLUMN sku VARCHAR(64)");
+            LOGGER.info("Added products.sku");
+        }
+    }
+
+    /**
+     * Adds the customer column to sales in databases created without it; existing sales were
+     * made to no customer
+     */
+    private static void migrateCustomers(Connection conn, Statement stmt) throws SQLException {
+        if (!columnExists(conn, "SALES", "CUSTOMER_ID")) {
+            stmt.execute("ALTER TABLE sales ADD COLUMN customer_id INT");
+            LOGGER.info("Added sales.customer_id");
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(null, null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private static boolean columnNullable(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(null, null, table, column)) {
+            return rs.next() && rs.getInt("NULLABLE") == java.sql.DatabaseMetaData.columnNullable;
         }
     }
 
     private static Connection createConnection() throws SQLException {
         return DriverManager.getConnection(
-                DB_CONFIG.getProperty("url"),
+                databaseUrl(),
                 DB_CONFIG.getProperty("username"),
                 DB_CONFIG.getProperty("password")
         );
     }
 
+    /**
+     * Borrows a connection from the pool. Closing it returns it to the pool.
+     * @return A pooled database connection
+     * @throws SQLException If database error occurs
+     */
     public static Connection getConnection() throws SQLException {
-        if (connectionPool == null) {
-            throw new SQLException("Connection pool not initialized");
+        if (QueryProfiler.isEnabled()) {
+            return QueryProfiler.wrap(borrow(), DatabaseConnection::borrow);
+        }
+        return borrow();
+    }
+
+    private static Connection borrow() throws SQLException {
+        BasicDataSource pool = connectionPool;
+        if (pool == null) {
+            initialize();
+            pool = connectionPool;
+        }
+        return pool.getConnection();
+    }
+
+    /**
+     * Returns a connection for listing and report queries. When the reporting replica is
+     * enabled and within its lag bound the connection points at the replica, otherwise
+     * at the primary database.
+     * @param readYourWrites true if the caller must see its own committed writes
+     * @return A database connection
+     * @throws SQLException If database error occurs
+     */
+    public static Connection getReadConnection(boolean readYourWrites) throws SQLException {
+        if (!readYourWrites && ReportingReplica.isServingReads()) {
+            if (QueryProfiler.isEnabled()) {
+                return QueryProfiler.wrap(ReportingReplica.getConnection(), ReportingReplica::getConnection);
+            }
+            return ReportingReplica.getConnection();
+        }
+        return getConnection();
+    }
+
+    /**
+     * Looks up a setting, letting a system property named {@code inventory.<key>}
+     * override the built-in default.
+     * @param key Setting name
+     * @return The configured value
+     */
+    public static String getSetting(String key) {
+        return System.getProperty("inventory." + key, DB_CONFIG.getProperty(key));
+    }
+
+    /**
+     * @return true if the database is reached over TCP, so other instances may be writing to it
+     */
+    public static boolean isSharedDatabase() {
+        return databaseUrl().startsWith("jdbc:h2:tcp:");
+    }
+
+    /**
+     * @return true if products, suppliers and sales live in the heap rather than this database
+     */
+    public static boolean isMemoryStore() {
+        return "memory".equals(getSetting("store"));
+    }
+
+    // With the memory store the database only holds accounts, so it stays off disk too
+    private static String databaseUrl() {
+        if (isMemoryStore() && System.getProperty("inventory.url") == null) {
+            return getSetting("memoryUrl");
         }
-        return connectionPool.getConnection();
+        return getSetting("url");
     }
 
     public static void releaseConnection(Connection conn) {
-        if (connectionPool != null && conn != null) {
-            connectionPool.releaseConnection(conn);
+        if (conn != null) {
+            try { conn.close(); } catch (SQLException e) { LOGGER.log(Level.WARNING, "Failed to release connection", e); }
         }
     }
 
     public static synchronized void startWebServer() throws SQLException {
         if (webServer == null) {
+            // No -baseDir: it changes how H2 resolves relative database paths for the whole JVM,
+            // so connections opened after the console started landed in an empty database
             webServer = Server.createWebServer(
                     "-web",
                     "-webAllowOthers",
-                    "-webPort", DB_CONFIG.getProperty("webPort"),
-                    "-baseDir", "./target/db"
+                    "-webPort", DB_CONFIG.getProperty("webPort")
             ).start();
             LOGGER.info("H2 Console available at http://localhost:" + DB_CONFIG.getProperty("webPort"));
             LOGGER.info("API Server available at http://localhost:" + DB_CONFIG.getProperty("apiPort"));
-            LOGGER.info("JDBC URL: " + DB_CONFIG.getProperty("url"));
+            LOGGER.info("JDBC URL: " + databaseUrl());
+        }
+    }
+
+    /**
+     * Starts an H2 TCP server that API instances on this host reach with
+     * {@code jdbc:h2:tcp://localhost:<dbServerPort>/inventoryDB}. Databases are created on first
+     * connect under {@code dbServerDir}. Connections from other hosts are refused, since the
+     * database account is {@code sa} with an empty password.
+     * @throws SQLException If the port cannot be opened
+     */
+    public static synchronized void startTcpServer() throws SQLException {
+        if (tcpServer == null) {
+            tcpServer = Server.createTcpServer(
+                    "-tcpPort", getSetting("dbServerPort"),
+                    // Absolute, since H2 rejects database names relative to an unspecified directory
+                    "-baseDir", new java.io.File(getSetting("dbServerDir")).getAbsolutePath(),
+                    "-ifNotExists"
+            ).start();
+            LOGGER.info("Database server listening at " + tcpServer.getURL());
+        }
+    }
+
+    public static synchronized void stopTcpServer() {
+        if (tcpServer != null) {
+            tcpServer.stop();
+            tcpServer = null;
+            LOGGER.info("Database server stopped");
         }
     }
 
@@ -124,44 +556,9 @@ public final class DatabaseConnection {
             LOGGER.info("H2 Console stopped");
         }
         if (connectionPool != null) {
-            connectionPool.shutdown();
+            try { connectionPool.close(); } catch (SQLException e) { LOGGER.log(Level.WARNING, "Failed to close connection pool", e); }
             connectionPool = null;
             LOGGER.info("Connection pool shutdown");
         }
     }
-
-    // Simple connection pool implementation
-    private static class ConnectionPool {
-        private final java.util.Queue<Connection> pool;
-        private final java.util.function.Supplier<Connection> connectionSupplier;
-        private final int maxSize;
-
-        public ConnectionPool(int maxSize, java.util.function.Supplier<Connection> connectionSupplier) {
-            this.pool = new java.util.ArrayDeque<>(maxSize);
-            this.connectionSupplier = connectionSupplier;
-            this.maxSize = maxSize;
-        }
-
-        public synchronized Connection getConnection() throws SQLException {
-            if (!pool.isEmpty()) {
-                return pool.poll();
-            }
-            return connectionSupplier.get();
-        }
-
-        public synchronized void releaseConnection(Connection conn) {
-            if (pool.size() < maxSize) {
-                pool.offer(conn);
-            } else {
-                try { conn.close(); } catch (SQLException e) { LOGGER.log(Level.WARNING, "Failed to close connection", e); }
-            }
-        }
-
-        public synchronized void shutdown() {
-            for (Connection conn : pool) {
-                try { conn.close(); } catch (SQLException e) { LOGGER.log(Level.WARNING, "Failed to close connection", e); }
-            }
-            pool.clear();
-        }
-    }
-}
\ No newline at end of file
+}
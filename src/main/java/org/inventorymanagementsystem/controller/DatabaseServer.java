@@ -0,0 +1,23 @@
+package org.inventorymanagementsystem.controller;
+
+import java.sql.SQLException;
+
+/**
+ * Runs only the shared database, so several API instances can serve the same data.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.controller.DatabaseServer
+ * java -Dinventory.url=jdbc:h2:tcp://localhost:9092/inventoryDB -Dinventory.apiPort=4567 -cp ... ...InventoryManagementSystem
+ * java -Dinventory.url=jdbc:h2:tcp://localhost:9092/inventoryDB -Dinventory.apiPort=4568 -cp ... ...InventoryManagementSystem
+ * </pre>
+ * The server only accepts connections from this host, so the instances run next to it.
+ * Instances coordinate only through the database: updates carry the row version and
+ * stock changes are retried when another instance got there first.
+ */
+public final class DatabaseServer {
+    private DatabaseServer() {}
+
+    public static void main(String[] args) throws SQLException {
+        DatabaseConnection.startTcpServer();
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseConnection::stopTcpServer));
+    }
+}
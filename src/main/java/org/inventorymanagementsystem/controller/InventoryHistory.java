@@ -0,0 +1,377 @@
+package org.inventorymanagementsystem.controller;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Point-in-time stock, from checkpoints over the movement log.
+ * <p>
+ * {@link StockMovementTrigger} writes every change to a product's stock or price to
+ * {@code inventory_log}, with the stock and price after it. A checkpoint in
+ * {@code inventory_checkpoints} holds every product's stock and price as of its
+ * {@code taken_at}; the stock at any later time is the checkpoint, overlaid with the last
+ * movement of each product from {@code taken_at} up to that time. So a historical query reads
+ * one checkpoint and the movements after it, never the whole log.
+ * <p>
+ * The opening checkpoint is copied from the products table when the trigger is installed. A
+ * background checkpointer then adds a checkpoint every {@code checkpointIntervalMinutes} once
+ * {@code checkpointMovements} movements have piled up since the last one. It builds the new
+ * checkpoint from the previous one and the log, a minute behind the clock, so movements of
+ * transactions still open have committed before their time is checkpointed.
+ */
+public final class InventoryHistory {
+    private static final Logger LOGGER = Logger.getLogger(InventoryHistory.class.getName());
+
+    private static final long INITIAL_DELAY_SECONDS = 60;
+    // Longest a write transaction is expected to stay open after its trigger fired
+    private static final long SETTLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String CREATE_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS products_stock_movements AFTER INSERT, UPDATE, DELETE ON products " +
+            "FOR EACH ROW CALL \"" + StockMovementTrigger.class.getName() + "\"";
+    private static final String SELECT_CHECKPOINT =
+            "SELECT id, taken_at FROM inventory_checkpoints WHERE taken_at <= ? ORDER BY taken_at DESC, id DESC LIMIT 1";
+    private static final String SELECT_FIRST_CHECKPOINT =
+            "SELECT MIN(taken_at) FROM inventory_checkpoints";
+    private static final String INSERT_CHECKPOINT =
+            "INSERT INTO inventory_checkpoints (taken_at, movements) VALUES (?, ?)";
+    private static final String COPY_PRODUCTS =
+            "INSERT INTO inventory_checkpoint_rows (checkpoint_id, product_id, quantity, price_cents) " +
+            "SELECT ?, id, stock_quantity, price_cents FROM products";
+    private static final String COUNT_MOVEMENTS =
+            "SELECT COUNT(*) FROM inventory_log WHERE timestamp >= ? AND timestamp < ? AND stock_after IS NOT NULL";
+
+    // Stock and price of every product as of the upper bound: the checkpoint rows of products
+    // that did not move since, plus the last movement of those that did, unless it deleted them.
+    // Parameters: checkpoint ID, then the checkpoint time and upper bound twice.
+    private static final String STOCK_AT =
+            "SELECT r.product_id, r.quantity, r.price_cents FROM inventory_checkpoint_rows r " +
+            "WHERE r.checkpoint_id = ? AND NOT EXISTS (SELECT 1 FROM inventory_log l " +
+            "WHERE l.product_id = r.product_id AND l.timestamp >= ? AND l.timestamp < ? AND l.stock_after IS NOT NULL) " +
+            "UNION ALL " +
+            "SELECT l.product_id, l.stock_after, l.price_cents FROM inventory_log l " +
+            "WHERE l.id IN (SELECT MAX(id) FROM inventory_log " +
+            "WHERE timestamp >= ? AND timestamp < ? AND stock_after IS NOT NULL GROUP BY product_id) " +
+            "AND l.operation <> '" + StockMovementTrigger.DELETE + "'";
+    private static final String TOTALS_AT =
+            "SELECT COUNT(*), COALESCE(SUM(s.price_cents * s.quantity), 0), " +
+            "COUNT(CASE WHEN s.quantity < ? THEN 1 END), COUNT(CASE WHEN s.quantity = 0 THEN 1 END) " +
+            "FROM (" + STOCK_AT + ") s(product_id, quantity, price_cents)";
+    private static final String COPY_STOCK_AT =
+            "INSERT INTO inventory_checkpoint_rows (checkpoint_id, product_id, quantity, price_cents) " +
+            "SELECT ?, s.product_id, s.quantity, s.price_cents FROM (" + STOCK_AT + ") s(product_id, quantity, price_cents)";
+
+    private static final String SELECT_PRODUCT_MOVEMENT =
+            "SELECT operation, stock_after, price_cents FROM inventory_log " +
+            "WHERE product_id = ? AND timestamp >= ? AND timestamp < ? AND stock_after IS NOT NULL " +
+            "ORDER BY id DESC LIMIT 1";
+    private static final String SELECT_PRODUCT_CHECKPOINT =
+            "SELECT quantity, price_cents FROM inventory_checkpoint_rows WHERE checkpoint_id = ? AND product_id = ?";
+
+    private static volatile ScheduledExecutorService scheduler;
+    private static volatile long lastRunMillis;
+    private static volatile String lastError;
+
+    private InventoryHistory() {}
+
+    /**
+     * Installs the movement trigger on the products table and takes the opening checkpoint
+     * if there is none. Called by {@link DatabaseConnection#initialize()} on the primary only;
+     * the reporting replica copies rows and must not record them as movements.
+     * @param conn Connection to the primary database
+     * @throws SQLException If database error occurs
+     */
+    static void install(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_TRIGGER);
+            try (ResultSet rs = stmt.executeQuery(SELECT_FIRST_CHECKPOINT)) {
+                if (rs.next() && rs.getTimestamp(1) != null) {
+                    return;
+                }
+            }
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            // Movements from this instant on overlay the copy; those already in it overlay it harmlessly
+            int id = insertCheckpoint(conn, new Timestamp(System.currentTimeMillis()), 0);
+            try (PreparedStatement stmt = conn.prepareStatement(COPY_PRODUCTS)) {
+                stmt.setInt(1, id);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+            LOGGER.info("Took the opening inventory checkpoint");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Schedules the checkpointer. The movement log and historical queries work without it,
+     * but get slower as movements pile up after the last checkpoint.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        long interval = Long.parseLong(DatabaseConnection.getSetting("checkpointIntervalMinutes"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "inventory-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(InventoryHistory::runSafely,
+                INITIAL_DELAY_SECONDS, TimeUnit.MINUTES.toSeconds(interval), TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Takes a checkpoint a minute behind the clock if at least {@code checkpointMovements}
+     * movements happened since the last one
+     * @param force Take it however few movements there were
+     * @return Whether a checkpoint was taken
+     * @throws SQLException If database error occurs
+     */
+    public static synchronized boolean runOnce(boolean force) throws SQLException {
+        long threshold = Long.parseLong(DatabaseConnection.getSetting("checkpointMovements"));
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - SETTLE_MILLIS);
+        boolean taken = false;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Checkpoint previous = checkpointAt(conn, cutoff);
+            if (previous != null) {
+                long movements;
+                try (PreparedStatement stmt = conn.prepareStatement(COUNT_MOVEMENTS)) {
+                    stmt.setTimestamp(1, previous.takenAt);
+                    stmt.setTimestamp(2, cutoff);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        movements = rs.getLong(1);
+                    }
+                }
+                if (movements > 0 && (force || movements >= threshold)) {
+                    takeCheckpoint(conn, previous, cutoff, movements);
+                    taken = true;
+                }
+            }
+        }
+        lastRunMillis = System.currentTimeMillis();
+        lastError = null;
+        return taken;
+    }
+
+    /**
+     * Stock totals over all products that existed at {@code asOf}, at the prices they had then
+     * @param lowStockThreshold Stock below which a product counts as low
+     * @throws IllegalArgumentException If {@code asOf} is before the opening checkpoint
+     * @throws SQLException If database error occurs
+     */
+    public static Totals totalsAt(Connection conn, Timestamp asOf, int lowStockThreshold) throws SQLException {
+        Checkpoint checkpoint = requireCheckpoint(conn, asOf);
+        try (PreparedStatement stmt = conn.prepareStatement(TOTALS_AT)) {
+            stmt.setInt(1, lowStockThreshold);
+            bindStockAt(stmt, 2, checkpoint, asOf);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new Totals(rs.getInt(1), rs.getLong(2), rs.getInt(3), rs.getInt(4));
+            }
+        }
+    }
+
+    /**
+     * @return Stock and price of the product at {@code asOf}, or null if it did not exist then
+     * @throws IllegalArgumentException If {@code asOf} is before the opening checkpoint
+     * @throws SQLException If database error occurs
+     */
+    public static ProductStock productAt(Connection conn, int productId, Timestamp asOf) throws SQLException {
+        Checkpoint checkpoint = requireCheckpoint(conn, asOf);
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_PRODUCT_MOVEMENT)) {
+            stmt.setInt(1, productId);
+            stmt.setTimestamp(2, checkpoint.takenAt);
+            stmt.setTimestamp(3, asOf);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return StockMovementTrigger.DELETE.equals(rs.getString(1)) ? null
+                            : new ProductStock(rs.getInt(2), rs.getLong(3));
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_PRODUCT_CHECKPOINT)) {
+            stmt.setInt(1, checkpoint.id);
+            stmt.setInt(2, productId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new ProductStock(rs.getInt(1), rs.getLong(2)) : null;
+            }
+        }
+    }
+
+    public static HistoryStatus getStatus() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MIN(taken_at), MAX(taken_at) FROM inventory_checkpoints")) {
+            rs.next();
+            Timestamp first = rs.getTimestamp(2);
+            Timestamp last = rs.getTimestamp(3);
+            return new HistoryStatus(scheduler != null, rs.getInt(1), first == null ? null : first.toString(),
+                    last == null ? null : last.toString(), lastRunMillis, lastError);
+        }
+    }
+
+    private static void runSafely() {
+        try {
+            runOnce(false);
+        } catch (SQLException | RuntimeException e) {
+            lastError = e.getMessage();
+            LOGGER.log(Level.WARNING, "Inventory checkpoint failed, retrying on the next run", e);
+        }
+    }
+
+    private static void takeCheckpoint(Connection conn, Checkpoint previous, Timestamp cutoff, long movements)
+            throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            int id = insertCheckpoint(conn, cutoff, movements);
+            try (PreparedStatement stmt = conn.prepareStatement(COPY_STOCK_AT)) {
+                stmt.setInt(1, id);
+                bindStockAt(stmt, 2, previous, cutoff);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+            LOGGER.info("Took an inventory checkpoint at " + cutoff + " over " + movements + " movements");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static int insertCheckpoint(Connection conn, Timestamp takenAt, long movements) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_CHECKPOINT, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setTimestamp(1, takenAt);
+            stmt.setLong(2, movements);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private static void bindStockAt(PreparedStatement stmt, int index, Checkpoint checkpoint, Timestamp asOf)
+            throws SQLException {
+        stmt.setInt(index, checkpoint.id);
+        stmt.setTimestamp(index + 1, checkpoint.takenAt);
+        stmt.setTimestamp(index + 2, asOf);
+        stmt.setTimestamp(index + 3, checkpoint.takenAt);
+        stmt.setTimestamp(index + 4, asOf);
+    }
+
+    private static Checkpoint requireCheckpoint(Connection conn, Timestamp asOf) throws SQLException {
+        Checkpoint checkpoint = checkpointAt(conn, asOf);
+        if (checkpoint != null) {
+            return checkpoint;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_FIRST_CHECKPOINT)) {
+            Timestamp first = rs.next() ? rs.getTimestamp(1) : null;
+            throw new IllegalArgumentException(first == null ? "Inventory history is not recorded"
+                    : "Inventory history starts at " + first);
+        }
+    }
+
+    private static Checkpoint checkpointAt(Connection conn, Timestamp asOf) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_CHECKPOINT)) {
+            stmt.setTimestamp(1, asOf);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new Checkpoint(rs.getInt(1), rs.getTimestamp(2)) : null;
+            }
+        }
+    }
+
+    private static final class Checkpoint {
+        private final int id;
+        private final Timestamp takenAt;
+
+        private Checkpoint(int id, Timestamp takenAt) {
+            this.id = id;
+            this.takenAt = takenAt;
+        }
+    }
+
+    public static final class Totals {
+        private final int products;
+        private final long valueCents;
+        private final int lowStock;
+        private final int outOfStock;
+
+        private Totals(int products, long valueCents, int lowStock, int outOfStock) {
+            this.products = products;
+            this.valueCents = valueCents;
+            this.lowStock = lowStock;
+            this.outOfStock = outOfStock;
+        }
+
+        public int getProducts() { return products; }
+        public long getValueCents() { return valueCents; }
+        public int getLowStock() { return lowStock; }
+        public int getOutOfStock() { return outOfStock; }
+    }
+
+    public static final class ProductStock {
+        private final int quantity;
+        private final long priceCents;
+
+        private ProductStock(int quantity, long priceCents) {
+            this.quantity = quantity;
+            this.priceCents = priceCents;
+        }
+
+        public int getQuantity() { return quantity; }
+        public long getPriceCents() { return priceCents; }
+    }
+
+    public static final class HistoryStatus {
+        private final boolean checkpointerRunning;
+        private final int checkpoints;
+        private final String firstCheckpoint;
+        private final String lastCheckpoint;
+        private final long lastRunMillis;
+        private final String lastError;
+
+        private HistoryStatus(boolean checkpointerRunning, int checkpoints, String firstCheckpoint,
+                              String lastCheckpoint, long lastRunMillis, String lastError) {
+            this.checkpointerRunning = checkpointerRunning;
+            this.checkpoints = checkpoints;
+            this.firstCheckpoint = firstCheckpoint;
+            this.lastCheckpoint = lastCheckpoint;
+            this.lastRunMillis = lastRunMillis;
+            this.lastError = lastError;
+        }
+
+        public boolean isCheckpointerRunning() { return checkpointerRunning; }
+        public int getCheckpoints() { return checkpoints; }
+        public String getFirstCheckpoint() { return firstCheckpoint; }
+        public String getLastCheckpoint() { return lastCheckpoint; }
+        public long getLastRunMillis() { return lastRunMillis; }
+        public String getLastError() { return lastError; }
+    }
+}
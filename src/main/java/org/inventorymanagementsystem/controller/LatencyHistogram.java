@@ -0,0 +1,91 @@
+package org.inventorymanagementsystem.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe latency histogram with log-linear buckets in microseconds.
+ * <p>
+ * By default values below 128 µs are counted exactly. Larger values are grouped by power of
+ * two and split into 64 linear sub-buckets, which keeps every recorded value within 2% of
+ * its true value up to more than a day, in a fixed 4 K-entry array. Fewer sub-bucket bits
+ * trade precision for a smaller array.
+ */
+public final class LatencyHistogram {
+    private static final int MAGNITUDES = 32;
+
+    private final int subBucketBits;
+    private final int subBuckets;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(7);
+    }
+
+    /**
+     * @param subBucketBits Precision: values are kept within 2<sup>1 - subBucketBits</sup> of their true value
+     */
+    public LatencyHistogram(int subBucketBits) {
+        this.subBucketBits = subBucketBits;
+        this.subBuckets = 1 << subBucketBits;
+        this.counts = new AtomicLongArray(MAGNITUDES * subBuckets);
+    }
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.incrementAndGet();
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket holding that percentile, in microseconds
+     */
+    public long percentileMicros(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    private int bucketOf(long value) {
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - subBucketBits + 1;
+        if (magnitude >= MAGNITUDES) {
+            return MAGNITUDES * subBuckets - 1;
+        }
+        int subBucket = (int) (value >>> magnitude) - subBuckets / 2;
+        return magnitude * subBuckets + subBuckets / 2 + subBucket;
+    }
+
+    private long upperBoundOf(int bucket) {
+        int magnitude = bucket / subBuckets;
+        if (magnitude == 0) {
+            return bucket;
+        }
+        long subBucket = bucket % subBuckets;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
@@ -0,0 +1,508 @@
+package org.inventorymanagementsystem.controller;
+
+import org.apache.commons.dbcp2.DelegatingConnection;
+import org.apache.commons.dbcp2.DelegatingPreparedStatement;
+import org.apache.commons.dbcp2.DelegatingStatement;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Optional profiler for the SQL the application runs, switched on with {@code queryProfiler}.
+ * <p>
+ * {@link DatabaseConnection} hands out connections wrapped by {@link #wrap} whose statements
+ * time each execution: the execute call itself, then the fetch, which runs until the
+ * statement executes again or is closed. Timings are grouped by the SQL text with literals
+ * and {@code IN} lists folded into placeholders, and served by {@link #getStatus}.
+ * <p>
+ * An execution slower than {@code slowQueryMs} is counted and logged with its H2 plan, at
+ * most once a minute per statement. The plan comes from {@code EXPLAIN ANALYZE} for plain
+ * queries and {@code EXPLAIN} for anything that writes, so nothing is written twice. It is
+ * taken on a background thread and another connection, so the slow request does not wait for
+ * it. Plans show parameters as {@code ?1}, {@code ?2}, never their values.
+ * <p>
+ * When the setting is off connections are not wrapped at all.
+ */
+public final class QueryProfiler {
+    private static final Logger LOGGER = Logger.getLogger(QueryProfiler.class.getName());
+
+    private static final boolean ENABLED = Boolean.parseBoolean(DatabaseConnection.getSetting("queryProfiler"));
+    private static final long SLOW_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.parseLong(DatabaseConnection.getSetting("slowQueryMs")));
+    private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // Caps memory if SQL is ever built with inlined values; later statements share one entry
+    private static final int MAX_STATEMENTS = 1000;
+    private static final int MAX_SQL_TEXTS = 10_000;
+    private static final String OTHER_STATEMENTS = "(other statements)";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern WRITES = Pattern.compile("(?i)\\b(?:FINAL|NEW|OLD)\\s+TABLE\\b|\\bFOR\\s+UPDATE\\b");
+
+    // Statistics by normalized SQL, and the same objects by the exact SQL text for a cheap lookup
+    private static final ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, StatementStats> bySqlText = new ConcurrentHashMap<>();
+
+    // Plans are best effort: while one is being taken, at most a few more wait and the rest are skipped
+    private static final ThreadPoolExecutor explainer = ENABLED ? new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> {
+                Thread thread = new Thread(runnable, "query-explainer");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy()) : null;
+
+    private QueryProfiler() {}
+
+    /** Opens an unprofiled connection to the same database, used to take plans */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @param conn Connection to profile; closing the result closes it
+     * @param plans Where plans of slow statements are taken
+     */
+    public static Connection wrap(Connection conn, ConnectionSource plans) {
+        return new ProfiledConnection(conn, plans);
+    }
+
+    /**
+     * @param sort {@code total} to rank statements by total time, {@code p99} by 99th percentile
+     * @param limit Most statements to return
+     */
+    public static ProfilerStatus getStatus(String sort, int limit) {
+        Comparator<StatementStatus> order = switch (sort) {
+            case "total" -> Comparator.comparingDouble(StatementStatus::getTotalMs);
+            case "p99" -> Comparator.comparingDouble(StatementStatus::getP99Ms);
+            default -> throw new IllegalArgumentException("sort must be total or p99, not " + sort);
+        };
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        List<StatementStatus> all = new ArrayList<>();
+        statements.forEach((sql, stats) -> all.add(stats.status(sql)));
+        all.sort(order.reversed());
+        return new ProfilerStatus(ENABLED, TimeUnit.NANOSECONDS.toMillis(SLOW_NANOS), all.size(),
+                all.subList(0, Math.min(limit, all.size())));
+    }
+
+    /**
+     * Folds literals and {@code IN} lists into placeholders and collapses whitespace, so the
+     * same statement with different values is counted once
+     */
+    static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("IN (?...)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private static StatementStats statsFor(String sql) {
+        StatementStats stats = bySqlText.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String normalized = normalize(sql);
+        stats = statements.get(normalized);
+        if (stats == null) {
+            String key = statements.size() < MAX_STATEMENTS ? normalized : OTHER_STATEMENTS;
+            stats = statements.computeIfAbsent(key, k -> new StatementStats());
+        }
+        if (bySqlText.size() < MAX_SQL_TEXTS) {
+            bySqlText.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    private static void record(String sql, long executeNanos, long fetchNanos, Object[] parameters,
+                               int parameterCount, ConnectionSource plans) {
+        StatementStats stats = statsFor(sql);
+        stats.record(executeNanos, fetchNanos);
+        if (executeNanos + fetchNanos >= SLOW_NANOS) {
+            stats.slow.increment();
+            long now = System.nanoTime();
+            long last = stats.lastExplainAt.get();
+            if ((last == 0 || now - last >= EXPLAIN_INTERVAL_NANOS) && stats.lastExplainAt.compareAndSet(last, now)) {
+                Object[] values = Arrays.copyOf(parameters, parameterCount);
+                explainer.execute(() -> explain(stats, sql, values, executeNanos, fetchNanos, plans));
+            }
+        }
+    }
+
+    private static void explain(StatementStats stats, String sql, Object[] parameters,
+                                long executeNanos, long fetchNanos, ConnectionSource plans) {
+        boolean analyze = isPlainQuery(sql);
+        String plan;
+        try (Connection conn = plans.open();
+             PreparedStatement stmt = conn.prepareStatement((analyze ? "EXPLAIN ANALYZE " : "EXPLAIN ") + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                stmt.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                plan = rs.next() ? rs.getString(1) : "";
+            }
+        } catch (SQLException e) {
+            plan = "(no plan: " + e.getMessage() + ")";
+        }
+        stats.lastPlan = plan;
+        LOGGER.warning(String.format(Locale.ROOT, "Slow statement took %.1f ms (execute %.1f ms, fetch %.1f ms): %s%n%s",
+                (executeNanos + fetchNanos) / 1e6, executeNanos / 1e6, fetchNanos / 1e6, normalize(sql), plan));
+    }
+
+    // EXPLAIN ANALYZE runs the statement, which is only harmless for queries that neither write nor lock
+    private static boolean isPlainQuery(String sql) {
+        String start = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return (start.startsWith("SELECT") || start.startsWith("WITH")) && !WRITES.matcher(sql).find();
+    }
+
+    private static final class StatementStats {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder executeNanos = new LongAdder();
+        private final LongAdder fetchNanos = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        // Four sub-bucket bits keep percentiles within 13% in a 4 KB array per statement
+        private final LatencyHistogram latency = new LatencyHistogram(4);
+        private final AtomicLong lastExplainAt = new AtomicLong();
+        private volatile String lastPlan;
+
+        private void record(long execute, long fetch) {
+            executions.increment();
+            totalNanos.add(execute + fetch);
+            executeNanos.add(execute);
+            fetchNanos.add(fetch);
+            latency.record(TimeUnit.NANOSECONDS.toMicros(execute + fetch));
+        }
+
+        private StatementStatus status(String sql) {
+            long count = executions.sum();
+            double total = totalNanos.sum() / 1e6;
+            return new StatementStatus(sql, count, total, count == 0 ? 0 : total / count,
+                    latency.percentileMicros(50) / 1e3, latency.percentileMicros(99) / 1e3,
+                    latency.getMaxMicros() / 1e3, executeNanos.sum() / 1e6, fetchNanos.sum() / 1e6,
+                    slow.sum(), lastPlan);
+        }
+    }
+
+    /**
+     * Timing of one statement's executions. An execution stays pending until the fetch ends,
+     * i.e. the statement runs again or is closed. Statements are used by one thread at a time.
+     */
+    private static final class Execution {
+        private static final Object[] NO_PARAMETERS = {};
+
+        private final ConnectionSource plans;
+        private String sql;
+        private Object[] parameters = NO_PARAMETERS;
+        private int parameterCount;
+        private boolean pending;
+        private long startedAt;
+        private long executeNanos;
+
+        private Execution(String sql, ConnectionSource plans) {
+            this.sql = sql;
+            this.plans = plans;
+        }
+
+        private long start(String executed) {
+            finish();
+            sql = executed;
+            return System.nanoTime();
+        }
+
+        private void executed(long started) {
+            executeNanos = System.nanoTime() - started;
+            startedAt = started;
+            pending = true;
+        }
+
+        private void finish() {
+            if (pending) {
+                pending = false;
+                record(sql, executeNanos, System.nanoTime() - startedAt - executeNanos, parameters, parameterCount, plans);
+            }
+        }
+
+        private void parameter(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, 2 * parameters.length));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+    }
+
+    private static final class ProfiledConnection extends DelegatingConnection<Connection> {
+        private final ConnectionSource plans;
+
+        private ProfiledConnection(Connection conn, ConnectionSource plans) {
+            super(conn);
+            this.plans = plans;
+        }
+
+        @Override
+        public Statement createStatement() throws SQLException {
+            checkOpen();
+            return new ProfiledStatement(this, getDelegate().createStatement(), plans);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            checkOpen();
+            return new ProfiledPreparedStatement(this, getDelegate().prepareStatement(sql), sql, plans);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+            checkOpen();
+            return new ProfiledPreparedStatement(this, getDelegate().prepareStatement(sql, autoGeneratedKeys), sql, plans);
+        }
+    }
+
+    private static final class ProfiledStatement extends DelegatingStatement {
+        private final Execution execution;
+
+        private ProfiledStatement(DelegatingConnection<?> conn, Statement stmt, ConnectionSource plans) {
+            super(conn, stmt);
+            this.execution = new Execution(null, plans);
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            long started = execution.start(sql);
+            try {
+                return super.executeQuery(sql);
+            } finally {
+                execution.executed(started);
+            }
+        }
+
+        @Override
+        public boolean execute(String sql) throws SQLException {
+            long started = execution.start(sql);
+            try {
+                return super.execute(sql);
+            } finally {
+                execution.executed(started);
+            }
+        }
+
+        @Override
+        public int executeUpdate(String sql) throws SQLException {
+            long started = execution.start(sql);
+            try {
+                return super.executeUpdate(sql);
+            } finally {
+                execution.executed(started);
+                execution.finish();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            execution.finish();
+            super.close();
+        }
+    }
+
+    private static final class ProfiledPreparedStatement extends DelegatingPreparedStatement {
+        private final Execution execution;
+
+        private ProfiledPreparedStatement(DelegatingConnection<?> conn, PreparedStatement stmt, String sql,
+                                          ConnectionSource plans) {
+            super(conn, stmt);
+            this.execution = new Execution(sql, plans);
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            long started = execution.start(execution.sql);
+            try {
+                return super.executeQuery();
+            } finally {
+                execution.executed(started);
+            }
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            long started = execution.start(execution.sql);
+            try {
+                return super.execute();
+            } finally {
+                execution.executed(started);
+            }
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            long started = execution.start(execution.sql);
+            try {
+                return super.executeUpdate();
+            } finally {
+                execution.executed(started);
+                execution.finish();
+            }
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            long started = execution.start(execution.sql);
+            try {
+                return super.executeBatch();
+            } finally {
+                execution.executed(started);
+                execution.finish();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            execution.finish();
+            super.close();
+        }
+
+        // Parameters are kept only to take the plan of a slow execution with the same values
+
+        @Override
+        public void setNull(int index, int sqlType) throws SQLException {
+            super.setNull(index, sqlType);
+            execution.parameter(index, null);
+        }
+
+        @Override
+        public void setBoolean(int index, boolean value) throws SQLException {
+            super.setBoolean(index, value);
+            execution.parameter(index, value);
+        }
+
+        @Override
+        public void setInt(int index, int value) throws SQLException {
+            super.setInt(index, value);
+            execution.parameter(index, value);
+        }
+
+        @Override
+        public void setLong(int index, long value) throws SQLException {
+            super.setLong(index, value);
+            execution.parameter(index, value);
+        }
+
+        @Override
+        public void setDouble(int index, double value) throws SQLException {
+            super.setDouble(index, value);
+            execution.parameter(index, value);
+        }
+
+        @Override
+        public void setBigDecimal(int index, BigDecimal value) throws SQLException {
+            super.setBigDecimal(index, value);
+            execution.parameter(index, value);
+        }
+
+        @Override
+        public void setString(int index, String value) throws SQLException {
+            super.setString(index, value);
+            execution.parameter(index, value);
+        }
+
+        @Override
+        public void setTimestamp(int index, Timestamp value) throws SQLException {
+            super.setTimestamp(index, value);
+            execution.parameter(index, value);
+        }
+
+        @Override
+        public void setObject(int index, Object value) throws SQLException {
+            super.setObject(index, value);
+            execution.parameter(index, value);
+        }
+    }
+
+    public static final class ProfilerStatus {
+        private final boolean enabled;
+        private final long slowQueryMs;
+        private final int statementCount;
+        private final List<StatementStatus> statements;
+
+        private ProfilerStatus(boolean enabled, long slowQueryMs, int statementCount, List<StatementStatus> statements) {
+            this.enabled = enabled;
+            this.slowQueryMs = slowQueryMs;
+            this.statementCount = statementCount;
+            this.statements = statements;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public long getSlowQueryMs() { return slowQueryMs; }
+        public int getStatementCount() { return statementCount; }
+        public List<StatementStatus> getStatements() { return statements; }
+    }
+
+    public static final class StatementStatus {
+        private final String sql;
+        private final long executions;
+        private final double totalMs;
+        private final double meanMs;
+        private final double p50Ms;
+        private final double p99Ms;
+        private final double maxMs;
+        private final double executeMs;
+        private final double fetchMs;
+        private final long slowExecutions;
+        private final String lastPlan;
+
+        private StatementStatus(String sql, long executions, double totalMs, double meanMs, double p50Ms,
+                                double p99Ms, double maxMs, double executeMs, double fetchMs,
+                                long slowExecutions, String lastPlan) {
+            this.sql = sql;
+            this.executions = executions;
+            this.totalMs = totalMs;
+            this.meanMs = meanMs;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+            this.executeMs = executeMs;
+            this.fetchMs = fetchMs;
+            this.slowExecutions = slowExecutions;
+            this.lastPlan = lastPlan;
+        }
+
+        public String getSql() { return sql; }
+        public long getExecutions() { return executions; }
+        public double getTotalMs() { return totalMs; }
+        public double getMeanMs() { return meanMs; }
+        public double getP50Ms() { return p50Ms; }
+        public double getP99Ms() { return p99Ms; }
+        public double getMaxMs() { return maxMs; }
+        public double getExecuteMs() { return executeMs; }
+        public double getFetchMs() { return fetchMs; }
+        public long getSlowExecutions() { return slowExecutions; }
+        public String getLastPlan() { return lastPlan; }
+    }
+}
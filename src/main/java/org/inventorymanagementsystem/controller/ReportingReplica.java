@@ -0,0 +1,351 @@
+package org.inventorymanagementsystem.controller;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only copy of the suppliers, products and sales tables used for listings and reports.
+ * <p>
+ * The replica is an H2 in-memory database seeded from the primary at startup. Write methods
+ * publish a change event for every row they touch; a background applier re-reads those rows
+ * from the primary and merges them into the replica, so events can be applied in any order.
+ * Reads fall back to the primary whenever the replica lags more than {@code replicaMaxLagMs}.
+ */
+public final class ReportingReplica {
+    private static final Logger LOGGER = Logger.getLogger(ReportingReplica.class.getName());
+
+    private static final int QUEUE_CAPACITY = 100_000;
+    private static final int APPLY_BATCH_SIZE = 500;
+
+    /** Tables copied to the replica, in the order they are seeded. */
+    public enum Table {
+        SUPPLIERS("suppliers"),
+        PRODUCTS("products"),
+        SALES("sales");
+
+        private final String tableName;
+
+        Table(String tableName) {
+            this.tableName = tableName;
+        }
+    }
+
+    private static final BlockingQueue<ChangeEvent> changes = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong publishedSeq = new AtomicLong();
+    private static final AtomicLong appliedSeq = new AtomicLong();
+    // Held while a change takes its sequence number and joins the queue, so the queue stays in
+    // sequence order and the last change of an applied batch has every earlier one behind it
+    private static final Object publishLock = new Object();
+
+    private static volatile boolean enabled;
+    private static volatile boolean seeded;
+    private static volatile boolean resyncRequired;
+    private static volatile long lastSeedMillis;
+    private static volatile long maxLagMillis;
+    private static volatile Thread applier;
+    // Publish time of the oldest change in the batch being applied, or 0 when none is
+    private static volatile long applyingSinceNanos;
+
+    private ReportingReplica() {}
+
+    /**
+     * Seeds the replica and starts the change applier if reporting mode is enabled.
+     * Does nothing when {@code inventory.reportingReplica} is false.
+     */
+    public static synchronized void start() {
+        if (applier != null || !Boolean.parseBoolean(DatabaseConnection.getSetting("reportingReplica"))) {
+            return;
+        }
+        maxLagMillis = Long.parseLong(DatabaseConnection.getSetting("replicaMaxLagMs"));
+        enabled = true;
+        try (Connection replica = getConnection()) {
+            DatabaseConnection.createSchema(replica);
+            // Rows arrive in whatever order the applier sees them, so a SKU moved from one
+            // product to another may briefly be on both
+            try (Statement stmt = replica.createStatement()) {
+                stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                stmt.execute("DROP INDEX IF EXISTS idx_products_sku");
+            }
+            seed(replica);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Reporting replica seed failed, reads stay on the primary", e);
+            resyncRequired = true;
+        }
+
+        applier = new Thread(ReportingReplica::applyLoop, "reporting-replica-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    public static synchronized void stop() {
+        if (applier != null) {
+            applier.interrupt();
+            applier = null;
+        }
+        enabled = false;
+        seeded = false;
+    }
+
+    /**
+     * Records that a row changed on the primary. Must be called after the change is committed.
+     * @param table Table the row belongs to
+     * @param id Primary key of the row
+     */
+    public static void publish(Table table, int id) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (publishLock) {
+            ChangeEvent event = new ChangeEvent(table, id, publishedSeq.incrementAndGet(), System.nanoTime());
+            if (!changes.offer(event)) {
+                // The applier fell too far behind; rebuild from scratch instead of blocking writers
+                resyncRequired = true;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the replica from scratch on the applier thread. Used after bulk changes that
+     * were not published row by row.
+     */
+    public static void requestResync() {
+        if (enabled) {
+            resyncRequired = true;
+        }
+    }
+
+    /**
+     * @return true if read queries may be sent to the replica right now
+     */
+    public static boolean isServingReads() {
+        return enabled && seeded && !resyncRequired && getLagMillis() <= maxLagMillis;
+    }
+
+    /**
+     * @return Age of the oldest change not yet applied, whether queued or in the batch being
+     *         applied, or 0 when the replica is current
+     */
+    public static long getLagMillis() {
+        // The batch is read first: a change leaves the queue before the batch is marked done
+        long applying = applyingSinceNanos;
+        ChangeEvent queued = changes.peek();
+        long oldest = applying != 0 ? applying : queued == null ? 0 : queued.publishedNanos;
+        return oldest == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+    }
+
+    /**
+     * @return Sequence number of the last change published by a write method
+     */
+    public static long getPublishedSeq() {
+        return publishedSeq.get();
+    }
+
+    public static ReplicaStatus getStatus() {
+        return new ReplicaStatus(enabled, isServingReads(), getLagMillis(), changes.size(),
+                publishedSeq.get(), appliedSeq.get(), lastSeedMillis);
+    }
+
+    static Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(DatabaseConnection.getSetting("replicaUrl"), "sa", "");
+    }
+
+    private static void applyLoop() {
+        List<ChangeEvent> batch = new ArrayList<>(APPLY_BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (resyncRequired) {
+                    resync();
+                    continue;
+                }
+                ChangeEvent first = changes.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                applyingSinceNanos = first.publishedNanos;
+                batch.add(first);
+                changes.drainTo(batch, APPLY_BATCH_SIZE - 1);
+                apply(batch);
+                appliedSeq.set(batch.get(batch.size() - 1).seq);
+                applyingSinceNanos = 0;
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to apply changes to reporting replica, resyncing", e);
+                applyingSinceNanos = 0;
+                batch.clear();
+                resyncRequired = true;
+            }
+        }
+    }
+
+    private static void apply(List<ChangeEvent> batch) throws SQLException {
+        // Several events for the same row collapse into one re-read
+        Set<ChangeEvent> distinct = new LinkedHashSet<>(batch);
+        try (Connection primary = DatabaseConnection.getConnection();
+             Connection replica = getConnection()) {
+            replica.setAutoCommit(false);
+            for (ChangeEvent event : distinct) {
+                copyRow(primary, replica, event.table, event.id);
+            }
+            replica.commit();
+        }
+    }
+
+    private static void resync() throws InterruptedException {
+        try (Connection replica = getConnection()) {
+            changes.clear();
+            resyncRequired = false;
+            seed(replica);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Reporting replica resync failed, retrying", e);
+            resyncRequired = true;
+            Thread.sleep(1000);
+        }
+    }
+
+    private static void seed(Connection replica) throws SQLException {
+        long started = System.currentTimeMillis();
+        long seqAtStart = publishedSeq.get();
+        replica.setAutoCommit(false);
+        try (Connection primary = DatabaseConnection.getConnection()) {
+            for (Table table : Table.values()) {
+                try (Statement stmt = replica.createStatement()) {
+                    stmt.execute("DELETE FROM " + table.tableName);
+                }
+                try (Statement stmt = primary.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT * FROM " + table.tableName)) {
+                    try (PreparedStatement merge = replica.prepareStatement(mergeSql(table, rs.getMetaData()))) {
+                        int columns = rs.getMetaData().getColumnCount();
+                        int pending = 0;
+                        while (rs.next()) {
+                            for (int i = 1; i <= columns; i++) {
+                                merge.setObject(i, rs.getObject(i));
+                            }
+                            merge.addBatch();
+                            if (++pending == APPLY_BATCH_SIZE) {
+                                merge.executeBatch();
+                                pending = 0;
+                            }
+                        }
+                        if (pending > 0) {
+                            merge.executeBatch();
+                        }
+                    }
+                }
+            }
+            replica.commit();
+        } catch (SQLException e) {
+            replica.rollback();
+            throw e;
+        } finally {
+            replica.setAutoCommit(true);
+        }
+        appliedSeq.set(seqAtStart);
+        lastSeedMillis = System.currentTimeMillis();
+        seeded = true;
+        LOGGER.info("Reporting replica seeded in " + (lastSeedMillis - started) + " ms");
+    }
+
+    private static void copyRow(Connection primary, Connection replica, Table table, int id) throws SQLException {
+        try (PreparedStatement select = primary.prepareStatement("SELECT * FROM " + table.tableName + " WHERE id = ?")) {
+            select.setInt(1, id);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    try (PreparedStatement merge = replica.prepareStatement(mergeSql(table, meta))) {
+                        for (int i = 1; i <= meta.getColumnCount(); i++) {
+                            merge.setObject(i, rs.getObject(i));
+                        }
+                        merge.executeUpdate();
+                    }
+                } else {
+                    try (PreparedStatement delete = replica.prepareStatement("DELETE FROM " + table.tableName + " WHERE id = ?")) {
+                        delete.setInt(1, id);
+                        delete.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+
+    private static String mergeSql(Table table, ResultSetMetaData meta) throws SQLException {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (i > 1) {
+                columns.append(", ");
+                placeholders.append(", ");
+            }
+            columns.append(meta.getColumnName(i));
+            placeholders.append('?');
+        }
+        return "MERGE INTO " + table.tableName + " (" + columns + ") KEY(id) VALUES (" + placeholders + ")";
+    }
+
+    private static final class ChangeEvent {
+        private final Table table;
+        private final int id;
+        private final long seq;
+        private final long publishedNanos;
+
+        private ChangeEvent(Table table, int id, long seq, long publishedNanos) {
+            this.table = table;
+            this.id = id;
+            this.seq = seq;
+            this.publishedNanos = publishedNanos;
+        }
+
+        // Equality ignores seq so duplicate events for one row collapse in a batch
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChangeEvent)) return false;
+            ChangeEvent other = (ChangeEvent) o;
+            return table == other.table && id == other.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * table.hashCode() + id;
+        }
+    }
+
+    public static final class ReplicaStatus {
+        private final boolean enabled;
+        private final boolean servingReads;
+        private final long lagMillis;
+        private final int pendingChanges;
+        private final long publishedSeq;
+        private final long appliedSeq;
+        private final long lastSeedMillis;
+
+        private ReplicaStatus(boolean enabled, boolean servingReads, long lagMillis, int pendingChanges,
+                              long publishedSeq, long appliedSeq, long lastSeedMillis) {
+            this.enabled = enabled;
+            this.servingReads = servingReads;
+            this.lagMillis = lagMillis;
+            this.pendingChanges = pendingChanges;
+            this.publishedSeq = publishedSeq;
+            this.appliedSeq = appliedSeq;
+            this.lastSeedMillis = lastSeedMillis;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public boolean isServingReads() { return servingReads; }
+        public long getLagMillis() { return lagMillis; }
+        public int getPendingChanges() { return pendingChanges; }
+        public long getPublishedSeq() { return publishedSeq; }
+        public long getAppliedSeq() { return appliedSeq; }
+        public long getLastSeedMillis() { return lastSeedMillis; }
+    }
+}
@@ -0,0 +1,445 @@
+package org.inventorymanagementsystem.controller;
+
+import org.inventorymanagementsystem.model.Money;
+import org.inventorymanagementsystem.model.Sale;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Month partitions of the sales history.
+ * <p>
+ * Sales are partitioned by the calendar month of {@code sale_date}. The current month and the
+ * {@code salesHotMonths - 1} months before it stay in the sales table. A background archiver
+ * moves each older, closed month into an immutable gzip segment file under {@code archiveDir}
+ * and records its totals, plus per-product totals, in {@code sales_archive} and
+ * {@code sales_archive_products}. Queries are pruned by month: months wholly inside a report
+ * range are answered from the summaries, partly covered months are read from their segment,
+ * and the sales table is only queried from {@link #getHotStart()} on.
+ */
+public final class SalesArchive {
+    private static final Logger LOGGER = Logger.getLogger(SalesArchive.class.getName());
+
+    // Gives startup and warm-up time to finish before the first run
+    private static final long INITIAL_DELAY_SECONDS = 30;
+
+    private static final String SELECT_OLDEST =
+            "SELECT MIN(sale_date) FROM sales WHERE sale_date < ?";
+    private static final String SELECT_MONTH =
+            "SELECT id, product_id, quantity_sold, unit_price_cents, sale_date FROM sales " +
+            "WHERE sale_date >= ? AND sale_date < ? ORDER BY id";
+    private static final String DELETE_MONTH =
+            "DELETE FROM sales WHERE sale_date >= ? AND sale_date < ? AND id <= ?";
+    private static final String INSERT_SEGMENT =
+            "INSERT INTO sales_archive (segment, sale_month, sale_count, units, revenue_cents, min_id, max_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO sales_archive_products (segment, product_id, sale_count, units, revenue_cents) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_SEGMENTS =
+            "SELECT segment, sale_month, sale_count, units, revenue_cents, min_id, max_id FROM sales_archive " +
+            "ORDER BY sale_month, segment";
+    private static final String SELECT_PRODUCT_UNITS =
+            "SELECT product_id, SUM(units) FROM sales_archive_products WHERE segment = ANY(?) GROUP BY product_id";
+
+    private static volatile List<Segment> segments = Collections.emptyList();
+    private static volatile ScheduledExecutorService scheduler;
+    private static volatile long lastRunMillis;
+    private static volatile String lastError;
+
+    private SalesArchive() {}
+
+    /**
+     * Loads the segment list and schedules the archiver. Does nothing when
+     * {@code inventory.salesArchive} is false, but archived segments stay readable.
+     * @throws SQLException If database error occurs
+     */
+    public static synchronized void start() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            loadSegments(conn);
+        }
+        if (scheduler != null || !Boolean.parseBoolean(DatabaseConnection.getSetting("salesArchive"))) {
+            return;
+        }
+        long interval = Long.parseLong(DatabaseConnection.getSetting("archiveIntervalMinutes"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sales-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(SalesArchive::runSafely,
+                INITIAL_DELAY_SECONDS, TimeUnit.MINUTES.toSeconds(interval), TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Archives every closed month older than the hot months
+     * @return Number of sales moved out of the sales table
+     * @throws SQLException If database error occurs or a segment cannot be written
+     */
+    public static synchronized int runOnce() throws SQLException {
+        int hotMonths = Math.max(1, Integer.parseInt(DatabaseConnection.getSetting("salesHotMonths")));
+        Timestamp cutoff = startOf(YearMonth.now().minusMonths(hotMonths - 1));
+        int archived = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            while (true) {
+                Timestamp oldest;
+                try (PreparedStatement stmt = conn.prepareStatement(SELECT_OLDEST)) {
+                    stmt.setTimestamp(1, cutoff);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        oldest = rs.next() ? rs.getTimestamp(1) : null;
+                    }
+                }
+                if (oldest == null) {
+                    break;
+                }
+                archived += archiveMonth(conn, YearMonth.from(oldest.toLocalDateTime()));
+            }
+        }
+        lastRunMillis = System.currentTimeMillis();
+        lastError = null;
+        if (archived > 0) {
+            // The replica copies sales by ID and never hears about the deleted rows
+            ReportingReplica.requestResync();
+        }
+        return archived;
+    }
+
+    /**
+     * @return Start of the oldest month still in the sales table, or null if nothing is archived
+     */
+    public static Timestamp getHotStart() {
+        List<Segment> current = segments;
+        return current.isEmpty() ? null : startOf(current.get(current.size() - 1).month.plusMonths(1));
+    }
+
+    /**
+     * Totals of archived sales with {@code from <= sale_date < toExclusive}
+     * @param from Lower bound, or null for none
+     * @param toExclusive Upper bound, or null for none
+     * @throws SQLException If database error occurs or a segment cannot be read
+     */
+    public static ArchiveTotals summarize(Timestamp from, Timestamp toExclusive) throws SQLException {
+        ArchiveTotals totals = new ArchiveTotals();
+        List<String> wholeSegments = new ArrayList<>();
+        for (Segment segment : overlapping(from, toExclusive)) {
+            if (segment.coveredBy(from, toExclusive)) {
+                totals.add(segment.saleCount, segment.units, segment.revenueCents);
+                wholeSegments.add(segment.name);
+            } else {
+                scan(segment, sale -> {
+                    if (inRange(sale.getSaleDate(), from, toExclusive)) {
+                        totals.add(sale);
+                    }
+                });
+            }
+        }
+        if (!wholeSegments.isEmpty()) {
+            // Summaries live on the primary only; the connection passed to reports may be the replica
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SELECT_PRODUCT_UNITS)) {
+                stmt.setObject(1, wholeSegments.toArray(new String[0]));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        totals.unitsByProduct.merge(rs.getInt(1), rs.getLong(2), Long::sum);
+                    }
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Archived sales with {@code from <= sale_date < toExclusive}, newest first, without product names
+     * @throws SQLException If a segment cannot be read
+     */
+    public static List<Sale> findSales(Timestamp from, Timestamp toExclusive) throws SQLException {
+        List<Sale> sales = new ArrayList<>();
+        for (Segment segment : overlapping(from, toExclusive)) {
+            scan(segment, sale -> {
+                if (inRange(sale.getSaleDate(), from, toExclusive)) {
+                    sales.add(sale);
+                }
+            });
+        }
+        sales.sort(Comparator.comparing(Sale::getSaleDate).thenComparing(Sale::getId).reversed());
+        return sales;
+    }
+
+    /**
+     * @return The archived sale, or null if no segment holds this ID
+     * @throws SQLException If a segment cannot be read
+     */
+    public static Sale findSale(int id) throws SQLException {
+        Sale[] found = new Sale[1];
+        for (Segment segment : segments) {
+            if (id >= segment.minId && id <= segment.maxId) {
+                scan(segment, sale -> {
+                    if (sale.getId() == id) {
+                        found[0] = sale;
+                    }
+                });
+                if (found[0] != null) {
+                    return found[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    public static ArchiveStatus getStatus() {
+        List<Segment> current = segments;
+        long archivedSales = current.stream().mapToLong(segment -> segment.saleCount).sum();
+        Timestamp hotStart = getHotStart();
+        return new ArchiveStatus(scheduler != null, current.size(), archivedSales,
+                hotStart == null ? null : hotStart.toString(), lastRunMillis, lastError);
+    }
+
+    private static void runSafely() {
+        try {
+            int archived = runOnce();
+            if (archived > 0) {
+                LOGGER.info("Archived " + archived + " sales");
+            }
+        } catch (SQLException | RuntimeException e) {
+            lastError = e.getMessage();
+            LOGGER.log(Level.WARNING, "Sales archiving failed, retrying on the next run", e);
+        }
+    }
+
+    private static int archiveMonth(Connection conn, YearMonth month) throws SQLException {
+        Timestamp start = startOf(month);
+        Timestamp end = startOf(month.plusMonths(1));
+        // Sales back-dated into an archived month after it was archived get a further segment
+        long existing = segments.stream().filter(segment -> segment.month.equals(month)).count();
+        String name = "sales-" + month + "-" + (existing + 1) + ".seg";
+        Path file = archiveDir().resolve(name);
+
+        Map<Integer, long[]> byProduct = new HashMap<>();
+        ArchiveTotals totals = new ArchiveTotals();
+        int[] idRange = {Integer.MAX_VALUE, 0};
+        conn.setAutoCommit(false);
+        try (SalesSegment.Writer writer = new SalesSegment.Writer(file, month.toString())) {
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_MONTH)) {
+                stmt.setTimestamp(1, start);
+                stmt.setTimestamp(2, end);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Sale sale = new Sale(rs.getInt(1), rs.getInt(2), null, rs.getInt(3), rs.getLong(4),
+                                rs.getTimestamp(5));
+                        writer.append(sale);
+                        totals.add(sale);
+                        long[] product = byProduct.computeIfAbsent(sale.getProductId(), id -> new long[3]);
+                        product[0]++;
+                        product[1] += sale.getQuantitySold();
+                        product[2] = Money.add(product[2], Money.times(sale.getUnitPriceCents(), sale.getQuantitySold()));
+                        idRange[0] = Math.min(idRange[0], sale.getId());
+                        idRange[1] = Math.max(idRange[1], sale.getId());
+                    }
+                }
+            }
+            writer.commit();
+
+            try {
+                insertSummary(conn, name, month, totals, idRange, byProduct);
+                int deleted;
+                try (PreparedStatement stmt = conn.prepareStatement(DELETE_MONTH)) {
+                    stmt.setTimestamp(1, start);
+                    stmt.setTimestamp(2, end);
+                    stmt.setInt(3, idRange[1]);
+                    deleted = stmt.executeUpdate();
+                }
+                if (deleted != totals.saleCount) {
+                    throw new SQLException("Sales for " + month + " changed while archiving (" + deleted +
+                            " rows to delete, " + totals.saleCount + " archived)");
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } catch (IOException e) {
+            conn.rollback();
+            throw new SQLException("Cannot write sales segment " + file, e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.add(new Segment(name, month, totals.saleCount, totals.units, totals.revenueCents, idRange[0], idRange[1]));
+        updated.sort(Comparator.comparing((Segment segment) -> segment.month).thenComparing(segment -> segment.name));
+        segments = Collections.unmodifiableList(updated);
+        LOGGER.info("Archived " + totals.saleCount + " sales from " + month + " to " + file);
+        return (int) totals.saleCount;
+    }
+
+    private static void insertSummary(Connection conn, String name, YearMonth month, ArchiveTotals totals,
+                                      int[] idRange, Map<Integer, long[]> byProduct) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SEGMENT)) {
+            stmt.setString(1, name);
+            stmt.setString(2, month.toString());
+            stmt.setLong(3, totals.saleCount);
+            stmt.setLong(4, totals.units);
+            stmt.setLong(5, totals.revenueCents);
+            stmt.setInt(6, idRange[0]);
+            stmt.setInt(7, idRange[1]);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_PRODUCT)) {
+            for (Map.Entry<Integer, long[]> entry : byProduct.entrySet()) {
+                stmt.setString(1, name);
+                stmt.setInt(2, entry.getKey());
+                stmt.setLong(3, entry.getValue()[0]);
+                stmt.setLong(4, entry.getValue()[1]);
+                stmt.setLong(5, entry.getValue()[2]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void loadSegments(Connection conn) throws SQLException {
+        List<Segment> loaded = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_SEGMENTS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                loaded.add(new Segment(rs.getString(1), YearMonth.parse(rs.getString(2)), rs.getLong(3),
+                        rs.getLong(4), rs.getLong(5), rs.getInt(6), rs.getInt(7)));
+            }
+        }
+        segments = Collections.unmodifiableList(loaded);
+    }
+
+    private static List<Segment> overlapping(Timestamp from, Timestamp toExclusive) {
+        List<Segment> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            if ((from == null || from.before(startOf(segment.month.plusMonths(1))))
+                    && (toExclusive == null || toExclusive.after(startOf(segment.month)))) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+    private static void scan(Segment segment, SalesSegment.SaleConsumer consumer) throws SQLException {
+        Path file = archiveDir().resolve(segment.name);
+        try {
+            SalesSegment.read(file, consumer);
+        } catch (IOException e) {
+            throw new SQLException("Cannot read sales segment " + file, e);
+        }
+    }
+
+    private static boolean inRange(Timestamp date, Timestamp from, Timestamp toExclusive) {
+        return (from == null || !date.before(from)) && (toExclusive == null || date.before(toExclusive));
+    }
+
+    private static Timestamp startOf(YearMonth month) {
+        return Timestamp.valueOf(month.atDay(1).atStartOfDay());
+    }
+
+    private static Path archiveDir() {
+        return Path.of(DatabaseConnection.getSetting("archiveDir"));
+    }
+
+    private static final class Segment {
+        private final String name;
+        private final YearMonth month;
+        private final long saleCount;
+        private final long units;
+        private final long revenueCents;
+        private final int minId;
+        private final int maxId;
+
+        private Segment(String name, YearMonth month, long saleCount, long units, long revenueCents,
+                        int minId, int maxId) {
+            this.name = name;
+            this.month = month;
+            this.saleCount = saleCount;
+            this.units = units;
+            this.revenueCents = revenueCents;
+            this.minId = minId;
+            this.maxId = maxId;
+        }
+
+        private boolean coveredBy(Timestamp from, Timestamp toExclusive) {
+            return (from == null || !from.after(startOf(month)))
+                    && (toExclusive == null || !toExclusive.before(startOf(month.plusMonths(1))));
+        }
+    }
+
+    /** Sale count, units and revenue of archived sales, with units per product */
+    public static final class ArchiveTotals {
+        private long saleCount;
+        private long units;
+        private long revenueCents;
+        private final Map<Integer, Long> unitsByProduct = new HashMap<>();
+
+        private void add(long saleCount, long units, long revenueCents) {
+            this.saleCount += saleCount;
+            this.units += units;
+            this.revenueCents = Money.add(this.revenueCents, revenueCents);
+        }
+
+        private void add(Sale sale) {
+            add(1, sale.getQuantitySold(), Money.times(sale.getUnitPriceCents(), sale.getQuantitySold()));
+            unitsByProduct.merge(sale.getProductId(), (long) sale.getQuantitySold(), Long::sum);
+        }
+
+        public long getSaleCount() { return saleCount; }
+        public long getUnits() { return units; }
+        public long getRevenueCents() { return revenueCents; }
+        public Map<Integer, Long> getUnitsByProduct() { return unitsByProduct; }
+    }
+
+    public static final class ArchiveStatus {
+        private final boolean archiverRunning;
+        private final int segments;
+        private final long archivedSales;
+        private final String hotFrom;
+        private final long lastRunMillis;
+        private final String lastError;
+
+        private ArchiveStatus(boolean archiverRunning, int segments, long archivedSales, String hotFrom,
+                              long lastRunMillis, String lastError) {
+            this.archiverRunning = archiverRunning;
+            this.segments = segments;
+            this.archivedSales = archivedSales;
+            this.hotFrom = hotFrom;
+            this.lastRunMillis = lastRunMillis;
+            this.lastError = lastError;
+        }
+
+        public boolean isArchiverRunning() { return archiverRunning; }
+        public int getSegments() { return segments; }
+        public long getArchivedSales() { return archivedSales; }
+        public String getHotFrom() { return hotFrom; }
+        public long getLastRunMillis() { return lastRunMillis; }
+        public String getLastError() { return lastError; }
+    }
+}
@@ -0,0 +1,144 @@
+package org.inventorymanagementsystem.controller;
+
+import org.inventorymanagementsystem.model.Sale;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, gzip-compressed file holding the sales of one archived month.
+ * <p>
+ * Inside the gzip stream: a header ({@code MAGIC}, version, month), one record per sale in ID
+ * order, then an end marker and the row count. IDs and dates are stored as deltas from the
+ * previous row, which compresses far better than absolute values. Since IDs strictly increase,
+ * a zero ID delta can only be the end marker.
+ */
+final class SalesSegment {
+    private static final int MAGIC = 0x53414C53; // "SALS"
+    private static final short VERSION = 1;
+    private static final int END_MARKER = 0;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SalesSegment() {}
+
+    @FunctionalInterface
+    interface SaleConsumer {
+        void accept(Sale sale) throws IOException;
+    }
+
+    /**
+     * Writes a segment to a temporary file; {@link #commit()} makes it durable and moves it
+     * to its final name. Closing without committing discards it.
+     */
+    static final class Writer implements Closeable {
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final GZIPOutputStream gzip;
+        private final DataOutputStream out;
+        private int rows;
+        private int lastId;
+        private long lastDate;
+        private boolean closed;
+
+        Writer(Path target, String month) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.createDirectories(target.getParent());
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            this.out = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeUTF(month);
+        }
+
+        /** Sales must be appended in ascending ID order */
+        void append(Sale sale) throws IOException {
+            if (sale.getId() <= lastId) {
+                throw new IllegalArgumentException("Sales must be appended in ascending ID order");
+            }
+            long date = sale.getSaleDate().getTime();
+            out.writeInt(sale.getId() - lastId);
+            out.writeInt(sale.getProductId());
+            out.writeInt(sale.getQuantitySold());
+            out.writeLong(sale.getUnitPriceCents());
+            out.writeLong(date - lastDate);
+            lastId = sale.getId();
+            lastDate = date;
+            rows++;
+        }
+
+        /**
+         * Finishes the file, fsyncs it and renames it into place, read-only
+         */
+        void commit() throws IOException {
+            out.writeInt(END_MARKER);
+            out.writeInt(rows);
+            out.flush();
+            gzip.finish();
+            channel.force(true);
+            closed = true;
+            out.close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            target.toFile().setReadOnly();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Streams every sale in a segment, in ID order. Product names are not stored.
+     * @return Number of rows read
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    static int read(Path file, SaleConsumer consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not a sales segment: " + file);
+            }
+            in.readUTF();
+            int rows = 0;
+            int id = 0;
+            long date = 0;
+            for (int delta = in.readInt(); delta != END_MARKER; delta = in.readInt()) {
+                id += delta;
+                int productId = in.readInt();
+                int quantity = in.readInt();
+                long unitPriceCents = in.readLong();
+                date += in.readLong();
+                consumer.accept(new Sale(id, productId, null, quantity, unitPriceCents, new Timestamp(date)));
+                rows++;
+            }
+            if (in.readInt() != rows) {
+                throw new IOException("Row count mismatch in sales segment: " + file);
+            }
+            return rows;
+        } catch (EOFException e) {
+            throw new IOException("Truncated sales segment: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.inventorymanagementsystem.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import org.inventorymanagementsystem.DemandForecaster;
+import org.inventorymanagementsystem.ProductSearchIndex;
+import org.inventorymanagementsystem.RestockPlanner;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static spark.Spark.awaitInitialization;
+import static spark.Spark.stop;
+
+/**
+ * Brings the application up in dependency order, running independent steps in parallel:
+ * <pre>
+ *   database ──┬── search index ──┐
+ *              ├── auth setup ────┤
+ *              └── replica seed ──┼── warm-up (optional) ── ready
+ *   API server (routes, Jetty) ───┤
+ *   H2 console (optional) ────────┘
+ * </pre>
+ * Until every step finishes the API answers {@code 503} on everything except
+ * {@code /api/system/*}, and {@code /api/system/ready} reports the step timings and, after a
+ * warm-up, what it achieved.
+ */
+public final class StartupSequence {
+    private static final Logger LOGGER = Logger.getLogger(StartupSequence.class.getName());
+
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private static final Map<String, Long> stepMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final AtomicBoolean firstResponseRecorded = new AtomicBoolean();
+
+    private static volatile boolean ready;
+    private static volatile long readyMillis = -1;
+    private static volatile long firstResponseMillis = -1;
+    private static volatile WarmUp.Result warmUp;
+
+    private StartupSequence() {}
+
+    /**
+     * Runs every startup step and blocks until the server can take traffic.
+     * With {@code -Dinventory.exitAfterStartup=true} the JVM exits once a first request has
+     * been served, which is how the {@code appcds} build profile records its class list.
+     */
+    public static void run() {
+        requireSingleInstanceFeaturesOff();
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<Void> database = step("database", executor, DatabaseConnection::initialize);
+            CompletableFuture<Void> apiServer = step("apiServer", executor, () -> {
+                APIServer.start();
+                awaitInitialization();
+            });
+            CompletableFuture<Void> console = Boolean.parseBoolean(DatabaseConnection.getSetting("h2Console"))
+                    ? step("h2Console", executor, DatabaseConnection::startWebServer)
+                    : CompletableFuture.completedFuture(null);
+
+            // The memory store keeps products, suppliers and sales itself; the stock log, replica,
+            // archive and restock planner all work on the database tables, so they stay off
+            boolean jdbcStore = !DatabaseConnection.isMemoryStore();
+
+            // Recovering the stock log brings the products table up to date, so the index waits for it
+            CompletableFuture<Void> stockLedger = jdbcStore
+                    ? database.thenCompose(v -> step("stockLedger", executor, StockLedger::start))
+                    : database;
+            CompletableFuture<Void> searchIndex = stockLedger.thenCompose(v -> step("searchIndex", executor, () -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    ProductSearchIndex.getInstance().rebuild(conn);
+                }
+            }));
+            CompletableFuture<Void> auth = database.thenCompose(v -> step("auth", executor, () -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    AuthService.initialize(conn);
+                }
+            }));
+            CompletableFuture<Void> replica = jdbcStore
+                    ? database.thenCompose(v -> step("reportingReplica", executor, ReportingReplica::start))
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> salesArchive = jdbcStore
+                    ? database.thenCompose(v -> step("salesArchive", executor, SalesArchive::start))
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> inventoryHistory = jdbcStore
+                    ? database.thenCompose(v -> step("inventoryHistory", executor, InventoryHistory::start))
+                    : CompletableFuture.completedFuture(null);
+
+            // Not awaited: only the restock and forecast endpoints need them and they wait for them themselves
+            if (jdbcStore) {
+                database.thenRunAsync(StartupSequence::preloadRestockPlanner, executor);
+                database.thenRunAsync(StartupSequence::preloadForecaster, executor);
+            }
+
+            CompletableFuture.allOf(apiServer, console, searchIndex, auth, replica, salesArchive, inventoryHistory).join();
+            // Needs everything above, since it reads through the same paths as requests
+            if (Boolean.parseBoolean(DatabaseConnection.getSetting("warmUp"))) {
+                long budgetMillis = Long.parseLong(DatabaseConnection.getSetting("warmUpMillis"));
+                step("warmUp", executor, () -> warmUp = APIServer.warmUp(budgetMillis)).join();
+            }
+            readyMillis = sinceJvmStart();
+            ready = true;
+            LOGGER.info("Ready to take traffic " + readyMillis + " ms after JVM start " + stepMillis);
+        } catch (CompletionException e) {
+            LOGGER.log(Level.SEVERE, "Startup failed", e.getCause());
+            stop();
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+
+        if (Boolean.getBoolean("inventory.exitAfterStartup")) {
+            exitAfterFirstRequest();
+        }
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Records the time from JVM start until the first response was sent. Called after
+     * every request; only the first call after startup has any effect. System endpoints are
+     * skipped, so readiness probes do not count as the first response.
+     */
+    static void recordResponse(String path) {
+        if (path == null || path.startsWith("/api/system/")) {
+            return;
+        }
+        if (ready && firstResponseMillis < 0 && firstResponseRecorded.compareAndSet(false, true)) {
+            firstResponseMillis = sinceJvmStart();
+            LOGGER.info("Time to first response: " + firstResponseMillis + " ms after JVM start");
+        }
+    }
+
+    static ReadinessStatus getStatus() {
+        synchronized (stepMillis) {
+            return new ReadinessStatus(ready, readyMillis, firstResponseMillis, new LinkedHashMap<>(stepMillis), warmUp);
+        }
+    }
+
+    /**
+     * The stock log, the reporting replica and the sales archive each keep state in this process
+     * that other instances sharing the database would not see, so they cannot be combined with a
+     * shared database.
+     */
+    private static void requireSingleInstanceFeaturesOff() {
+        if (!DatabaseConnection.isSharedDatabase()) {
+            return;
+        }
+        for (String feature : new String[] {"stockLog", "reportingReplica", "salesArchive"}) {
+            if (Boolean.parseBoolean(DatabaseConnection.getSetting(feature))) {
+                throw new IllegalStateException("inventory." + feature + " must be false when the database is shared " +
+                        "over TCP; start with -Dinventory." + feature + "=false");
+            }
+        }
+    }
+
+    private static void preloadRestockPlanner() {
+        long started = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            RestockPlanner.getInstance().preload(conn);
+            LOGGER.info("Restock planner loaded in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Restock planner preload failed, it will load on first use", e);
+        }
+    }
+
+    private static void preloadForecaster() {
+        long started = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            DemandForecaster.getInstance().preload(conn);
+            LOGGER.info("Demand forecaster fitted in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Demand forecaster preload failed, it will load on first use", e);
+        }
+    }
+
+    private static CompletableFuture<Void> step(String name, ExecutorService executor, StartupStep action) {
+        return CompletableFuture.runAsync(() -> {
+            long started = System.nanoTime();
+            try {
+                action.run();
+            } catch (Exception e) {
+                throw new CompletionException(name + " failed", e);
+            }
+            stepMillis.put(name, (System.nanoTime() - started) / 1_000_000);
+        }, executor);
+    }
+
+    /**
+     * Sends the request whose classes the AppCDS archive should hold, logging in first when
+     * auth is on so the archive covers the authenticated read path rather than the rejection.
+     * Exits with status 1 if either answer is not {@code 200}, which fails the build.
+     */
+    private static void exitAfterFirstRequest() {
+        int status = 0;
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + DatabaseConnection.getSetting("apiPort");
+            HttpRequest.Builder products = HttpRequest.newBuilder(URI.create(base + "/api/products"));
+            if (Boolean.parseBoolean(DatabaseConnection.getSetting("authEnabled"))) {
+                Map<String, String> credentials = new LinkedHashMap<>();
+                credentials.put("username", "admin");
+                credentials.put("password", DatabaseConnection.getSetting("adminPassword"));
+                HttpResponse<String> login = client.send(HttpRequest.newBuilder(URI.create(base + "/api/auth/login"))
+                        .POST(HttpRequest.BodyPublishers.ofString(new Gson().toJson(credentials)))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                status = login.statusCode();
+                if (status == 200) {
+                    String token = JsonParser.parseString(login.body()).getAsJsonObject().get("token").getAsString();
+                    products.header("Authorization", "Bearer " + token);
+                }
+            }
+            if (status == 0 || status == 200) {
+                status = client.send(products.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Training request failed", e);
+        }
+        stop();
+        DatabaseConnection.stopWebServer();
+        if (status != 200) {
+            LOGGER.severe("Training request answered " + status + " instead of 200; the archive would not " +
+                    "cover the read path");
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - JVM_START_MILLIS;
+    }
+
+    @FunctionalInterface
+    private interface StartupStep {
+        void run() throws SQLException, InterruptedException;
+    }
+
+    static final class ReadinessStatus {
+        private final boolean ready;
+        private final long readyMillis;
+        private final long firstResponseMillis;
+        private final Map<String, Long> stepMillis;
+        private final WarmUp.Result warmUp;
+
+        private ReadinessStatus(boolean ready, long readyMillis, long firstResponseMillis, Map<String, Long> stepMillis,
+                                WarmUp.Result warmUp) {
+            this.ready = ready;
+            this.readyMillis = readyMillis;
+            this.firstResponseMillis = firstResponseMillis;
+            this.stepMillis = stepMillis;
+            this.warmUp = warmUp;
+        }
+
+        public boolean isReady() { return ready; }
+        public long getReadyMillis() { return readyMillis; }
+        public long getFirstResponseMillis() { return firstResponseMillis; }
+        public Map<String, Long> getStepMillis() { return stepMillis; }
+        /** @return null unless a warm-up ran */
+        public WarmUp.Result getWarmUp() { return warmUp; }
+    }
+}
@@ -0,0 +1,423 @@
+package org.inventorymanagementsystem.controller;
+
+import org.inventorymanagementsystem.RestockPlanner;
+import org.inventorymanagementsystem.model.Product;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stock quantities kept in memory and persisted through a {@link StockLog} instead of
+ * updating {@code products.stock_quantity} on every change.
+ * <p>
+ * With {@code inventory.stockLog} enabled, stock changes check and update the in-memory
+ * quantity and append a record to the log under one lock, so the log order matches the order
+ * the changes were made in. A background writer copies changed quantities to the products
+ * table in batches every {@code stockApplyMillis}. Only then does it tell the reporting replica
+ * and the restock planner, because both read stock from the database. Product reads overlay
+ * the in-memory quantity, so they never see the lag. A snapshot of all quantities is written
+ * every {@code stockSnapshotMinutes} to keep recovery short.
+ */
+public final class StockLedger {
+    private static final Logger LOGGER = Logger.getLogger(StockLedger.class.getName());
+
+    private static final String SELECT_STOCK = "SELECT id, stock_quantity FROM products";
+    private static final String UPDATE_STOCK = "UPDATE products SET stock_quantity = ?, version = version + 1 WHERE id = ?";
+
+    /** {@link #tryAdjustAll} result for a change to a product that does not exist */
+    public static final int NO_SUCH_PRODUCT = -1;
+    /** {@link #tryAdjustAll} result for a change that would have made stock negative */
+    public static final int NOT_ENOUGH_STOCK = -2;
+    /** {@link #tryAdjustAll} result for a change left out because another change of an atomic batch failed */
+    public static final int NOT_APPLIED = -3;
+
+    private static final Object lock = new Object();
+    private static final Map<Integer, Integer> quantities = new ConcurrentHashMap<>();
+    private static final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+
+    private static volatile StockLog log;
+    private static volatile ScheduledExecutorService scheduler;
+    private static volatile long lastApplyMillis;
+    private static volatile String lastError;
+
+    private StockLedger() {}
+
+    /**
+     * @return true if stock changes go through the log
+     */
+    public static boolean isEnabled() {
+        return log != null;
+    }
+
+    /**
+     * Recovers the log, reconciles it with the products table and starts the background
+     * writer and snapshots. Does nothing when {@code inventory.stockLog} is false.
+     * @throws SQLException If database error occurs or the log cannot be recovered
+     */
+    public static synchronized void start() throws SQLException {
+        if (log != null || !Boolean.parseBoolean(DatabaseConnection.getSetting("stockLog"))) {
+            return;
+        }
+        Map<Integer, Integer> recovered = new HashMap<>();
+        StockLog opened;
+        try {
+            opened = StockLog.open(Path.of(DatabaseConnection.getSetting("stockLogDir")),
+                    StockLog.SyncPolicy.valueOf(DatabaseConnection.getSetting("stockLogSync").toUpperCase(Locale.ROOT)),
+                    Long.parseLong(DatabaseConnection.getSetting("stockLogSyncMillis")),
+                    Integer.parseInt(DatabaseConnection.getSetting("stockLogSegmentMb")) * 1024 * 1024,
+                    recovered);
+        } catch (IOException e) {
+            throw new SQLException("Cannot recover stock log", e);
+        }
+        LOGGER.info("Stock log recovered " + opened.getReplayedRecords() + " records after snapshot "
+                + opened.getRecoveredSnapshotSeq() + " in " + opened.getRecoveryMillis() + " ms");
+
+        // The table holds every product; the log holds the latest quantity of those it has seen
+        quantities.clear();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_STOCK);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    Integer logged = recovered.get(id);
+                    quantities.put(id, logged == null ? rs.getInt(2) : logged);
+                    if (logged != null && logged != rs.getInt(2)) {
+                        dirty.add(id);
+                    }
+                }
+            }
+            applyChanges(conn);
+        }
+        log = opened;
+        snapshot();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-ledger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long applyMillis = Long.parseLong(DatabaseConnection.getSetting("stockApplyMillis"));
+        long snapshotMinutes = Long.parseLong(DatabaseConnection.getSetting("stockSnapshotMinutes"));
+        scheduler.scheduleWithFixedDelay(StockLedger::applySafely, applyMillis, applyMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(StockLedger::snapshotSafely, snapshotMinutes, snapshotMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Writes pending quantities to the database, takes a final snapshot and closes the log
+     */
+    public static synchronized void stop() {
+        StockLog current = log;
+        if (current == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        applySafely();
+        snapshotSafely();
+        log = null;
+        try {
+            current.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Closing the stock log failed", e);
+        }
+    }
+
+    /**
+     * Changes a product's stock by a delta unless that would make it negative
+     * @return The new quantity, or null if there is not enough stock
+     * @throws SQLException If the product does not exist or the log cannot be written
+     */
+    public static Integer tryAdjust(int productId, int delta) throws SQLException {
+        long seq;
+        int updated;
+        synchronized (lock) {
+            Integer current = quantities.get(productId);
+            if (current == null) {
+                throw new SQLException("Product not found with ID: " + productId);
+            }
+            long next = (long) current + delta;
+            if (next < 0) {
+                return null;
+            }
+            if (next > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Stock quantity would overflow");
+            }
+            updated = (int) next;
+            seq = append(productId, updated, delta);
+        }
+        awaitDurable(productId, seq);
+        return updated;
+    }
+
+    /**
+     * Makes several stock changes in order under one lock, each unless it would make stock
+     * negative. With {@code atomic}, either every change is made or none is.
+     * @return Per change, the product's new quantity or one of {@link #NO_SUCH_PRODUCT},
+     *         {@link #NOT_ENOUGH_STOCK} and {@link #NOT_APPLIED}
+     * @throws SQLException If the log cannot be written
+     */
+    public static int[] tryAdjustAll(int[] productIds, int[] deltas, boolean atomic) throws SQLException {
+        int[] results = new int[productIds.length];
+        long seq = -1;
+        synchronized (lock) {
+            // Quantities after the earlier changes of this batch
+            Map<Integer, Integer> pending = new HashMap<>();
+            boolean failed = false;
+            for (int i = 0; i < productIds.length; i++) {
+                Integer current = pending.getOrDefault(productIds[i], quantities.get(productIds[i]));
+                long next = current == null ? NO_SUCH_PRODUCT : (long) current + deltas[i];
+                if (current == null || next < 0) {
+                    results[i] = current == null ? NO_SUCH_PRODUCT : NOT_ENOUGH_STOCK;
+                    failed = true;
+                    continue;
+                }
+                if (next > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Stock quantity would overflow");
+                }
+                results[i] = (int) next;
+                pending.put(productIds[i], results[i]);
+            }
+            for (int i = 0; i < productIds.length; i++) {
+                if (results[i] < 0) continue;
+                if (atomic && failed) {
+                    results[i] = NOT_APPLIED;
+                } else {
+                    seq = append(productIds[i], results[i], deltas[i]);
+                }
+            }
+        }
+        if (seq >= 0) {
+            for (int i = 0; i < productIds.length; i++) {
+                if (results[i] >= 0) awaitDurable(productIds[i], seq);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Sets the stock of an existing product
+     * @return false if there is no such product
+     * @throws SQLException If the log cannot be written
+     */
+    public static boolean set(int productId, int quantity) throws SQLException {
+        long seq;
+        synchronized (lock) {
+            Integer current = quantities.get(productId);
+            if (current == null) {
+                return false;
+            }
+            seq = append(productId, quantity, quantity - current);
+        }
+        awaitDurable(productId, seq);
+        return true;
+    }
+
+    /**
+     * Records the stock of a product that was just created or rewritten in the database
+     * @throws SQLException If the log cannot be written
+     */
+    public static void register(int productId, int quantity) throws SQLException {
+        long seq;
+        synchronized (lock) {
+            Integer current = quantities.get(productId);
+            seq = append(productId, quantity, current == null ? quantity : quantity - current);
+        }
+        awaitDurable(productId, seq);
+    }
+
+    /**
+     * Forgets a deleted product, so replaying the log does not bring its stock back
+     * @throws SQLException If the log cannot be written
+     */
+    public static void remove(int productId) throws SQLException {
+        long seq;
+        synchronized (lock) {
+            if (!quantities.containsKey(productId)) {
+                return;
+            }
+            seq = append(productId, StockLog.DELETED, 0);
+        }
+        awaitDurable(productId, seq);
+    }
+
+    /**
+     * Replaces the stock of a product read from the database with the current quantity
+     * @return The same product
+     */
+    public static Product overlay(Product product) {
+        if (product != null && log != null) {
+            Integer quantity = quantities.get(product.getId());
+            if (quantity != null) {
+                product.setStockQuantity(quantity);
+            }
+        }
+        return product;
+    }
+
+    public static LedgerStatus getStatus() {
+        StockLog current = log;
+        if (current == null) {
+            return new LedgerStatus(false, null, 0, 0, 0, 0, 0, 0, lastApplyMillis, lastError);
+        }
+        return new LedgerStatus(true, current.getPolicy().name(), current.getLastSeq(), current.getDurableSeq(),
+                current.getSnapshotSeq(), dirty.size(), current.getReplayedRecords(), current.getRecoveryMillis(),
+                lastApplyMillis, lastError);
+    }
+
+    // Called with lock held
+    private static long append(int productId, int quantity, int delta) throws SQLException {
+        long seq;
+        try {
+            seq = log.append(productId, quantity, delta);
+        } catch (IOException e) {
+            throw new SQLException("Cannot write stock log", e);
+        }
+        if (quantity == StockLog.DELETED) {
+            quantities.remove(productId);
+        } else {
+            quantities.put(productId, quantity);
+        }
+        return seq;
+    }
+
+    private static void awaitDurable(int productId, long seq) throws SQLException {
+        dirty.add(productId);
+        try {
+            log.awaitDurable(seq);
+        } catch (IOException e) {
+            throw new SQLException("Cannot sync stock log", e);
+        }
+    }
+
+    private static void applySafely() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            applyChanges(conn);
+            lastError = null;
+        } catch (SQLException | RuntimeException e) {
+            lastError = e.getMessage();
+            LOGGER.log(Level.WARNING, "Writing stock to the database failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Writes the current quantity of every changed product in one batch. A product changed
+     * again while this runs is marked dirty again and written on the next run.
+     */
+    private static void applyChanges(Connection conn) throws SQLException {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_STOCK)) {
+            for (int id : ids) {
+                Integer quantity = quantities.get(id);
+                if (quantity != null) {
+                    stmt.setInt(1, quantity);
+                    stmt.setInt(2, id);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            dirty.addAll(ids);
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        lastApplyMillis = System.currentTimeMillis();
+        for (int id : ids) {
+            ReportingReplica.publish(ReportingReplica.Table.PRODUCTS, id);
+            RestockPlanner.getInstance().productChanged(id);
+        }
+    }
+
+    private static void snapshotSafely() {
+        try {
+            snapshot();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Stock snapshot failed, retrying on the next run", e);
+        }
+    }
+
+    private static void snapshot() throws SQLException {
+        StockLog current = log;
+        if (current == null) {
+            return;
+        }
+        Map<Integer, Integer> copy;
+        long seq;
+        // Blocks stock changes for the copy only, a few milliseconds per 100k products
+        synchronized (lock) {
+            seq = current.getLastSeq();
+            if (seq == current.getSnapshotSeq() && seq > 0) {
+                return;
+            }
+            copy = new HashMap<>(quantities);
+        }
+        try {
+            current.writeSnapshot(copy, seq);
+        } catch (IOException e) {
+            throw new SQLException("Cannot write stock snapshot", e);
+        }
+    }
+
+    public static final class LedgerStatus {
+        private final boolean enabled;
+        private final String syncPolicy;
+        private final long lastSeq;
+        private final long durableSeq;
+        private final long snapshotSeq;
+        private final int pendingDatabaseWrites;
+        private final long recoveredRecords;
+        private final long recoveryMillis;
+        private final long lastApplyMillis;
+        private final String lastError;
+
+        private LedgerStatus(boolean enabled, String syncPolicy, long lastSeq, long durableSeq, long snapshotSeq,
+                             int pendingDatabaseWrites, long recoveredRecords, long recoveryMillis,
+                             long lastApplyMillis, String lastError) {
+            this.enabled = enabled;
+            this.syncPolicy = syncPolicy;
+            this.lastSeq = lastSeq;
+            this.durableSeq = durableSeq;
+            this.snapshotSeq = snapshotSeq;
+            this.pendingDatabaseWrites = pendingDatabaseWrites;
+            this.recoveredRecords = recoveredRecords;
+            this.recoveryMillis = recoveryMillis;
+            this.lastApplyMillis = lastApplyMillis;
+            this.lastError = lastError;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public String getSyncPolicy() { return syncPolicy; }
+        public long getLastSeq() { return lastSeq; }
+        public long getDurableSeq() { return durableSeq; }
+        public long getSnapshotSeq() { return snapshotSeq; }
+        public int getPendingDatabaseWrites() { return pendingDatabaseWrites; }
+        public long getRecoveredRecords() { return recoveredRecords; }
+        public long getRecoveryMillis() { return recoveryMillis; }
+        public long getLastApplyMillis() { return lastApplyMillis; }
+        public String getLastError() { return lastError; }
+    }
+}
@@ -0,0 +1,407 @@
+package org.inventorymanagementsystem.controller;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only log of stock quantities in memory-mapped segment files, plus snapshots.
+ * <p>
+ * Every record carries a sequence number, the product, its quantity after the change and the
+ * change itself, so replaying the log only has to keep the last quantity per product. Records
+ * are {@value #RECORD_BYTES} bytes with a CRC. Segments are preallocated files named after their
+ * first sequence number; appending is a copy into the mapping, and {@link SyncPolicy} decides
+ * when the mapping is forced to disk.
+ * <p>
+ * Recovery loads the newest readable snapshot and replays later records. Each segment is read
+ * until the first record that is zero, fails its CRC or is out of sequence, which drops a torn
+ * tail. Appending then always continues in a fresh segment, so bytes left behind a torn record
+ * can never be mistaken for valid ones on the next recovery.
+ */
+public final class StockLog implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(StockLog.class.getName());
+
+    /** When appended records are forced to disk */
+    public enum SyncPolicy {
+        /** Before {@link #awaitDurable} returns; concurrent appenders share one fsync */
+        ALWAYS,
+        /** By a background thread every sync interval; a power loss can lose that much */
+        INTERVAL,
+        /** Only when a segment fills up, at snapshots and on close */
+        NONE
+    }
+
+    /** Quantity recorded for a deleted product */
+    public static final int DELETED = Integer.MIN_VALUE;
+
+    static final int RECORD_BYTES = 32;
+    private static final int CHECKED_BYTES = RECORD_BYTES - Integer.BYTES;
+    private static final int SNAPSHOT_MAGIC = 0x53544B53; // "STKS"
+    private static final short SNAPSHOT_VERSION = 1;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path dir;
+    private final SyncPolicy policy;
+    private final int segmentBytes;
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+
+    // Guarded by appendLock
+    private FileChannel channel;
+    private MappedByteBuffer mapping;
+    private long nextSeq;
+
+    private volatile long durableSeq;
+    private volatile long snapshotSeq;
+    private ScheduledExecutorService syncer;
+
+    private long recoveredSnapshotSeq;
+    private long replayedRecords;
+    private long recoveryMillis;
+
+    private StockLog(Path dir, SyncPolicy policy, int segmentBytes) {
+        this.dir = dir;
+        this.policy = policy;
+        this.segmentBytes = segmentBytes - segmentBytes % RECORD_BYTES;
+    }
+
+    /**
+     * Recovers the log in a directory and opens it for appending
+     * @param dir Directory holding segments and snapshots; created if missing
+     * @param policy When appended records are forced to disk
+     * @param syncIntervalMillis Interval of the background fsync under {@link SyncPolicy#INTERVAL}
+     * @param segmentBytes Size of each preallocated segment file
+     * @param quantities Filled with the recovered quantity of every product in the log
+     * @throws IOException If the directory cannot be read or records are missing
+     */
+    public static StockLog open(Path dir, SyncPolicy policy, long syncIntervalMillis, int segmentBytes,
+                                Map<Integer, Integer> quantities) throws IOException {
+        if (segmentBytes < RECORD_BYTES) {
+            throw new IllegalArgumentException("Segment size must hold at least one record");
+        }
+        Files.createDirectories(dir);
+        StockLog log = new StockLog(dir, policy, segmentBytes);
+        long started = System.nanoTime();
+        long lastSeq = log.recover(quantities);
+        log.recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.nextSeq = lastSeq + 1;
+        log.durableSeq = lastSeq;
+        log.openSegment();
+        if (policy == SyncPolicy.INTERVAL) {
+            log.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "stock-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.syncer.scheduleWithFixedDelay(log::syncSafely, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        return log;
+    }
+
+    /**
+     * Appends one record. Under {@link SyncPolicy#ALWAYS} it is durable only once
+     * {@link #awaitDurable} returns.
+     * @return Sequence number of the record
+     * @throws IOException If a new segment cannot be created
+     */
+    public long append(int productId, int quantity, int delta) throws IOException {
+        synchronized (appendLock) {
+            if (mapping.remaining() < RECORD_BYTES) {
+                rollSegment();
+            }
+            long seq = nextSeq;
+            scratch.clear();
+            scratch.putLong(seq).putLong(System.currentTimeMillis()).putInt(productId).putInt(quantity).putInt(delta);
+            crc.reset();
+            crc.update(scratch.array(), 0, CHECKED_BYTES);
+            scratch.putInt((int) crc.getValue());
+            mapping.put(scratch.array(), 0, RECORD_BYTES);
+            nextSeq = seq + 1;
+            return seq;
+        }
+    }
+
+    /**
+     * Under {@link SyncPolicy#ALWAYS}, waits until the record is on disk. Whoever forces the
+     * mapping covers every record appended before it, so under load one fsync serves many
+     * appenders. Returns at once under the other policies.
+     * @throws IOException If the fsync fails
+     */
+    public void awaitDurable(long seq) throws IOException {
+        if (policy == SyncPolicy.ALWAYS && durableSeq < seq) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces every record appended so far to disk
+     * @throws IOException If the fsync fails
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            long target;
+            MappedByteBuffer current;
+            synchronized (appendLock) {
+                target = nextSeq - 1;
+                current = mapping;
+            }
+            if (target <= durableSeq) {
+                return;
+            }
+            // Earlier segments were forced when they filled up
+            current.force();
+            durableSeq = target;
+        }
+    }
+
+    /**
+     * Writes a snapshot of every product's quantity as of a sequence number, then deletes
+     * the snapshots and segments the previous snapshot no longer needs. The previous
+     * snapshot is kept so recovery can fall back to it if the new one is damaged.
+     * @param quantities Quantities as of {@code seq}; must not change while this runs
+     * @param seq Sequence number of the last record reflected in {@code quantities}
+     * @throws IOException If the snapshot cannot be written
+     */
+    public void writeSnapshot(Map<Integer, Integer> quantities, long seq) throws IOException {
+        Path target = dir.resolve(fileName("stock-", seq, SNAPSHOT_SUFFIX));
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(file), 64 * 1024);
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeShort(SNAPSHOT_VERSION);
+            out.writeLong(seq);
+            out.writeInt(quantities.size());
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+            new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+            buffered.flush();
+            file.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        long previous = snapshotSeq;
+        snapshotSeq = seq;
+        deleteObsolete(previous);
+    }
+
+    /** Sequence number of the last record appended */
+    public long getLastSeq() {
+        synchronized (appendLock) {
+            return nextSeq - 1;
+        }
+    }
+
+    public long getDurableSeq() { return durableSeq; }
+    public long getSnapshotSeq() { return snapshotSeq; }
+    public SyncPolicy getPolicy() { return policy; }
+    /** Sequence number of the snapshot recovery started from, or 0 if there was none */
+    public long getRecoveredSnapshotSeq() { return recoveredSnapshotSeq; }
+    /** Records replayed on top of that snapshot */
+    public long getReplayedRecords() { return replayedRecords; }
+    public long getRecoveryMillis() { return recoveryMillis; }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        sync();
+        synchronized (appendLock) {
+            channel.close();
+        }
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Stock log fsync failed", e);
+        }
+    }
+
+    private long recover(Map<Integer, Integer> quantities) throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_SUFFIX);
+        long seq = 0;
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path snapshot = snapshots.get(i);
+            try {
+                seq = readSnapshot(snapshot, quantities);
+                break;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Ignoring damaged stock snapshot " + snapshot, e);
+                quantities.clear();
+            }
+        }
+        recoveredSnapshotSeq = seq;
+        snapshotSeq = seq;
+
+        List<Path> segments = list(SEGMENT_SUFFIX);
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            long first = firstSeq(segment);
+            boolean last = i == segments.size() - 1;
+            if (!last && firstSeq(segments.get(i + 1)) <= seq + 1) {
+                continue; // Entirely covered by the snapshot
+            }
+            if (first > seq + 1) {
+                throw new IOException("Stock log is missing records " + (seq + 1) + " to " + (first - 1)
+                        + " before " + segment);
+            }
+            seq = replay(segment, first, seq, quantities);
+        }
+        // A segment holding no valid record would share its name with the next one
+        for (Path segment : segments) {
+            if (firstSeq(segment) > seq) {
+                Files.delete(segment);
+            }
+        }
+        return seq;
+    }
+
+    private long replay(Path segment, long first, long appliedSeq, Map<Integer, Integer> quantities) throws IOException {
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer records = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            CRC32C check = new CRC32C();
+            long expected = first;
+            if (appliedSeq >= first) {
+                // Records are fixed-size and numbered without gaps, so skip those the snapshot covers
+                long skip = Math.min(appliedSeq + 1 - first, records.capacity() / RECORD_BYTES);
+                records.position((int) (skip * RECORD_BYTES));
+                expected += skip;
+            }
+            byte[] record = new byte[RECORD_BYTES];
+            while (records.remaining() >= RECORD_BYTES) {
+                records.get(record);
+                ByteBuffer fields = ByteBuffer.wrap(record);
+                long seq = fields.getLong();
+                check.reset();
+                check.update(record, 0, CHECKED_BYTES);
+                if (seq != expected || fields.getInt(CHECKED_BYTES) != (int) check.getValue()) {
+                    break;
+                }
+                expected++;
+                if (seq <= appliedSeq) {
+                    continue;
+                }
+                fields.getLong(); // Time of the change, kept for inspection only
+                int productId = fields.getInt();
+                int quantity = fields.getInt();
+                if (quantity == DELETED) {
+                    quantities.remove(productId);
+                } else {
+                    quantities.put(productId, quantity);
+                }
+                replayedRecords++;
+                appliedSeq = seq;
+            }
+            return appliedSeq;
+        }
+    }
+
+    private static long readSnapshot(Path snapshot, Map<Integer, Integer> quantities) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        if (data.limit() < 18 + Integer.BYTES) {
+            throw new IOException("Truncated stock snapshot");
+        }
+        CRC32C check = new CRC32C();
+        check.update(data.array(), 0, data.limit() - Integer.BYTES);
+        if (data.getInt(data.limit() - Integer.BYTES) != (int) check.getValue()) {
+            throw new IOException("Checksum mismatch");
+        }
+        if (data.getInt() != SNAPSHOT_MAGIC || data.getShort() != SNAPSHOT_VERSION) {
+            throw new IOException("Not a stock snapshot");
+        }
+        long seq = data.getLong();
+        int count = data.getInt();
+        if (data.remaining() != (long) count * 2 * Integer.BYTES + Integer.BYTES) {
+            throw new IOException("Entry count does not match the file size");
+        }
+        for (int i = 0; i < count; i++) {
+            quantities.put(data.getInt(), data.getInt());
+        }
+        return seq;
+    }
+
+    private void openSegment() throws IOException {
+        Path segment = dir.resolve(fileName("stock-", nextSeq, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        // Mapping past the end extends the file; the new space reads as zeros
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+
+    // Called with appendLock held
+    private void rollSegment() throws IOException {
+        mapping.force();
+        channel.close();
+        openSegment();
+    }
+
+    private void deleteObsolete(long keepFromSeq) throws IOException {
+        for (Path snapshot : list(SNAPSHOT_SUFFIX)) {
+            if (firstSeq(snapshot) < keepFromSeq) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        List<Path> segments = list(SEGMENT_SUFFIX);
+        // A segment can go once the next one starts at or before the oldest snapshot kept
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSeq(segments.get(i + 1)) <= keepFromSeq + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith("stock-") && name.endsWith(suffix);
+            }).forEach(files::add);
+        }
+        // Zero-padded sequence numbers sort in numeric order
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long firstSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("stock-".length(), name.lastIndexOf('.')));
+    }
+
+    private static String fileName(String prefix, long seq, String suffix) {
+        return String.format("%s%020d%s", prefix, seq, suffix);
+    }
+}
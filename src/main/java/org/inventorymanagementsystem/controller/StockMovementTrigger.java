@@ -0,0 +1,69 @@
+package org.inventorymanagementsystem.controller;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * H2 row trigger on the products table that records every stock movement in
+ * {@code inventory_log}, inside the transaction that made the change. A product created,
+ * deleted, or changed in stock or price gets one row with the change in stock and the stock
+ * and price after it; other updates are ignored. Installed by {@link InventoryHistory}.
+ */
+public final class StockMovementTrigger implements Trigger {
+    static final String CREATE = "CREATE";
+    static final String CHANGE = "CHANGE";
+    static final String DELETE = "DELETE";
+
+    private static final String INSERT =
+            "INSERT INTO inventory_log (product_id, operation, quantity, stock_after, price_cents, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private int idColumn;
+    private int stockColumn;
+    private int priceColumn;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+            throws SQLException {
+        idColumn = columnIndex(conn, schemaName, tableName, "ID");
+        stockColumn = columnIndex(conn, schemaName, tableName, "STOCK_QUANTITY");
+        priceColumn = columnIndex(conn, schemaName, tableName, "PRICE_CENTS");
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        int oldStock = oldRow == null ? 0 : ((Number) oldRow[stockColumn]).intValue();
+        int newStock = newRow == null ? 0 : ((Number) newRow[stockColumn]).intValue();
+        Object[] row = newRow != null ? newRow : oldRow;
+        long price = ((Number) row[priceColumn]).longValue();
+        if (oldRow != null && newRow != null && oldStock == newStock
+                && price == ((Number) oldRow[priceColumn]).longValue()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT)) {
+            stmt.setInt(1, ((Number) row[idColumn]).intValue());
+            stmt.setString(2, oldRow == null ? CREATE : newRow == null ? DELETE : CHANGE);
+            stmt.setInt(3, newStock - oldStock);
+            stmt.setInt(4, newStock);
+            stmt.setLong(5, price);
+            // The clock at the change, not CURRENT_TIMESTAMP, which is when the transaction began:
+            // the row lock then keeps a product's movements in time order
+            stmt.setTimestamp(6, new Timestamp(System.currentTimeMillis()));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int columnIndex(Connection conn, String schema, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schema, table, column)) {
+            if (!rs.next()) {
+                throw new SQLException("Column " + column + " not found in " + table);
+            }
+            return rs.getInt("ORDINAL_POSITION") - 1;
+        }
+    }
+}
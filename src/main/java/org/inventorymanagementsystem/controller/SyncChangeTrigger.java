@@ -0,0 +1,219 @@
+package org.inventorymanagementsystem.controller;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * H2 row trigger on the products and suppliers tables that keeps {@code sync_changes}, the
+ * feed offline clients sync from, inside the transaction that made the change. Every write
+ * gives the row's entry the next value of {@code sync_seq}; a delete marks it deleted, leaving
+ * a tombstone. Each row keeps one entry, so a client that was away only receives the latest
+ * state of what changed.
+ * <p>
+ * Sequence numbers are handed out before commit, so a transaction may commit an entry below
+ * one a reader has already passed. The trigger therefore records each writing transaction
+ * with the first number it took, and {@link #inFlightFloor(Connection)}, which readers call
+ * as {@code SYNC_IN_FLIGHT_FLOOR()}, gives the lowest of those still open. Both run in the
+ * JVM that hosts the database: the embedding instance, or {@link DatabaseServer} when shared.
+ */
+public final class SyncChangeTrigger implements Trigger {
+    private static final Logger LOGGER = Logger.getLogger(SyncChangeTrigger.class.getName());
+
+    public static final String PRODUCT = "product";
+    public static final String SUPPLIER = "supplier";
+
+    private static final String MERGE =
+            "MERGE INTO sync_changes (entity, entity_id, change_seq, deleted, changed_at) KEY (entity, entity_id) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String NEXT_SEQ = "SELECT NEXT VALUE FOR sync_seq, SESSION_ID(), TRANSACTION_ID()";
+    private static final String UNCOMMITTED_SESSIONS =
+            "SELECT SESSION_ID FROM INFORMATION_SCHEMA.SESSIONS WHERE CONTAINS_UNCOMMITTED";
+    private static final String PROBE = "SELECT change_seq FROM sync_changes WHERE entity = ? AND entity_id = ?";
+    private static final String TRIGGER_EXISTS =
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_NAME = 'PRODUCTS_SYNC_CHANGES'";
+    // Rows written before the feed existed, so a client starting from nothing receives them
+    private static final String SEED =
+            "MERGE INTO sync_changes (entity, entity_id, change_seq, deleted, changed_at) KEY (entity, entity_id) " +
+            "SELECT ?, id, NEXT VALUE FOR sync_seq, FALSE, LOCALTIMESTAMP FROM ";
+
+    // Transactions that have written to the feed, by database and session; guarded by itself.
+    // An entry is replaced when its session writes in a new transaction and removed by
+    // inFlightFloor once it has ended.
+    private static final Map<String, OpenTransaction> openTransactions = new HashMap<>();
+
+    private String entity;
+    private int idColumn;
+
+    /**
+     * Installs the trigger on both tables and, the first time, enters every existing row in
+     * the feed. Called by {@link DatabaseConnection#initialize()} on the primary only; the
+     * reporting replica copies rows and must not enter them again.
+     * @param conn Connection to the primary database
+     * @throws SQLException If database error occurs
+     */
+    static void install(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            boolean installed;
+            try (ResultSet rs = stmt.executeQuery(TRIGGER_EXISTS)) {
+                installed = rs.next() && rs.getInt(1) > 0;
+            }
+            for (String table : new String[] {"products", "suppliers"}) {
+                stmt.execute("CREATE TRIGGER IF NOT EXISTS " + table + "_sync_changes AFTER INSERT, UPDATE, DELETE ON " +
+                        table + " FOR EACH ROW CALL \"" + SyncChangeTrigger.class.getName() + "\"");
+            }
+            stmt.execute("CREATE ALIAS IF NOT EXISTS SYNC_IN_FLIGHT_FLOOR FOR \"" +
+                    SyncChangeTrigger.class.getName() + ".inFlightFloor\"");
+            if (installed) {
+                return;
+            }
+        }
+        for (String table : new String[] {"products", "suppliers"}) {
+            try (PreparedStatement stmt = conn.prepareStatement(SEED + table)) {
+                stmt.setString(1, entityOf(table));
+                int rows = stmt.executeUpdate();
+                if (rows > 0) {
+                    LOGGER.info("Entered " + rows + " existing " + table + " in the sync feed");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+            throws SQLException {
+        entity = entityOf(tableName);
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, tableName, "ID")) {
+            if (!rs.next()) {
+                throw new SQLException("Column ID not found in " + tableName);
+            }
+            idColumn = rs.getInt("ORDINAL_POSITION") - 1;
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        Object[] row = newRow != null ? newRow : oldRow;
+        int id = ((Number) row[idColumn]).intValue();
+        long seq;
+        // Taking the number and recording the transaction under one lock means a reader that
+        // has seen an entry also finds every transaction holding a lower number
+        synchronized (openTransactions) {
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(NEXT_SEQ)) {
+                rs.next();
+                seq = rs.getLong(1);
+                OpenTransaction open = new OpenTransaction(conn.getCatalog(), rs.getInt(2), rs.getString(3),
+                        entity, id, seq);
+                OpenTransaction current = openTransactions.get(open.key());
+                if (current == null || !current.transactionId.equals(open.transactionId)) {
+                    openTransactions.put(open.key(), open);
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(MERGE)) {
+            stmt.setString(1, entity);
+            stmt.setInt(2, id);
+            stmt.setLong(3, seq);
+            stmt.setBoolean(4, newRow == null);
+            // The clock at the change, as for stock movements; readers may hold back recent
+            // entries for syncSettleMillis
+            stmt.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Lowest feed sequence number taken by a transaction that has not yet committed or rolled
+     * back, the point below which a reader may move its cursor. Called through
+     * {@code SYNC_IN_FLIGHT_FLOOR()}, after reading the feed: a transaction that starts writing
+     * later takes a number above any entry already read.
+     * <p>
+     * A transaction counts as ended when its session holds no uncommitted changes, or when its
+     * first entry is visible with that number or a later one. A session that rolled back and
+     * holds another transaction open keeps its old number until it writes to the feed again.
+     * @param conn Connection of the calling session
+     * @return The lowest number in flight, or null if none is
+     * @throws SQLException If database error occurs
+     */
+    public static Long inFlightFloor(Connection conn) throws SQLException {
+        String catalog = conn.getCatalog();
+        List<OpenTransaction> open = new ArrayList<>();
+        synchronized (openTransactions) {
+            for (OpenTransaction transaction : openTransactions.values()) {
+                if (transaction.catalog.equals(catalog)) {
+                    open.add(transaction);
+                }
+            }
+        }
+        if (open.isEmpty()) {
+            return null;
+        }
+
+        Set<Integer> uncommitted = new HashSet<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(UNCOMMITTED_SESSIONS)) {
+            while (rs.next()) {
+                uncommitted.add(rs.getInt(1));
+            }
+        }
+        Long floor = null;
+        try (PreparedStatement probe = conn.prepareStatement(PROBE)) {
+            for (OpenTransaction transaction : open) {
+                if (uncommitted.contains(transaction.sessionId) && !transaction.isVisible(probe)) {
+                    floor = floor == null ? transaction.firstSeq : Math.min(floor, transaction.firstSeq);
+                } else {
+                    synchronized (openTransactions) {
+                        openTransactions.remove(transaction.key(), transaction);
+                    }
+                }
+            }
+        }
+        return floor;
+    }
+
+    private static final class OpenTransaction {
+        private final String catalog;
+        private final int sessionId;
+        private final String transactionId;
+        // The entry written with the first number, which shows once the transaction commits
+        private final String entity;
+        private final int entityId;
+        private final long firstSeq;
+
+        OpenTransaction(String catalog, int sessionId, String transactionId, String entity, int entityId, long firstSeq) {
+            this.catalog = catalog;
+            this.sessionId = sessionId;
+            this.transactionId = transactionId;
+            this.entity = entity;
+            this.entityId = entityId;
+            this.firstSeq = firstSeq;
+        }
+
+        String key() {
+            return catalog + ':' + sessionId;
+        }
+
+        boolean isVisible(PreparedStatement probe) throws SQLException {
+            probe.setString(1, entity);
+            probe.setInt(2, entityId);
+            try (ResultSet rs = probe.executeQuery()) {
+                return rs.next() && rs.getLong(1) >= firstSeq;
+            }
+        }
+    }
+
+    private static String entityOf(String table) {
+        return "SUPPLIERS".equalsIgnoreCase(table) ? SUPPLIER : PRODUCT;
+    }
+}
@@ -0,0 +1,189 @@
+package org.inventorymanagementsystem.controller;
+
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Warms the server up before it reports ready, so the first requests after a deploy do not pay
+ * for cold database pages, class loading and interpreted code. Enabled by
+ * {@code -Dinventory.warmUp=true}; runs as the last startup step, within {@code warmUpMillis}.
+ * <ol>
+ *   <li>Loads the product and supplier tables.</li>
+ *   <li>Reads every hot secondary index end to end (jdbc store only).</li>
+ *   <li>Runs rounds of point reads, listings and reports through the store and the JSON
+ *       serializer until a round is no longer faster than the best one so far.</li>
+ * </ol>
+ * The workload only reads, so nothing a client could see is changed.
+ */
+final class WarmUp {
+    private static final Logger LOGGER = Logger.getLogger(WarmUp.class.getName());
+
+    // Each names its index, so the scan reads the index rather than the table
+    private static final String[] TOUCH_INDEXES = {
+            "SELECT COUNT(*) FROM products USE INDEX (idx_products_sku) WHERE sku >= ''",
+            "SELECT COUNT(*) FROM sales USE INDEX (idx_sales_recent) WHERE sale_date >= TIMESTAMP '1970-01-01 00:00:00'",
+            "SELECT COUNT(*) FROM sales USE INDEX (idx_sales_product_date) WHERE product_id >= 0",
+            "SELECT COUNT(*) FROM sales USE INDEX (idx_sales_customer) WHERE customer_id >= 0",
+            "SELECT COUNT(*) FROM location_stock USE INDEX (idx_location_stock_location) WHERE location_id >= 0",
+            "SELECT COUNT(*) FROM sync_changes USE INDEX (idx_sync_changes_seq) WHERE change_seq >= 0",
+    };
+    private static final int POINT_READS_PER_ROUND = 200;
+    private static final int BATCH_SIZE = 20;
+    // Latency has settled once this many rounds in a row fail to beat the best by 5%
+    private static final int STABLE_ROUNDS = 5;
+    private static final double IMPROVEMENT = 0.95;
+
+    private final InventoryStore store;
+    private final Function<Object, String> serializer;
+    private final Random random = new Random(42);
+    private int operations;
+
+    /**
+     * @param serializer Writes a response body, as the API does
+     */
+    WarmUp(InventoryStore store, Function<Object, String> serializer) {
+        this.store = store;
+        this.serializer = serializer;
+    }
+
+    Result run(long budgetMillis) throws SQLException {
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        List<Product> products = store.getAllProducts(true);
+        List<Supplier> suppliers = store.getAllSuppliers(true);
+        if (!DatabaseConnection.isMemoryStore()) {
+            touchIndexes(deadline);
+        }
+        long loadMillis = millisSince(started);
+
+        String from = LocalDate.now().minusDays(30).toString();
+        long firstRoundNanos = -1;
+        long bestRoundNanos = Long.MAX_VALUE;
+        long lastRoundNanos = -1;
+        int rounds = 0;
+        int stable = 0;
+        while (stable < STABLE_ROUNDS && System.nanoTime() < deadline) {
+            int before = operations;
+            long roundStarted = System.nanoTime();
+            round(products, suppliers, from);
+            lastRoundNanos = (System.nanoTime() - roundStarted) / Math.max(1, operations - before);
+            if (firstRoundNanos < 0) {
+                firstRoundNanos = lastRoundNanos;
+            }
+            stable = lastRoundNanos < bestRoundNanos * IMPROVEMENT ? 0 : stable + 1;
+            bestRoundNanos = Math.min(bestRoundNanos, lastRoundNanos);
+            rounds++;
+        }
+
+        Result result = new Result(millisSince(started), loadMillis, rounds, operations, stable >= STABLE_ROUNDS,
+                micros(firstRoundNanos), micros(lastRoundNanos));
+        LOGGER.info("Warm-up " + (result.settled ? "settled" : "ran out of time") + " after " + rounds +
+                " rounds in " + result.millis + " ms; " + result.firstRoundMicros + " us per operation at first, " +
+                result.lastRoundMicros + " us at the end");
+        return result;
+    }
+
+    private void touchIndexes(long deadline) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String sql : TOUCH_INDEXES) {
+                long remainingSeconds = TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime());
+                if (remainingSeconds <= 0) {
+                    return;
+                }
+                stmt.setQueryTimeout((int) Math.min(remainingSeconds, Integer.MAX_VALUE));
+                stmt.executeQuery(sql).close();
+            }
+        }
+    }
+
+    /**
+     * Mostly point reads, as at a till, with one of each listing and report
+     */
+    private void round(List<Product> products, List<Supplier> suppliers, String from) throws SQLException {
+        for (int i = 0; i < POINT_READS_PER_ROUND; i++) {
+            if (!products.isEmpty()) {
+                Product product = products.get(random.nextInt(products.size()));
+                serialize(store.getProductById(product.getId()));
+                if (product.getSku() != null) {
+                    serialize(store.getProductBySku(product.getSku()));
+                }
+                if (i % BATCH_SIZE == 0) {
+                    List<Integer> ids = new ArrayList<>();
+                    for (int j = 0; j < BATCH_SIZE; j++) {
+                        ids.add(products.get(random.nextInt(products.size())).getId());
+                    }
+                    serialize(store.getProductsByIds(ids));
+                }
+            }
+            if (!suppliers.isEmpty()) {
+                serialize(store.getSupplierById(suppliers.get(random.nextInt(suppliers.size())).getId()));
+            }
+        }
+        // Both read paths, as the reporting replica answers those that need not read their writes
+        for (boolean readYourWrites : new boolean[] {true, false}) {
+            serialize(store.getAllProducts(readYourWrites));
+            serialize(store.getAllSuppliers(readYourWrites));
+            serialize(store.generateInventoryReport(readYourWrites));
+            serialize(store.generateSalesReport(readYourWrites, from, null));
+        }
+    }
+
+    private void serialize(Object body) {
+        serializer.apply(body);
+        operations++;
+    }
+
+    // -1 if no round ran
+    private static long micros(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static long millisSince(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    static final class Result {
+        private final long millis;
+        private final long loadMillis;
+        private final int rounds;
+        private final int operations;
+        private final boolean settled;
+        private final long firstRoundMicros;
+        private final long lastRoundMicros;
+
+        private Result(long millis, long loadMillis, int rounds, int operations, boolean settled,
+                       long firstRoundMicros, long lastRoundMicros) {
+            this.millis = millis;
+            this.loadMillis = loadMillis;
+            this.rounds = rounds;
+            this.operations = operations;
+            this.settled = settled;
+            this.firstRoundMicros = firstRoundMicros;
+            this.lastRoundMicros = lastRoundMicros;
+        }
+
+        public long getMillis() { return millis; }
+        public long getLoadMillis() { return loadMillis; }
+        public int getRounds() { return rounds; }
+        public int getOperations() { return operations; }
+        /** @return false if the budget ran out first */
+        public boolean isSettled() { return settled; }
+        /** @return Mean time per operation in the first round */
+        public long getFirstRoundMicros() { return firstRoundMicros; }
+        /** @return Mean time per operation in the last round */
+        public long getLastRoundMicros() { return lastRoundMicros; }
+    }
+}
@@ -0,0 +1,50 @@
+package org.inventorymanagementsystem.model;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
+import java.sql.Timestamp;
+
+/**
+ * A customer sales can be recorded against. The purchase totals are lifetime totals, kept up
+ * to date by every sale to the customer, so a loyalty lookup reads one row.
+ */
+public class Customer {
+    private int id;
+    private String name;
+    private String email;
+    private String phone;
+    private long purchaseCount;
+    private long unitsBought;
+    @SerializedName("totalSpent")
+    @JsonAdapter(Money.JsonAdapter.class)
+    private long spentCents;
+    // Null until the first purchase
+    private Timestamp lastPurchaseAt;
+
+    public Customer() {}
+
+    public Customer(int id, String name, String email, String phone) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+    }
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+    public String getPhone() { return phone; }
+    public void setPhone(String phone) { this.phone = phone; }
+    public long getPurchaseCount() { return purchaseCount; }
+    public void setPurchaseCount(long purchaseCount) { this.purchaseCount = purchaseCount; }
+    public long getUnitsBought() { return unitsBought; }
+    public void setUnitsBought(long unitsBought) { this.unitsBought = unitsBought; }
+    public long getSpentCents() { return spentCents; }
+    public void setSpentCents(long spentCents) { this.spentCents = spentCents; }
+    public Timestamp getLastPurchaseAt() { return lastPurchaseAt; }
+    public void setLastPurchaseAt(Timestamp lastPurchaseAt) { this.lastPurchaseAt = lastPurchaseAt; }
+}
@@ -0,0 +1,21 @@
+package org.inventorymanagementsystem.model;
+
+/**
+ * A place stock is held, such as a store or warehouse
+ */
+public class Location {
+    private int id;
+    private String name;
+
+    public Location() {}
+
+    public Location(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
@@ -0,0 +1,26 @@
+package org.inventorymanagementsystem.model;
+
+/**
+ * Units of one product held at one location. Listings fill in the name on the side
+ * that varies: the location's when listing a product, the product's when listing a location.
+ */
+public class LocationStock {
+    private int productId;
+    private String productName;
+    private int locationId;
+    private String locationName;
+    private int quantity;
+
+    public LocationStock() {}
+
+    public int getProductId() { return productId; }
+    public void setProductId(int productId) { this.productId = productId; }
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+    public int getLocationId() { return locationId; }
+    public void setLocationId(int locationId) { this.locationId = locationId; }
+    public String getLocationName() { return locationName; }
+    public void setLocationName(String locationName) { this.locationName = locationName; }
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+}
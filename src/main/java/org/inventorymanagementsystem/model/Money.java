@@ -0,0 +1,107 @@
+package org.inventorymanagementsystem.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts are plain {@code long} counts of cents everywhere in the system: in the
+ * model, in BIGINT database columns and in report totals. This class holds the conversions
+ * to and from decimal text and the overflow-checked arithmetic on those longs, so
+ * summing amounts never allocates and never rounds.
+ */
+public final class Money {
+    /** Number of decimal places in a money amount */
+    public static final int SCALE = 2;
+    private static final long CENTS_PER_UNIT = 100;
+
+    private Money() {}
+
+    /**
+     * Converts a decimal amount to cents, rounding half up to the nearest cent
+     * @param amount Decimal amount, e.g. 12.99
+     * @return Amount in cents
+     * @throws ArithmeticException If the amount does not fit in a long
+     */
+    public static long ofDecimal(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Parses decimal text such as {@code "12.99"} to cents
+     * @throws NumberFormatException If the text is not a decimal number
+     */
+    public static long parse(String amount) {
+        return ofDecimal(new BigDecimal(amount.trim()));
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Formats cents as decimal text with exactly two decimal places, e.g. 1299 as {@code "12.99"}
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(24);
+        long units = cents / CENTS_PER_UNIT;
+        long remainder = Math.abs(cents % CENTS_PER_UNIT);
+        if (cents < 0 && units == 0) {
+            sb.append('-');
+        }
+        sb.append(units).append('.');
+        if (remainder < 10) {
+            sb.append('0');
+        }
+        return sb.append(remainder).toString();
+    }
+
+    /**
+     * @return Price times quantity in cents
+     * @throws ArithmeticException On overflow
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /**
+     * @throws ArithmeticException On overflow
+     */
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Reads and writes cent fields as decimal JSON numbers, so the API keeps exposing
+     * {@code "price": 12.99} while the field holds {@code 1299}. Used on fields with
+     * {@code @JsonAdapter(Money.JsonAdapter.class)}.
+     */
+    public static final class JsonAdapter extends TypeAdapter<Long> {
+        @Override
+        public void write(JsonWriter out, Long cents) throws IOException {
+            if (cents == null) {
+                out.nullValue();
+            } else {
+                out.jsonValue(format(cents));
+            }
+        }
+
+        @Override
+        public Long read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            try {
+                return parse(in.nextString());
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException("Invalid money amount at " + in.getPath(), e);
+            }
+        }
+    }
+}
@@ -1,52 +1,60 @@
 package org.inventorymanagementsystem.model;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
 import java.util.Objects;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 /**
  * Represents a product in the inventory management system.
  * This immutable class provides thread-safe operations for product management.
  */
 public final class Product {
-    private final int id;
-    private final String name;
-    private final BigDecimal price;
+    private int id;
+    private String name;
+    @SerializedName("price")
+    @JsonAdapter(Money.JsonAdapter.class)
+    private long priceCents;
     private int stockQuantity;
     private int supplierId;
+    // Barcode or stock-keeping code scanned at the till; null if the product has none
+    private String sku;
+    // Bumped on every change; sent as the ETag and checked against If-Match
+    private int version;
+    // Filled in only when a read asks for the supplier with the product (?expand=supplier)
+    private Supplier supplier;
 
     /**
      * Constructs a new Product.
      *
      * @param id the product ID (must be positive)
      * @param name the product name (cannot be null or empty)
-     * @param price the product price (must be positive)
+     * @param priceCents the product price in cents (must be positive)
      * @param stockQuantity the stock quantity (must be non-negative)
      * @throws IllegalArgumentException if any parameter is invalid
      * @throws NullPointerException if name is null
      */
-    public Product(int id, String name, double price, int stockQuantity) {
+    public Product(int id, String name, long priceCents, int stockQuantity) {
         validateId(id);
         this.id = id;
         this.name = validateName(name);
-        this.price = validatePrice(price);
+        this.priceCents = validatePrice(priceCents);
         this.stockQuantity = validateStockQuantity(stockQuantity);
     }
 
-    public Product(int id, String name, BigDecimal price) {
-
-        this.id = id;
-        this.name = name;
-        this.price = price;
-    }
-
 
     // Add these methods
     public int getSupplierId() { return supplierId; }
     public void setSupplierId(int supplierId) { this.supplierId = supplierId; }
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+    public Supplier getSupplier() { return supplier; }
+    public void setSupplier(Supplier supplier) { this.supplier = supplier; }
     public Product() {
         this.id = 0;
         this.name = "Unknown";
-        this.price = BigDecimal.ZERO;
+        this.priceCents = 0;
         this.stockQuantity = 0;
     }
 
@@ -70,11 +78,11 @@ public final class Product {
         return trimmed;
     }
 
-    private static BigDecimal validatePrice(double price) {
-        if (price <= 0) {
+    private static long validatePrice(long priceCents) {
+        if (priceCents <= 0) {
             throw new IllegalArgumentException("Price must be positive");
         }
-        return BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP);
+        return priceCents;
     }
 
     private static int validateStockQuantity(int quantity) {
@@ -93,12 +101,11 @@ public final class Product {
         return name;
     }
 
-    public double getPrice() {
-        return price.doubleValue();
-    }
-
-    public BigDecimal getExactPrice() {
-        return price;
+    /**
+     * @return the price in cents
+     */
+    public long getPriceCents() {
+        return priceCents;
     }
 
     public int getStockQuantity() {
@@ -119,17 +126,17 @@ public final class Product {
                     String.format("Insufficient stock. Current: %d, Attempted change: %d",
                             stockQuantity, delta));
         }
-        return new Product(this.id, this.name, this.price.doubleValue(), newQuantity);
+        return new Product(this.id, this.name, this.priceCents, newQuantity);
     }
 
     /**
      * Creates a new Product with updated price.
-     * @param newPrice the new price (must be positive)
+     * @param newPriceCents the new price in cents (must be positive)
      * @return a new Product instance with updated price
      * @throws IllegalArgumentException if price is not positive
      */
-    public Product withPrice(double newPrice) {
-        return new Product(this.id, this.name, newPrice, this.stockQuantity);
+    public Product withPriceCents(long newPriceCents) {
+        return new Product(this.id, this.name, newPriceCents, this.stockQuantity);
     }
 
     /**
@@ -139,7 +146,7 @@ public final class Product {
      * @throws IllegalArgumentException if name is null or empty
      */
     public Product withName(String newName) {
-        return new Product(this.id, newName, this.price.doubleValue(), this.stockQuantity);
+        return new Product(this.id, newName, this.priceCents, this.stockQuantity);
     }
 
     // Object overrides
@@ -151,18 +158,18 @@ public final class Product {
         return id == product.id &&
                 stockQuantity == product.stockQuantity &&
                 name.equals(product.name) &&
-                price.compareTo(product.price) == 0;
+                priceCents == product.priceCents;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, price, stockQuantity);
+        return Objects.hash(id, name, priceCents, stockQuantity);
     }
 
     @Override
     public String toString() {
-        return String.format("Product[id=%d, name='%s', price=%.2f, stock=%d]",
-                id, name, price.doubleValue(), stockQuantity);
+        return String.format("Product[id=%d, name='%s', price=%s, stock=%d]",
+                id, name, Money.format(priceCents), stockQuantity);
     }
 
     // Builder pattern for complex constructions
@@ -171,21 +178,25 @@ public final class Product {
     }
 
     public void setId(int id) {
+        this.id = id;
     }
 
     public void setName(String name) {
+        this.name = name;
     }
 
-    public void setPrice(double price) {
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
     }
 
     public void setStockQuantity(int stockQuantity) {
+        this.stockQuantity = stockQuantity;
     }
 
     public static final class Builder {
         private int id;
         private String name;
-        private double price;
+        private long priceCents;
         private int stockQuantity;
 
         private Builder() {}
@@ -200,8 +211,8 @@ public final class Product {
             return this;
         }
 
-        public Builder price(double price) {
-            this.price = price;
+        public Builder priceCents(long priceCents) {
+            this.priceCents = priceCents;
             return this;
         }
 
@@ -211,7 +222,7 @@ public final class Product {
         }
 
         public Product build() {
-            return new Product(id, name, price, stockQuantity);
+            return new Product(id, name, priceCents, stockQuantity);
         }
     }
 }
\ No newline at end of file
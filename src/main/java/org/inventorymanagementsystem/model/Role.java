@@ -0,0 +1,10 @@
+package org.inventorymanagementsystem.model;
+
+/**
+ * Roles from requirement 2.1. Admins manage products, suppliers, stock and users; sales
+ * staff record sales and read everything else.
+ */
+public enum Role {
+    ADMIN,
+    SALES_STAFF
+}
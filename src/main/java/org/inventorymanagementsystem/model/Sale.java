@@ -1,5 +1,8 @@
 package org.inventorymanagementsystem.model;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
 import java.sql.Timestamp;
 
 public class Sale {
@@ -7,9 +10,17 @@ public class Sale {
     private int productId;
     private String productName;
     private int quantitySold;
-    private double unitPrice;
-    private double totalPrice;
+    @SerializedName("unitPrice")
+    @JsonAdapter(Money.JsonAdapter.class)
+    private long unitPriceCents;
+    @SerializedName("totalPrice")
+    @JsonAdapter(Money.JsonAdapter.class)
+    private long totalPriceCents;
     private Timestamp saleDate;
+    // Location the stock was taken from, or 0 for stock held at no particular location
+    private int locationId;
+    // Customer the sale was made to, or 0 for an anonymous sale
+    private int customerId;
 
     // Default constructor
     public Sale() {
@@ -17,18 +28,18 @@ public class Sale {
     }
 
     // Constructor for creating new sales
-    public Sale(int productId, int quantitySold, double unitPrice) {
+    public Sale(int productId, int quantitySold, long unitPriceCents) {
         this();
         this.productId = productId;
         this.quantitySold = quantitySold;
-        this.unitPrice = unitPrice;
-        this.totalPrice = quantitySold * unitPrice;
+        this.unitPriceCents = unitPriceCents;
+        this.totalPriceCents = Money.times(unitPriceCents, quantitySold);
     }
 
     // Full constructor for loading existing sales
     public Sale(int id, int productId, String productName, int quantitySold,
-                double unitPrice, Timestamp saleDate) {
-        this(productId, quantitySold, unitPrice);
+                long unitPriceCents, Timestamp saleDate) {
+        this(productId, quantitySold, unitPriceCents);
         this.id = id;
         this.productName = productName;
         this.saleDate = saleDate;
@@ -65,20 +76,20 @@ public class Sale {
 
     public void setQuantitySold(int quantitySold) {
         this.quantitySold = quantitySold;
-        this.totalPrice = this.quantitySold * this.unitPrice;
+        this.totalPriceCents = Money.times(this.unitPriceCents, quantitySold);
     }
 
-    public double getUnitPrice() {
-        return unitPrice;
+    public long getUnitPriceCents() {
+        return unitPriceCents;
     }
 
-    public void setUnitPrice(double unitPrice) {
-        this.unitPrice = unitPrice;
-        this.totalPrice = this.quantitySold * unitPrice;
+    public void setUnitPriceCents(long unitPriceCents) {
+        this.unitPriceCents = unitPriceCents;
+        this.totalPriceCents = Money.times(unitPriceCents, this.quantitySold);
     }
 
-    public double getTotalPrice() {
-        return totalPrice;
+    public long getTotalPriceCents() {
+        return totalPriceCents;
     }
 
     public Timestamp getSaleDate() {
@@ -96,9 +107,25 @@ public class Sale {
                 ", productId=" + productId +
                 ", productName='" + productName + '\'' +
                 ", quantitySold=" + quantitySold +
-                ", unitPrice=" + unitPrice +
-                ", totalPrice=" + totalPrice +
+                ", unitPrice=" + Money.format(unitPriceCents) +
+                ", totalPrice=" + Money.format(totalPriceCents) +
                 ", saleDate=" + saleDate +
                 '}';
     }
-}
\ No newline at end of file
+
+    public int getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(int locationId) {
+        this.locationId = locationId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+}
@@ -0,0 +1,37 @@
+package org.inventorymanagementsystem.model;
+
+/**
+ * One line of a bulk stock adjustment: a product, the change to its stock and, once the
+ * batch has run, what happened to it.
+ */
+public class StockAdjustmentLine {
+    public enum Status {
+        APPLIED,
+        NOT_FOUND,
+        INSUFFICIENT_STOCK,
+        /** Could have been applied, but the batch was all-or-nothing and another line failed */
+        NOT_APPLIED
+    }
+
+    private int productId;
+    private int delta;
+    private Status status;
+    // Stock after the whole batch, for applied lines only
+    private Integer stockQuantity;
+
+    public StockAdjustmentLine() {}
+
+    public StockAdjustmentLine(int productId, int delta) {
+        this.productId = productId;
+        this.delta = delta;
+    }
+
+    public int getProductId() { return productId; }
+    public void setProductId(int productId) { this.productId = productId; }
+    public int getDelta() { return delta; }
+    public void setDelta(int delta) { this.delta = delta; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public Integer getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
+}
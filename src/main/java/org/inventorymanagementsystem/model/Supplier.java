@@ -7,6 +7,8 @@ public class Supplier {
     private String contactPerson;
     private String email;
     private String phone;
+    // Bumped on every change; sent as the ETag and checked against If-Match
+    private int version;
 
     public Supplier() {}
 
@@ -29,4 +31,6 @@ public class Supplier {
     public void setEmail(String email) { this.email = email; }
     public String getPhone() { return phone; }
     public void setPhone(String phone) { this.phone = phone; }
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
 }
\ No newline at end of file
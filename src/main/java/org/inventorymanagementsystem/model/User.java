@@ -0,0 +1,29 @@
+package org.inventorymanagementsystem.model;
+
+
+public class User {
+    private int id;
+    private String username;
+    private Role role;
+    // Never serialized; only read when checking a login
+    private transient String passwordHash;
+
+    public User() {}
+
+    public User(int id, String username, Role role, String passwordHash) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.passwordHash = passwordHash;
+    }
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public Role getRole() { return role; }
+    public void setRole(Role role) { this.role = role; }
+    public String getPasswordHash() { return passwordHash; }
+    public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
+}
@@ -0,0 +1,68 @@
+package org.inventorymanagementsystem.repository;
+
+import org.inventorymanagementsystem.model.Customer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.inventorymanagementsystem.repository.Repositories.*;
+
+/**
+ * Data access for the customers table
+ */
+public final class CustomerRepository {
+    /** Columns read by {@link #ROW_MAPPER}, in order */
+    public static final String COLUMNS =
+            "id, name, email, phone, purchase_count, units_bought, spent_cents, last_purchase_at";
+
+    public static final RowMapper<Customer> ROW_MAPPER = rs -> {
+        Customer customer = new Customer(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
+        customer.setPurchaseCount(rs.getLong(5));
+        customer.setUnitsBought(rs.getLong(6));
+        customer.setSpentCents(rs.getLong(7));
+        customer.setLastPurchaseAt(rs.getTimestamp(8));
+        return customer;
+    };
+
+    private static final String SELECT_BY_ID =
+            "SELECT " + COLUMNS + " FROM customers WHERE id = ?";
+    // Reads back the row as stored, with its generated ID and empty totals
+    private static final String INSERT_RETURNING =
+            "SELECT " + COLUMNS + " FROM FINAL TABLE (INSERT INTO customers (name, email, phone) VALUES (?, ?, ?))";
+    // Takes the time from the sale row, which the database stamped
+    private static final String ADD_PURCHASE =
+            "UPDATE customers SET purchase_count = purchase_count + 1, units_bought = units_bought + ?, " +
+            "spent_cents = spent_cents + ?, last_purchase_at = (SELECT sale_date FROM sales WHERE id = ?) WHERE id = ?";
+
+    /**
+     * @return The customer, or null if there is none with this ID
+     */
+    public Customer findById(Connection conn, int id) throws SQLException {
+        return queryOne(conn, SELECT_BY_ID, stmt -> stmt.setInt(1, id), ROW_MAPPER);
+    }
+
+    /**
+     * @return The stored customer, with its generated ID
+     */
+    public Customer insert(Connection conn, Customer customer) throws SQLException {
+        return queryOne(conn, INSERT_RETURNING, stmt -> {
+            stmt.setString(1, customer.getName());
+            stmt.setString(2, customer.getEmail());
+            stmt.setString(3, customer.getPhone());
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Adds a recorded sale to the customer's lifetime totals
+     * @return false if the customer does not exist
+     */
+    public boolean addPurchase(Connection conn, int customerId, int saleId, int units, long spentCents)
+            throws SQLException {
+        return update(conn, ADD_PURCHASE, stmt -> {
+            stmt.setInt(1, units);
+            stmt.setLong(2, spentCents);
+            stmt.setInt(3, saleId);
+            stmt.setInt(4, customerId);
+        }) > 0;
+    }
+}
@@ -0,0 +1,120 @@
+package org.inventorymanagementsystem.repository;
+
+import org.inventorymanagementsystem.model.Location;
+import org.inventorymanagementsystem.model.LocationStock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.inventorymanagementsystem.repository.Repositories.*;
+
+/**
+ * Data access for the locations and location_stock tables
+ */
+public final class LocationRepository {
+    public static final RowMapper<Location> ROW_MAPPER = rs -> new Location(rs.getInt(1), rs.getString(2));
+
+    private static final String SELECT_ALL =
+            "SELECT id, name FROM locations ORDER BY name";
+    private static final String SELECT_BY_ID =
+            "SELECT id, name FROM locations WHERE id = ?";
+    private static final String INSERT =
+            "INSERT INTO locations (name) VALUES (?)";
+    // Served by the primary key, which starts with product_id
+    private static final String SELECT_FOR_PRODUCT =
+            "SELECT s.product_id, s.location_id, l.name, s.quantity FROM location_stock s " +
+            "JOIN locations l ON l.id = s.location_id WHERE s.product_id = ? AND s.quantity > 0 ORDER BY l.name";
+    // The product name is a scalar subquery so location_stock stays the only table in FROM, and
+    // the order names location_id, constant here, because H2 only reads idx_location_stock_location
+    // in order, stopping at the limit, when the ORDER BY matches it from its first column
+    private static final String SELECT_AT_LOCATION =
+            "SELECT s.product_id, (SELECT p.name FROM products p WHERE p.id = s.product_id), s.location_id, s.quantity " +
+            "FROM location_stock s WHERE s.location_id = ? AND s.quantity > 0 " +
+            "ORDER BY s.location_id, s.product_id LIMIT ? OFFSET ?";
+    // Guarded in the statement itself, like the product stock, so a location cannot go negative
+    private static final String TAKE =
+            "UPDATE location_stock SET quantity = quantity - ? WHERE product_id = ? AND location_id = ? AND quantity >= ?";
+    // Merges nothing if the location does not exist, as location_stock has no foreign key to it
+    private static final String PUT =
+            "MERGE INTO location_stock t USING (SELECT CAST(? AS INT), l.id, CAST(? AS INT) FROM locations l WHERE l.id = ?) " +
+            "v(product_id, location_id, quantity) ON t.product_id = v.product_id AND t.location_id = v.location_id " +
+            "WHEN MATCHED THEN UPDATE SET t.quantity = t.quantity + v.quantity " +
+            "WHEN NOT MATCHED THEN INSERT (product_id, location_id, quantity) VALUES (v.product_id, v.location_id, v.quantity)";
+
+    public List<Location> findAll(Connection conn) throws SQLException {
+        return queryList(conn, SELECT_ALL, NO_PARAMETERS, ROW_MAPPER);
+    }
+
+    /**
+     * @return The location, or null if there is none with this ID
+     */
+    public Location findById(Connection conn, int id) throws SQLException {
+        return queryOne(conn, SELECT_BY_ID, stmt -> stmt.setInt(1, id), ROW_MAPPER);
+    }
+
+    /**
+     * @return The generated location ID
+     */
+    public int insert(Connection conn, Location location) throws SQLException {
+        return Repositories.insert(conn, INSERT, stmt -> stmt.setString(1, location.getName()));
+    }
+
+    /**
+     * @return Locations holding the product, by location name
+     */
+    public List<LocationStock> findForProduct(Connection conn, int productId) throws SQLException {
+        return queryList(conn, SELECT_FOR_PRODUCT, stmt -> stmt.setInt(1, productId), rs -> {
+            LocationStock stock = new LocationStock();
+            stock.setProductId(rs.getInt(1));
+            stock.setLocationId(rs.getInt(2));
+            stock.setLocationName(rs.getString(3));
+            stock.setQuantity(rs.getInt(4));
+            return stock;
+        });
+    }
+
+    /**
+     * @return Products held at the location, by product ID
+     */
+    public List<LocationStock> findAtLocation(Connection conn, int locationId, int limit, int offset)
+            throws SQLException {
+        return queryList(conn, SELECT_AT_LOCATION, stmt -> {
+            stmt.setInt(1, locationId);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, offset);
+        }, rs -> {
+            LocationStock stock = new LocationStock();
+            stock.setProductId(rs.getInt(1));
+            stock.setProductName(rs.getString(2));
+            stock.setLocationId(rs.getInt(3));
+            stock.setQuantity(rs.getInt(4));
+            return stock;
+        });
+    }
+
+    /**
+     * Takes units from a location unless it holds fewer
+     * @return true if they were taken
+     */
+    public boolean take(Connection conn, int productId, int locationId, int quantity) throws SQLException {
+        return update(conn, TAKE, stmt -> {
+            stmt.setInt(1, quantity);
+            stmt.setInt(2, productId);
+            stmt.setInt(3, locationId);
+            stmt.setInt(4, quantity);
+        }) > 0;
+    }
+
+    /**
+     * Adds units at a location, creating its row for the product if needed
+     * @return false if the location does not exist
+     */
+    public boolean put(Connection conn, int productId, int locationId, int quantity) throws SQLException {
+        return update(conn, PUT, stmt -> {
+            stmt.setInt(1, productId);
+            stmt.setInt(2, quantity);
+            stmt.setInt(3, locationId);
+        }) > 0;
+    }
+}
@@ -0,0 +1,356 @@
+package org.inventorymanagementsystem.repository;
+
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.inventorymanagementsystem.repository.Repositories.*;
+
+/**
+ * Data access for the products table
+ */
+public final class ProductRepository {
+    /** Columns read by {@link #ROW_MAPPER}, in order */
+    public static final String COLUMNS = "p.id, p.name, p.price_cents, p.stock_quantity, p.supplier_id, p.version, p.sku";
+
+    public static final RowMapper<Product> ROW_MAPPER = rs -> {
+        Product product = new Product();
+        product.setId(rs.getInt(1));
+        product.setName(rs.getString(2));
+        product.setPriceCents(rs.getLong(3));
+        product.setStockQuantity(rs.getInt(4));
+        product.setSupplierId(rs.getInt(5));
+        product.setVersion(rs.getInt(6));
+        product.setSku(rs.getString(7));
+        return product;
+    };
+
+    // The product's columns followed by its supplier's, which are null if it has none
+    private static final String EXPANDED_COLUMNS = COLUMNS + ", s.id, s.name, s.contact_person, s.email, s.phone, s.version";
+    private static final String EXPANDED_FROM = " FROM products p LEFT JOIN suppliers s ON s.id = p.supplier_id";
+
+    public static final RowMapper<Product> EXPANDED_ROW_MAPPER = rs -> {
+        Product product = ROW_MAPPER.map(rs);
+        if (rs.getObject(8) != null) {
+            Supplier supplier = new Supplier(rs.getInt(8), rs.getString(9), rs.getString(10), rs.getString(11),
+                    rs.getString(12));
+            supplier.setVersion(rs.getInt(13));
+            product.setSupplier(supplier);
+        }
+        return product;
+    };
+
+    private static final String SELECT_ALL =
+            "SELECT " + COLUMNS + " FROM products p ORDER BY p.name";
+    private static final String SELECT_PAGE =
+            "SELECT " + COLUMNS + " FROM products p ORDER BY p.name LIMIT ? OFFSET ?";
+    private static final String SELECT_BY_ID =
+            "SELECT " + COLUMNS + " FROM products p WHERE p.id = ?";
+    private static final String SELECT_BY_IDS =
+            "SELECT " + COLUMNS + " FROM products p WHERE p.id = ANY(?)";
+    private static final String SELECT_BY_SKU =
+            "SELECT " + COLUMNS + " FROM products p WHERE p.sku = ?";
+    // Name search without the in-process index; same ranking as ProductSearchIndex: names that
+    // start with the query, then names with a word starting with every query word
+    private static final String SEARCH_NAME = "LOWER(TRIM(p.name))";
+    private static final String SEARCH =
+            "SELECT " + COLUMNS + " FROM products p WHERE " + SEARCH_NAME + " LIKE ? ESCAPE '\\' " +
+            "OR REGEXP_LIKE(" + SEARCH_NAME + ", ?) " +
+            "ORDER BY CASE WHEN " + SEARCH_NAME + " LIKE ? ESCAPE '\\' THEN 0 ELSE 1 END, " + SEARCH_NAME + ", p.id " +
+            "LIMIT ?";
+    private static final String SELECT_ALL_EXPANDED =
+            "SELECT " + EXPANDED_COLUMNS + EXPANDED_FROM + " ORDER BY p.name";
+    private static final String SELECT_BY_ID_EXPANDED =
+            "SELECT " + EXPANDED_COLUMNS + EXPANDED_FROM + " WHERE p.id = ?";
+    private static final String SELECT_BY_IDS_EXPANDED =
+            "SELECT " + EXPANDED_COLUMNS + EXPANDED_FROM + " WHERE p.id = ANY(?)";
+    private static final String SELECT_BY_SKU_EXPANDED =
+            "SELECT " + EXPANDED_COLUMNS + EXPANDED_FROM + " WHERE p.sku = ?";
+    // Read in order from idx_products_supplier, stopping at the limit. H2 only does so when the
+    // ORDER BY starts with the index's first column, constant here, and would otherwise often
+    // pick the index it made for the foreign key, which has no name order.
+    private static final String SELECT_BY_SUPPLIER =
+            "SELECT " + COLUMNS + " FROM products p USE INDEX (idx_products_supplier) WHERE p.supplier_id = ? " +
+            "ORDER BY p.supplier_id, p.name, p.id LIMIT ? OFFSET ?";
+    private static final String SELECT_BY_SUPPLIER_EXPANDED =
+            "SELECT " + EXPANDED_COLUMNS + " FROM products p USE INDEX (idx_products_supplier) " +
+            "LEFT JOIN suppliers s ON s.id = p.supplier_id WHERE p.supplier_id = ? " +
+            "ORDER BY p.supplier_id, p.name, p.id LIMIT ? OFFSET ?";
+    private static final String SELECT_NAMES =
+            "SELECT p.id, p.name FROM products p WHERE p.id = ANY(?)";
+    // H2 keeps the row of a FINAL TABLE write whose foreign key check fails, so writes that set
+    // the supplier check it themselves and match no row if it does not exist
+    private static final String SUPPLIER_EXISTS = "(? = 0 OR EXISTS (SELECT 1 FROM suppliers s WHERE s.id = ?))";
+    private static final String INSERT =
+            "INSERT INTO products (name, price_cents, stock_quantity, supplier_id, sku) SELECT ?, ?, ?, ?, ? WHERE " +
+            SUPPLIER_EXISTS;
+    // stock_quantity is the total over all locations and located_quantity the part of it held
+    // at named locations. Writes without a location act on the rest, so they may not take the
+    // total below located_quantity.
+    // Every write bumps the version, so a stale If-Match is detected
+    private static final String UPDATE =
+            "UPDATE products SET name = ?, price_cents = ?, stock_quantity = ?, supplier_id = ?, sku = ?, " +
+            "version = version + 1 WHERE id = ? AND " + SUPPLIER_EXISTS + " AND ? >= located_quantity";
+    private static final String UPDATE_IF_VERSION = UPDATE + " AND version = ?";
+    private static final String UPDATE_STOCK =
+            "UPDATE products SET stock_quantity = ?, version = version + 1 WHERE id = ? AND ? >= located_quantity";
+    private static final String ADJUST_STOCK =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, version = version + 1 WHERE id = ?";
+    // Guarded in the statement itself, so concurrent adjustments cannot drive stock negative
+    private static final String ADJUST_STOCK_GUARDED = ADJUST_STOCK + " AND stock_quantity + ? >= located_quantity";
+    // Keeps both totals in step with a change to location_stock made in the same transaction
+    private static final String MOVE_STOCK =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, located_quantity = located_quantity + ?, " +
+            "version = version + 1 WHERE id = ? AND stock_quantity + ? >= located_quantity + ?";
+    private static final String SELECT_LOCATED =
+            "SELECT p.located_quantity FROM products p WHERE p.id = ?";
+
+    // The writes below read back the row they changed, as stored, in the same statement
+    private static final String INSERT_RETURNING = returning(INSERT);
+    private static final String UPDATE_RETURNING = returning(UPDATE);
+    private static final String UPDATE_IF_VERSION_RETURNING = returning(UPDATE_IF_VERSION);
+    private static final String UPDATE_STOCK_RETURNING = returning(UPDATE_STOCK);
+    private static final String ADJUST_STOCK_RETURNING = returning(ADJUST_STOCK_GUARDED);
+    private static final String MOVE_STOCK_RETURNING = returning(MOVE_STOCK);
+    private static final String DELETE =
+            "DELETE FROM products WHERE id = ?";
+
+    public List<Product> findAll(Connection conn) throws SQLException {
+        return findAll(conn, false);
+    }
+
+    /**
+     * @param expandSupplier If true, each product carries its supplier, read in the same query
+     */
+    public List<Product> findAll(Connection conn, boolean expandSupplier) throws SQLException {
+        return expandSupplier
+                ? queryList(conn, SELECT_ALL_EXPANDED, NO_PARAMETERS, EXPANDED_ROW_MAPPER)
+                : queryList(conn, SELECT_ALL, NO_PARAMETERS, ROW_MAPPER);
+    }
+
+    public List<Product> findPage(Connection conn, int limit, int offset) throws SQLException {
+        return queryList(conn, SELECT_PAGE, stmt -> {
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * @return The product, or null if there is none with this ID
+     */
+    public Product findById(Connection conn, int id) throws SQLException {
+        return findById(conn, id, false);
+    }
+
+    public Product findById(Connection conn, int id, boolean expandSupplier) throws SQLException {
+        return expandSupplier
+                ? queryOne(conn, SELECT_BY_ID_EXPANDED, stmt -> stmt.setInt(1, id), EXPANDED_ROW_MAPPER)
+                : queryOne(conn, SELECT_BY_ID, stmt -> stmt.setInt(1, id), ROW_MAPPER);
+    }
+
+    /**
+     * @return The product with this SKU, or null if there is none
+     */
+    public Product findBySku(Connection conn, String sku) throws SQLException {
+        return findBySku(conn, sku, false);
+    }
+
+    public Product findBySku(Connection conn, String sku, boolean expandSupplier) throws SQLException {
+        return expandSupplier
+                ? queryOne(conn, SELECT_BY_SKU_EXPANDED, stmt -> stmt.setString(1, sku), EXPANDED_ROW_MAPPER)
+                : queryOne(conn, SELECT_BY_SKU, stmt -> stmt.setString(1, sku), ROW_MAPPER);
+    }
+
+    /**
+     * Finds products by name with a scan of the products table
+     * @param prefix Lower-case query the whole name may start with
+     * @param words Lower-case words of the query, each made of letters and digits
+     * @return Matching products, whole-name matches first
+     */
+    public List<Product> search(Connection conn, String prefix, String[] words, int limit) throws SQLException {
+        String like = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        // One lookahead per word, each requiring it at the start of a word; no words matches nothing
+        StringBuilder regex = new StringBuilder("(?s)^");
+        for (String word : words) {
+            regex.append("(?=.*(?:^|[^\\p{L}\\p{N}])").append(Pattern.quote(word)).append(')');
+        }
+        return queryList(conn, SEARCH, stmt -> {
+            stmt.setString(1, like);
+            stmt.setString(2, words.length == 0 ? null : regex.toString());
+            stmt.setString(3, like);
+            stmt.setInt(4, limit);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Loads several products in one query
+     * @return The products that exist, in no particular order
+     */
+    public List<Product> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        return findByIds(conn, ids, false);
+    }
+
+    public List<Product> findByIds(Connection conn, Collection<Integer> ids, boolean expandSupplier)
+            throws SQLException {
+        return queryList(conn, expandSupplier ? SELECT_BY_IDS_EXPANDED : SELECT_BY_IDS,
+                stmt -> stmt.setObject(1, ids.toArray(new Integer[0])), expandSupplier ? EXPANDED_ROW_MAPPER : ROW_MAPPER);
+    }
+
+    /**
+     * @return A page of the supplier's products, by name
+     */
+    public List<Product> findBySupplier(Connection conn, int supplierId, int limit, int offset, boolean expandSupplier)
+            throws SQLException {
+        return queryList(conn, expandSupplier ? SELECT_BY_SUPPLIER_EXPANDED : SELECT_BY_SUPPLIER, stmt -> {
+            stmt.setInt(1, supplierId);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, offset);
+        }, expandSupplier ? EXPANDED_ROW_MAPPER : ROW_MAPPER);
+    }
+
+    /**
+     * @return Name of each product that exists, by ID
+     */
+    public Map<Integer, String> findNames(Connection conn, Collection<Integer> ids) throws SQLException {
+        Map<Integer, String> names = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : queryList(conn, SELECT_NAMES,
+                stmt -> stmt.setObject(1, ids.toArray(new Integer[0])),
+                rs -> Map.entry(rs.getInt(1), rs.getString(2)))) {
+            names.put(entry.getKey(), entry.getValue());
+        }
+        return names;
+    }
+
+    private static String returning(String write) {
+        return "SELECT " + COLUMNS + " FROM FINAL TABLE (" + write + ") p";
+    }
+
+    /**
+     * @return The stored product, with its generated ID and initial version, or null if its
+     *         supplier does not exist
+     */
+    public Product insert(Connection conn, Product product) throws SQLException {
+        return queryOne(conn, INSERT_RETURNING, stmt -> {
+            stmt.setString(1, product.getName());
+            stmt.setLong(2, product.getPriceCents());
+            stmt.setInt(3, product.getStockQuantity());
+            setNullableId(stmt, 4, product.getSupplierId());
+            stmt.setString(5, product.getSku());
+            setSupplierExists(stmt, 6, product.getSupplierId());
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * @return The product as updated, or null if there is none with this ID, its new supplier
+     *         does not exist or the stock is below the units held at locations
+     */
+    public Product update(Connection conn, Product product) throws SQLException {
+        return queryOne(conn, UPDATE_RETURNING, stmt -> setUpdate(stmt, product), ROW_MAPPER);
+    }
+
+    /**
+     * Updates the product only if its version is still the given one
+     * @return The product as updated, or null if it is missing, has changed since, its new
+     *         supplier does not exist or the stock is below the units held at locations
+     */
+    public Product updateIfVersion(Connection conn, Product product, int expectedVersion) throws SQLException {
+        return queryOne(conn, UPDATE_IF_VERSION_RETURNING, stmt -> {
+            setUpdate(stmt, product);
+            stmt.setInt(10, expectedVersion);
+        }, ROW_MAPPER);
+    }
+
+    private static void setUpdate(PreparedStatement stmt, Product product) throws SQLException {
+        stmt.setString(1, product.getName());
+        stmt.setLong(2, product.getPriceCents());
+        stmt.setInt(3, product.getStockQuantity());
+        setNullableId(stmt, 4, product.getSupplierId());
+        stmt.setString(5, product.getSku());
+        stmt.setInt(6, product.getId());
+        setSupplierExists(stmt, 7, product.getSupplierId());
+        stmt.setInt(9, product.getStockQuantity());
+    }
+
+    private static void setSupplierExists(PreparedStatement stmt, int index, int supplierId) throws SQLException {
+        stmt.setInt(index, Math.max(supplierId, 0));
+        stmt.setInt(index + 1, supplierId);
+    }
+
+    /**
+     * @return The product as updated, or null if there is none with this ID or the stock is
+     *         below the units held at locations
+     */
+    public Product updateStock(Connection conn, int id, int quantity) throws SQLException {
+        return queryOne(conn, UPDATE_STOCK_RETURNING, stmt -> {
+            stmt.setInt(1, quantity);
+            stmt.setInt(2, id);
+            stmt.setInt(3, quantity);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Changes the stock by a delta unless that would take more than is held outside locations
+     * @return The product as updated, or null if it is missing or lacks the stock
+     */
+    public Product adjustStock(Connection conn, int id, int delta) throws SQLException {
+        return queryOne(conn, ADJUST_STOCK_RETURNING, stmt -> {
+            stmt.setInt(1, delta);
+            stmt.setInt(2, id);
+            stmt.setInt(3, delta);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Changes the total stock and the part of it held at locations, unless that would leave
+     * less in total than at locations
+     * @param delta Change to the total
+     * @param locatedDelta Change to the units held at locations
+     * @return The product as updated, or null if it is missing or the guard refused the change
+     */
+    public Product moveStock(Connection conn, int id, int delta, int locatedDelta) throws SQLException {
+        return queryOne(conn, MOVE_STOCK_RETURNING, stmt -> {
+            stmt.setInt(1, delta);
+            stmt.setInt(2, locatedDelta);
+            stmt.setInt(3, id);
+            stmt.setInt(4, delta);
+            stmt.setInt(5, locatedDelta);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * @return Units of the product held at locations, or null if there is none with this ID
+     */
+    public Integer findLocatedQuantity(Connection conn, int id) throws SQLException {
+        return queryOne(conn, SELECT_LOCATED, stmt -> stmt.setInt(1, id), rs -> rs.getInt(1));
+    }
+
+    /**
+     * Runs the stock changes in order as one batch. A change that would make stock negative,
+     * including because of an earlier change in the same batch, is skipped.
+     * @return Rows updated per change: 1 if applied, 0 if the product is missing or lacks stock
+     */
+    public int[] adjustStockGuarded(Connection conn, List<StockAdjustmentLine> lines) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(ADJUST_STOCK_GUARDED)) {
+            for (StockAdjustmentLine line : lines) {
+                stmt.setInt(1, line.getDelta());
+                stmt.setInt(2, line.getProductId());
+                stmt.setInt(3, line.getDelta());
+                stmt.addBatch();
+            }
+            return stmt.executeBatch();
+        }
+    }
+
+    public int delete(Connection conn, int id) throws SQLException {
+        return Repositories.update(conn, DELETE, stmt -> stmt.setInt(1, id));
+    }
+}
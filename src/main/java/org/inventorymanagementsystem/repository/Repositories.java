@@ -0,0 +1,76 @@
+package org.inventorymanagementsystem.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query helpers shared by the repositories.
+ * <p>
+ * Every query goes through {@link Connection#prepareStatement(String)} with a constant SQL
+ * string. Pooled connections cache prepared statements by SQL text, so after the first call
+ * on a connection the statement is reused instead of being parsed and planned again.
+ */
+final class Repositories {
+    private Repositories() {}
+
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    static final Binder NO_PARAMETERS = stmt -> {};
+
+    static <T> List<T> queryList(Connection conn, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        List<T> results = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    results.add(mapper.map(rs));
+                }
+            }
+        }
+        return results;
+    }
+
+    static <T> T queryOne(Connection conn, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapper.map(rs) : null;
+            }
+        }
+    }
+
+    static int update(Connection conn, String sql, Binder binder) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Executes an INSERT and returns the generated key, or 0 if none was generated
+     */
+    static int insert(Connection conn, String sql, Binder binder) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            binder.bind(stmt);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    static void setNullableId(PreparedStatement stmt, int index, int id) throws SQLException {
+        if (id > 0) {
+            stmt.setInt(index, id);
+        } else {
+            stmt.setNull(index, java.sql.Types.INTEGER);
+        }
+    }
+}
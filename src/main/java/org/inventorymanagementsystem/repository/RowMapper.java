@@ -0,0 +1,14 @@
+package org.inventorymanagementsystem.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object. Mappers read columns by position,
+ * so each one is paired with the column list its repository selects.
+ * @param <T> Type of object produced
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,96 @@
+package org.inventorymanagementsystem.repository;
+
+import org.inventorymanagementsystem.model.Sale;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.inventorymanagementsystem.repository.Repositories.*;
+
+/**
+ * Data access for the sales table
+ */
+public final class SaleRepository {
+    /** Columns read by {@link #ROW_MAPPER}, in order */
+    public static final String COLUMNS = "s.id, s.product_id, p.name, s.quantity_sold, s.unit_price_cents, s.sale_date, s.location_id, s.customer_id";
+    // Same columns with the product name as a scalar subquery. Keeping sales the only table in
+    // FROM lets H2 return rows in idx_sales_recent order instead of sorting them.
+    private static final String LISTING_COLUMNS = "s.id, s.product_id, " +
+            "(SELECT p.name FROM products p WHERE p.id = s.product_id), " +
+            "s.quantity_sold, s.unit_price_cents, s.sale_date, s.location_id, s.customer_id";
+
+    public static final RowMapper<Sale> ROW_MAPPER = rs -> {
+        Sale sale = new Sale();
+        sale.setId(rs.getInt(1));
+        sale.setProductId(rs.getInt(2));
+        sale.setProductName(rs.getString(3));
+        sale.setQuantitySold(rs.getInt(4));
+        sale.setUnitPriceCents(rs.getLong(5));
+        sale.setSaleDate(rs.getTimestamp(6));
+        sale.setLocationId(rs.getInt(7));
+        sale.setCustomerId(rs.getInt(8));
+        return sale;
+    };
+
+    private static final String SELECT_ALL =
+            "SELECT " + LISTING_COLUMNS + " FROM sales s ORDER BY s.sale_date DESC, s.id DESC";
+    private static final String SELECT_RANGE =
+            "SELECT " + LISTING_COLUMNS + " FROM sales s WHERE s.sale_date >= ? AND s.sale_date < ? " +
+            "ORDER BY s.sale_date DESC, s.id DESC";
+    private static final String SELECT_BY_ID =
+            "SELECT " + COLUMNS + " FROM sales s JOIN products p ON s.product_id = p.id WHERE s.id = ?";
+    // The order names customer_id, constant here, because H2 only reads idx_sales_customer in
+    // order, stopping at the limit, when the ORDER BY matches it from its first column
+    private static final String SELECT_FOR_CUSTOMER =
+            "SELECT " + LISTING_COLUMNS + " FROM sales s USE INDEX (idx_sales_customer) WHERE s.customer_id = ? " +
+            "ORDER BY s.customer_id, s.sale_date DESC, s.id DESC LIMIT ? OFFSET ?";
+    private static final String INSERT =
+            "INSERT INTO sales (product_id, quantity_sold, unit_price_cents, location_id, customer_id) VALUES (?, ?, ?, ?, ?)";
+
+    public List<Sale> findAll(Connection conn) throws SQLException {
+        return queryList(conn, SELECT_ALL, NO_PARAMETERS, ROW_MAPPER);
+    }
+
+    /**
+     * @return Sales with {@code from <= sale_date < toExclusive}, newest first
+     */
+    public List<Sale> findRange(Connection conn, Timestamp from, Timestamp toExclusive) throws SQLException {
+        return queryList(conn, SELECT_RANGE, stmt -> {
+            stmt.setTimestamp(1, from);
+            stmt.setTimestamp(2, toExclusive);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * @return A page of the customer's sales, newest first
+     */
+    public List<Sale> findForCustomer(Connection conn, int customerId, int limit, int offset) throws SQLException {
+        return queryList(conn, SELECT_FOR_CUSTOMER, stmt -> {
+            stmt.setInt(1, customerId);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, offset);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * @return The sale, or null if there is none with this ID
+     */
+    public Sale findById(Connection conn, int id) throws SQLException {
+        return queryOne(conn, SELECT_BY_ID, stmt -> stmt.setInt(1, id), ROW_MAPPER);
+    }
+
+    /**
+     * @return The generated sale ID
+     */
+    public int insert(Connection conn, Sale sale) throws SQLException {
+        return Repositories.insert(conn, INSERT, stmt -> {
+            stmt.setInt(1, sale.getProductId());
+            stmt.setInt(2, sale.getQuantitySold());
+            stmt.setLong(3, sale.getUnitPriceCents());
+            setNullableId(stmt, 4, sale.getLocationId());
+            setNullableId(stmt, 5, sale.getCustomerId());
+        });
+    }
+}
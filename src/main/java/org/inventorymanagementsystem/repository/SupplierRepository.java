@@ -0,0 +1,114 @@
+package org.inventorymanagementsystem.repository;
+
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+import static org.inventorymanagementsystem.repository.Repositories.*;
+
+/**
+ * Data access for the suppliers table
+ */
+public final class SupplierRepository {
+    /** Columns read by {@link #ROW_MAPPER}, in order */
+    public static final String COLUMNS = "id, name, contact_person, email, phone, version";
+
+    public static final RowMapper<Supplier> ROW_MAPPER = rs -> {
+        Supplier supplier = new Supplier(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getString(5)
+        );
+        supplier.setVersion(rs.getInt(6));
+        return supplier;
+    };
+
+    private static final String SELECT_ALL =
+            "SELECT " + COLUMNS + " FROM suppliers ORDER BY name";
+    private static final String SELECT_BY_ID =
+            "SELECT " + COLUMNS + " FROM suppliers WHERE id = ?";
+    private static final String SELECT_BY_IDS =
+            "SELECT " + COLUMNS + " FROM suppliers WHERE id = ANY(?)";
+    private static final String INSERT =
+            "INSERT INTO suppliers (name, contact_person, email, phone) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE suppliers SET name = ?, contact_person = ?, email = ?, phone = ?, version = version + 1 WHERE id = ?";
+    private static final String UPDATE_IF_VERSION = UPDATE + " AND version = ?";
+    // The writes below read back the row they changed, as stored, in the same statement
+    private static final String INSERT_RETURNING = returning(INSERT);
+    private static final String UPDATE_RETURNING = returning(UPDATE);
+    private static final String UPDATE_IF_VERSION_RETURNING = returning(UPDATE_IF_VERSION);
+    private static final String DELETE =
+            "DELETE FROM suppliers WHERE id = ?";
+
+    public List<Supplier> findAll(Connection conn) throws SQLException {
+        return queryList(conn, SELECT_ALL, NO_PARAMETERS, ROW_MAPPER);
+    }
+
+    /**
+     * @return The supplier, or null if there is none with this ID
+     */
+    public Supplier findById(Connection conn, int id) throws SQLException {
+        return queryOne(conn, SELECT_BY_ID, stmt -> stmt.setInt(1, id), ROW_MAPPER);
+    }
+
+    /**
+     * Loads several suppliers in one query
+     * @return The suppliers that exist, in no particular order
+     */
+    public List<Supplier> findByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+        return queryList(conn, SELECT_BY_IDS, stmt -> stmt.setObject(1, ids.toArray(new Integer[0])), ROW_MAPPER);
+    }
+
+    private static String returning(String write) {
+        return "SELECT " + COLUMNS + " FROM FINAL TABLE (" + write + ")";
+    }
+
+    /**
+     * @return The stored supplier, with its generated ID and initial version
+     */
+    public Supplier insert(Connection conn, Supplier supplier) throws SQLException {
+        return queryOne(conn, INSERT_RETURNING, stmt -> {
+            stmt.setString(1, supplier.getName());
+            stmt.setString(2, supplier.getContactPerson());
+            stmt.setString(3, supplier.getEmail());
+            stmt.setString(4, supplier.getPhone());
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * @return The supplier as updated, or null if there is none with this ID
+     */
+    public Supplier update(Connection conn, Supplier supplier) throws SQLException {
+        return queryOne(conn, UPDATE_RETURNING, stmt -> setUpdate(stmt, supplier), ROW_MAPPER);
+    }
+
+    /**
+     * Updates the supplier only if its version is still the given one
+     * @return The supplier as updated, or null if it is missing or has changed since
+     */
+    public Supplier updateIfVersion(Connection conn, Supplier supplier, int expectedVersion) throws SQLException {
+        return queryOne(conn, UPDATE_IF_VERSION_RETURNING, stmt -> {
+            setUpdate(stmt, supplier);
+            stmt.setInt(6, expectedVersion);
+        }, ROW_MAPPER);
+    }
+
+    private static void setUpdate(PreparedStatement stmt, Supplier supplier) throws SQLException {
+        stmt.setString(1, supplier.getName());
+        stmt.setString(2, supplier.getContactPerson());
+        stmt.setString(3, supplier.getEmail());
+        stmt.setString(4, supplier.getPhone());
+        stmt.setInt(5, supplier.getId());
+    }
+
+    public int delete(Connection conn, int id) throws SQLException {
+        return Repositories.update(conn, DELETE, stmt -> stmt.setInt(1, id));
+    }
+}
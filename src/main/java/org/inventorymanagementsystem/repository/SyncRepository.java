@@ -0,0 +1,70 @@
+package org.inventorymanagementsystem.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.inventorymanagementsystem.repository.Repositories.*;
+
+/**
+ * Data access for the sync_changes feed
+ */
+public final class SyncRepository {
+    // Served by idx_sync_changes_seq alone. Whether an entry has settled is judged by the
+    // database clock, which also stamped it, so instances with skewed clocks agree.
+    private static final String SELECT_SINCE =
+            "SELECT entity, entity_id, change_seq, deleted, " +
+            "changed_at <= DATEADD(MILLISECOND, -?, LOCALTIMESTAMP) FROM sync_changes " +
+            "WHERE change_seq > ? ORDER BY change_seq LIMIT ?";
+    // See SyncChangeTrigger.inFlightFloor
+    private static final String SELECT_IN_FLIGHT_FLOOR = "SELECT SYNC_IN_FLIGHT_FLOOR()";
+
+    /**
+     * @param settleMillis Age at which an entry counts as settled
+     * @return Entries after the cursor, oldest first
+     */
+    public List<Change> findSince(Connection conn, long since, int limit, long settleMillis) throws SQLException {
+        return queryList(conn, SELECT_SINCE, stmt -> {
+            stmt.setLong(1, settleMillis);
+            stmt.setLong(2, since);
+            stmt.setInt(3, limit);
+        }, rs -> new Change(rs.getString(1), rs.getInt(2), rs.getLong(3), rs.getBoolean(4), rs.getBoolean(5)));
+    }
+
+    /**
+     * To be read after the entries it guards; see {@code SyncChangeTrigger.inFlightFloor}
+     * @return Lowest sequence number taken by a transaction still open, or null if none is
+     */
+    public Long findInFlightFloor(Connection conn) throws SQLException {
+        return queryOne(conn, SELECT_IN_FLIGHT_FLOOR, NO_PARAMETERS, rs -> {
+            long floor = rs.getLong(1);
+            return rs.wasNull() ? null : floor;
+        });
+    }
+
+    /**
+     * Latest change to one product or supplier
+     */
+    public static final class Change {
+        private final String entity;
+        private final int entityId;
+        private final long changeSeq;
+        private final boolean deleted;
+        private final boolean settled;
+
+        Change(String entity, int entityId, long changeSeq, boolean deleted, boolean settled) {
+            this.entity = entity;
+            this.entityId = entityId;
+            this.changeSeq = changeSeq;
+            this.deleted = deleted;
+            this.settled = settled;
+        }
+
+        public String getEntity() { return entity; }
+        public int getEntityId() { return entityId; }
+        public long getChangeSeq() { return changeSeq; }
+        public boolean isDeleted() { return deleted; }
+        /** @return true if the transaction that wrote it can be assumed committed */
+        public boolean isSettled() { return settled; }
+    }
+}
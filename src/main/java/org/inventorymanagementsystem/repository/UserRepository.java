@@ -0,0 +1,109 @@
+package org.inventorymanagementsystem.repository;
+
+import org.inventorymanagementsystem.model.Role;
+import org.inventorymanagementsystem.model.User;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.inventorymanagementsystem.repository.Repositories.*;
+
+/**
+ * Data access for the users and sessions tables
+ */
+public final class UserRepository {
+    /** Columns read by {@link #ROW_MAPPER}, in order */
+    public static final String COLUMNS = "u.id, u.username, u.role, u.password_hash";
+
+    public static final RowMapper<User> ROW_MAPPER = rs -> new User(
+            rs.getInt(1),
+            rs.getString(2),
+            Role.valueOf(rs.getString(3)),
+            rs.getString(4)
+    );
+
+    private static final String SELECT_ALL =
+            "SELECT " + COLUMNS + " FROM users u ORDER BY u.username";
+    private static final String SELECT_BY_USERNAME =
+            "SELECT " + COLUMNS + " FROM users u WHERE u.username = ?";
+    private static final String COUNT =
+            "SELECT COUNT(*) FROM users";
+    private static final String INSERT =
+            "INSERT INTO users (username, role, password_hash) VALUES (?, ?, ?)";
+    private static final String SELECT_SESSION =
+            "SELECT " + COLUMNS + ", s.expires_at FROM sessions s JOIN users u ON u.id = s.user_id " +
+            "WHERE s.token_hash = ? AND s.expires_at > CURRENT_TIMESTAMP";
+    private static final String INSERT_SESSION =
+            "INSERT INTO sessions (token_hash, user_id, expires_at) VALUES (?, ?, ?)";
+    private static final String DELETE_SESSION =
+            "DELETE FROM sessions WHERE token_hash = ?";
+    private static final String DELETE_EXPIRED_SESSIONS =
+            "DELETE FROM sessions WHERE expires_at <= CURRENT_TIMESTAMP";
+
+    public List<User> findAll(Connection conn) throws SQLException {
+        return queryList(conn, SELECT_ALL, NO_PARAMETERS, ROW_MAPPER);
+    }
+
+    /**
+     * @return The user, or null if there is none with this username
+     */
+    public User findByUsername(Connection conn, String username) throws SQLException {
+        return queryOne(conn, SELECT_BY_USERNAME, stmt -> stmt.setString(1, username), ROW_MAPPER);
+    }
+
+    public int count(Connection conn) throws SQLException {
+        return queryOne(conn, COUNT, NO_PARAMETERS, rs -> rs.getInt(1));
+    }
+
+    /**
+     * @return The generated user ID
+     */
+    public int insert(Connection conn, User user) throws SQLException {
+        return Repositories.insert(conn, INSERT, stmt -> {
+            stmt.setString(1, user.getUsername());
+            stmt.setString(2, user.getRole().name());
+            stmt.setString(3, user.getPasswordHash());
+        });
+    }
+
+    /**
+     * @param tokenHash SHA-256 hash of the session token
+     * @return The session, or null if the token is unknown or expired
+     */
+    public Session findSession(Connection conn, String tokenHash) throws SQLException {
+        return queryOne(conn, SELECT_SESSION, stmt -> stmt.setString(1, tokenHash),
+                rs -> new Session(ROW_MAPPER.map(rs), rs.getTimestamp(5).getTime()));
+    }
+
+    public void insertSession(Connection conn, String tokenHash, int userId, long expiresAtMillis) throws SQLException {
+        Repositories.update(conn, INSERT_SESSION, stmt -> {
+            stmt.setString(1, tokenHash);
+            stmt.setInt(2, userId);
+            stmt.setTimestamp(3, new Timestamp(expiresAtMillis));
+        });
+    }
+
+    public int deleteSession(Connection conn, String tokenHash) throws SQLException {
+        return Repositories.update(conn, DELETE_SESSION, stmt -> stmt.setString(1, tokenHash));
+    }
+
+    public int deleteExpiredSessions(Connection conn) throws SQLException {
+        return Repositories.update(conn, DELETE_EXPIRED_SESSIONS, NO_PARAMETERS);
+    }
+
+    /** A signed-in user and when their token stops being valid */
+    public static final class Session {
+        private final User user;
+        private final long expiresAtMillis;
+
+        public Session(User user, long expiresAtMillis) {
+            this.user = user;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public User getUser() { return user; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+    }
+}
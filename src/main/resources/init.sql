@@ -2,7 +2,7 @@
 CREATE TABLE IF NOT EXISTS products (
     id INT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
-    price DECIMAL(12,4) NOT NULL,
+    price_cents BIGINT NOT NULL,
     stock_quantity INT NOT NULL DEFAULT 0
 );
 
@@ -11,6 +11,7 @@ CREATE TABLE IF NOT EXISTS sales (
     id INT AUTO_INCREMENT PRIMARY KEY,
     product_id INT NOT NULL,
     quantity_sold INT NOT NULL,
+    unit_price_cents BIGINT NOT NULL,
     sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE  -- Added ON DELETE CASCADE
 );
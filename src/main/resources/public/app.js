@@ -3,6 +3,49 @@ let currentEditProductId = null;
 let currentEditSupplierId = null;
 const API_BASE_URL = 'http://localhost:4567/api';
 
+// Adds the session token to API calls and asks for a login when the server answers 401.
+// Calls made while the login prompt is open share one login.
+const nativeFetch = window.fetch.bind(window);
+let pendingLogin = null;
+
+function withToken(options) {
+    const token = sessionStorage.getItem('authToken');
+    const headers = new Headers((options && options.headers) || {});
+    if (token) {
+        headers.set('Authorization', `Bearer ${token}`);
+    }
+    return { ...options, headers };
+}
+
+function login() {
+    if (!pendingLogin) {
+        const username = window.prompt('Username');
+        const password = username === null ? null : window.prompt('Password');
+        pendingLogin = nativeFetch(`${API_BASE_URL}/auth/login`, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ username, password })
+        })
+            .then(response => response.ok ? response.json() : Promise.reject(new Error('Login failed')))
+            .then(session => sessionStorage.setItem('authToken', session.token))
+            .finally(() => { pendingLogin = null; });
+    }
+    return pendingLogin;
+}
+
+window.fetch = function(url, options) {
+    if (typeof url !== 'string' || !url.startsWith(API_BASE_URL)) {
+        return nativeFetch(url, options);
+    }
+    return nativeFetch(url, withToken(options)).then(response => {
+        if (response.status !== 401) {
+            return response;
+        }
+        sessionStorage.removeItem('authToken');
+        return login().then(() => nativeFetch(url, withToken(options)));
+    });
+};
+
 document.addEventListener('DOMContentLoaded', function() {
     // Initialize dashboard metrics
     fetchDashboardMetrics();
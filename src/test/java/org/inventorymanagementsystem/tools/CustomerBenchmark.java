@@ -0,0 +1,276 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.controller.LatencyHistogram;
+import org.inventorymanagementsystem.model.Sale;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times loyalty lookups and purchase history pages for customers with long histories, and
+ * checks afterwards that every customer's totals still match their sales.
+ * <p>
+ * A few loyal customers make {@code --loyalPurchases} purchases each; the rest of the sales
+ * go to other customers or to none. Reading the maintained totals is timed against summing
+ * a loyal customer's sales, which is what the totals save; sales to customers run for a
+ * fixed time on several threads. Runs on an in-memory H2 database unless
+ * {@code -Dinventory.url} points elsewhere.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.CustomerBenchmark \
+ *     --customers=10000 --loyal=10 --loyalPurchases=50000 --sales=1000000 --seconds=3 --threads=4
+ * </pre>
+ * Exits with status 1 if any customer's totals disagree with their sales, or if the purchase
+ * history is not read in index order.
+ */
+public final class CustomerBenchmark {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final int BATCH = 10_000;
+    private static final int PRODUCTS = 1000;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final String SUM_ONE =
+            "SELECT COUNT(*), COALESCE(SUM(quantity_sold), 0), COALESCE(SUM(quantity_sold * unit_price_cents), 0), " +
+            "MAX(sale_date) FROM sales WHERE customer_id = ?";
+    private static final String MISMATCHED =
+            "SELECT COUNT(*) FROM customers c LEFT JOIN (SELECT customer_id, COUNT(*) n, SUM(quantity_sold) units, " +
+            "SUM(quantity_sold * unit_price_cents) spent FROM sales WHERE customer_id IS NOT NULL GROUP BY customer_id) s " +
+            "ON s.customer_id = c.id WHERE c.purchase_count <> COALESCE(s.n, 0) OR c.units_bought <> COALESCE(s.units, 0) " +
+            "OR c.spent_cents <> COALESCE(s.spent, 0)";
+    private static final String EXPLAIN_PAGE =
+            "EXPLAIN SELECT s.id FROM sales s USE INDEX (idx_sales_customer) WHERE s.customer_id = 1 " +
+            "ORDER BY s.customer_id, s.sale_date DESC, s.id DESC LIMIT 100";
+
+    private final int customers;
+    private final int loyal;
+    private final int loyalPurchases;
+    private final int sales;
+    private final long seconds;
+    private final int threads;
+
+    private CustomerBenchmark(Map<String, String> options) {
+        this.customers = Integer.parseInt(options.getOrDefault("customers", "10000"));
+        this.loyal = Math.min(Integer.parseInt(options.getOrDefault("loyal", "10")), customers);
+        this.loyalPurchases = Integer.parseInt(options.getOrDefault("loyalPurchases", "50000"));
+        this.sales = Math.max(Integer.parseInt(options.getOrDefault("sales", "1000000")), loyal * loyalPurchases);
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "3"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:customerBenchmark;DB_CLOSE_DELAY=-1");
+        }
+        CustomerBenchmark benchmark = new CustomerBenchmark(options);
+        Map<String, Object> report = benchmark.run();
+        System.out.println(gson.toJson(report));
+        System.exit(Boolean.TRUE.equals(report.get("passed")) ? 0 : 1);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("customers", customers);
+        report.put("loyalCustomers", loyal);
+        report.put("purchasesPerLoyalCustomer", loyalPurchases);
+        report.put("sales", sales);
+        report.put("threads", threads);
+        DatabaseConnection.initialize();
+        long started = System.nanoTime();
+        seed();
+        report.put("seedMillis", millisSince(started));
+
+        InventoryStore store = InventoryStore.create("jdbc");
+        Map<String, Object> reads = new LinkedHashMap<>();
+        reads.put("loyaltyLookup", measure(() -> store.getCustomerById(randomLoyal())));
+        reads.put("loyaltyBySum", measure(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SUM_ONE)) {
+                stmt.setInt(1, randomLoyal());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }));
+        reads.put("purchasesFirstPage", measure(() -> store.getCustomerPurchases(randomLoyal(), 100, 0)));
+        reads.put("purchasesPage100", measure(() -> store.getCustomerPurchases(randomLoyal(), 100, 9900)));
+        report.put("reads", reads);
+
+        Map<String, Object> writes = new LinkedHashMap<>();
+        writes.put("saleToCustomer", measure(() -> {
+            Sale sale = new Sale(1 + ThreadLocalRandom.current().nextInt(PRODUCTS), 1, 0);
+            sale.setCustomerId(1 + ThreadLocalRandom.current().nextInt(customers));
+            store.recordSale(sale);
+        }));
+        writes.put("anonymousSale", measure(() ->
+                store.recordSale(new Sale(1 + ThreadLocalRandom.current().nextInt(PRODUCTS), 1, 0))));
+        report.put("writes", writes);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            long mismatched = count(conn, MISMATCHED);
+            String plan;
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(EXPLAIN_PAGE)) {
+                rs.next();
+                plan = rs.getString(1);
+            }
+            boolean indexSorted = plan.contains("idx_sales_customer".toUpperCase()) && plan.contains("index sorted");
+            report.put("mismatchedCustomers", mismatched);
+            report.put("historyReadInIndexOrder", indexSorted);
+            report.put("passed", mismatched == 0 && indexSorted);
+        }
+        return report;
+    }
+
+    /**
+     * Inserts the products, customers and sales directly, with every customer's totals set
+     * to match their sales. Customers 1 to {@code loyal} are the loyal ones.
+     */
+    private void seed() throws SQLException {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long[] prices = new long[PRODUCTS + 1];
+        long[] counts = new long[customers + 1];
+        long[] units = new long[customers + 1];
+        long[] spent = new long[customers + 1];
+        long[] last = new long[customers + 1];
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO products (name, price_cents, stock_quantity) VALUES (?, ?, ?)")) {
+                // A fresh database numbers them 1 to PRODUCTS
+                for (int id = 1; id <= PRODUCTS; id++) {
+                    prices[id] = 100 + random.nextInt(10_000);
+                    stmt.setString(1, "Product " + id);
+                    stmt.setLong(2, prices[id]);
+                    stmt.setInt(3, 1_000_000);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO sales (product_id, quantity_sold, unit_price_cents, sale_date, customer_id) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < sales; i++) {
+                    // The loyal customers' purchases first, then a mix of other customers and none
+                    int customer = i < loyal * loyalPurchases ? 1 + i % loyal
+                            : random.nextBoolean() ? 0 : 1 + random.nextInt(customers);
+                    int product = 1 + random.nextInt(PRODUCTS);
+                    int quantity = 1 + random.nextInt(5);
+                    // Within the last 60 days, so no month of it is archived
+                    long date = now - (long) (random.nextDouble() * 60 * DAY_MILLIS);
+                    stmt.setInt(1, product);
+                    stmt.setInt(2, quantity);
+                    stmt.setLong(3, prices[product]);
+                    stmt.setTimestamp(4, new Timestamp(date));
+                    if (customer > 0) {
+                        stmt.setInt(5, customer);
+                        counts[customer]++;
+                        units[customer] += quantity;
+                        spent[customer] += quantity * prices[product];
+                        last[customer] = Math.max(last[customer], date);
+                    } else {
+                        stmt.setNull(5, java.sql.Types.INTEGER);
+                    }
+                    stmt.addBatch();
+                    if ((i + 1) % BATCH == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO customers (name, purchase_count, units_bought, spent_cents, last_purchase_at) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                for (int id = 1; id <= customers; id++) {
+                    stmt.setString(1, "Customer " + id);
+                    stmt.setLong(2, counts[id]);
+                    stmt.setLong(3, units[id]);
+                    stmt.setLong(4, spent[id]);
+                    stmt.setTimestamp(5, counts[id] == 0 ? null : new Timestamp(last[id]));
+                    stmt.addBatch();
+                    if (id % BATCH == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private Map<String, Object> measure(Operation operation) throws Exception {
+        // Warm-up, so the measured run is not charged for JIT compilation
+        long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (System.nanoTime() < warmUpEnd) {
+            operation.run();
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong count = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        long started = System.nanoTime();
+                        operation.run();
+                        latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+                        count.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("opsPerSecond", Math.round(count.get() / (double) seconds));
+        result.put("p50Micros", latency.percentileMicros(50));
+        result.put("p99Micros", latency.percentileMicros(99));
+        return result;
+    }
+
+    private int randomLoyal() {
+        return 1 + ThreadLocalRandom.current().nextInt(loyal);
+    }
+
+    private static long count(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static long millisSince(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,182 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.JsonAdapters;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the demand forecaster on generated sales history and checks that it recovers the
+ * demand the history was drawn from.
+ * <p>
+ * Every product gets a base daily demand and every weekday a multiplier; each closed day of
+ * the history gets Poisson-distributed units per product, as one sale row. The first forecast
+ * reads and fits everything; the second is served from memory. The total forecast demand is
+ * compared with the demand the history was drawn from. Runs on an in-memory H2 database
+ * unless {@code -Dinventory.url} points elsewhere.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.ForecastBenchmark --products=100000 --rate=0.5
+ * </pre>
+ * Exits with status 1 if the total forecast is more than 10% off.
+ */
+public final class ForecastBenchmark {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final double[] WEEKDAY = {0.8, 0.8, 0.9, 1.0, 1.2, 1.6, 0.7};
+    private static final int HORIZON_DAYS = 14;
+    private static final int BATCH = 10_000;
+
+    private final int products;
+    private final double rate;
+    private final int historyDays;
+    private final Random random = new Random(42);
+    private double[] baseRates;
+
+    private ForecastBenchmark(Map<String, String> options) {
+        this.products = Integer.parseInt(options.getOrDefault("products", "100000"));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "0.5"));
+        this.historyDays = Integer.parseInt(DatabaseConnection.getSetting("forecastHistoryDays"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:forecastBenchmark;DB_CLOSE_DELAY=-1");
+        }
+        ForecastBenchmark benchmark = new ForecastBenchmark(options);
+        Map<String, Object> report = benchmark.run();
+        System.out.println(gson.toJson(report));
+        System.exit(Boolean.TRUE.equals(report.get("passed")) ? 0 : 1);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("products", products);
+        report.put("historyDays", historyDays);
+        DatabaseConnection.initialize();
+        long started = System.nanoTime();
+        report.put("sales", seed());
+        report.put("seedMillis", millisSince(started));
+
+        InventoryStore store = InventoryStore.create("jdbc");
+        started = System.nanoTime();
+        Object forecast = store.generateForecast(HORIZON_DAYS, products);
+        report.put("fullRunMillis", millisSince(started));
+        started = System.nanoTime();
+        store.generateForecast(HORIZON_DAYS, 100);
+        report.put("cachedRunMillis", millisSince(started));
+        report.put("cores", Runtime.getRuntime().availableProcessors());
+
+        double forecastTotal = 0;
+        for (JsonElement product : JsonAdapters.createGson().toJsonTree(forecast).getAsJsonObject()
+                .getAsJsonArray("products")) {
+            forecastTotal += product.getAsJsonObject().get("totalUnits").getAsDouble();
+        }
+        double expectedTotal = expectedTotal();
+        double error = Math.abs(forecastTotal - expectedTotal) / expectedTotal;
+        report.put("forecastUnits", Math.round(forecastTotal));
+        report.put("expectedUnits", Math.round(expectedTotal));
+        report.put("totalError", Math.round(error * 1000) / 1000.0);
+        report.put("passed", error <= 0.10);
+        return report;
+    }
+
+    /**
+     * Inserts the products and one sale row per product and day with demand, skipping the API
+     * so the history can be back-dated
+     * @return Number of sale rows
+     */
+    private long seed() throws Exception {
+        baseRates = new double[products + 1];
+        long rows = 0;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO products (name, price_cents, stock_quantity) VALUES (?, ?, ?)")) {
+                // A fresh database numbers them 1 to products
+                for (int id = 1; id <= products; id++) {
+                    // A few fast movers and a long tail, averaging about the requested rate
+                    baseRates[id] = rate * -Math.log(1 - random.nextDouble());
+                    stmt.setString(1, "Product " + id);
+                    stmt.setLong(2, 100 + random.nextInt(10_000));
+                    stmt.setInt(3, 1_000);
+                    stmt.addBatch();
+                    if (id % BATCH == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO sales (product_id, quantity_sold, unit_price_cents, sale_date) VALUES (?, ?, 100, ?)")) {
+                LocalDate today = LocalDate.now();
+                for (int back = historyDays; back >= 1; back--) {
+                    LocalDate day = today.minusDays(back);
+                    double weekday = WEEKDAY[day.getDayOfWeek().getValue() - 1];
+                    long dayStart = Timestamp.valueOf(day.atStartOfDay()).getTime();
+                    for (int id = 1; id <= products; id++) {
+                        int units = poisson(baseRates[id] * weekday);
+                        if (units == 0) {
+                            continue;
+                        }
+                        stmt.setInt(1, id);
+                        stmt.setInt(2, units);
+                        stmt.setTimestamp(3, new Timestamp(dayStart + random.nextInt((int) TimeUnit.DAYS.toMillis(1))));
+                        stmt.addBatch();
+                        if (++rows % BATCH == 0) {
+                            stmt.executeBatch();
+                        }
+                    }
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+        return rows;
+    }
+
+    private double expectedTotal() {
+        double base = 0;
+        for (int id = 1; id <= products; id++) {
+            base += baseRates[id];
+        }
+        double weekdays = 0;
+        LocalDate today = LocalDate.now();
+        for (int h = 0; h < HORIZON_DAYS; h++) {
+            weekdays += WEEKDAY[today.plusDays(h).getDayOfWeek().getValue() - 1];
+        }
+        return base * weekdays;
+    }
+
+    private int poisson(double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    private static long millisSince(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+}
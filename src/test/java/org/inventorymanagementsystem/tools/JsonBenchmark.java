@@ -0,0 +1,159 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.JsonAdapters;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the API's hand-written JSON adapters ({@link JsonAdapters}) with reflective Gson
+ * on typical response bodies and request parsing.
+ * <p>
+ * Each case first checks that both produce the same JSON, then runs each for a fixed time on
+ * one thread and reports operations per second and bytes allocated per operation. Bodies
+ * come from an in-memory store loaded with {@code --products} products and {@code --sales}
+ * sales. Exits with status 1 if any output differs.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.JsonBenchmark \
+ *     --products=100 --sales=1000 --seconds=2 --output=target/json-report.json
+ * </pre>
+ */
+public final class JsonBenchmark {
+    private static final Gson printer = new GsonBuilder().setPrettyPrinting().create();
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Gson reflective = new Gson();
+    private final Gson adapters = JsonAdapters.createGson();
+    private final long seconds;
+    private final List<String> failures = new ArrayList<>();
+    // Keeps results reachable so the JIT cannot drop the work
+    private long sink;
+
+    private JsonBenchmark(long seconds) {
+        this.seconds = seconds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int products = Integer.parseInt(options.getOrDefault("products", "100"));
+        int sales = Integer.parseInt(options.getOrDefault("sales", "1000"));
+        JsonBenchmark benchmark = new JsonBenchmark(Long.parseLong(options.getOrDefault("seconds", "2")));
+
+        InventoryStore store = InventoryStore.create("memory");
+        for (int i = 1; i <= 10; i++) {
+            store.addSupplier(new Supplier(0, "Supplier " + i, "Contact " + i, "orders" + i + "@example.com", null));
+        }
+        for (int i = 1; i <= products; i++) {
+            Product product = new Product();
+            product.setName("Product \"" + i + "\" <special>");
+            product.setPriceCents(99 + i * 37L);
+            product.setStockQuantity(1_000_000);
+            product.setSupplierId(1 + i % 10);
+            store.addProduct(product);
+        }
+        for (int i = 0; i < sales; i++) {
+            store.recordSale(new Sale(1 + i % products, 1 + i % 7, 0));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("products", products);
+        report.put("sales", sales);
+        benchmark.write(report, "productList", store.getAllProducts(true));
+        benchmark.write(report, "product", store.getProductById(1));
+        benchmark.write(report, "supplierList", store.getAllSuppliers(true));
+        benchmark.write(report, "saleList", store.getAllSales(true));
+        benchmark.write(report, "salesReport", store.generateSalesReport(true, null, null));
+        benchmark.write(report, "inventoryReport", store.generateInventoryReport(true));
+        benchmark.read(report, "parseProduct", Product.class,
+                "{\"name\":\"Widget\",\"price\":12.99,\"stockQuantity\":40,\"supplierId\":3}");
+        benchmark.read(report, "parseSale", Sale.class, "{\"productId\":17,\"quantitySold\":2}");
+
+        String json = printer.toJson(report);
+        System.out.println(json);
+        String output = options.get("output");
+        if (output != null) {
+            Files.writeString(Path.of(output), json);
+        }
+        if (!benchmark.failures.isEmpty()) {
+            benchmark.failures.forEach(failure -> System.err.println("FAILED " + failure));
+            System.exit(1);
+        }
+    }
+
+    private void write(Map<String, Object> report, String name, Object body) {
+        String expected = reflective.toJson(body);
+        if (!JsonAdapters.toJson(adapters, body).equals(expected)) {
+            failures.add(name + ": adapters wrote " + JsonAdapters.toJson(adapters, body) + ", reflective Gson wrote " + expected);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bytes", expected.length());
+        result.put("reflective", measure(() -> reflective.toJson(body).length()));
+        result.put("adapters", measure(() -> JsonAdapters.toJson(adapters, body).length()));
+        report.put(name, result);
+    }
+
+    private void read(Map<String, Object> report, String name, Class<?> type, String body) {
+        // Compared by writing both results back out with the same Gson
+        String expected = reflective.toJson(reflective.fromJson(body, type));
+        String actual = reflective.toJson(adapters.fromJson(body, type));
+        if (!actual.equals(expected)) {
+            failures.add(name + ": adapters read " + actual + ", reflective Gson read " + expected);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("reflective", measure(() -> reflective.fromJson(body, type).hashCode()));
+        result.put("adapters", measure(() -> adapters.fromJson(body, type).hashCode()));
+        report.put(name, result);
+    }
+
+    private Map<String, Object> measure(Operation operation) {
+        // Warm-up, so the measured run is not charged for JIT compilation
+        long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (System.nanoTime() < warmUpEnd) {
+            sink += operation.run();
+        }
+
+        long count = 0;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        long end = started + TimeUnit.SECONDS.toNanos(seconds);
+        do {
+            for (int i = 0; i < 64; i++) {
+                sink += operation.run();
+            }
+            count += 64;
+        } while (System.nanoTime() < end);
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("opsPerSecond", Math.round(count / (elapsed / 1e9)));
+        result.put("bytesPerOp", allocated / count);
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        int run();
+    }
+}
@@ -0,0 +1,415 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.controller.LatencyHistogram;
+import org.inventorymanagementsystem.controller.StartupSequence;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.repository.ProductRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator for {@code APIServer}.
+ * <p>
+ * Without {@code --target} it starts the server in-process against a freshly seeded scratch
+ * H2 database under {@code target/loadtest}; with {@code --target=http://host:port} it drives
+ * an already running server. Requests run on virtual threads.
+ * <p>
+ * Latency is measured from the time each request was <em>scheduled</em> to start, not from
+ * when it was actually sent, so a stalled server is charged for the requests it delayed
+ * (coordinated omission correction). In open-loop mode requests are scheduled at a fixed
+ * arrival rate. In closed-loop mode each worker waits for its response before sending the
+ * next request; with {@code --rate} the workers are paced and corrected the same way,
+ * without it they run flat out and the percentiles only describe completed requests.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.LoadGenerator \
+ *     --mode=open --rate=500 --duration=30 --warmup=5 --products=10000 \
+ *     --mix=read:60,sale:20,adjust:15,report:5 --output=target/load-report.json
+ * </pre>
+ * Requests carry a bearer token from logging in as {@code --user}/{@code --password}
+ * (default {@code admin} with the configured admin password; the seeded server's admin gets
+ * one when none is configured). {@code --auth=false} turns
+ * authentication off on the in-process server and skips the login, which is how the cost
+ * of the auth filter is measured. A {@code login} entry in the mix logs in again with the same
+ * credentials, which checks that a login burst does not slow sales.
+ */
+public final class LoadGenerator {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private enum Operation {
+        READ("GET /api/products/:id"),
+        SALE("POST /api/sales"),
+        ADJUST("POST /api/products/:id/stock/adjust"),
+        REPORT("GET /api/reports/*"),
+        LOGIN("POST /api/auth/login");
+
+        private final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private final Map<String, String> options;
+    private final String mode;
+    private final double rate;
+    private final int concurrency;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final Map<Operation, Integer> mix;
+    private final boolean auth;
+    private final int totalWeight;
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client;
+
+    private String baseUrl;
+    private String token;
+    private JsonObject credentials;
+    private int[] productIds;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.mode = options.getOrDefault("mode", "open");
+        this.rate = Double.parseDouble(options.getOrDefault("rate", mode.equals("open") ? "200" : "0"));
+        this.concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "5")));
+        this.mix = parseMix(options.getOrDefault("mix", "read:60,sale:20,adjust:15,report:5"));
+        this.auth = Boolean.parseBoolean(options.getOrDefault("auth", "true"));
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (!mode.equals("open") && !mode.equals("closed")) {
+            throw new IllegalArgumentException("Mode must be open or closed");
+        }
+        if (mode.equals("open") && rate <= 0) {
+            throw new IllegalArgumentException("Open-loop mode needs a positive --rate");
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Mix must have at least one positive weight");
+        }
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+        this.client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadGenerator generator = new LoadGenerator(options);
+        Map<String, Object> report = generator.run();
+        String json = gson.toJson(report);
+        System.out.println(json);
+        String output = options.get("output");
+        if (output != null) {
+            Files.writeString(Path.of(output), json);
+        }
+        System.exit(0);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        int products = Integer.parseInt(options.getOrDefault("products", "10000"));
+        if (options.containsKey("target")) {
+            baseUrl = options.get("target");
+            login();
+            productIds = fetchProductIds();
+        } else {
+            productIds = startSeededServer(products);
+            baseUrl = "http://localhost:" + DatabaseConnection.getSetting("apiPort");
+            login();
+        }
+        if (productIds.length == 0) {
+            throw new IllegalStateException("Target has no products to load");
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        if (mode.equals("open")) {
+            runOpenLoop(start, measureFrom, end);
+        } else {
+            runClosedLoop(start, measureFrom, end);
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        return buildReport();
+    }
+
+    private void runOpenLoop(long start, long measureFrom, long end) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                return;
+            }
+            waitUntil(intended);
+            Operation operation = pickOperation();
+            executor.execute(() -> execute(operation, intended, intended >= measureFrom));
+        }
+    }
+
+    private void runClosedLoop(long start, long measureFrom, long end) throws InterruptedException {
+        // With a target rate each worker is paced, which gives it an intended schedule to correct against
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * concurrency / rate) : 0;
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            workers.add(Thread.ofVirtual().start(() -> {
+                long intended = start;
+                while (intended < end) {
+                    waitUntil(intended);
+                    execute(pickOperation(), intended, intended >= measureFrom);
+                    intended = intervalNanos > 0 ? intended + intervalNanos : System.nanoTime();
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void execute(Operation operation, long intendedNanos, boolean measured) {
+        boolean failed;
+        try {
+            HttpResponse<Void> response = client.send(buildRequest(operation), HttpResponse.BodyHandlers.discarding());
+            failed = response.statusCode() >= 400;
+        } catch (IOException e) {
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (measured) {
+            histograms.get(operation).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos));
+            if (failed) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int productId = productIds[random.nextInt(productIds.length)];
+        HttpRequest.Builder builder;
+        switch (operation) {
+            case READ:
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + productId)).GET();
+                break;
+            case SALE:
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/sales"))
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"productId\":" + productId + ",\"quantitySold\":1}"));
+                break;
+            case ADJUST:
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + productId + "/stock/adjust"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"delta\":1}"));
+                break;
+            case LOGIN:
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                        .POST(HttpRequest.BodyPublishers.ofString(credentials.toString()));
+                break;
+            default:
+                String path = random.nextBoolean()
+                        ? "/api/reports/inventory"
+                        : "/api/reports/sales?from=" + LocalDate.now().minusDays(30);
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+        }
+        return authorize(builder).timeout(Duration.ofSeconds(30)).header("Content-Type", "application/json").build();
+    }
+
+    private HttpRequest.Builder authorize(HttpRequest.Builder builder) {
+        return token == null ? builder : builder.header("Authorization", "Bearer " + token);
+    }
+
+    private void login() throws IOException, InterruptedException {
+        if (!auth) {
+            if (mix.containsKey(Operation.LOGIN)) {
+                throw new IllegalArgumentException("A mix with logins needs authentication on");
+            }
+            return;
+        }
+        String password = options.getOrDefault("password", DatabaseConnection.getSetting("adminPassword"));
+        if (password == null) {
+            throw new IllegalArgumentException("Pass --password, or --auth=false if the server runs without authentication");
+        }
+        credentials = new JsonObject();
+        credentials.addProperty("username", options.getOrDefault("user", "admin"));
+        credentials.addProperty("password", password);
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                        .POST(HttpRequest.BodyPublishers.ofString(credentials.toString()))
+                        .header("Content-Type", "application/json")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed: " + response.body());
+        }
+        token = JsonParser.parseString(response.body()).getAsJsonObject().get("token").getAsString();
+    }
+
+    private Operation pickOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.READ;
+    }
+
+    private int[] startSeededServer(int products) throws SQLException, IOException {
+        Path dbDir = Path.of("target", "loadtest");
+        if (Files.exists(dbDir)) {
+            try (var paths = Files.walk(dbDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        System.setProperty("inventory.url", "jdbc:h2:file:./target/loadtest/inventoryDB;DB_CLOSE_DELAY=-1");
+        System.setProperty("inventory.authEnabled", String.valueOf(auth));
+        if (DatabaseConnection.getSetting("adminPassword") == null) {
+            // The scratch database's admin would otherwise get a generated password to log in with
+            System.setProperty("inventory.adminPassword", "loadtest-" + ThreadLocalRandom.current().nextLong(Long.MAX_VALUE));
+        }
+        DatabaseConnection.initialize();
+
+        int[] ids = new int[products];
+        ProductRepository repository = new ProductRepository();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < products; i++) {
+                // Large stock so sales never run out during the run
+                Product product = new Product(i + 1, "Load test product " + i, 100 + i % 10_000, 1_000_000);
+                ids[i] = repository.insert(conn, product).getId();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        StartupSequence.run();
+        return ids;
+    }
+
+    private int[] fetchProductIds() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(
+                authorize(HttpRequest.newBuilder(URI.create(baseUrl + "/api/products"))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonArray products = JsonParser.parseString(response.body()).getAsJsonArray();
+        int[] ids = new int[products.size()];
+        int i = 0;
+        for (JsonElement product : products) {
+            ids[i++] = product.getAsJsonObject().get("id").getAsInt();
+        }
+        return ids;
+    }
+
+    private Map<String, Object> buildReport() {
+        double seconds = durationNanos / 1e9;
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("mode", mode);
+        config.put("rate", rate);
+        config.put("concurrency", mode.equals("closed") ? concurrency : null);
+        config.put("durationSeconds", seconds);
+        config.put("warmupSeconds", warmupNanos / 1e9);
+        config.put("products", productIds.length);
+        config.put("auth", auth);
+        config.put("coordinatedOmissionCorrected", mode.equals("open") || rate > 0);
+        Map<String, Integer> mixByEndpoint = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> mixByEndpoint.put(operation.endpoint, weight));
+        config.put("mix", mixByEndpoint);
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long overallErrors = 0;
+        for (Operation operation : mix.keySet()) {
+            LatencyHistogram histogram = histograms.get(operation);
+            endpoints.put(operation.endpoint, summarize(histogram, errors.get(operation).get(), seconds));
+            overallErrors += errors.get(operation).get();
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("endpoints", endpoints);
+        long totalCount = histograms.values().stream().mapToLong(LatencyHistogram::getCount).sum();
+        Map<String, Object> total = new LinkedHashMap<>();
+        total.put("requests", totalCount);
+        total.put("errors", overallErrors);
+        total.put("throughputPerSecond", round(totalCount / seconds));
+        report.put("total", total);
+        return report;
+    }
+
+    private static Map<String, Object> summarize(LatencyHistogram histogram, long errorCount, double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getCount());
+        summary.put("errors", errorCount);
+        summary.put("throughputPerSecond", round(histogram.getCount() / seconds));
+        summary.put("p50Ms", histogram.percentileMicros(50) / 1000.0);
+        summary.put("p99Ms", histogram.percentileMicros(99) / 1000.0);
+        summary.put("p999Ms", histogram.percentileMicros(99.9) / 1000.0);
+        summary.put("maxMs", histogram.getMaxMicros() / 1000.0);
+        return summary;
+    }
+
+    private static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like read:60, got " + part);
+            }
+            mix.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,292 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.controller.LatencyHistogram;
+import org.inventorymanagementsystem.model.Sale;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times stock reads and location-aware writes with stock spread over many locations, and
+ * checks afterwards that every product's totals still match its location rows.
+ * <p>
+ * Every product is stocked at a few random locations plus some stock held at no particular
+ * location. Reads of the total are timed against summing the location rows, which is what
+ * the maintained totals save; writes run for a fixed time on several threads. Runs on an
+ * in-memory H2 database unless {@code -Dinventory.url} points elsewhere.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.LocationBenchmark \
+ *     --locations=1000 --products=100000 --perProduct=10 --seconds=3 --threads=4
+ * </pre>
+ * Exits with status 1 if any product's totals disagree with its location rows.
+ */
+public final class LocationBenchmark {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final int BATCH = 10_000;
+
+    private static final String SUM_ONE =
+            "SELECT COALESCE(SUM(quantity), 0) FROM location_stock WHERE product_id = ?";
+    private static final String SUM_ALL =
+            "SELECT COUNT(*), SUM(total) FROM (SELECT product_id, SUM(quantity) total FROM location_stock GROUP BY product_id)";
+    private static final String MISMATCHED =
+            "SELECT COUNT(*) FROM products p LEFT JOIN " +
+            "(SELECT product_id, SUM(quantity) total FROM location_stock GROUP BY product_id) s ON s.product_id = p.id " +
+            "WHERE p.located_quantity <> COALESCE(s.total, 0) OR p.stock_quantity < p.located_quantity";
+    private static final String NEGATIVE =
+            "SELECT COUNT(*) FROM location_stock WHERE quantity < 0";
+
+    private final int locations;
+    private final int products;
+    private final int perProduct;
+    private final long seconds;
+    private final int threads;
+    // Product and location of every seeded location_stock row
+    private int[] pairProducts;
+    private int[] pairLocations;
+
+    private LocationBenchmark(Map<String, String> options) {
+        this.locations = Integer.parseInt(options.getOrDefault("locations", "1000"));
+        this.products = Integer.parseInt(options.getOrDefault("products", "100000"));
+        this.perProduct = Math.min(Integer.parseInt(options.getOrDefault("perProduct", "10")), locations);
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "3"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:locationBenchmark;DB_CLOSE_DELAY=-1");
+        }
+        LocationBenchmark benchmark = new LocationBenchmark(options);
+        Map<String, Object> report = benchmark.run();
+        System.out.println(gson.toJson(report));
+        System.exit(Boolean.TRUE.equals(report.get("passed")) ? 0 : 1);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("locations", locations);
+        report.put("products", products);
+        report.put("locationRows", (long) products * perProduct);
+        report.put("threads", threads);
+        DatabaseConnection.initialize();
+        long started = System.nanoTime();
+        seed();
+        report.put("seedMillis", millisSince(started));
+
+        InventoryStore store = InventoryStore.create("jdbc");
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("inventoryReportMillis", timeOnce(() -> store.generateInventoryReport(true)));
+        totals.put("sumOverLocationsMillis", timeOnce(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(SUM_ALL)) {
+                rs.next();
+            }
+        }));
+        totals.put("productTotal", measure(() -> store.getProductById(randomProduct())));
+        totals.put("productTotalBySum", measure(() -> {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SUM_ONE)) {
+                stmt.setInt(1, randomProduct());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }));
+        report.put("totals", totals);
+
+        Map<String, Object> writes = new LinkedHashMap<>();
+        writes.put("saleAtLocation", measure(() -> {
+            int pair = randomPair();
+            Sale sale = new Sale(pairProducts[pair], 1, 0);
+            sale.setLocationId(pairLocations[pair]);
+            store.recordSale(sale);
+        }));
+        writes.put("adjustAtLocation", measure(() -> {
+            int pair = randomPair();
+            store.adjustStock(pairProducts[pair], 1, pairLocations[pair]);
+        }));
+        writes.put("transfer", measure(() -> {
+            int pair = randomPair();
+            int to = 1 + ThreadLocalRandom.current().nextInt(locations);
+            if (to != pairLocations[pair]) {
+                store.transferStock(pairProducts[pair], pairLocations[pair], to, 1);
+            }
+        }));
+        writes.put("adjustUnassigned", measure(() -> store.adjustStock(randomProduct(), 1)));
+        report.put("writes", writes);
+
+        Map<String, Object> reads = new LinkedHashMap<>();
+        reads.put("productLocations", measure(() -> store.getProductLocations(randomProduct())));
+        reads.put("locationStockPage", measure(() ->
+                store.getLocationStock(1 + ThreadLocalRandom.current().nextInt(locations), 100, 0)));
+        report.put("reads", reads);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            long mismatched = count(conn, MISMATCHED);
+            long negative = count(conn, NEGATIVE);
+            report.put("mismatchedProducts", mismatched);
+            report.put("negativeRows", negative);
+            report.put("passed", mismatched == 0 && negative == 0);
+        }
+        return report;
+    }
+
+    /**
+     * Inserts the locations, products and location rows directly, with every product's
+     * totals set to match its rows
+     */
+    private void seed() throws SQLException {
+        Random random = new Random(42);
+        pairProducts = new int[products * perProduct];
+        pairLocations = new int[products * perProduct];
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO locations (name) VALUES (?)")) {
+                for (int id = 1; id <= locations; id++) {
+                    stmt.setString(1, "Location " + id);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement product = conn.prepareStatement(
+                    "INSERT INTO products (name, price_cents, stock_quantity, located_quantity) VALUES (?, ?, ?, ?)");
+                 PreparedStatement row = conn.prepareStatement(
+                         "INSERT INTO location_stock (product_id, location_id, quantity) VALUES (?, ?, ?)")) {
+                int pair = 0;
+                // A fresh database numbers them 1 to products
+                for (int id = 1; id <= products; id++) {
+                    int located = 0;
+                    for (int location : distinctLocations(random)) {
+                        int quantity = 200 + random.nextInt(800);
+                        row.setInt(1, id);
+                        row.setInt(2, location);
+                        row.setInt(3, quantity);
+                        row.addBatch();
+                        pairProducts[pair] = id;
+                        pairLocations[pair++] = location;
+                        located += quantity;
+                    }
+                    product.setString(1, "Product " + id);
+                    product.setLong(2, 100 + random.nextInt(10_000));
+                    product.setInt(3, located + random.nextInt(100));
+                    product.setInt(4, located);
+                    product.addBatch();
+                    if (id % (BATCH / perProduct) == 0) {
+                        product.executeBatch();
+                        row.executeBatch();
+                    }
+                }
+                product.executeBatch();
+                row.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private int[] distinctLocations(Random random) {
+        int[] chosen = new int[perProduct];
+        for (int i = 0; i < perProduct; i++) {
+            int location;
+            boolean taken;
+            do {
+                location = 1 + random.nextInt(locations);
+                taken = false;
+                for (int j = 0; j < i; j++) {
+                    taken |= chosen[j] == location;
+                }
+            } while (taken);
+            chosen[i] = location;
+        }
+        return chosen;
+    }
+
+    // Once only: H2 hands back the previous result of a query if no table changed since
+    private static long timeOnce(Operation operation) throws Exception {
+        long started = System.nanoTime();
+        operation.run();
+        return millisSince(started);
+    }
+
+    private Map<String, Object> measure(Operation operation) throws Exception {
+        // Warm-up, so the measured run is not charged for JIT compilation
+        long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (System.nanoTime() < warmUpEnd) {
+            operation.run();
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong count = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        long started = System.nanoTime();
+                        operation.run();
+                        latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+                        count.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("opsPerSecond", Math.round(count.get() / (double) seconds));
+        result.put("p50Micros", latency.percentileMicros(50));
+        result.put("p99Micros", latency.percentileMicros(99));
+        return result;
+    }
+
+    private int randomProduct() {
+        return 1 + ThreadLocalRandom.current().nextInt(products);
+    }
+
+    private int randomPair() {
+        return ThreadLocalRandom.current().nextInt(pairProducts.length);
+    }
+
+    private static long count(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static long millisSince(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,270 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.JsonAdapters;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.model.Money;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times summing sale revenue as long cents against {@code BigDecimal} and {@code double}, and
+ * the sales and inventory reports of both engines over the same sales.
+ * <p>
+ * Product prices change a few times while the sales are generated, so each sale's captured
+ * price differs from today's. Revenue is summed in process over the captured prices in each
+ * representation, reporting the time and the bytes allocated per sale and how far the double
+ * total ends up from the exact one. Then both engines are loaded with the same sales and their
+ * reports are timed. The jdbc engine runs on an in-memory H2 database unless
+ * {@code -Dinventory.url} points elsewhere.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.MoneyBenchmark --products=1000 --sales=1000000 --rounds=5
+ * </pre>
+ * Exits with status 1 if any report or the long sum disagrees with the {@code BigDecimal} sum.
+ */
+public final class MoneyBenchmark {
+    private static final Gson printer = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson gson = JsonAdapters.createGson();
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int PRICE_CHANGES = 10;
+    private static final int BATCH = 10_000;
+
+    private final int products;
+    private final int sales;
+    private final int rounds;
+    // Prices of every product at each price change, and what each sale sold at which price
+    private long[][] prices;
+    private int[] saleProducts;
+    private int[] saleQuantities;
+    private long[] salePrices;
+    // Keeps results reachable so the JIT cannot drop the work
+    private double sink;
+
+    private MoneyBenchmark(Map<String, String> options) {
+        this.products = Integer.parseInt(options.getOrDefault("products", "1000"));
+        this.sales = Integer.parseInt(options.getOrDefault("sales", "1000000"));
+        this.rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:moneyBenchmark;DB_CLOSE_DELAY=-1");
+        }
+        MoneyBenchmark benchmark = new MoneyBenchmark(options);
+        Map<String, Object> report = benchmark.run();
+        System.out.println(printer.toJson(report));
+        System.exit(Boolean.TRUE.equals(report.get("passed")) ? 0 : 1);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("products", products);
+        report.put("sales", sales);
+        generate();
+
+        BigDecimal exact = BigDecimal.ZERO;
+        for (int i = 0; i < sales; i++) {
+            exact = exact.add(Money.toDecimal(salePrices[i]).multiply(BigDecimal.valueOf(saleQuantities[i])));
+        }
+        long cents = sumCents();
+        boolean passed = Money.toDecimal(cents).compareTo(exact) == 0;
+
+        Map<String, Object> summing = new LinkedHashMap<>();
+        summing.put("cents", time(() -> sink += sumCents()));
+        summing.put("bigDecimal", time(() -> sink += sumDecimal().doubleValue()));
+        summing.put("double", time(() -> sink += sumDouble()));
+        summing.put("exactRevenue", exact.toPlainString());
+        summing.put("centsRevenue", Money.format(cents));
+        summing.put("doubleRevenue", BigDecimal.valueOf(sumDouble()).toPlainString());
+        report.put("summing", summing);
+
+        DatabaseConnection.initialize();
+        for (String engine : new String[] {"jdbc", "memory"}) {
+            InventoryStore store = InventoryStore.create(engine);
+            long started = System.nanoTime();
+            if (engine.equals("jdbc")) {
+                seedJdbc();
+            } else {
+                seedStore(store);
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("loadMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            // A write between runs, so H2 cannot hand back the previous result
+            result.put("salesReport", time(() -> {
+                store.adjustStock(1, 1);
+                store.generateSalesReport(true, null, null);
+            }));
+            result.put("inventoryReport", time(() -> {
+                store.adjustStock(1, 1);
+                store.generateInventoryReport(true);
+            }));
+            String revenue = JsonParser.parseString(JsonAdapters.toJson(gson, store.generateSalesReport(true, null, null)))
+                    .getAsJsonObject().get("totalRevenue").toString();
+            result.put("revenue", revenue);
+            passed &= new BigDecimal(revenue).compareTo(exact) == 0;
+            report.put(engine, result);
+        }
+        report.put("passed", passed);
+        return report;
+    }
+
+    /**
+     * Draws the prices and the sales; the sales in each tenth of the run sell at the prices
+     * of that tenth
+     */
+    private void generate() {
+        Random random = new Random(42);
+        prices = new long[PRICE_CHANGES][products];
+        for (long[] epoch : prices) {
+            for (int p = 0; p < products; p++) {
+                epoch[p] = 1 + random.nextInt(99_999);
+            }
+        }
+        saleProducts = new int[sales];
+        saleQuantities = new int[sales];
+        salePrices = new long[sales];
+        for (int i = 0; i < sales; i++) {
+            saleProducts[i] = random.nextInt(products);
+            saleQuantities[i] = 1 + random.nextInt(5);
+            salePrices[i] = prices[epoch(i)][saleProducts[i]];
+        }
+    }
+
+    private int epoch(int sale) {
+        return (int) ((long) sale * PRICE_CHANGES / sales);
+    }
+
+    private long sumCents() {
+        long total = 0;
+        for (int i = 0; i < sales; i++) {
+            total = Money.add(total, Money.times(salePrices[i], saleQuantities[i]));
+        }
+        return total;
+    }
+
+    private BigDecimal sumDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < sales; i++) {
+            total = total.add(Money.toDecimal(salePrices[i]).multiply(BigDecimal.valueOf(saleQuantities[i])));
+        }
+        return total;
+    }
+
+    private double sumDouble() {
+        double total = 0;
+        for (int i = 0; i < sales; i++) {
+            total += salePrices[i] / 100.0 * saleQuantities[i];
+        }
+        return total;
+    }
+
+    /**
+     * Inserts the products at their final prices and the sales at their captured prices
+     * directly; a fresh database numbers the products 1 to products
+     */
+    private void seedJdbc() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO products (name, price_cents, stock_quantity) VALUES (?, ?, ?)")) {
+                for (int p = 0; p < products; p++) {
+                    stmt.setString(1, "Product " + (p + 1));
+                    stmt.setLong(2, prices[PRICE_CHANGES - 1][p]);
+                    stmt.setInt(3, 1_000_000_000);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO sales (product_id, quantity_sold, unit_price_cents) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < sales; i++) {
+                    stmt.setInt(1, saleProducts[i] + 1);
+                    stmt.setInt(2, saleQuantities[i]);
+                    stmt.setLong(3, salePrices[i]);
+                    stmt.addBatch();
+                    if ((i + 1) % BATCH == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    /**
+     * Records the sales through the store, changing the prices between tenths, so each sale
+     * captures the same price as in the jdbc engine
+     */
+    private void seedStore(InventoryStore store) throws SQLException {
+        int[] ids = new int[products];
+        for (int p = 0; p < products; p++) {
+            Product product = new Product();
+            product.setName("Product " + (p + 1));
+            product.setPriceCents(prices[0][p]);
+            product.setStockQuantity(1_000_000_000);
+            ids[p] = store.addProduct(product).getId();
+        }
+        int epoch = 0;
+        for (int i = 0; i < sales; i++) {
+            if (epoch(i) != epoch) {
+                epoch = epoch(i);
+                for (int p = 0; p < products; p++) {
+                    Product product = store.getProductById(ids[p]);
+                    product.setPriceCents(prices[epoch][p]);
+                    store.updateProduct(product, null);
+                }
+            }
+            store.recordSale(new Sale(ids[saleProducts[i]], saleQuantities[i], 0));
+        }
+    }
+
+    /**
+     * Runs the operation once to warm up and then once per round, reporting the best round and
+     * the bytes it allocated per sale
+     */
+    private Map<String, Object> time(Operation operation) throws Exception {
+        operation.run();
+        long best = Long.MAX_VALUE;
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long started = System.nanoTime();
+            operation.run();
+            best = Math.min(best, System.nanoTime() - started);
+            allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("micros", TimeUnit.NANOSECONDS.toMicros(best));
+        result.put("nanosPerSale", Math.round(100.0 * best / sales) / 100.0);
+        result.put("bytesPerSale", Math.round(100.0 * allocated / sales) / 100.0);
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
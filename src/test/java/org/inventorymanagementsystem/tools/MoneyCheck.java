@@ -0,0 +1,278 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.inventorymanagementsystem.InventoryManagementSystem;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.JsonAdapters;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.model.Money;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that money stays exact from the database to the JSON and back.
+ * <p>
+ * A database created with DECIMAL prices is migrated to cents, and every price is checked in
+ * the row, in the JSON and after reading that JSON back. Decimal amounts must round half up to
+ * the cent, and formatting must invert parsing for any long. Many sales at prices doubles
+ * cannot hold exactly must add up to the exact revenue on both engines, taken from the price
+ * each sale captured. Price times quantity and sums past the range of a long must fail rather
+ * than wrap, and an overflowing sale must not be stored. Runs on a private in-memory H2
+ * database.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.MoneyCheck --sales=20000
+ * </pre>
+ * Exits with status 1 if any amount comes out different from the exact one.
+ */
+public final class MoneyCheck {
+    private static final Gson gson = JsonAdapters.createGson();
+
+    private final List<String> failures = new ArrayList<>();
+    private final int sales;
+
+    private MoneyCheck(int sales) {
+        this.sales = sales;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sales = 20_000;
+        for (String arg : args) {
+            if (!arg.startsWith("--sales=")) {
+                throw new IllegalArgumentException("Expected --sales=<count> but got " + arg);
+            }
+            sales = Integer.parseInt(arg.substring("--sales=".length()));
+        }
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:moneyCheck;DB_CLOSE_DELAY=-1");
+        }
+        MoneyCheck check = new MoneyCheck(sales);
+        check.migration();
+        check.rounding();
+        check.formatting();
+        for (String engine : new String[] {"jdbc", "memory"}) {
+            check.totals(engine);
+            check.overflow(engine);
+        }
+        check.failures.forEach(failure -> System.out.println("  FAILED " + failure));
+        System.out.println(check.failures.isEmpty() ? "All money checks passed" : check.failures.size() + " failed");
+        System.exit(check.failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Creates the tables the way databases from before cents did, then lets startup migrate
+     * them. Product prices use the four decimal places of the original init.sql, so the
+     * migration has to round.
+     */
+    private void migration() throws SQLException {
+        String url = DatabaseConnection.getSetting("url");
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE suppliers (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL, " +
+                    "contact_person VARCHAR(255), email VARCHAR(255), phone VARCHAR(50))");
+            stmt.execute("CREATE TABLE products (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL, " +
+                    "price DECIMAL(12,4) NOT NULL, stock_quantity INT NOT NULL DEFAULT 0, supplier_id INT)");
+            stmt.execute("CREATE TABLE sales (id INT AUTO_INCREMENT PRIMARY KEY, product_id INT NOT NULL, " +
+                    "quantity_sold INT NOT NULL, unit_price DECIMAL(10,2), sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("INSERT INTO products (name, price, stock_quantity) VALUES " +
+                    "('Cent', 0.01, 1), ('Dime', 0.1, 1), ('Half up', 2.675, 1), ('Half cent', 0.005, 1), " +
+                    "('Just under', 0.0049, 1), ('Large', 99999999.9999, 1)");
+            // The last sale predates captured prices and takes the product's
+            stmt.execute("INSERT INTO sales (product_id, quantity_sold, unit_price) VALUES " +
+                    "(2, 3, 0.10), (3, 1, 2.67), (2, 7, NULL)");
+        }
+        DatabaseConnection.initialize();
+
+        long[] expected = {1, 10, 268, 1, 0, 10_000_000_000L};
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int id = 1; id <= expected.length; id++) {
+                Product product = InventoryManagementSystem.getProductById(conn, id);
+                check("migrated price of product " + id + " is " + product.getPriceCents() + " cents, expected " +
+                        expected[id - 1], product.getPriceCents() == expected[id - 1]);
+                String json = JsonAdapters.toJson(gson, product);
+                String price = JsonParser.parseString(json).getAsJsonObject().get("price").toString();
+                check("JSON price of product " + id + " is " + price + ", expected " + Money.format(expected[id - 1]),
+                        price.equals(Money.format(expected[id - 1])));
+                long read = gson.fromJson(json, Product.class).getPriceCents();
+                check("price of product " + id + " read back from JSON is " + read + " cents", read == expected[id - 1]);
+            }
+            long[] unitPrices = {10, 267, 10};
+            for (int id = 1; id <= unitPrices.length; id++) {
+                Sale sale = InventoryManagementSystem.getSaleById(conn, id);
+                check("migrated unit price of sale " + id + " is " + sale.getUnitPriceCents() + " cents",
+                        sale.getUnitPriceCents() == unitPrices[id - 1]);
+            }
+        }
+    }
+
+    private void rounding() {
+        String[][] cases = {
+                {"0.005", "1"}, {"0.004999", "0"}, {"2.675", "268"}, {"2.665", "267"}, {"-0.005", "-1"},
+                {"-2.675", "-268"}, {"12.99", "1299"}, {"1e-3", "0"}, {"1.5e2", "15000"}, {" 7 ", "700"}};
+        for (String[] c : cases) {
+            long cents = Money.parse(c[0]);
+            check("parse(\"" + c[0] + "\") is " + cents + ", expected " + c[1], cents == Long.parseLong(c[1]));
+        }
+        // A JSON number goes through its text, never through a double
+        Product product = gson.fromJson("{\"name\":\"x\",\"price\":2.675}", Product.class);
+        check("JSON price 2.675 reads as " + product.getPriceCents() + " cents, expected 268", product.getPriceCents() == 268);
+        product = gson.fromJson("{\"name\":\"x\",\"price\":\"0.285\"}", Product.class);
+        check("JSON price \"0.285\" reads as " + product.getPriceCents() + " cents, expected 29", product.getPriceCents() == 29);
+        refused("JSON price 1e20 does not fit in a long", () -> gson.fromJson("{\"name\":\"x\",\"price\":1e20}", Product.class));
+        refused("JSON price \"abc\" is not a number", () -> gson.fromJson("{\"name\":\"x\",\"price\":\"abc\"}", Product.class));
+    }
+
+    private void formatting() {
+        String[][] cases = {
+                {"0", "0.00"}, {"5", "0.05"}, {"-5", "-0.05"}, {"-105", "-1.05"}, {"1299", "12.99"},
+                {String.valueOf(Long.MAX_VALUE), "92233720368547758.07"},
+                {String.valueOf(Long.MIN_VALUE), "-92233720368547758.08"}};
+        for (String[] c : cases) {
+            String text = Money.format(Long.parseLong(c[0]));
+            check("format(" + c[0] + ") is " + text + ", expected " + c[1], text.equals(c[1]));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long cents = i % 2 == 0 ? random.nextLong() : random.nextInt(1_000_000) - 500_000;
+            String text = Money.format(cents);
+            if (Money.parse(text) != cents || Money.toDecimal(cents).compareTo(new BigDecimal(text)) != 0) {
+                check("format and parse of " + cents + " give " + text, false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records sales at prices a double cannot hold exactly, changes the prices afterwards, and
+     * compares the report totals with the exact sums
+     */
+    private void totals(String engine) throws SQLException {
+        InventoryStore store = InventoryStore.create(engine);
+        long[] prices = {10, 1, 1999, 333};
+        int[] ids = new int[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            ids[i] = store.addProduct(product(engine + " drift " + i, prices[i], 1_000_000)).getId();
+        }
+        // Reports are compared as the JSON the API sends, which is also where rounding would show
+        JsonObject before = json(store.generateSalesReport(true, null, null));
+        long stockValue = Money.parse(json(store.generateInventoryReport(true)).get("totalValue").toString());
+
+        long revenue = 0;
+        double doubleRevenue = 0;
+        long units = 0;
+        for (int i = 0; i < sales; i++) {
+            int product = i % prices.length;
+            int quantity = 1 + i % 3;
+            store.recordSale(new Sale(ids[product], quantity, 0));
+            revenue = Money.add(revenue, Money.times(prices[product], quantity));
+            doubleRevenue += prices[product] / 100.0 * quantity;
+            units += quantity;
+        }
+        for (int i = 0; i < prices.length; i++) {
+            Product product = store.getProductById(ids[i]);
+            product.setPriceCents(prices[i] * 3);
+            store.updateProduct(product, null);
+        }
+
+        JsonObject after = json(store.generateSalesReport(true, null, null));
+        long reported = Money.parse(after.get("totalRevenue").toString()) - Money.parse(before.get("totalRevenue").toString());
+        check(engine + ": revenue of " + sales + " sales is " + reported + " cents, expected " + revenue,
+                reported == revenue);
+        long reportedUnits = after.get("totalUnitsSold").getAsLong() - before.get("totalUnitsSold").getAsLong();
+        check(engine + ": units sold are " + reportedUnits + ", expected " + units, reportedUnits == units);
+        check(engine + ": JSON revenue " + after.get("totalRevenue") + " has two decimal places",
+                after.get("totalRevenue").toString().matches("-?\\d+\\.\\d\\d"));
+        System.out.printf("%-8s revenue of %d sales: %s exact, %s summed as doubles%n",
+                engine, sales, Money.format(revenue), BigDecimal.valueOf(doubleRevenue).toPlainString());
+
+        // The other products in the report keep their value, so the change is these products'
+        long valueBefore = 0;
+        long valueAfter = 0;
+        for (int i = 0; i < prices.length; i++) {
+            valueBefore = Money.add(valueBefore, Money.times(prices[i], 1_000_000));
+            valueAfter = Money.add(valueAfter, Money.times(prices[i] * 3, store.getProductById(ids[i]).getStockQuantity()));
+        }
+        long change = Money.parse(json(store.generateInventoryReport(true)).get("totalValue").toString()) - stockValue;
+        check(engine + ": stock value changed by " + change + " cents, expected " + (valueAfter - valueBefore),
+                change == valueAfter - valueBefore);
+    }
+
+    private void overflow(String engine) throws SQLException {
+        refused("times(Long.MAX_VALUE, 2) overflows", () -> Money.times(Long.MAX_VALUE, 2));
+        refused("add(Long.MAX_VALUE, 1) overflows", () -> Money.add(Long.MAX_VALUE, 1));
+        refused("sale of 3 at Long.MAX_VALUE / 2 overflows", () -> new Sale(1, 3, Long.MAX_VALUE / 2));
+
+        InventoryStore store = InventoryStore.create(engine);
+        Product product = store.addProduct(product(engine + " overflow", Long.MAX_VALUE / 2 + 1, 1));
+        // The memory engine keeps the stock value as it goes, so it refuses stock worth more than a
+        // long can hold; whichever write it refuses must leave the product as it was
+        try {
+            store.adjustStock(product.getId(), 9);
+            store.adjustStock(product.getId(), -9);
+        } catch (ArithmeticException e) {
+            check(engine + ": refused adjustment leaves the stock at 1",
+                    store.getProductById(product.getId()).getStockQuantity() == 1);
+        }
+        store.deleteProduct(product.getId());
+
+        // Selling two needs two in stock, so the sale can only overflow where that stock was taken
+        int productsBefore = store.getAllProducts(true).size();
+        Product pair;
+        try {
+            pair = store.addProduct(product(engine + " overflow pair", Long.MAX_VALUE / 2 + 1, 2));
+        } catch (ArithmeticException e) {
+            check(engine + ": refused product is not stored", store.getAllProducts(true).size() == productsBefore);
+            return;
+        }
+        int salesBefore = store.getAllSales(true).size();
+        refused(engine + ": sale of 2 at " + Money.format(pair.getPriceCents()) + " overflows",
+                () -> store.recordSale(new Sale(pair.getId(), 2, 0)));
+        check(engine + ": overflowing sale is not stored", store.getAllSales(true).size() == salesBefore);
+        check(engine + ": overflowing sale takes no stock", store.getProductById(pair.getId()).getStockQuantity() == 2);
+        store.deleteProduct(pair.getId());
+    }
+
+    private static Product product(String name, long priceCents, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPriceCents(priceCents);
+        product.setStockQuantity(stock);
+        return product;
+    }
+
+    private static JsonObject json(Object value) {
+        return JsonParser.parseString(JsonAdapters.toJson(gson, value)).getAsJsonObject();
+    }
+
+    private void refused(String name, Action action) {
+        try {
+            action.run();
+            failures.add(name + ": succeeded but should have failed");
+        } catch (ArithmeticException | IllegalArgumentException | SQLException e) {
+            // Expected
+        } catch (Exception e) {
+            failures.add(name + ": failed with " + e);
+        }
+    }
+
+    private void check(String name, boolean passed) {
+        if (!passed) {
+            failures.add(name);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws Exception;
+    }
+}
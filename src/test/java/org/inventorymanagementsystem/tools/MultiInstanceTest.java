@@ -0,0 +1,406 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.inventorymanagementsystem.InventoryManagementSystem;
+import org.inventorymanagementsystem.controller.DatabaseServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Runs several API instances against one shared database server on localhost and checks
+ * that concurrent stock changes spread across them add up.
+ * <p>
+ * A {@link DatabaseServer} and up to {@code --instances} API servers are started as child
+ * JVMs on a scratch directory. For one, two, ... instances, worker threads send sales and
+ * stock adjustments for a few hot products to the instances in turn. After each round the
+ * stock of every product must equal its starting stock minus the units of every accepted
+ * sale plus every accepted adjustment, must never be negative, and the number of stored sales
+ * must match the accepted ones. Finally two updates carrying the same {@code If-Match} are
+ * sent to different instances; exactly one may succeed, and a search through the other
+ * instance must find the product by its new name. Last, a change is written in a transaction
+ * left open on the database server while a later change commits; a delta sync may not move
+ * its cursor past the open one, which must arrive once it commits. Exits with status 1 on
+ * any failure.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.MultiInstanceTest \
+ *     --instances=3 --seconds=5 --threads=8 --products=4 --output=target/multi-instance.json
+ * </pre>
+ */
+public final class MultiInstanceTest {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final int INITIAL_STOCK = 200;
+
+    private final int instances;
+    private final long seconds;
+    private final int threads;
+    private final int products;
+    private final int dbPort;
+    private final int basePort;
+    private final Path dir;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final List<Process> processes = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+    private final List<String> urls = new ArrayList<>();
+    private int[] productIds;
+    // Expected stock change per product, summed over every accepted sale and adjustment
+    private AtomicLongArray stockChange;
+    private final AtomicLong acceptedSales = new AtomicLong();
+
+    private MultiInstanceTest(Map<String, String> options) {
+        this.instances = Integer.parseInt(options.getOrDefault("instances", "3"));
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "5"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        this.products = Integer.parseInt(options.getOrDefault("products", "4"));
+        this.dbPort = Integer.parseInt(options.getOrDefault("dbPort", "9192"));
+        this.basePort = Integer.parseInt(options.getOrDefault("basePort", "4601"));
+        this.dir = Path.of(options.getOrDefault("dir", "target/multi-instance"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        MultiInstanceTest test = new MultiInstanceTest(options);
+        Map<String, Object> report;
+        try {
+            report = test.run();
+        } finally {
+            test.stopAll();
+        }
+        String json = gson.toJson(report);
+        System.out.println(json);
+        String output = options.get("output");
+        if (output != null) {
+            Files.writeString(Path.of(output), json);
+        }
+        if (!test.failures.isEmpty()) {
+            test.failures.forEach(failure -> System.err.println("FAILED " + failure));
+            System.exit(1);
+        }
+        System.out.println("Multi-instance checks passed");
+        System.exit(0);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        deleteDirectory(dir);
+        Files.createDirectories(dir);
+        start("database", DatabaseServer.class, List.of(
+                "-Dinventory.dbServerPort=" + dbPort,
+                "-Dinventory.dbServerDir=" + dir.resolve("db")));
+        awaitPort(dbPort);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("threads", threads);
+        report.put("hotProducts", products);
+        List<Object> rounds = new ArrayList<>();
+        for (int n = 1; n <= instances; n++) {
+            // One at a time, so schema creation never races
+            startInstance(n);
+            if (n == 1) {
+                seed();
+            }
+            rounds.add(round(n));
+        }
+        report.put("rounds", rounds);
+        checkConditionalUpdates();
+        checkSearch();
+        checkDelayedCommit();
+        report.put("failures", failures);
+        return report;
+    }
+
+    private void startInstance(int n) throws Exception {
+        int port = basePort + n - 1;
+        start("instance-" + n, InventoryManagementSystem.class, List.of(
+                "-Dinventory.url=jdbc:h2:tcp://localhost:" + dbPort + "/inventoryDB",
+                "-Dinventory.apiPort=" + port,
+                "-Dinventory.authEnabled=false"));
+        String url = "http://localhost:" + port;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (true) {
+            try {
+                if (send("GET", url + "/api/system/ready", null, null).statusCode() == 200) break;
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("instance-" + n + " did not become ready, see " + dir.resolve("instance-" + n + ".log"));
+            }
+            Thread.sleep(200);
+        }
+        urls.add(url);
+    }
+
+    private void seed() throws Exception {
+        productIds = new int[products];
+        stockChange = new AtomicLongArray(products);
+        for (int i = 0; i < products; i++) {
+            String body = "{\"name\":\"Hot product " + (i + 1) + "\",\"price\":2.50,\"stockQuantity\":" + INITIAL_STOCK + "}";
+            HttpResponse<String> response = send("POST", urls.get(0) + "/api/products", body, null);
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed: " + response.body());
+            }
+            productIds[i] = JsonParser.parseString(response.body()).getAsJsonObject().get("id").getAsInt();
+        }
+    }
+
+    /**
+     * Sends sales and adjustments to the first {@code n} instances for the configured time,
+     * then checks the stored stock and sales against what was accepted.
+     */
+    private Map<String, Object> round(int n) throws Exception {
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (long i = worker; System.nanoTime() < end; i += threads) {
+                    String url = urls.get((int) (i % n));
+                    int index = random.nextInt(products);
+                    boolean sale = random.nextInt(10) < 7;
+                    int amount = sale ? 1 + random.nextInt(3) : random.nextInt(-2, 6);
+                    try {
+                        HttpResponse<String> response = sale
+                                ? send("POST", url + "/api/sales",
+                                        "{\"productId\":" + productIds[index] + ",\"quantitySold\":" + amount + "}", null)
+                                : send("POST", url + "/api/products/" + productIds[index] + "/stock/adjust",
+                                        "{\"delta\":" + amount + "}", null);
+                        if (response.statusCode() == 200) {
+                            stockChange.addAndGet(index, sale ? -amount : amount);
+                            if (sale) acceptedSales.incrementAndGet();
+                            accepted.incrementAndGet();
+                        } else if (response.statusCode() == 409) {
+                            conflicts.incrementAndGet();
+                        } else if (response.body().contains("Insufficient stock")) {
+                            rejected.incrementAndGet();
+                        } else {
+                            fail("instances=" + n + ": unexpected " + response.statusCode() + " " + response.body());
+                        }
+                    } catch (Exception e) {
+                        fail("instances=" + n + ": " + e);
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Every instance must see the same, correct totals
+        for (String url : urls.subList(0, n)) {
+            for (int i = 0; i < products; i++) {
+                JsonObject product = getJson(url + "/api/products/" + productIds[i]);
+                long expected = INITIAL_STOCK + stockChange.get(i);
+                long actual = product.get("stockQuantity").getAsLong();
+                if (actual != expected || actual < 0) {
+                    fail("instances=" + n + ": product " + productIds[i] + " at " + url + " has stock " + actual +
+                            ", expected " + expected);
+                }
+            }
+        }
+        long storedSales = getJson(urls.get(0) + "/api/reports/sales").get("totalSales").getAsLong();
+        if (storedSales != acceptedSales.get()) {
+            fail("instances=" + n + ": " + storedSales + " sales stored, " + acceptedSales.get() + " accepted");
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("instances", n);
+        result.put("acceptedPerSecond", Math.round(accepted.get() / (double) seconds));
+        result.put("accepted", accepted.get());
+        result.put("insufficientStock", rejected.get());
+        result.put("conflicts", conflicts.get());
+        return result;
+    }
+
+    /**
+     * Two clients read the same version and update through different instances: the second
+     * update must be refused with 409, and the winner's ETag must be the next version.
+     */
+    private void checkConditionalUpdates() throws Exception {
+        String first = urls.get(0);
+        String second = urls.get(urls.size() - 1);
+        String path = "/api/products/" + productIds[0];
+        HttpResponse<String> read = send("GET", first + path, null, null);
+        String etag = read.headers().firstValue("ETag").orElse(null);
+        if (etag == null) {
+            fail("GET " + path + " sent no ETag");
+            return;
+        }
+        JsonObject product = JsonParser.parseString(read.body()).getAsJsonObject();
+        int version = product.get("version").getAsInt();
+        product.addProperty("name", "Renamed by first");
+        HttpResponse<String> won = send("PUT", first + path, product.toString(), etag);
+        product.addProperty("name", "Renamed by second");
+        HttpResponse<String> lost = send("PUT", second + path, product.toString(), etag);
+        if (won.statusCode() != 200 || lost.statusCode() != 409) {
+            fail("updates with the same If-Match returned " + won.statusCode() + " and " + lost.statusCode() + ", expected 200 and 409");
+        }
+        if (!won.headers().firstValue("ETag").orElse("").equals("\"" + (version + 1) + "\"")) {
+            fail("ETag after update is " + won.headers().firstValue("ETag").orElse(null) + ", expected \"" + (version + 1) + "\"");
+        }
+        if (!getJson(second + path).get("name").getAsString().equals("Renamed by first")) {
+            fail("the refused update was stored");
+        }
+    }
+
+    /**
+     * A product renamed through the first instance must be found by its new name through the
+     * last one, whose search index never saw the rename
+     */
+    private void checkSearch() throws Exception {
+        String last = urls.get(urls.size() - 1);
+        HttpResponse<String> response = send("GET", last + "/api/products/search?q=renamed%20fir", null, null);
+        JsonArray results = JsonParser.parseString(response.body()).getAsJsonArray();
+        if (results.size() != 1 || results.get(0).getAsJsonObject().get("id").getAsInt() != productIds[0]) {
+            fail("search through " + last + " for a product renamed elsewhere returned " + response.body());
+        }
+    }
+
+    /**
+     * A product renamed in a transaction held open on the database server, while another
+     * product's stock is adjusted through an instance, must not be skipped by a delta sync
+     * through the last instance
+     */
+    private void checkDelayedCommit() throws Exception {
+        String last = urls.get(urls.size() - 1);
+        long cursor = 0;
+        JsonObject page;
+        do {
+            page = getJson(last + "/api/sync?since=" + cursor + "&limit=1000");
+            cursor = page.get("cursor").getAsLong();
+        } while (page.get("hasMore").getAsBoolean());
+
+        int delayed = productIds[0];
+        int committed = productIds[productIds.length - 1];
+        try (Connection open = DriverManager.getConnection("jdbc:h2:tcp://localhost:" + dbPort + "/inventoryDB", "sa", "")) {
+            open.setAutoCommit(false);
+            try (Statement stmt = open.createStatement()) {
+                stmt.executeUpdate("UPDATE products SET name = 'Delayed commit' WHERE id = " + delayed);
+            }
+            HttpResponse<String> adjusted = send("POST", urls.get(0) + "/api/products/" + committed + "/stock/adjust",
+                    "{\"delta\":1}", null);
+            if (adjusted.statusCode() != 200) {
+                fail("stock adjustment during an open transaction returned " + adjusted.statusCode() + " " + adjusted.body());
+            }
+            page = getJson(last + "/api/sync?since=" + cursor + "&limit=1000");
+            if (page.get("cursor").getAsLong() != cursor || !page.getAsJsonArray("products").isEmpty()) {
+                fail("sync moved its cursor past a transaction still open: " + page);
+            }
+            cursor = page.get("cursor").getAsLong();
+            open.commit();
+        }
+        page = getJson(last + "/api/sync?since=" + cursor + "&limit=1000");
+        List<Integer> synced = new ArrayList<>();
+        page.getAsJsonArray("products").forEach(product -> synced.add(product.getAsJsonObject().get("id").getAsInt()));
+        if (!synced.contains(delayed) || !synced.contains(committed)) {
+            fail("sync after the delayed commit sent products " + synced + ", expected " + delayed + " and " + committed);
+        }
+    }
+
+    private synchronized void fail(String failure) {
+        // Enough to diagnose; a broken instance would otherwise log every request
+        if (failures.size() < 20) {
+            failures.add(failure);
+        }
+    }
+
+    private JsonObject getJson(String url) throws Exception {
+        return JsonParser.parseString(send("GET", url, null, null).body()).getAsJsonObject();
+    }
+
+    private HttpResponse<String> send(String method, String url, String body, String ifMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        if (ifMatch != null) {
+            request.header("If-Match", ifMatch);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void start(String name, Class<?> main, List<String> properties) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(properties);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(main.getName());
+        File log = dir.resolve(name + ".log").toFile();
+        processes.add(new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start());
+    }
+
+    private static void awaitPort(int port) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Database server did not open port " + port);
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    // Instances first, so none of them is left talking to a stopped database
+    private void stopAll() throws InterruptedException {
+        for (int i = processes.size() - 1; i >= 0; i--) {
+            Process process = processes.get(i);
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.inventorymanagementsystem.InventoryManagementSystem;
+import org.inventorymanagementsystem.JsonAdapters;
+import org.inventorymanagementsystem.ProductSearchIndex;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Location;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Counts the statements each write in {@link InventoryManagementSystem} sends to the database
+ * and fails if any sends more than its budget.
+ * <p>
+ * Every statement execution and every commit or rollback counts as one round trip, which is
+ * what it costs against a TCP database. Writes return the row they changed from the same
+ * statement, so a successful write costs one round trip and a sale three (stock, sale,
+ * commit). Writes at a location also change that location's row, one round trip more, as
+ * do sales to a customer, for the customer's totals. A page of purchase history costs two
+ * queries, the customer and the page.
+ * Refused writes may spend one more to tell a missing row from a conflict. A SKU lookup
+ * costs nothing when the product is in {@link ProductSearchIndex} and one query when not.
+ * A delta sync costs one query when nothing changed; otherwise one more for the transactions
+ * still writing to the feed and one per kind of row it sends.
+ * Runs on a private in-memory H2 database.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.RoundTripCheck
+ * </pre>
+ * Exits with status 1 if any write goes over its budget or returns the wrong row.
+ */
+public final class RoundTripCheck {
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final List<String> failures = new ArrayList<>();
+    private int roundTrips;
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:roundtrips;DB_CLOSE_DELAY=-1");
+        }
+        DatabaseConnection.initialize();
+        RoundTripCheck check = new RoundTripCheck();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            check.run(check.counting(conn));
+        }
+        check.failures.forEach(failure -> System.out.println("  FAILED " + failure));
+        System.exit(check.failures.isEmpty() ? 0 : 1);
+    }
+
+    private void run(Connection conn) throws SQLException {
+        Supplier supplier = measure("addSupplier", 1, () ->
+                InventoryManagementSystem.addSupplier(conn, new Supplier(0, "Acme", "Ann", "ann@acme.test", null)));
+        check("supplier has an ID and version 0", supplier.getId() > 0 && supplier.getVersion() == 0);
+
+        Product product = new Product();
+        product.setName("Widget");
+        product.setPriceCents(250);
+        product.setStockQuantity(20);
+        product.setSupplierId(supplier.getId());
+        Product widget = measure("addProduct", 1, () -> InventoryManagementSystem.addProduct(conn, product));
+        check("product has an ID, version 0 and its supplier",
+                widget.getId() > 0 && widget.getVersion() == 0 && widget.getSupplierId() == supplier.getId());
+
+        Product orphan = new Product();
+        orphan.setName("Orphan");
+        orphan.setSupplierId(99);
+        measureFailure("addProduct with missing supplier", 1, () -> InventoryManagementSystem.addProduct(conn, orphan));
+        check("refused product is not stored", InventoryManagementSystem.getAllProducts(conn).size() == 1);
+
+        widget.setName("Widget Pro");
+        Product renamed = measure("updateProduct", 1, () -> InventoryManagementSystem.updateProduct(conn, widget, null));
+        check("blind update returns version 1", renamed.getVersion() == 1 && renamed.getName().equals("Widget Pro"));
+        Product matched = measure("updateProduct with If-Match", 1, () ->
+                InventoryManagementSystem.updateProduct(conn, renamed, 1));
+        check("matching update returns version 2", matched.getVersion() == 2);
+        measureFailure("updateProduct with stale If-Match", 2, () ->
+                InventoryManagementSystem.updateProduct(conn, matched, 1));
+        matched.setSupplierId(99);
+        measureFailure("updateProduct with missing supplier", 2, () ->
+                InventoryManagementSystem.updateProduct(conn, matched, null));
+        matched.setSupplierId(supplier.getId());
+        check("refused update is not stored",
+                InventoryManagementSystem.getProductById(conn, widget.getId()).getSupplierId() == supplier.getId());
+
+        Product labelled = new Product();
+        labelled.setName("Gadget");
+        labelled.setPriceCents(1000);
+        labelled.setStockQuantity(5);
+        labelled.setSku("4006381333931");
+        Product gadget = measure("addProduct with a SKU", 1, () -> InventoryManagementSystem.addProduct(conn, labelled));
+        Product clash = new Product();
+        clash.setName("Gadget copy");
+        clash.setPriceCents(1000);
+        clash.setSku(" 4006381333931 ");
+        measureFailure("addProduct with a taken SKU", 1, () -> InventoryManagementSystem.addProduct(conn, clash));
+        check("product with a taken SKU is not stored", InventoryManagementSystem.getAllProducts(conn).size() == 2);
+        Product scanned = measure("getProductBySku from the index", 0, () ->
+                InventoryManagementSystem.getProductBySku(conn, "4006381333931"));
+        check("SKU lookup finds the product", scanned.getId() == gadget.getId() && scanned.getVersion() == 0);
+        ProductSearchIndex.getInstance().remove(gadget.getId());
+        scanned = measure("getProductBySku from the database", 1, () ->
+                InventoryManagementSystem.getProductBySku(conn, "4006381333931"));
+        check("SKU lookup falls back to the database", scanned.getId() == gadget.getId());
+
+        supplier.setPhone("555-0100");
+        Supplier updated = measure("updateSupplier", 1, () ->
+                InventoryManagementSystem.updateSupplier(conn, supplier, 0));
+        check("supplier update returns version 1", updated.getVersion() == 1 && "555-0100".equals(updated.getPhone()));
+
+        Product restocked = measure("updateProductStock", 1, () ->
+                InventoryManagementSystem.updateProductStock(conn, widget.getId(), 30));
+        check("stock update returns the new stock", restocked.getStockQuantity() == 30 && restocked.getVersion() == 3);
+        measure("updateStockQuantity", 1, () -> InventoryManagementSystem.updateStockQuantity(conn, widget.getId(), 25));
+
+        Product adjusted = measure("adjustStock", 1, () -> InventoryManagementSystem.adjustStock(conn, widget.getId(), -5));
+        check("adjustment returns the new stock", adjusted.getStockQuantity() == 20);
+        measureFailure("adjustStock beyond the stock", 2, () ->
+                InventoryManagementSystem.adjustStock(conn, widget.getId(), -100));
+
+        Sale sale = measure("recordSale", 3, () ->
+                InventoryManagementSystem.recordSale(conn, new Sale(widget.getId(), 4, 0)));
+        check("sale captures the price", sale.getId() > 0 && sale.getUnitPriceCents() == 250);
+        check("sale took the stock", InventoryManagementSystem.getProductById(conn, widget.getId()).getStockQuantity() == 16);
+        measureFailure("recordSale beyond the stock", 3, () ->
+                InventoryManagementSystem.recordSale(conn, new Sale(widget.getId(), 100, 0)));
+
+        Location store = measure("addLocation", 1, () ->
+                InventoryManagementSystem.addLocation(conn, new Location(0, "Store")));
+        Product received = measure("adjustStock at a location", 3, () ->
+                InventoryManagementSystem.adjustStock(conn, widget.getId(), 10, store.getId()));
+        check("location adjustment raises the total", received.getStockQuantity() == 26);
+        Sale located = new Sale(widget.getId(), 4, 0);
+        located.setLocationId(store.getId());
+        measure("recordSale at a location", 4, () -> InventoryManagementSystem.recordSale(conn, located));
+        Sale tooMany = new Sale(widget.getId(), 7, 0);
+        tooMany.setLocationId(store.getId());
+        measureFailure("recordSale beyond location stock", 4, () ->
+                InventoryManagementSystem.recordSale(conn, tooMany));
+        measureFailure("adjustStock into the located stock", 2, () ->
+                InventoryManagementSystem.adjustStock(conn, widget.getId(), -17));
+        check("stock held at a location is kept out of plain adjustments",
+                InventoryManagementSystem.getProductById(conn, widget.getId()).getStockQuantity() == 22);
+
+        Customer customer = measure("addCustomer", 1, () ->
+                InventoryManagementSystem.addCustomer(conn, new Customer(0, "Ada", null, null)));
+        Sale bought = new Sale(widget.getId(), 2, 0);
+        bought.setCustomerId(customer.getId());
+        measure("recordSale to a customer", 4, () -> InventoryManagementSystem.recordSale(conn, bought));
+        Customer totals = InventoryManagementSystem.getCustomerById(conn, customer.getId());
+        check("sale adds to the customer's totals", totals.getPurchaseCount() == 1 && totals.getUnitsBought() == 2
+                && totals.getSpentCents() == 500 && totals.getLastPurchaseAt() != null);
+        Sale unknown = new Sale(widget.getId(), 1, 0);
+        unknown.setCustomerId(99);
+        measureFailure("recordSale to an unknown customer", 4, () -> InventoryManagementSystem.recordSale(conn, unknown));
+        JsonObject history = asJson(this.<Object>measure("getCustomerPurchases", 2, () ->
+                InventoryManagementSystem.getCustomerPurchases(conn, customer.getId(), 10, 0)));
+        check("purchase history lists the sale", history.getAsJsonArray("purchases").size() == 1
+                && history.getAsJsonArray("purchases").get(0).getAsJsonObject().get("id").getAsInt() == bought.getId());
+        check("refused sale left the stock alone",
+                InventoryManagementSystem.getProductById(conn, widget.getId()).getStockQuantity() == 20);
+
+        System.setProperty("inventory.syncSettleMillis", "60000");
+        try {
+            JsonObject held = asJson(this.<Object>measure("getChanges, nothing settled", 1, () ->
+                    InventoryManagementSystem.getChanges(conn, 0, 100)));
+            check("unsettled changes are held back",
+                    held.get("cursor").getAsLong() == 0 && held.getAsJsonArray("products").isEmpty());
+        } finally {
+            System.clearProperty("inventory.syncSettleMillis");
+        }
+        JsonObject full = asJson(this.<Object>measure("getChanges from the start", 4, () ->
+                InventoryManagementSystem.getChanges(conn, 0, 100)));
+        check("full sync sends every product and supplier once",
+                full.getAsJsonArray("products").size() == 2 && full.getAsJsonArray("suppliers").size() == 1);
+        long cursor = full.get("cursor").getAsLong();
+        JsonObject empty = asJson(this.<Object>measure("getChanges with nothing new", 1, () ->
+                InventoryManagementSystem.getChanges(conn, cursor, 100)));
+        check("sync from the last cursor is empty", empty.getAsJsonArray("products").isEmpty()
+                && empty.get("cursor").getAsLong() == cursor);
+        delayedCommit(conn, cursor, widget.getId(), gadget.getId());
+    }
+
+    /**
+     * A change whose transaction commits after a later one has been synced must still reach
+     * the client: the page may not move the cursor past it while it is open.
+     */
+    private void delayedCommit(Connection conn, long cursor, int delayedId, int committedId) throws SQLException {
+        long next;
+        try (Connection open = DatabaseConnection.getConnection()) {
+            open.setAutoCommit(false);
+            try (Statement stmt = open.createStatement()) {
+                stmt.executeUpdate("UPDATE products SET name = 'Delayed' WHERE id = " + delayedId);
+            }
+            try (Connection other = DatabaseConnection.getConnection(); Statement stmt = other.createStatement()) {
+                stmt.executeUpdate("UPDATE products SET name = 'Committed' WHERE id = " + committedId);
+            }
+            JsonObject during = asJson(InventoryManagementSystem.getChanges(conn, cursor, 100));
+            check("a sync stops below a transaction still open", during.get("cursor").getAsLong() == cursor
+                    && during.getAsJsonArray("products").isEmpty());
+            next = during.get("cursor").getAsLong();
+            open.commit();
+        }
+        JsonObject after = asJson(InventoryManagementSystem.getChanges(conn, next, 100));
+        List<Integer> ids = new ArrayList<>();
+        after.getAsJsonArray("products").forEach(p -> ids.add(p.getAsJsonObject().get("id").getAsInt()));
+        check("the delayed change is sent once it commits, with the later one",
+                ids.contains(delayedId) && ids.contains(committedId));
+    }
+
+    // SyncPage and CustomerPurchases are package-private, so their fields are read from their JSON
+    private static JsonObject asJson(Object page) {
+        return JsonParser.parseString(JsonAdapters.toJson(JsonAdapters.createGson(), page)).getAsJsonObject();
+    }
+
+    private <T> T measure(String name, int budget, Write<T> write) throws SQLException {
+        roundTrips = 0;
+        T result = write.run();
+        report(name, budget);
+        return result;
+    }
+
+    private void measureFailure(String name, int budget, Write<?> write) {
+        roundTrips = 0;
+        try {
+            write.run();
+            failures.add(name + ": succeeded but should have been refused");
+        } catch (SQLException | IllegalArgumentException e) {
+            report(name, budget);
+        }
+    }
+
+    private void report(String name, int budget) {
+        System.out.printf("%-36s %d round trips (budget %d)%n", name, roundTrips, budget);
+        if (roundTrips > budget) {
+            failures.add(name + ": " + roundTrips + " round trips, budget " + budget);
+        }
+    }
+
+    private void check(String name, boolean passed) {
+        if (!passed) {
+            failures.add(name);
+        }
+    }
+
+    /**
+     * Wraps the connection so statements it creates count their executions, and commits and
+     * rollbacks count too
+     */
+    private Connection counting(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(conn, method, args);
+                    if (method.getName().equals("commit") || method.getName().equals("rollback")) {
+                        roundTrips++;
+                    }
+                    if (result instanceof Statement statement) {
+                        return countingStatement(statement);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement countingStatement(Statement statement) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (EXECUTE_METHODS.contains(method.getName())) {
+                roundTrips++;
+            }
+            return invoke(statement, method, args);
+        };
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Write<T> {
+        T run() throws SQLException;
+    }
+}
@@ -0,0 +1,220 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.inventorymanagementsystem.controller.DatabaseConnection;
+import org.inventorymanagementsystem.controller.LatencyHistogram;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.repository.ProductRepository;
+import org.inventorymanagementsystem.repository.SaleRepository;
+import org.inventorymanagementsystem.repository.SupplierRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times the repositories with the prepared statement cache at its configured size and with
+ * it turned off, under the same load.
+ * <p>
+ * Every operation borrows a pooled connection, runs one repository call and gives the
+ * connection back, as a request does. With the cache on, the statement prepared on an earlier
+ * borrow is reused; with it off, H2 parses and plans the SQL every time. Each operation runs
+ * for a fixed time on several threads against each pool in turn, for several rounds, and each
+ * pool's best round is reported. Runs on an in-memory H2 database unless
+ * {@code -Dinventory.url} points elsewhere.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.StatementCacheBenchmark \
+ *     --products=10000 --seconds=3 --threads=4 --rounds=3
+ * </pre>
+ */
+public final class StatementCacheBenchmark {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final int SUPPLIERS = 50;
+    private static final int BATCH = 10_000;
+
+    private final ProductRepository products = new ProductRepository();
+    private final SupplierRepository suppliers = new SupplierRepository();
+    private final SaleRepository sales = new SaleRepository();
+    private final int productCount;
+    private final long seconds;
+    private final int threads;
+    private final int rounds;
+
+    private StatementCacheBenchmark(Map<String, String> options) {
+        this.productCount = Integer.parseInt(options.getOrDefault("products", "10000"));
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "3"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        this.rounds = Integer.parseInt(options.getOrDefault("rounds", "3"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:statementCacheBenchmark;DB_CLOSE_DELAY=-1");
+        }
+        StatementCacheBenchmark benchmark = new StatementCacheBenchmark(options);
+        System.out.println(gson.toJson(benchmark.run()));
+        System.exit(0);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        int cacheSize = Integer.parseInt(DatabaseConnection.getSetting("statementCacheSize"));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("products", productCount);
+        report.put("threads", threads);
+        report.put("rounds", rounds);
+        report.put("statementCacheSize", cacheSize);
+        DatabaseConnection.initialize();
+        long started = System.nanoTime();
+        seed();
+        report.put("seedMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("productById", conn -> products.findById(conn, randomProduct()));
+        operations.put("productBySku", conn -> products.findBySku(conn, "SKU-" + randomProduct()));
+        operations.put("supplierById", conn -> suppliers.findById(conn, 1 + ThreadLocalRandom.current().nextInt(SUPPLIERS)));
+        // Near the start, so the page costs about as much as a lookup rather than a long skip
+        operations.put("productPage", conn -> products.findPage(conn, 50, ThreadLocalRandom.current().nextInt(100)));
+        operations.put("recordSale", conn -> {
+            Sale sale = new Sale(randomProduct(), 1, 0);
+            sale.setUnitPriceCents(100);
+            sales.insert(conn, sale);
+            products.adjustStock(conn, sale.getProductId(), -1);
+        });
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        try (BasicDataSource cached = DatabaseConnection.createPool(cacheSize);
+             BasicDataSource uncached = DatabaseConnection.createPool(0)) {
+            for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                Map<String, Object> on = null;
+                Map<String, Object> off = null;
+                // Alternating which pool goes first, keeping each pool's best round, so neither
+                // is favoured by running after the other has warmed the database
+                for (int round = 0; round < rounds; round++) {
+                    for (boolean first : new boolean[] {round % 2 == 0, round % 2 != 0}) {
+                        if (first) {
+                            on = best(on, measure(cached, operation.getValue()));
+                        } else {
+                            off = best(off, measure(uncached, operation.getValue()));
+                        }
+                    }
+                }
+                result.put("cached", on);
+                result.put("uncached", off);
+                result.put("speedup", Math.round(100.0 * (long) on.get("opsPerSecond")
+                        / Math.max(1, (long) off.get("opsPerSecond"))) / 100.0);
+                results.put(operation.getKey(), result);
+            }
+        }
+        report.put("operations", results);
+        return report;
+    }
+
+    /**
+     * Inserts the suppliers and products directly, with enough stock that the sales run for
+     * the whole benchmark
+     */
+    private void seed() throws SQLException {
+        Random random = new Random(42);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO suppliers (name) VALUES (?)")) {
+                for (int id = 1; id <= SUPPLIERS; id++) {
+                    stmt.setString(1, "Supplier " + id);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO products (name, price_cents, stock_quantity, supplier_id, sku) VALUES (?, ?, ?, ?, ?)")) {
+                // A fresh database numbers them 1 to products
+                for (int id = 1; id <= productCount; id++) {
+                    stmt.setString(1, "Product " + id);
+                    stmt.setLong(2, 100 + random.nextInt(10_000));
+                    stmt.setInt(3, 1_000_000_000);
+                    stmt.setInt(4, 1 + random.nextInt(SUPPLIERS));
+                    stmt.setString(5, "SKU-" + id);
+                    stmt.addBatch();
+                    if (id % BATCH == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private Map<String, Object> measure(BasicDataSource pool, Operation operation) throws Exception {
+        // Warm-up, so the measured run is not charged for JIT compilation or first prepares
+        long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (System.nanoTime() < warmUpEnd) {
+            runOnce(pool, operation);
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong count = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        long started = System.nanoTime();
+                        runOnce(pool, operation);
+                        latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+                        count.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("opsPerSecond", Math.round(count.get() / (double) seconds));
+        result.put("p50Micros", latency.percentileMicros(50));
+        result.put("p99Micros", latency.percentileMicros(99));
+        return result;
+    }
+
+    private static void runOnce(BasicDataSource pool, Operation operation) throws Exception {
+        try (Connection conn = pool.getConnection()) {
+            operation.run(conn);
+        }
+    }
+
+    private static Map<String, Object> best(Map<String, Object> current, Map<String, Object> candidate) {
+        return current == null || (long) candidate.get("opsPerSecond") > (long) current.get("opsPerSecond")
+                ? candidate : current;
+    }
+
+    private int randomProduct() {
+        return 1 + ThreadLocalRandom.current().nextInt(productCount);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(Connection conn) throws Exception;
+    }
+}
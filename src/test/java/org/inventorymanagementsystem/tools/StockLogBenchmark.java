@@ -0,0 +1,306 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.inventorymanagementsystem.controller.LatencyHistogram;
+import org.inventorymanagementsystem.controller.StockLog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks {@link StockLog} and checks that it recovers from crashes.
+ * <p>
+ * Runs against scratch directories under {@code target/stocklog-bench}:
+ * <ul>
+ *   <li>appends per second and append latency under each sync policy, with several writer threads</li>
+ *   <li>recovery time from a snapshot plus log tail, and from the log alone</li>
+ *   <li>a crash test: a child JVM appends under {@code ALWAYS} and reports each durable sequence
+ *       number, then is killed with SIGKILL; recovery must return everything it reported</li>
+ *   <li>a torn-write test: half a record is left at the end of the log; recovery must drop it,
+ *       and records appended afterwards must survive the next recovery</li>
+ * </ul>
+ * Every record sets product {@code seq % products} to {@code seq}, so the expected state after
+ * recovering up to any sequence number can be computed without keeping a copy.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.StockLogBenchmark \
+ *     --seconds=5 --threads=8 --products=100000 --recovery-records=2000000 --output=target/stocklog-report.json
+ * </pre>
+ * Exits with status 1 if a recovery check fails.
+ */
+public final class StockLogBenchmark {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final long SYNC_INTERVAL_MILLIS = 10;
+
+    private final Path baseDir = Path.of("target", "stocklog-bench");
+    private final long seconds;
+    private final int threads;
+    private final int products;
+    private final int recoveryRecords;
+    private final List<String> failures = new ArrayList<>();
+
+    private StockLogBenchmark(Map<String, String> options) {
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "5"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        this.products = Integer.parseInt(options.getOrDefault("products", "100000"));
+        this.recoveryRecords = Integer.parseInt(options.getOrDefault("recovery-records", "2000000"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (options.containsKey("child")) {
+            runChild(Path.of(options.get("child")), Integer.parseInt(options.getOrDefault("products", "100000")));
+            return;
+        }
+
+        StockLogBenchmark benchmark = new StockLogBenchmark(options);
+        Map<String, Object> report = benchmark.run();
+        String json = gson.toJson(report);
+        System.out.println(json);
+        String output = options.get("output");
+        if (output != null) {
+            Files.writeString(Path.of(output), json);
+        }
+        System.exit(benchmark.failures.isEmpty() ? 0 : 1);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        Map<String, Object> appends = new LinkedHashMap<>();
+        for (StockLog.SyncPolicy policy : StockLog.SyncPolicy.values()) {
+            appends.put(policy.name(), measureAppends(policy));
+        }
+        report.put("appends", appends);
+        report.put("recovery", measureRecovery());
+        report.put("crashTest", crashTest());
+        report.put("tornWriteTest", tornWriteTest());
+        report.put("failures", failures);
+        return report;
+    }
+
+    private Map<String, Object> measureAppends(StockLog.SyncPolicy policy) throws Exception {
+        Path dir = scratch("appends-" + policy.name().toLowerCase());
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong count = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (StockLog log = StockLog.open(dir, policy, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, new HashMap<>())) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                writers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        while (System.nanoTime() < end) {
+                            long started = System.nanoTime();
+                            long seq = log.append((int) (count.get() % products), 1, -1);
+                            log.awaitDurable(seq);
+                            latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+                            count.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("threads", threads);
+        result.put("appends", count.get());
+        result.put("appendsPerSecond", Math.round(count.get() / (double) seconds));
+        result.put("p50Micros", latency.percentileMicros(50));
+        result.put("p99Micros", latency.percentileMicros(99));
+        result.put("maxMicros", latency.getMaxMicros());
+        return result;
+    }
+
+    private Map<String, Object> measureRecovery() throws IOException {
+        Path dir = scratch("recovery");
+        Map<Integer, Integer> state = new HashMap<>();
+        try (StockLog log = StockLog.open(dir, StockLog.SyncPolicy.NONE, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, state)) {
+            for (long i = 1; i <= recoveryRecords; i++) {
+                int product = (int) (i % products);
+                log.append(product, (int) i, 1);
+                state.put(product, (int) i);
+                if (i == recoveryRecords * 9L / 10) {
+                    log.writeSnapshot(state, i);
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("records", recoveryRecords);
+        result.put("products", products);
+        recover(dir, recoveryRecords); // Warm-up, so the timed runs are not charged for JIT compilation
+        result.put("withSnapshot", recover(dir, recoveryRecords));
+        // Hiding the snapshots forces a replay of the whole log
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path snapshot : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".snap"))::iterator) {
+                Files.move(snapshot, snapshot.resolveSibling(snapshot.getFileName() + ".hidden"));
+            }
+        }
+        result.put("logOnly", recover(dir, recoveryRecords));
+        return result;
+    }
+
+    private Map<String, Object> recover(Path dir, long expectedLastSeq) throws IOException {
+        Map<Integer, Integer> state = new HashMap<>();
+        try (StockLog log = StockLog.open(dir, StockLog.SyncPolicy.NONE, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, state)) {
+            check("recovery to " + expectedLastSeq, log.getLastSeq() == expectedLastSeq && matches(state, expectedLastSeq));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("snapshotSeq", log.getRecoveredSnapshotSeq());
+            result.put("replayedRecords", log.getReplayedRecords());
+            result.put("recoveryMillis", log.getRecoveryMillis());
+            return result;
+        }
+    }
+
+    /**
+     * Kills a child JVM mid-append and checks nothing it reported as durable was lost
+     */
+    private Map<String, Object> crashTest() throws Exception {
+        Path dir = scratch("crash");
+        Process child = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), StockLogBenchmark.class.getName(),
+                "--child=" + dir, "--products=" + products)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        long acknowledged = 0;
+        long killAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while (System.nanoTime() < killAt && (line = out.readLine()) != null) {
+                acknowledged = Long.parseLong(line);
+            }
+            child.destroyForcibly().waitFor();
+        }
+
+        Map<Integer, Integer> state = new HashMap<>();
+        try (StockLog log = StockLog.open(dir, StockLog.SyncPolicy.ALWAYS, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, state)) {
+            long recovered = log.getLastSeq();
+            check("crash: acknowledged records survive", recovered >= acknowledged);
+            check("crash: recovered state is consistent", matches(state, recovered));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("acknowledgedSeq", acknowledged);
+            result.put("recoveredSeq", recovered);
+            result.put("recoveryMillis", log.getRecoveryMillis());
+            return result;
+        }
+    }
+
+    /**
+     * Leaves half a record after the last complete one, as a crash in the middle of a write would
+     */
+    private Map<String, Object> tornWriteTest() throws IOException {
+        Path dir = scratch("torn");
+        int records = 1000;
+        try (StockLog log = StockLog.open(dir, StockLog.SyncPolicy.ALWAYS, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, new HashMap<>())) {
+            for (int i = 1; i <= records; i++) {
+                log.awaitDurable(log.append(i % products, i, 1));
+            }
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).sorted().findFirst().orElseThrow();
+        }
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer half = ByteBuffer.allocate(16);
+            half.putLong(records + 1L).putLong(System.currentTimeMillis()).flip();
+            file.write(half, (long) records * 32);
+        }
+
+        Map<Integer, Integer> state = new HashMap<>();
+        long afterTear;
+        try (StockLog log = StockLog.open(dir, StockLog.SyncPolicy.ALWAYS, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, state)) {
+            afterTear = log.getLastSeq();
+            check("torn write: partial record dropped", afterTear == records && matches(state, records));
+            for (int i = records + 1; i <= records * 2; i++) {
+                log.awaitDurable(log.append(i % products, i, 1));
+            }
+        }
+        state.clear();
+        long reopened;
+        try (StockLog log = StockLog.open(dir, StockLog.SyncPolicy.ALWAYS, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, state)) {
+            reopened = log.getLastSeq();
+            check("torn write: later appends survive", reopened == records * 2L && matches(state, records * 2L));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recoveredAfterTear", afterTear);
+        result.put("recoveredAfterMoreAppends", reopened);
+        return result;
+    }
+
+    /**
+     * Child process of {@link #crashTest()}: appends until killed, printing every durable sequence number
+     */
+    private static void runChild(Path dir, int products) throws IOException {
+        try (StockLog log = StockLog.open(dir, StockLog.SyncPolicy.ALWAYS, SYNC_INTERVAL_MILLIS, SEGMENT_BYTES, new HashMap<>())) {
+            for (long i = 1; ; i++) {
+                long seq = log.append((int) (i % products), (int) i, 1);
+                log.awaitDurable(seq);
+                if (seq % 100 == 0) {
+                    System.out.println(seq);
+                    System.out.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the state is what replaying records 1 to lastSeq of the test pattern gives
+     */
+    private boolean matches(Map<Integer, Integer> state, long lastSeq) {
+        int expectedSize = (int) Math.min(lastSeq, products);
+        if (state.size() != expectedSize) {
+            return false;
+        }
+        for (Map.Entry<Integer, Integer> entry : state.entrySet()) {
+            int quantity = entry.getValue();
+            if (quantity % products != entry.getKey() || quantity > lastSeq || lastSeq - quantity >= products) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void check(String name, boolean passed) {
+        if (!passed) {
+            failures.add(name);
+        }
+    }
+
+    private Path scratch(String name) throws IOException {
+        Path dir = baseDir.resolve(name);
+        if (Files.exists(dir)) {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        Files.createDirectories(dir);
+        return dir;
+    }
+}
@@ -0,0 +1,157 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.controller.LatencyHistogram;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the {@link InventoryStore} engines on the same data and operations.
+ * <p>
+ * Each engine is loaded with the same suppliers, products and sales, then every operation
+ * runs for a fixed time on several threads, reporting throughput and latency percentiles.
+ * The jdbc engine runs on an in-memory H2 database unless {@code -Dinventory.url} points
+ * elsewhere, so the comparison measures the engines rather than the disk.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.StoreBenchmark \
+ *     --products=10000 --sales=20000 --seconds=3 --threads=4 --output=target/store-report.json
+ * </pre>
+ */
+public final class StoreBenchmark {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final int SUPPLIERS = 50;
+
+    private final int products;
+    private final int sales;
+    private final long seconds;
+    private final int threads;
+
+    private StoreBenchmark(Map<String, String> options) {
+        this.products = Integer.parseInt(options.getOrDefault("products", "10000"));
+        this.sales = Integer.parseInt(options.getOrDefault("sales", "20000"));
+        this.seconds = Long.parseLong(options.getOrDefault("seconds", "3"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:storeBenchmark;DB_CLOSE_DELAY=-1");
+        }
+
+        StoreBenchmark benchmark = new StoreBenchmark(options);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("products", benchmark.products);
+        report.put("sales", benchmark.sales);
+        report.put("threads", benchmark.threads);
+        for (String engine : new String[] {"jdbc", "memory"}) {
+            report.put(engine, benchmark.run(InventoryStore.create(engine)));
+        }
+        String json = gson.toJson(report);
+        System.out.println(json);
+        String output = options.get("output");
+        if (output != null) {
+            Files.writeString(Path.of(output), json);
+        }
+        System.exit(0);
+    }
+
+    private Map<String, Object> run(InventoryStore store) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long started = System.nanoTime();
+        for (int i = 1; i <= SUPPLIERS; i++) {
+            store.addSupplier(new Supplier(0, "Supplier " + i, null, null, null));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 1; i <= products; i++) {
+            Product product = new Product();
+            product.setName("Product " + random.nextInt(1_000_000) + " " + i);
+            product.setPriceCents(100 + random.nextInt(10_000));
+            product.setStockQuantity(1_000_000);
+            product.setSupplierId(1 + i % SUPPLIERS);
+            product.setSku("SKU-" + i);
+            store.addProduct(product);
+        }
+        for (int i = 0; i < sales; i++) {
+            store.recordSale(new Sale(1 + random.nextInt(products), 1 + random.nextInt(5), 0));
+        }
+        result.put("loadMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        String today = LocalDate.now().toString();
+        result.put("productById", measure(() -> store.getProductById(randomProduct())));
+        result.put("productBySku", measure(() -> store.getProductBySku("SKU-" + randomProduct())));
+        result.put("listProducts", measure(() -> store.getAllProducts(true)));
+        result.put("inventoryReport", measure(() -> store.generateInventoryReport(true)));
+        result.put("salesReport", measure(() -> store.generateSalesReport(true, null, null)));
+        result.put("salesReportToday", measure(() -> store.generateSalesReport(true, today, today)));
+        // Writes last, since the faster engine would otherwise report on many more sales
+        result.put("adjustStock", measure(() -> store.adjustStock(randomProduct(), 1)));
+        result.put("recordSale", measure(() -> store.recordSale(new Sale(randomProduct(), 1, 0))));
+        return result;
+    }
+
+    private int randomProduct() {
+        return 1 + ThreadLocalRandom.current().nextInt(products);
+    }
+
+    private Map<String, Object> measure(Operation operation) throws Exception {
+        // Warm-up, so the measured run is not charged for JIT compilation
+        long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (System.nanoTime() < warmUpEnd) {
+            operation.run();
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong count = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        long started = System.nanoTime();
+                        operation.run();
+                        latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+                        count.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("opsPerSecond", Math.round(count.get() / (double) seconds));
+        result.put("p50Micros", latency.percentileMicros(50));
+        result.put("p99Micros", latency.percentileMicros(99));
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,372 @@
+package org.inventorymanagementsystem.tools;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.inventorymanagementsystem.InventoryStore;
+import org.inventorymanagementsystem.VersionConflictException;
+import org.inventorymanagementsystem.model.Customer;
+import org.inventorymanagementsystem.model.Product;
+import org.inventorymanagementsystem.model.Sale;
+import org.inventorymanagementsystem.model.StockAdjustmentLine;
+import org.inventorymanagementsystem.model.Supplier;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one scenario of product, supplier, sale and report operations against every
+ * {@link InventoryStore} engine and checks that each engine:
+ * <ul>
+ *   <li>returns the expected values and fails with the expected exception at every step</li>
+ *   <li>gives exactly the same answers as the other engines, sale times aside</li>
+ * </ul>
+ * The jdbc engine runs on a private in-memory H2 database, so nothing on disk is read or changed.
+ * <pre>
+ * java -cp ... org.inventorymanagementsystem.tools.StoreConformance
+ * </pre>
+ * Exits with status 1 if any check fails.
+ */
+public final class StoreConformance {
+    private static final Gson gson = new Gson();
+    private static final String[] ENGINES = {"jdbc", "memory"};
+
+    private final String engine;
+    private final InventoryStore store;
+    private final List<String> failures;
+    // Result of every step as JSON, compared across engines
+    private final Map<String, String> transcript = new LinkedHashMap<>();
+
+    private StoreConformance(String engine, List<String> failures) {
+        this.engine = engine;
+        this.store = InventoryStore.create(engine);
+        this.failures = failures;
+    }
+
+    public static void main(String[] args) {
+        if (System.getProperty("inventory.url") == null) {
+            System.setProperty("inventory.url", "jdbc:h2:mem:conformance;DB_CLOSE_DELAY=-1");
+        }
+        List<String> failures = new ArrayList<>();
+        Map<String, Map<String, String>> transcripts = new LinkedHashMap<>();
+        for (String engine : ENGINES) {
+            StoreConformance suite = new StoreConformance(engine, failures);
+            try {
+                suite.run();
+            } catch (Exception e) {
+                failures.add(engine + ": scenario aborted: " + e);
+            }
+            transcripts.put(engine, suite.transcript);
+        }
+
+        Map<String, String> reference = transcripts.get(ENGINES[0]);
+        for (String engine : ENGINES) {
+            Map<String, String> transcript = transcripts.get(engine);
+            for (Map.Entry<String, String> step : reference.entrySet()) {
+                String other = transcript.get(step.getKey());
+                if (!step.getValue().equals(other)) {
+                    failures.add(engine + " differs from " + ENGINES[0] + " at '" + step.getKey() + "': " +
+                            other + " vs " + step.getValue());
+                }
+            }
+        }
+
+        int steps = reference.size();
+        System.out.println(steps + " steps on " + String.join(", ", ENGINES) + ": " +
+                (failures.isEmpty() ? "all checks passed" : failures.size() + " failures"));
+        failures.forEach(failure -> System.out.println("  FAILED " + failure));
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private void run() throws SQLException {
+        String today = LocalDate.now().toString();
+
+        // Suppliers
+        Supplier acme = store.addSupplier(new Supplier(0, "Acme", "Ann", "ann@acme.test", "555-0100"));
+        Supplier bolts = store.addSupplier(new Supplier(0, "Bolts Inc", "Bob", "bob@bolts.test", "555-0101"));
+        check("supplier IDs", acme.getId() == 1 && bolts.getId() == 2);
+        check("suppliers by name", names(record("suppliers", store.getAllSuppliers(true)))
+                .equals(List.of("Acme", "Bolts Inc")));
+        expectError("unknown supplier", SQLException.class, "Supplier not found with ID: 99",
+                () -> store.getSupplierById(99));
+
+        // Products
+        Product widget = store.addProduct(product("Widget", 250, 20, acme.getId()));
+        Product bolt = store.addProduct(product("Bolt", 10, 5, bolts.getId()));
+        Product gear = store.addProduct(product("Gear", 1000, 0, 0));
+        record("added products", List.of(widget, bolt, gear));
+        check("product IDs", widget.getId() == 1 && bolt.getId() == 2 && gear.getId() == 3);
+        check("products by name", names(record("products", store.getAllProducts(true)))
+                .equals(List.of("Bolt", "Gear", "Widget")));
+        expectError("product with missing supplier", SQLIntegrityConstraintViolationException.class, null,
+                () -> store.addProduct(product("Orphan", 100, 1, 99)));
+        expectError("unknown product", SQLException.class, "Product not found with ID: 99",
+                () -> store.getProductById(99));
+
+        JsonObject inventory = record("inventory report", store.generateInventoryReport(true)).getAsJsonObject();
+        check("inventory totals", inventory.get("totalProducts").getAsInt() == 3
+                && inventory.get("totalValue").getAsString().equals("50.50")
+                && inventory.get("lowStockItems").getAsInt() == 2
+                && inventory.get("outOfStockItems").getAsInt() == 1);
+
+        // Sales
+        Sale first = store.recordSale(new Sale(widget.getId(), 3, 0));
+        check("sale ID and captured price", first.getId() == 1 && first.getUnitPriceCents() == 250);
+        Sale second = store.recordSale(new Sale(bolt.getId(), 5, 0));
+        check("second sale ID", second.getId() == 2);
+        expectError("sale beyond stock", SQLException.class, "Insufficient stock",
+                () -> store.recordSale(new Sale(widget.getId(), 100, 0)));
+        expectError("sale of nothing", IllegalArgumentException.class, "Quantity must be positive",
+                () -> store.recordSale(new Sale(widget.getId(), 0, 0)));
+        expectError("sale of unknown product", SQLException.class, "Product not found with ID: 99",
+                () -> store.recordSale(new Sale(99, 1, 0)));
+        check("stock taken by sales", store.getProductById(widget.getId()).getStockQuantity() == 17
+                && store.getProductById(bolt.getId()).getStockQuantity() == 0);
+
+        // Stock
+        JsonObject adjusted = record("adjusted gear", store.adjustStock(gear.getId(), 7)).getAsJsonObject();
+        check("adjust stock", adjusted.get("stockQuantity").getAsInt() == 7 && adjusted.get("version").getAsInt() == 1);
+        expectError("adjust below zero", SQLException.class, "Insufficient stock for this adjustment",
+                () -> store.adjustStock(gear.getId(), -8));
+        check("set stock", store.updateStockQuantity(bolt.getId(), 40));
+        check("set stock of unknown product", !store.updateStockQuantity(99, 1));
+        check("products by IDs", names(record("products by IDs", store.getProductsByIds(List.of(gear.getId(), 99, widget.getId(), gear.getId()))))
+                .equals(List.of("Gear", "Widget")));
+
+        // Bulk stock adjustments; the applied lines cancel out, so later totals are unchanged
+        List<StockAdjustmentLine> lines = List.of(new StockAdjustmentLine(gear.getId(), -3), new StockAdjustmentLine(99, 1),
+                new StockAdjustmentLine(gear.getId(), -10), new StockAdjustmentLine(bolt.getId(), 5),
+                new StockAdjustmentLine(gear.getId(), 3), new StockAdjustmentLine(bolt.getId(), -5));
+        record("bulk adjustment", store.adjustStock(lines, false));
+        check("bulk adjustment statuses", statuses(lines).equals(List.of("APPLIED", "NOT_FOUND", "INSUFFICIENT_STOCK",
+                "APPLIED", "APPLIED", "APPLIED")) && lines.get(0).getStockQuantity() == 7 && lines.get(3).getStockQuantity() == 40);
+        List<StockAdjustmentLine> refused = List.of(new StockAdjustmentLine(gear.getId(), 1), new StockAdjustmentLine(bolt.getId(), -100));
+        record("atomic bulk adjustment", store.adjustStock(refused, true));
+        check("atomic bulk adjustment statuses", statuses(refused).equals(List.of("NOT_APPLIED", "INSUFFICIENT_STOCK"))
+                && store.getProductById(gear.getId()).getStockQuantity() == 7);
+
+        // Updates and deletes
+        Product renamed = product("Zinc widget", 300, 17, acme.getId());
+        renamed.setId(widget.getId());
+        expectError("update from a stale version", VersionConflictException.class, "Product 1 is at version 1, not 0",
+                () -> store.updateProduct(renamed, 0));
+        check("update bumps version", record("updated product", store.updateProduct(renamed, 1))
+                .getAsJsonObject().get("version").getAsInt() == 2);
+        check("stored version", store.getProductById(widget.getId()).getVersion() == 2);
+        check("listing follows rename", names(record("products after rename", store.getAllProducts(true)))
+                .equals(List.of("Bolt", "Gear", "Zinc widget")));
+        Product labelled = product("Zinc widget", 300, 17, acme.getId());
+        labelled.setId(widget.getId());
+        labelled.setSku(" 4006381333931 ");
+        check("set SKU", record("product with SKU", store.updateProduct(labelled, 2))
+                .getAsJsonObject().get("sku").getAsString().equals("4006381333931"));
+        check("product by SKU", record("product by SKU", store.getProductBySku("4006381333931"))
+                .getAsJsonObject().get("id").getAsInt() == widget.getId());
+        Product clash = product("Copy", 100, 1, 0);
+        clash.setSku("4006381333931");
+        expectError("taken SKU", IllegalArgumentException.class, "SKU already in use: 4006381333931",
+                () -> store.addProduct(clash));
+        expectError("unknown SKU", SQLException.class, "Product not found with SKU: 999",
+                () -> store.getProductBySku("999"));
+        expectError("blank SKU", IllegalArgumentException.class, "SKU is required", () -> store.getProductBySku(" "));
+
+        // Supplier expansion and each supplier's products
+        JsonObject expanded = record("product with supplier", store.getProductById(widget.getId(), true)).getAsJsonObject();
+        check("expanded supplier", expanded.getAsJsonObject("supplier").get("name").getAsString().equals("Acme"));
+        JsonArray expandedList = record("products with suppliers", store.getAllProducts(true, true)).getAsJsonArray();
+        check("expanded listing", expandedList.get(0).getAsJsonObject().getAsJsonObject("supplier").get("name")
+                .getAsString().equals("Bolts Inc") && !expandedList.get(1).getAsJsonObject().has("supplier"));
+        check("expanded SKU lookup", record("product by SKU with supplier", store.getProductBySku("4006381333931", true))
+                .getAsJsonObject().getAsJsonObject("supplier").get("id").getAsInt() == acme.getId());
+        check("supplier products", names(record("supplier products", store.getSupplierProducts(acme.getId(), 10, 0, false)))
+                .equals(List.of("Zinc widget")));
+        check("supplier products past the end", store.getSupplierProducts(acme.getId(), 10, 1, false).isEmpty());
+        expectError("products of unknown supplier", SQLException.class, "Supplier not found with ID: 99",
+                () -> store.getSupplierProducts(99, 10, 0, false));
+        expectError("negative supplier product limit", IllegalArgumentException.class,
+                "Limit and offset must be non-negative", () -> store.getSupplierProducts(acme.getId(), -1, 0, false));
+        Product missing = product("Ghost", 100, 1, 0);
+        missing.setId(99);
+        expectError("update unknown product", SQLException.class, "Product not found with ID: 99",
+                () -> store.updateProduct(missing, null));
+        expectError("delete product with sales", SQLIntegrityConstraintViolationException.class, null, () -> store.deleteProduct(widget.getId()));
+        check("delete product", store.deleteProduct(gear.getId()));
+        check("delete product twice", !store.deleteProduct(gear.getId()));
+
+        expectError("delete supplier with products", SQLIntegrityConstraintViolationException.class, null, () -> store.deleteSupplier(bolts.getId()));
+        Supplier spare = store.addSupplier(new Supplier(0, "Spare", null, null, null));
+        Supplier updated = new Supplier(spare.getId(), "Spare parts", "Sam", null, null);
+        check("supplier update bumps version", record("updated supplier", store.updateSupplier(updated, 0))
+                .getAsJsonObject().get("version").getAsInt() == 1);
+        expectError("supplier update from a stale version", VersionConflictException.class, "Supplier " + spare.getId() +
+                " is at version 1, not 0", () -> store.updateSupplier(updated, 0));
+        check("updated supplier is stored", store.getSupplierById(spare.getId()).getName().equals("Spare parts"));
+        expectError("update unknown supplier", SQLException.class, "Supplier not found with ID: 99",
+                () -> store.updateSupplier(new Supplier(99, "Nobody", null, null, null), null));
+        check("delete supplier", store.deleteSupplier(spare.getId()));
+        check("delete supplier twice", !store.deleteSupplier(spare.getId()));
+
+        // Sale lookups and listings
+        JsonArray sales = record("sales", store.getAllSales(true)).getAsJsonArray();
+        check("sales newest first", sales.size() == 2
+                && sales.get(0).getAsJsonObject().get("id").getAsInt() == 2
+                && sales.get(1).getAsJsonObject().get("productName").getAsString().equals("Zinc widget"));
+        check("sale by ID", record("sale 1", store.getSaleById(1))
+                .getAsJsonObject().get("productName").getAsString().equals("Zinc widget"));
+        expectError("unknown sale", SQLException.class, "Sale not found with ID: 99", () -> store.getSaleById(99));
+        check("sales today", record("sales today", store.getSales(true, today, today)).getAsJsonArray().size() == 2);
+        check("sales from today", record("sales from today", store.getSales(true, today, null)).getAsJsonArray().size() == 2);
+        check("sales in 2000", record("sales in 2000", store.getSales(true, "2000-01-01", "2000-12-31"))
+                .getAsJsonArray().size() == 0);
+        expectError("invalid date", IllegalArgumentException.class, "Invalid date, expected yyyy-MM-dd: soon",
+                () -> store.getSales(true, "soon", null));
+
+        // Reports
+        JsonObject salesReport = record("sales report", store.generateSalesReport(true, null, null)).getAsJsonObject();
+        JsonArray top = salesReport.getAsJsonArray("topProducts");
+        check("sales totals", salesReport.get("totalSales").getAsInt() == 2
+                && salesReport.get("totalUnitsSold").getAsInt() == 8
+                && salesReport.get("totalRevenue").getAsString().equals("8.00"));
+        check("top products", top.size() == 2
+                && top.get(0).getAsJsonObject().get("productId").getAsInt() == bolt.getId()
+                && top.get(1).getAsJsonObject().get("productName").getAsString().equals("Zinc widget"));
+        record("sales report today", store.generateSalesReport(true, today, today));
+        JsonObject empty = record("sales report 2000", store.generateSalesReport(true, "2000-01-01", "2000-12-31"))
+                .getAsJsonObject();
+        check("empty sales report", empty.get("totalSales").getAsInt() == 0
+                && empty.getAsJsonArray("topProducts").size() == 0);
+
+        inventory = record("final inventory report", store.generateInventoryReport(true)).getAsJsonObject();
+        check("inventory after changes", inventory.get("totalProducts").getAsInt() == 2
+                && inventory.get("totalValue").getAsString().equals("55.00")
+                && inventory.get("lowStockItems").getAsInt() == 0
+                && inventory.get("outOfStockItems").getAsInt() == 0);
+
+        // Customers
+        Customer ada = store.addCustomer(customer("Ada"));
+        record("added customer", ada);
+        check("customer ID and empty totals", ada.getId() == 1 && ada.getPurchaseCount() == 0
+                && ada.getLastPurchaseAt() == null);
+        expectError("customer without name", IllegalArgumentException.class, "Customer name is required",
+                () -> store.addCustomer(customer(" ")));
+        expectError("unknown customer", SQLException.class, "Customer not found with ID: 99",
+                () -> store.getCustomerById(99));
+        Sale firstPurchase = store.recordSale(customerSale(widget.getId(), 2, ada.getId()));
+        Sale secondPurchase = store.recordSale(customerSale(bolt.getId(), 3, ada.getId()));
+        int widgetStock = store.getProductById(widget.getId()).getStockQuantity();
+        expectError("sale to unknown customer", SQLException.class, "Customer not found with ID: 99",
+                () -> store.recordSale(customerSale(widget.getId(), 1, 99)));
+        check("sale to unknown customer is not recorded", store.getAllSales(true).size() == 4
+                && store.getProductById(widget.getId()).getStockQuantity() == widgetStock);
+        JsonObject totals = record("customer totals", store.getCustomerById(ada.getId())).getAsJsonObject();
+        check("customer totals", totals.get("purchaseCount").getAsInt() == 2
+                && totals.get("unitsBought").getAsInt() == 5
+                && totals.get("totalSpent").getAsBigDecimal().movePointRight(2).longValueExact()
+                        == firstPurchase.getTotalPriceCents() + secondPurchase.getTotalPriceCents()
+                && store.getCustomerById(ada.getId()).getLastPurchaseAt() != null);
+        JsonObject page = record("customer purchases", store.getCustomerPurchases(ada.getId(), 1, 0)).getAsJsonObject();
+        JsonArray purchases = page.getAsJsonArray("purchases");
+        check("customer purchases newest first", purchases.size() == 1
+                && purchases.get(0).getAsJsonObject().get("id").getAsInt() == secondPurchase.getId()
+                && purchases.get(0).getAsJsonObject().get("customerId").getAsInt() == ada.getId()
+                && page.getAsJsonObject("customer").get("purchaseCount").getAsInt() == 2);
+        check("customer purchases next page", record("customer purchases page 2", store.getCustomerPurchases(ada.getId(), 1, 1))
+                .getAsJsonObject().getAsJsonArray("purchases").get(0).getAsJsonObject().get("id").getAsInt() == firstPurchase.getId());
+        check("customer purchases past the end", record("customer purchases past the end",
+                store.getCustomerPurchases(ada.getId(), 10, 2)).getAsJsonObject().getAsJsonArray("purchases").isEmpty());
+        check("anonymous sale has no customer", store.getSaleById(1).getCustomerId() == 0);
+        expectError("purchases of unknown customer", SQLException.class, "Customer not found with ID: 99",
+                () -> store.getCustomerPurchases(99, 10, 0));
+        expectError("negative purchase limit", IllegalArgumentException.class,
+                "Limit and offset must be non-negative", () -> store.getCustomerPurchases(ada.getId(), -1, 0));
+    }
+
+    private static Customer customer(String name) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        return customer;
+    }
+
+    private static Sale customerSale(int productId, int quantity, int customerId) {
+        Sale sale = new Sale(productId, quantity, 0);
+        sale.setCustomerId(customerId);
+        return sale;
+    }
+
+    private static Product product(String name, long priceCents, int stock, int supplierId) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPriceCents(priceCents);
+        product.setStockQuantity(stock);
+        product.setSupplierId(supplierId);
+        return product;
+    }
+
+    /**
+     * Adds a step result to the transcript, without sale or purchase times, and returns it as JSON
+     */
+    private JsonElement record(String step, Object result) {
+        // Through text: the money adapters write raw JSON numbers, which toJsonTree cannot take
+        JsonElement json = JsonParser.parseString(gson.toJson(result));
+        stripSaleDates(json);
+        transcript.put(step, json.toString());
+        return json;
+    }
+
+    private static void stripSaleDates(JsonElement json) {
+        if (json.isJsonArray()) {
+            json.getAsJsonArray().forEach(StoreConformance::stripSaleDates);
+        } else if (json.isJsonObject()) {
+            JsonObject object = json.getAsJsonObject();
+            object.remove("saleDate");
+            object.remove("lastPurchaseAt");
+            object.asMap().values().forEach(StoreConformance::stripSaleDates);
+        }
+    }
+
+    private static List<String> statuses(List<StockAdjustmentLine> lines) {
+        List<String> statuses = new ArrayList<>();
+        lines.forEach(line -> statuses.add(line.getStatus().name()));
+        return statuses;
+    }
+
+    private static List<String> names(JsonElement list) {
+        List<String> names = new ArrayList<>();
+        list.getAsJsonArray().forEach(item -> names.add(item.getAsJsonObject().get("name").getAsString()));
+        return names;
+    }
+
+    /**
+     * Expects the call to throw the exception type, with the message if one is given.
+     * Constraint violation messages come from H2 on the jdbc engine, so only their type is compared.
+     */
+    private void expectError(String step, Class<? extends Exception> type, String message, StoreCall call) {
+        try {
+            call.run();
+            failures.add(engine + ": " + step + ": no exception");
+            transcript.put(step, "no exception");
+        } catch (Exception e) {
+            check(step, type.isInstance(e) && (message == null || message.equals(e.getMessage())));
+            String thrown = type.isInstance(e) ? type.getSimpleName() : e.getClass().getName();
+            transcript.put(step, thrown + (message == null ? "" : ": " + e.getMessage()));
+        }
+    }
+
+    private void check(String step, boolean passed) {
+        if (!passed) {
+            failures.add(engine + ": " + step);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StoreCall {
+        Object run() throws Exception;
+    }
+}